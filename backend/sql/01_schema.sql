@@ -108,6 +108,7 @@ CREATE TABLE `t_trip_day` (
   `plan_id`   BIGINT NOT NULL COMMENT '所属行程ID',
   `day_index` INT        DEFAULT NULL COMMENT '第几天(从1开始)',
   `date`      DATE       DEFAULT NULL COMMENT '对应日期',
+  `overflow_minutes` INT DEFAULT NULL COMMENT '排程超出当日时间窗的分钟数(0表示未超出)',
   PRIMARY KEY (`id`),
   KEY `idx_trip_day_plan` (`plan_id`),
   CONSTRAINT `fk_trip_day_plan` FOREIGN KEY (`plan_id`) REFERENCES `t_trip_plan` (`id`) ON DELETE CASCADE
@@ -124,6 +125,7 @@ CREATE TABLE `t_trip_activity` (
   `end_time`       VARCHAR(32)     DEFAULT NULL COMMENT '预计结束时间(字符串)',
   `transport`      VARCHAR(64)     DEFAULT NULL COMMENT '交通方式(步行/地铁/出租车等)',
   `estimated_cost` INT             DEFAULT NULL COMMENT '预估花费(元)',
+  `stay_minutes`   INT             DEFAULT NULL COMMENT '停留时长(分钟)',
   `lng`            DOUBLE          DEFAULT NULL COMMENT '经度',
   `lat`            DOUBLE          DEFAULT NULL COMMENT '纬度',
   PRIMARY KEY (`id`),
@@ -131,6 +133,18 @@ CREATE TABLE `t_trip_activity` (
   CONSTRAINT `fk_trip_activity_day` FOREIGN KEY (`day_id`) REFERENCES `t_trip_day` (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='行程每日活动表';
 
+DROP TABLE IF EXISTS `t_route_stats`;
+CREATE TABLE `t_route_stats` (
+  `plan_id`        BIGINT NOT NULL COMMENT '行程ID',
+  `like_count`     BIGINT NOT NULL DEFAULT 0 COMMENT '点赞数',
+  `favorite_count` BIGINT NOT NULL DEFAULT 0 COMMENT '收藏数',
+  `usage_count`    BIGINT NOT NULL DEFAULT 0 COMMENT '被游记/结伴引用次数',
+  `hotness`        DOUBLE NOT NULL DEFAULT 0 COMMENT '时间衰减热度(定时重算)',
+  PRIMARY KEY (`plan_id`),
+  KEY `idx_route_stats_hotness` (`hotness`, `plan_id`),
+  CONSTRAINT `fk_route_stats_plan` FOREIGN KEY (`plan_id`) REFERENCES `t_trip_plan` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='路线互动计数与热度';
+
 ------------------------------------------------------------
 -- 结伴与小队相关表
 ------------------------------------------------------------
@@ -149,14 +163,28 @@ CREATE TABLE `t_companion_post` (
   `budget_max`         INT          DEFAULT NULL COMMENT '预算上限(元)',
   `expected_mate_desc` VARCHAR(512) DEFAULT NULL COMMENT '对旅友的期待(性格/偏好等)',
   `visibility`         VARCHAR(16)  DEFAULT 'public' COMMENT '可见性: public/friends/private',
-  `status`             VARCHAR(16)  DEFAULT 'open' COMMENT '状态: open/locked/closed',
+  `status`             VARCHAR(16)  DEFAULT 'open' COMMENT '状态: open/locked/closed/deleted(异步删除待回收)',
   `created_at`         DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   PRIMARY KEY (`id`),
   KEY `idx_companion_post_creator` (`creator_id`),
   KEY `idx_companion_post_dest_date` (`destination`,`start_date`,`end_date`),
+  KEY `idx_companion_post_start_id` (`start_date`,`id`),
   CONSTRAINT `fk_companion_post_creator` FOREIGN KEY (`creator_id`) REFERENCES `t_user` (`id`) ON DELETE SET NULL
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='结伴需求发布表';
 
+DROP TABLE IF EXISTS `t_companion_post_gram`;
+CREATE TABLE `t_companion_post_gram` (
+  `id`         BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键',
+  `gram`       VARCHAR(8) NOT NULL COMMENT '目的地单字/双字片段(小写、去空白)',
+  `post_id`    BIGINT     NOT NULL COMMENT '结伴帖子ID',
+  `start_date` DATE       DEFAULT NULL COMMENT '冗余: 帖子出发日期, 用于游标分页',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_post_gram` (`post_id`,`gram`),
+  KEY `idx_post_gram_seek` (`gram`,`start_date`,`post_id`),
+  KEY `idx_post_gram_post` (`post_id`),
+  CONSTRAINT `fk_post_gram_post` FOREIGN KEY (`post_id`) REFERENCES `t_companion_post` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='结伴帖目的地n-gram倒排表';
+
 DROP TABLE IF EXISTS `t_companion_team`;
 CREATE TABLE `t_companion_team` (
   `id`            BIGINT NOT NULL AUTO_INCREMENT COMMENT '小队ID',
@@ -164,6 +192,7 @@ CREATE TABLE `t_companion_team` (
   `name`          VARCHAR(255) DEFAULT NULL COMMENT '小队名称',
   `final_plan_id` BIGINT      DEFAULT NULL COMMENT '最终确认行程ID(可为空)',
   `status`        VARCHAR(16)  DEFAULT 'forming' COMMENT '小队状态: forming/confirmed/finished',
+  `joined_count`  INT          DEFAULT NULL COMMENT '已占座位数(含队长), 条件 UPDATE 原子增减, 上限为帖子 max_people; 为空时启动按成员表回填',
   PRIMARY KEY (`id`),
   KEY `idx_companion_team_post` (`post_id`),
   CONSTRAINT `fk_companion_team_post` FOREIGN KEY (`post_id`) REFERENCES `t_companion_post` (`id`) ON DELETE SET NULL
@@ -178,12 +207,36 @@ CREATE TABLE `t_team_member` (
   `state`     VARCHAR(16) DEFAULT 'joined' COMMENT '状态: joined/pending/left',
   `joined_at` DATETIME    DEFAULT CURRENT_TIMESTAMP COMMENT '加入时间',
   PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_team_member_team_user` (`team_id`,`user_id`),
   KEY `idx_team_member_team` (`team_id`),
   KEY `idx_team_member_user` (`user_id`),
   CONSTRAINT `fk_team_member_team` FOREIGN KEY (`team_id`) REFERENCES `t_companion_team` (`id`) ON DELETE CASCADE,
   CONSTRAINT `fk_team_member_user` FOREIGN KEY (`user_id`) REFERENCES `t_user` (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='小队成员关系表';
 
+DROP TABLE IF EXISTS `t_team_summary`;
+CREATE TABLE `t_team_summary` (
+  `team_id`              BIGINT       NOT NULL COMMENT '小队ID(与小队共用主键)',
+  `post_id`              BIGINT       DEFAULT NULL COMMENT '来源结伴帖子ID',
+  `member_count`         INT          DEFAULT 0 COMMENT '成员数',
+  `last_message_id`      BIGINT       DEFAULT NULL COMMENT '群聊最后一条消息ID',
+  `last_message_preview` VARCHAR(255) DEFAULT NULL COMMENT '最后一条消息预览',
+  `last_message_at`      DATETIME     DEFAULT NULL COMMENT '最后一条消息时间',
+  `last_sender_id`       BIGINT       DEFAULT NULL COMMENT '最后一条消息发送者ID, NULL 表示系统消息',
+  PRIMARY KEY (`team_id`),
+  KEY `idx_team_summary_post` (`post_id`),
+  KEY `idx_team_summary_last_at` (`last_message_at`),
+  CONSTRAINT `fk_team_summary_team` FOREIGN KEY (`team_id`) REFERENCES `t_companion_team` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='小队消息摘要(冗余)';
+
+DROP TABLE IF EXISTS `t_companion_recommendation`;
+CREATE TABLE `t_companion_recommendation` (
+  `user_id`     BIGINT         NOT NULL COMMENT '用户ID',
+  `post_ids`    VARBINARY(800) DEFAULT NULL COMMENT '按得分降序的帖子ID, 每个 8 字节大端拼接',
+  `computed_at` DATETIME       DEFAULT NULL COMMENT '计算时间',
+  PRIMARY KEY (`user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='结伴推荐预计算结果';
+
 DROP TABLE IF EXISTS `t_team_share`;
 CREATE TABLE `t_team_share` (
   `id`         BIGINT   NOT NULL AUTO_INCREMENT COMMENT '分享记录ID',
@@ -208,6 +261,7 @@ CREATE TABLE `t_post_chat_message` (
   `created_at` DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '发送时间',
   PRIMARY KEY (`id`),
   KEY `idx_post_chat_post_created` (`post_id`, `created_at`),
+  KEY `idx_post_chat_post_id` (`post_id`, `id`),
   CONSTRAINT `fk_post_chat_post` FOREIGN KEY (`post_id`) REFERENCES `t_companion_post` (`id`) ON DELETE CASCADE,
   CONSTRAINT `fk_post_chat_user` FOREIGN KEY (`user_id`) REFERENCES `t_user` (`id`) ON DELETE SET NULL
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='结伴帖内置沟通消息';
@@ -346,3 +400,17 @@ CREATE TABLE `t_private_message` (
   CONSTRAINT `fk_private_msg_conv` FOREIGN KEY (`conversation_id`) REFERENCES `t_private_conversation` (`id`) ON DELETE CASCADE,
   CONSTRAINT `fk_private_msg_sender` FOREIGN KEY (`sender_id`) REFERENCES `t_user` (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='私信消息表';
+
+------------------------------------------------------------
+-- 媒体存储（按内容 SHA-256 寻址，字节存放于本地文件系统）
+------------------------------------------------------------
+
+DROP TABLE IF EXISTS `t_media_object`;
+CREATE TABLE `t_media_object` (
+  `hash`         CHAR(64)    NOT NULL COMMENT '内容SHA-256(小写十六进制)',
+  `content_type` VARCHAR(64) NOT NULL COMMENT 'MIME类型',
+  `size_bytes`   BIGINT      DEFAULT NULL COMMENT '字节数',
+  `uploader_id`  BIGINT      DEFAULT NULL COMMENT '首次上传者ID',
+  `created_at`   DATETIME    NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`hash`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='媒体对象表';
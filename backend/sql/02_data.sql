@@ -164,10 +164,10 @@ INSERT INTO `t_companion_post` (`id`, `creator_id`, `related_plan_id`, `destinat
 (5, 2, NULL, '大理、丽江', '2025-05-10', '2025-05-16', 2, 4, 4000, 8000, '云南休闲游，洱海+古城，喜欢拍照的伙伴优先', 'public', 'open', '2024-01-29 10:00:00'),
 (6, 3, NULL, '厦门', '2025-06-01', '2025-06-04', 2, 4, 2000, 4000, '鼓浪屿+美食，短途放松，性格随和即可', 'public', 'open', '2024-01-30 09:00:00');
 
-INSERT INTO `t_companion_team` (`id`, `post_id`, `name`, `final_plan_id`, `status`) VALUES
-(1, 1, '北海道摄影小分队', NULL, 'forming'),
-(2, 2, '新疆自驾游小队', NULL, 'forming'),
-(3, 3, '清迈美食探索团', NULL, 'forming');
+INSERT INTO `t_companion_team` (`id`, `post_id`, `name`, `final_plan_id`, `status`, `joined_count`) VALUES
+(1, 1, '北海道摄影小分队', NULL, 'forming', 2),
+(2, 2, '新疆自驾游小队', NULL, 'forming', 2),
+(3, 3, '清迈美食探索团', NULL, 'forming', 2);
 
 INSERT INTO `t_team_member` (`id`, `team_id`, `user_id`, `role`, `state`, `joined_at`) VALUES
 (1, 1, 4, 'leader', 'joined', '2024-01-25 09:00:00'),
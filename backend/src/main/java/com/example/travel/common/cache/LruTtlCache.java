@@ -0,0 +1,83 @@
+package com.example.travel.common.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 进程内有界缓存：按访问顺序淘汰（LRU），每个条目另有存活时间（TTL）。
+ * 用于读多写少、可容忍短暂不一致的数据；写路径应在数据变更后调用 {@link #invalidate}。
+ * 所有方法线程安全；加载函数在锁外执行，并发未命中时可能重复加载，结果以后写入者为准。
+ */
+public class LruTtlCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Slot<V>> map;
+
+    private record Slot<V>(V value, long expiresAt) {
+    }
+
+    public LruTtlCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Slot<V>> eldest) {
+                return size() > LruTtlCache.this.maxEntries;
+            }
+        };
+    }
+
+    /** 命中且未过期时返回缓存值，否则返回 null */
+    public V get(K key) {
+        synchronized (map) {
+            Slot<V> slot = map.get(key);
+            if (slot == null) {
+                return null;
+            }
+            if (System.nanoTime() - slot.expiresAt() > 0) {
+                map.remove(key);
+                return null;
+            }
+            return slot.value();
+        }
+    }
+
+    /** 未命中时调用 loader 加载并写入缓存；loader 返回 null 时不缓存 */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            put(key, loaded);
+        }
+        return loaded;
+    }
+
+    public void put(K key, V value) {
+        synchronized (map) {
+            map.put(key, new Slot<>(value, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (map) {
+            map.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+}
@@ -28,6 +28,12 @@ public class CompanionController {
         return ApiResponse.success(companionService.search(request));
     }
 
+    /** 游标分页搜索（按出发日期升序），替代一次返回全部结果的列表接口；mode=overlap 时按日期/预算区间交集匹配 */
+    @GetMapping("/posts/search")
+    public ApiResponse<CompanionDtos.PostPage> search(CompanionDtos.SearchRequest request) {
+        return ApiResponse.success(companionService.searchPage(request));
+    }
+
     @GetMapping("/posts/recommend")
     public ApiResponse<List<CompanionDtos.PostSummary>> recommend(@RequestParam(defaultValue = "3") int limit) {
         return ApiResponse.success(companionService.recommend(limit));
@@ -44,10 +50,18 @@ public class CompanionController {
         return ApiResponse.success(companionService.myTeamMessages());
     }
 
-    /** 获取结伴帖内置沟通消息列表（任何人可读）- 声明在 /posts/{id} 前避免被误匹配 */
+    /**
+     * 获取结伴帖内置沟通消息列表 - 声明在 /posts/{id} 前避免被误匹配。
+     * 不带参数时返回全部历史；afterId 取其后的新消息（断线重连补齐），beforeId 取其前最近 limit 条（向上翻页），
+     * 只传 limit 时取最近 limit 条。
+     */
     @GetMapping("/posts/{postId}/chat/messages")
-    public ApiResponse<List<CompanionDtos.PostChatMessageItem>> getPostChatMessages(@PathVariable Long postId) {
-        return ApiResponse.success(companionService.getPostChatMessages(postId));
+    public ApiResponse<List<CompanionDtos.PostChatMessageItem>> getPostChatMessages(
+            @PathVariable Long postId,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Integer limit) {
+        return ApiResponse.success(companionService.getPostChatMessages(postId, afterId, beforeId, limit));
     }
 
     /** 发送结伴帖内置沟通消息（需登录，且为发起人或已加入小队成员）- 声明在 /posts/{id} 前避免 404 */
@@ -45,6 +45,24 @@ public class CompanionDtos {
         private String destination;
         private LocalDate startDate;
         private LocalDate endDate;
+        /** 游标分页：上一页返回的 nextCursor，首页不传 */
+        private String cursor;
+        /** 游标分页：每页条数，默认 20，最大 50 */
+        private Integer size;
+        /** 匹配方式：默认 within（行程完全落在日期范围内）；overlap 为行程与日期范围有交集 */
+        private String mode;
+        /** overlap 模式下的预算区间，与帖子预算区间有交集即匹配；不传为不限 */
+        private Integer budgetMin;
+        private Integer budgetMax;
+    }
+
+    /** 游标分页搜索结果 */
+    @Data
+    public static class PostPage {
+        private java.util.List<PostSummary> items;
+        /** 下一页游标；没有更多时为 null */
+        private String nextCursor;
+        private boolean hasMore;
     }
 
     @Data
@@ -13,9 +13,13 @@ import java.time.LocalDateTime;
 @Setter
 @NoArgsConstructor
 @Entity
-@Table(name = "t_companion_post")
+@Table(name = "t_companion_post", indexes = {
+    @Index(name = "idx_companion_post_start_id", columnList = "start_date,id")
+})
 public class CompanionPost {
 
+    public static final String STATUS_DELETED = "deleted";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -47,10 +51,15 @@ public class CompanionPost {
     private String visibility; // public / friends / private
 
     @Column(length = 16)
-    private String status; // open / locked / closed
+    private String status; // open / locked / closed / deleted（异步删除中）
 
     private LocalDateTime createdAt;
 
+    /** 异步删除模式下已标记删除、等待后台回收子数据的帖子，对所有读接口不可见 */
+    public boolean isDeleted() {
+        return STATUS_DELETED.equals(status);
+    }
+
     @PrePersist
     public void prePersist() {
         createdAt = LocalDateTime.now();
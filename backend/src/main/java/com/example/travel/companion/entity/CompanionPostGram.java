@@ -0,0 +1,45 @@
+package com.example.travel.companion.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * 结伴帖目的地 n-gram 倒排表：每行表示「某帖子的目的地包含某个单字 / 双字片段」。
+ * 冗余出发日期，使按 (gram, start_date, post_id) 的索引既能定位片段又能直接做游标分页，
+ * 替代无法走索引的 LIKE '%x%'。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "t_companion_post_gram", indexes = {
+    @Index(name = "idx_post_gram_seek", columnList = "gram,start_date,post_id"),
+    @Index(name = "idx_post_gram_post", columnList = "post_id")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_post_gram", columnNames = {"post_id", "gram"})
+})
+public class CompanionPostGram {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 8, nullable = false)
+    private String gram;
+
+    @Column(name = "post_id", nullable = false)
+    private Long postId;
+
+    @Column(name = "start_date")
+    private LocalDate startDate;
+
+    public CompanionPostGram(String gram, Long postId, LocalDate startDate) {
+        this.gram = gram;
+        this.postId = postId;
+        this.startDate = startDate;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.travel.companion.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 预计算的「与你相似的旅伴」推荐列表（每个用户一行）：按得分降序的帖子 ID 以 8 字节大端整数紧凑拼接。
+ * 由夜间批任务整体刷新，偏好变化时单独重算。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "t_companion_recommendation")
+public class CompanionRecommendation {
+
+    /** 与用户共用主键 */
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "post_ids", length = 800)
+    private byte[] postIds;
+
+    private LocalDateTime computedAt;
+}
@@ -26,5 +26,8 @@ public class CompanionTeam {
 
     @Column(length = 16)
     private String status; // forming / confirmed / finished
+
+    /** 已占座位数（含队长），只通过条件 UPDATE 原子增减，上限为帖子的 maxPeople */
+    private Integer joinedCount;
 }
 
@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Entity
 @Table(name = "t_post_chat_message", indexes = {
-    @Index(name = "idx_post_chat_post_created", columnList = "post_id,created_at")
+    @Index(name = "idx_post_chat_post_created", columnList = "post_id,created_at"),
+    @Index(name = "idx_post_chat_post_id", columnList = "post_id,id")
 })
 public class PostChatMessage {
 
@@ -12,7 +12,9 @@ import java.time.LocalDateTime;
 @Setter
 @NoArgsConstructor
 @Entity
-@Table(name = "t_team_member")
+@Table(name = "t_team_member", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_team_member_team_user", columnNames = {"team_id", "user_id"})
+})
 public class TeamMember {
 
     @Id
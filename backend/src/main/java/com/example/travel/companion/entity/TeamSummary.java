@@ -0,0 +1,44 @@
+package com.example.travel.companion.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 小队消息摘要（与小队一一对应）：成员数与群聊最后一条消息的冗余副本，
+ * 供消息中心「小队消息」一次查询列出，不再逐个小队统计成员、读取完整消息内容。
+ * 由建队、入队、退队、移除成员、发送群聊消息在同一事务内维护。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "t_team_summary", indexes = {
+    @Index(name = "idx_team_summary_post", columnList = "post_id"),
+    @Index(name = "idx_team_summary_last_at", columnList = "last_message_at")
+})
+public class TeamSummary {
+
+    /** 与小队共用主键 */
+    @Id
+    @Column(name = "team_id")
+    private Long teamId;
+
+    @Column(name = "post_id")
+    private Long postId;
+
+    private Integer memberCount = 0;
+
+    private Long lastMessageId;
+
+    @Column(length = 255)
+    private String lastMessagePreview;
+
+    private LocalDateTime lastMessageAt;
+
+    /** 最后一条消息的发送者；系统消息为 null */
+    private Long lastSenderId;
+}
@@ -0,0 +1,191 @@
+package com.example.travel.companion.match;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 结伴兼容度打分引擎。
+ * <p>
+ * 综合标签 Jaccard 相似度、旅行风格、预算区间重叠、出行日期重叠与发起人信誉，按 {@link MatchWeights} 加权。
+ * 候选以槽位数组给出，直接读列式基本类型数组；候选较多时在专用 ForkJoin 池中按区间二分并行，
+ * 每段维护大小为 K 的小顶堆，合并时仍只保留 K 个，不对全部候选排序。
+ */
+@Component
+public class CompatibilityEngine {
+
+    /** 信誉分达到该值时信誉维度得 0.5，之后逐渐趋近 1 */
+    private static final double REPUTATION_HALF = 100.0;
+
+    /** 某一方未设置（预算 / 日期）时该维度的中性得分 */
+    private static final double UNKNOWN = 0.5;
+
+    private final ForkJoinPool pool;
+    private final int splitThreshold;
+
+    public CompatibilityEngine(@Value("${app.companion.match.parallelism:0}") int parallelism,
+                               @Value("${app.companion.match.split-threshold:4096}") int splitThreshold) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.splitThreshold = Math.max(256, splitThreshold);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /** 候选及其得分；同分时 ID 大（较新）的优先 */
+    public record Scored(long postId, double score) {
+        static final Comparator<Scored> ASCENDING = Comparator
+                .comparingDouble(Scored::score)
+                .thenComparingLong(Scored::postId);
+    }
+
+    /**
+     * 在 slots 指定的候选中取得分最高的 k 个。
+     *
+     * @return 按得分降序的候选
+     */
+    public List<Scored> topK(MatchColumns columns, int[] slots, MatchQuery query, MatchWeights weights, int k) {
+        if (k <= 0 || slots.length == 0) {
+            return List.of();
+        }
+        PriorityQueue<Scored> heap = slots.length <= splitThreshold
+                ? scoreRange(columns, slots, 0, slots.length, query, weights, k)
+                : pool.invoke(new ScoreTask(columns, slots, 0, slots.length, query, weights, k, splitThreshold));
+        List<Scored> result = new ArrayList<>(heap);
+        result.sort(Scored.ASCENDING.reversed());
+        return result;
+    }
+
+    static PriorityQueue<Scored> scoreRange(MatchColumns c, int[] slots, int from, int to,
+                                            MatchQuery q, MatchWeights w, int k) {
+        PriorityQueue<Scored> heap = new PriorityQueue<>(k + 1, Scored.ASCENDING);
+        for (int i = from; i < to; i++) {
+            int slot = slots[i];
+            offer(heap, new Scored(c.postIds()[slot], score(c, slot, q, w)), k);
+        }
+        return heap;
+    }
+
+    static void offer(PriorityQueue<Scored> heap, Scored item, int k) {
+        if (heap.size() < k) {
+            heap.add(item);
+        } else if (Scored.ASCENDING.compare(item, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+
+    /** 单个候选的加权得分 */
+    static double score(MatchColumns c, int slot, MatchQuery q, MatchWeights w) {
+        double s = 0;
+        if (w.tags() > 0) {
+            s += w.tags() * jaccard(q.tagIds(), q.tagCount(), c.tagIds()[slot]);
+        }
+        if (w.style() > 0 && q.styleId() >= 0 && q.styleId() == c.styleIds()[slot]) {
+            s += w.style();
+        }
+        if (w.budget() > 0) {
+            s += w.budget() * rangeOverlap(q.budgetMin(), q.budgetMax(), c.budgetMins()[slot], c.budgetMaxs()[slot]);
+        }
+        if (w.dates() > 0) {
+            s += w.dates() * rangeOverlap(q.fromDay(), q.toDay(), c.startDays()[slot], c.endDays()[slot]);
+        }
+        if (w.reputation() > 0) {
+            int rep = c.reputations()[slot];
+            s += rep > 0 ? w.reputation() * rep / (rep + REPUTATION_HALF) : 0;
+        }
+        return s;
+    }
+
+    /**
+     * 两个有序标签编号数组的 Jaccard 系数。queryCount 为查询方标签总数，
+     * 可能大于 queryTags 的长度（索引里从未出现的标签不编号，但仍计入并集）。
+     */
+    static double jaccard(int[] queryTags, int queryCount, int[] candidateTags) {
+        if (queryCount == 0 || candidateTags == null || candidateTags.length == 0) {
+            return 0;
+        }
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < queryTags.length && j < candidateTags.length) {
+            if (queryTags[i] == candidateTags[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (queryTags[i] < candidateTags[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / (queryCount + candidateTags.length - common);
+    }
+
+    /**
+     * 闭区间 [aMin, aMax] 与 [bMin, bMax] 的重叠程度：交集长度 / 较短区间长度，落在 [0, 1]。
+     * 任一区间有一端不限时无法度量，返回中性分。
+     */
+    static double rangeOverlap(int aMin, int aMax, int bMin, int bMax) {
+        if (aMin == Integer.MIN_VALUE || aMax == Integer.MAX_VALUE
+                || bMin == Integer.MIN_VALUE || bMax == Integer.MAX_VALUE) {
+            return UNKNOWN;
+        }
+        long overlap = (long) Math.min(aMax, bMax) - Math.max(aMin, bMin);
+        if (overlap < 0) {
+            return 0;
+        }
+        long shorter = Math.min((long) aMax - aMin, (long) bMax - bMin);
+        return shorter <= 0 ? 1 : Math.min(1.0, (double) overlap / shorter);
+    }
+
+    /** 按候选区间二分的并行打分任务，两半各自取 Top-K 后合并 */
+    static final class ScoreTask extends RecursiveTask<PriorityQueue<Scored>> {
+
+        private final MatchColumns columns;
+        private final int[] slots;
+        private final int from;
+        private final int to;
+        private final MatchQuery query;
+        private final MatchWeights weights;
+        private final int k;
+        private final int threshold;
+
+        ScoreTask(MatchColumns columns, int[] slots, int from, int to,
+                  MatchQuery query, MatchWeights weights, int k, int threshold) {
+            this.columns = columns;
+            this.slots = slots;
+            this.from = from;
+            this.to = to;
+            this.query = query;
+            this.weights = weights;
+            this.k = k;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected PriorityQueue<Scored> compute() {
+            if (to - from <= threshold) {
+                return scoreRange(columns, slots, from, to, query, weights, k);
+            }
+            int mid = (from + to) >>> 1;
+            ScoreTask left = new ScoreTask(columns, slots, from, mid, query, weights, k, threshold);
+            ScoreTask right = new ScoreTask(columns, slots, mid, to, query, weights, k, threshold);
+            left.fork();
+            PriorityQueue<Scored> merged = right.compute();
+            for (Scored item : left.join()) {
+                offer(merged, item, k);
+            }
+            return merged;
+        }
+    }
+}
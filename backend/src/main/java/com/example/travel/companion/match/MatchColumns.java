@@ -0,0 +1,16 @@
+package com.example.travel.companion.match;
+
+/**
+ * 候选帖子的列式视图：下标为槽位，各数组等长，由调用方在持有读锁期间提供。
+ * 未设置的日期、预算分别以 Integer.MIN_VALUE / Integer.MAX_VALUE 表示不限；
+ * tagIds 为发起人标签的有序整数编号，styleIds 为旅行风格编号（-1 表示未设置）。
+ */
+public record MatchColumns(long[] postIds,
+                           int[] startDays,
+                           int[] endDays,
+                           int[] budgetMins,
+                           int[] budgetMaxs,
+                           int[][] tagIds,
+                           int[] styleIds,
+                           int[] reputations) {
+}
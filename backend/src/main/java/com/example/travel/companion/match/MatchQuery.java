@@ -0,0 +1,14 @@
+package com.example.travel.companion.match;
+
+/**
+ * 发起匹配的一方：已编号的有序标签（只含索引中出现过的标签）与标签总数、旅行风格编号、
+ * 预算区间与出行日期区间（不限的一端用 Integer.MIN_VALUE / Integer.MAX_VALUE）。
+ */
+public record MatchQuery(int[] tagIds,
+                         int tagCount,
+                         int styleId,
+                         int budgetMin,
+                         int budgetMax,
+                         int fromDay,
+                         int toDay) {
+}
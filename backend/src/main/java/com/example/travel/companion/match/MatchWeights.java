@@ -0,0 +1,9 @@
+package com.example.travel.companion.match;
+
+/**
+ * 各匹配维度的权重；各维度得分均在 [0, 1]，总分为加权和。
+ */
+public record MatchWeights(double tags, double style, double budget, double dates, double reputation) {
+
+    public static final MatchWeights DEFAULT = new MatchWeights(0.40, 0.20, 0.15, 0.10, 0.15);
+}
@@ -0,0 +1,19 @@
+package com.example.travel.companion.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 聊天消息头投影：只含内容前若干字符，避免为生成预览读取整条（可能很大的）消息内容。
+ */
+public interface ChatHeadRow {
+
+    Long getId();
+
+    Long getUserId();
+
+    String getType();
+
+    String getHead();
+
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,49 @@
+package com.example.travel.companion.repository;
+
+import com.example.travel.companion.entity.CompanionPost;
+import com.example.travel.companion.entity.CompanionPostGram;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 结伴帖目的地 n-gram 倒排表的持久化接口。
+ */
+public interface CompanionPostGramRepository extends JpaRepository<CompanionPostGram, Long> {
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CompanionPostGram g WHERE g.postId = :postId")
+    int deleteByPostId(@Param("postId") Long postId);
+
+    /**
+     * 以某个片段的倒排索引驱动的游标查询：沿 (gram, start_date, post_id) 顺序扫描，
+     * 回表后再用完整子串与结束日期过滤，取满一页即停。
+     * 子串在规整后的目的地上匹配（去空格 / 制表符 / 全角空格、转小写），与片段的规整方式一致，
+     * pattern 须由规整后的查询串构造。
+     */
+    @Query("SELECT p FROM CompanionPostGram g JOIN CompanionPost p ON p.id = g.postId "
+            + "WHERE g.gram = :gram "
+            + "AND (g.startDate > :afterDate OR (g.startDate = :afterDate AND g.postId > :afterId)) "
+            + "AND p.endDate <= :endDate "
+            + "AND LOWER(REPLACE(REPLACE(REPLACE(p.destination, ' ', ''), '\t', ''), '\u3000', '')) LIKE :pattern ESCAPE '\\' "
+            + "ORDER BY g.startDate ASC, g.postId ASC")
+    List<CompanionPost> seekByGram(@Param("gram") String gram,
+                                   @Param("afterDate") LocalDate afterDate,
+                                   @Param("afterId") Long afterId,
+                                   @Param("endDate") LocalDate endDate,
+                                   @Param("pattern") String pattern,
+                                   Pageable pageable);
+
+    /** 补建索引：按 ID 升序取尚未建立 n-gram 的帖子 */
+    @Query("SELECT p FROM CompanionPost p WHERE p.id > :afterId "
+            + "AND (p.status IS NULL OR p.status <> 'deleted') AND NOT EXISTS "
+            + "(SELECT 1 FROM CompanionPostGram g WHERE g.postId = p.id) ORDER BY p.id ASC")
+    List<CompanionPost> findUnindexedPosts(@Param("afterId") Long afterId, Pageable pageable);
+}
@@ -2,7 +2,10 @@ package com.example.travel.companion.repository;
 
 import com.example.travel.companion.entity.CompanionPost;
 import com.example.travel.user.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -20,6 +23,38 @@ public interface CompanionPostRepository extends JpaRepository<CompanionPost, Lo
 
     List<CompanionPost> findByCreatorAndVisibilityOrderByCreatedAtDesc(User creator, String visibility);
 
+    /** 推荐索引全量构建：按状态与可见性取结束日期不早于指定日期的帖子 */
+    List<CompanionPost> findByStatusAndVisibilityAndEndDateGreaterThanEqual(String status, String visibility, LocalDate endDate);
+
+    /** 无关键字的游标分页搜索：走 (start_date, id) 索引，按出发日期、ID 升序 */
+    @Query("SELECT p FROM CompanionPost p "
+            + "WHERE (p.startDate > :afterDate OR (p.startDate = :afterDate AND p.id > :afterId)) "
+            + "AND p.endDate <= :endDate AND (p.status IS NULL OR p.status <> 'deleted') "
+            + "ORDER BY p.startDate ASC, p.id ASC")
+    List<CompanionPost> seekByStartDate(@Param("afterDate") LocalDate afterDate,
+                                        @Param("afterId") Long afterId,
+                                        @Param("endDate") LocalDate endDate,
+                                        Pageable pageable);
+
+    /** 热度排行全量构建：只取结束日期不早于指定日期的帖子 ID 与发起人 ID 两列 */
+    @Query("SELECT p.id, p.creator.id FROM CompanionPost p WHERE p.status = :status AND p.visibility = :visibility "
+            + "AND p.endDate >= :endDate")
+    List<Object[]> findIdAndCreatorIdByStatusAndVisibilityAndEndDateFrom(@Param("status") String status,
+                                                                         @Param("visibility") String visibility,
+                                                                         @Param("endDate") LocalDate endDate);
+
+    /** 信誉变化时定位该用户需要重排的帖子（结束日期不早于指定日期） */
+    @Query("SELECT p.id FROM CompanionPost p WHERE p.creator.id = :creatorId "
+            + "AND p.status = :status AND p.visibility = :visibility AND p.endDate >= :endDate")
+    List<Long> findIdsByCreatorIdAndStatusAndVisibilityAndEndDateFrom(@Param("creatorId") Long creatorId,
+                                                                      @Param("status") String status,
+                                                                      @Param("visibility") String visibility,
+                                                                      @Param("endDate") LocalDate endDate);
+
+    /** 异步删除模式：待后台回收的帖子 */
+    @Query("SELECT p.id FROM CompanionPost p WHERE p.status = :status ORDER BY p.id ASC")
+    List<Long> findIdsByStatus(@Param("status") String status, Pageable pageable);
+
     /** 统计引用该路线的结伴帖数量（用于路线「被使用」次数） */
     long countByRelatedPlanId(Long relatedPlanId);
 }
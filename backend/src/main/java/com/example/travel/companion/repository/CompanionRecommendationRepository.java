@@ -0,0 +1,7 @@
+package com.example.travel.companion.repository;
+
+import com.example.travel.companion.entity.CompanionRecommendation;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CompanionRecommendationRepository extends JpaRepository<CompanionRecommendation, Long> {
+}
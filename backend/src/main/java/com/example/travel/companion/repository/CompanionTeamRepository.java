@@ -3,11 +3,44 @@ package com.example.travel.companion.repository;
 import com.example.travel.companion.entity.CompanionPost;
 import com.example.travel.companion.entity.CompanionTeam;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CompanionTeamRepository extends JpaRepository<CompanionTeam, Long> {
 
     Optional<CompanionTeam> findFirstByPostOrderByIdAsc(CompanionPost post);
+
+    @Query("SELECT t.id FROM CompanionTeam t WHERE t.post.id = :postId")
+    List<Long> findIdsByPostId(@Param("postId") Long postId);
+
+    /**
+     * 占一个座位：仅在未满员时加一，返回 0 表示已满员（或小队不存在）。
+     * 判断与自增在同一条语句内完成，并发加入不会超员。
+     */
+    @Modifying
+    @Query("UPDATE CompanionTeam t SET t.joinedCount = t.joinedCount + 1 "
+            + "WHERE t.id = :teamId AND t.joinedCount < :capacity")
+    int reserveSeat(@Param("teamId") Long teamId, @Param("capacity") int capacity);
+
+    @Modifying
+    @Query("UPDATE CompanionTeam t SET t.joinedCount = t.joinedCount - 1 WHERE t.id = :teamId AND t.joinedCount > 0")
+    int releaseSeat(@Param("teamId") Long teamId);
+
+    /** 补齐历史小队的占座计数 */
+    @Transactional
+    @Modifying
+    @Query("UPDATE CompanionTeam t SET t.joinedCount = "
+            + "(SELECT COUNT(m) FROM TeamMember m WHERE m.team.id = t.id) WHERE t.joinedCount IS NULL")
+    int backfillJoinedCount();
+
+    @Modifying
+    @Query("DELETE FROM CompanionTeam t WHERE t.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
 
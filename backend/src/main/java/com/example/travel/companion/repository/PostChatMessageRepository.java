@@ -2,10 +2,14 @@ package com.example.travel.companion.repository;
 
 import com.example.travel.companion.entity.CompanionPost;
 import com.example.travel.companion.entity.PostChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * 结伴帖内置聊天消息的持久化接口。
@@ -17,8 +21,37 @@ public interface PostChatMessageRepository extends JpaRepository<PostChatMessage
      */
     List<PostChatMessage> findByPostOrderByCreatedAtAsc(CompanionPost post);
 
+    /** 删除帖子时一次性删除其全部聊天消息 */
+    @Modifying
+    @Query("DELETE FROM PostChatMessage m WHERE m.post.id = :postId")
+    int deleteByPostId(@Param("postId") Long postId);
+
+    /** 后台分批回收：取该帖的一批消息 ID */
+    @Query("SELECT m.id FROM PostChatMessage m WHERE m.post.id = :postId ORDER BY m.id ASC")
+    List<Long> findIdsByPostId(@Param("postId") Long postId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM PostChatMessage m WHERE m.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /** 媒体迁移：仍以 base64 内联存储的图片消息 ID */
+    @Query("SELECT m.id FROM PostChatMessage m WHERE m.type = 'image' AND m.content LIKE 'data:%' AND m.id > :afterId ORDER BY m.id ASC")
+    List<Long> findInlineImageIds(@Param("afterId") Long afterId, Pageable pageable);
+
+    /** 增量同步：ID 大于 afterId 的消息，按 ID 升序 */
+    List<PostChatMessage> findByPost_IdAndIdGreaterThanOrderByIdAsc(Long postId, Long afterId, Pageable pageable);
+
+    /** 首次加载：最近的若干条消息，按 ID 降序（调用方再翻转） */
+    List<PostChatMessage> findByPost_IdOrderByIdDesc(Long postId, Pageable pageable);
+
+    /** 向前翻页：ID 小于 beforeId 的最近若干条消息，按 ID 降序（调用方再翻转） */
+    List<PostChatMessage> findByPost_IdAndIdLessThanOrderByIdDesc(Long postId, Long beforeId, Pageable pageable);
+
     /**
-     * 该帖最新一条聊天消息（用于小队消息列表的「最后一条」预览）。
+     * 该帖最新消息的消息头（内容只取前 81 个字符，足够判断是否需要省略号）。
      */
-    Optional<PostChatMessage> findFirstByPostOrderByCreatedAtDesc(CompanionPost post);
+    @Query("SELECT m.id AS id, m.user.id AS userId, m.type AS type, SUBSTRING(CAST(m.content AS String), 1, 81) AS head, "
+            + "m.createdAt AS createdAt FROM PostChatMessage m WHERE m.post.id = :postId "
+            + "ORDER BY m.createdAt DESC, m.id DESC")
+    List<ChatHeadRow> findLatestHeads(@Param("postId") Long postId, Pageable pageable);
 }
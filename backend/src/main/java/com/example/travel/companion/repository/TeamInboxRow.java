@@ -0,0 +1,23 @@
+package com.example.travel.companion.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 消息中心「小队消息」投影：小队摘要 + 结伴帖目的地。
+ */
+public interface TeamInboxRow {
+
+    Long getTeamId();
+
+    Long getPostId();
+
+    String getTeamName();
+
+    String getDestination();
+
+    Integer getMemberCount();
+
+    String getLastMessagePreview();
+
+    LocalDateTime getLastMessageAt();
+}
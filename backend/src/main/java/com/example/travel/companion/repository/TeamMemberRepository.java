@@ -4,7 +4,11 @@ import com.example.travel.companion.entity.CompanionTeam;
 import com.example.travel.companion.entity.TeamMember;
 import com.example.travel.user.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +18,21 @@ public interface TeamMemberRepository extends JpaRepository<TeamMember, Long> {
 
     Optional<TeamMember> findByTeamAndUser(CompanionTeam team, User user);
 
+    /** 小队成员名单：成员关系 + 资料 + 信誉一次联表取回，按加入先后排序 */
+    @Query("SELECT u.id AS userId, u.phone AS phone, p.nickname AS nickname, p.avatar AS avatar, "
+            + "r.level AS reputationLevel, m.role AS role, m.state AS state "
+            + "FROM TeamMember m JOIN m.user u "
+            + "LEFT JOIN UserProfile p ON p.id = u.id "
+            + "LEFT JOIN UserReputation r ON r.id = u.id "
+            + "WHERE m.team.id = :teamId ORDER BY m.id ASC")
+    List<TeamRosterRow> findRosterByTeamId(@Param("teamId") Long teamId);
+
+    long countByTeam_Id(Long teamId);
+
+    @Modifying
+    @Query("DELETE FROM TeamMember m WHERE m.team.id IN :teamIds")
+    int deleteByTeamIdIn(@Param("teamIds") Collection<Long> teamIds);
+
     /** 当前用户加入的所有小队成员记录（用于消息中心「小队消息」） */
     List<TeamMember> findByUser(User user);
 }
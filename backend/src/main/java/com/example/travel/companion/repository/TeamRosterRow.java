@@ -0,0 +1,21 @@
+package com.example.travel.companion.repository;
+
+/**
+ * 小队成员名单投影：一次联表查询取回成员关系、昵称头像与信誉等级。
+ */
+public interface TeamRosterRow {
+
+    Long getUserId();
+
+    String getPhone();
+
+    String getNickname();
+
+    String getAvatar();
+
+    Integer getReputationLevel();
+
+    String getRole();
+
+    String getState();
+}
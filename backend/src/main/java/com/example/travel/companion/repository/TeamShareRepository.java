@@ -4,8 +4,17 @@ import com.example.travel.companion.entity.CompanionTeam;
 import com.example.travel.companion.entity.TeamShare;
 import com.example.travel.user.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 
 public interface TeamShareRepository extends JpaRepository<TeamShare, Long> {
 
     boolean existsByTeamAndToUser(CompanionTeam team, User toUser);
+
+    @Modifying
+    @Query("DELETE FROM TeamShare s WHERE s.team.id IN :teamIds")
+    int deleteByTeamIdIn(@Param("teamIds") Collection<Long> teamIds);
 }
@@ -0,0 +1,60 @@
+package com.example.travel.companion.repository;
+
+import com.example.travel.companion.entity.TeamSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 小队消息摘要的持久化接口；计数与最后消息均用单条 UPDATE 原地修改，避免读改写竞争。
+ */
+public interface TeamSummaryRepository extends JpaRepository<TeamSummary, Long> {
+
+    @Modifying
+    @Query("UPDATE TeamSummary s SET s.memberCount = s.memberCount + :delta WHERE s.teamId = :teamId")
+    int addMemberCount(@Param("teamId") Long teamId, @Param("delta") int delta);
+
+    /**
+     * 帖子群聊有新消息：更新该帖下所有小队的最后一条消息。
+     * 只前进不后退：并发发送时较早的消息晚提交，也不会覆盖已记录的较新消息。
+     */
+    @Modifying
+    @Query("UPDATE TeamSummary s SET s.lastMessageId = :messageId, s.lastMessagePreview = :preview, "
+            + "s.lastMessageAt = :sentAt, s.lastSenderId = :senderId WHERE s.postId = :postId "
+            + "AND (s.lastMessageId IS NULL OR s.lastMessageId < :messageId)")
+    int updateLastMessage(@Param("postId") Long postId,
+                          @Param("messageId") Long messageId,
+                          @Param("preview") String preview,
+                          @Param("sentAt") LocalDateTime sentAt,
+                          @Param("senderId") Long senderId);
+
+    @Modifying
+    @Query("DELETE FROM TeamSummary s WHERE s.teamId = :teamId")
+    int deleteByTeamId(@Param("teamId") Long teamId);
+
+    @Modifying
+    @Query("DELETE FROM TeamSummary s WHERE s.teamId IN :teamIds")
+    int deleteByTeamIdIn(@Param("teamIds") Collection<Long> teamIds);
+
+    /**
+     * 用户所在的未解散小队及其摘要，按最后消息时间倒序（无消息的排在最后）。
+     * 由 t_team_member(user_id) 索引驱动，再按主键关联摘要、小队与帖子。
+     */
+    @Query("SELECT DISTINCT s.teamId AS teamId, s.postId AS postId, t.name AS teamName, p.destination AS destination, "
+            + "s.memberCount AS memberCount, s.lastMessagePreview AS lastMessagePreview, s.lastMessageAt AS lastMessageAt "
+            + "FROM TeamMember m JOIN m.team t "
+            + "JOIN TeamSummary s ON s.teamId = t.id "
+            + "LEFT JOIN CompanionPost p ON p.id = s.postId "
+            + "WHERE m.user.id = :userId AND (t.status IS NULL OR t.status <> 'disbanded') "
+            + "ORDER BY s.lastMessageAt DESC NULLS LAST, s.teamId DESC")
+    List<TeamInboxRow> findInboxByUserId(@Param("userId") Long userId);
+
+    /** 补建摘要：尚无摘要行的小队 */
+    @Query("SELECT t.id FROM CompanionTeam t WHERE NOT EXISTS (SELECT 1 FROM TeamSummary s WHERE s.teamId = t.id)")
+    List<Long> findTeamIdsWithoutSummary();
+}
@@ -0,0 +1,299 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.companion.entity.CompanionPost;
+import com.example.travel.companion.repository.CompanionPostRepository;
+import com.example.travel.user.entity.UserReputation;
+import com.example.travel.user.repository.UserReputationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * 结伴帖热度排行榜（未登录首页推荐用）。
+ * <p>
+ * 热度 = 发起人信誉分 + 完成行程次数 × 10 + 好评次数 × 5，只收录公开且 open、结束日期不早于一个月前的帖子
+ * （与 {@link CompanionPostIndex} 的窗口一致）；过期帖子在下次全量重建时移出本地与 Redis 排行。
+ * 排行存放在 Redis 有序集合中，多实例共享；Redis 不可用时退回进程内有序集合，
+ * 两份数据同时维护，切换时无需预热。同分按帖子 ID 降序（较新的在前）。
+ * <p>
+ * 发布 / 删除 / 状态变化与信誉变化时增量更新，另有定时全量重建兜底。
+ */
+@Component
+@Order(11)
+public class CompanionPopularityBoard implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CompanionPopularityBoard.class);
+
+    static final String REDIS_KEY = "companion:popularity";
+
+    /** Redis 出错后暂停使用的时长，期间直接读写本地排行 */
+    private static final long REDIS_BACKOFF_MS = 30_000L;
+
+    private static final int LOAD_BATCH = 1000;
+
+    private final CompanionPostRepository companionPostRepository;
+    private final UserReputationRepository userReputationRepository;
+    private final ObjectProvider<StringRedisTemplate> redisProvider;
+    private final boolean redisEnabled;
+
+    /** 本地排行：按 (热度, 帖子 ID) 升序，取 Top-K 时倒序遍历 */
+    private final NavigableSet<Entry> ranking = new TreeSet<>(Entry.ASCENDING);
+    private final Map<Long, Entry> entryByPostId = new HashMap<>();
+
+    private volatile long redisRetryAt = 0L;
+    /** Redis 出错期间可能漏掉增量更新，下次全量重建成功前只读本地排行 */
+    private volatile boolean redisDirty = false;
+    private volatile boolean built = false;
+
+    public CompanionPopularityBoard(CompanionPostRepository companionPostRepository,
+                                    UserReputationRepository userReputationRepository,
+                                    ObjectProvider<StringRedisTemplate> redisProvider,
+                                    @Value("${app.companion.popularity.redis-enabled:true}") boolean redisEnabled) {
+        this.companionPostRepository = companionPostRepository;
+        this.userReputationRepository = userReputationRepository;
+        this.redisProvider = redisProvider;
+        this.redisEnabled = redisEnabled;
+    }
+
+    record Entry(long score, long postId) {
+        static final Comparator<Entry> ASCENDING = Comparator
+                .comparingLong(Entry::score)
+                .thenComparingLong(Entry::postId);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("[Popularity] initial build failed: {}", e.getMessage());
+        }
+    }
+
+    /** 全量重建：帖子只取 (ID, 发起人 ID) 两列，信誉分按发起人批量加载 */
+    @Scheduled(initialDelayString = "${app.companion.index-rebuild-ms:600000}",
+            fixedDelayString = "${app.companion.index-rebuild-ms:600000}")
+    public void rebuild() {
+        List<Object[]> rows = companionPostRepository
+                .findIdAndCreatorIdByStatusAndVisibilityAndEndDateFrom("open", "public", minEndDate());
+        Set<Long> creatorIds = new HashSet<>();
+        for (Object[] row : rows) {
+            if (row[1] != null) {
+                creatorIds.add((Long) row[1]);
+            }
+        }
+        Map<Long, Long> scoreByCreator = loadScores(creatorIds);
+        Map<Long, Long> scoreByPost = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[1] != null) {
+                scoreByPost.put((Long) row[0], scoreByCreator.getOrDefault((Long) row[1], 0L));
+            }
+        }
+        synchronized (this) {
+            ranking.clear();
+            entryByPostId.clear();
+            scoreByPost.forEach(this::putLocal);
+            built = true;
+        }
+        StringRedisTemplate redis = redis();
+        if (redis != null) {
+            try {
+                String tmpKey = REDIS_KEY + ":rebuild";
+                redis.delete(tmpKey);
+                Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+                scoreByPost.forEach((postId, score) ->
+                        tuples.add(ZSetOperations.TypedTuple.of(postId.toString(), redisScore(score, postId))));
+                if (tuples.isEmpty()) {
+                    redis.delete(REDIS_KEY);
+                } else {
+                    redis.opsForZSet().add(tmpKey, tuples);
+                    redis.rename(tmpKey, REDIS_KEY);
+                }
+                redisDirty = false;
+            } catch (Exception e) {
+                redisFailed(e);
+            }
+        }
+        log.info("[Popularity] rebuilt: posts={}", scoreByPost.size());
+    }
+
+    // ---------- 增量维护 ----------
+
+    /** 结伴帖新建或变更后调用：公开、open 且未过期的帖子进入排行，否则移出 */
+    public void onPostSaved(CompanionPost post) {
+        if (post.getId() == null) {
+            return;
+        }
+        if (post.getCreator() == null || !"open".equals(post.getStatus()) || !"public".equals(post.getVisibility())
+                || post.getEndDate() == null || post.getEndDate().isBefore(minEndDate())) {
+            onPostRemoved(post.getId());
+            return;
+        }
+        Long creatorId = post.getCreator().getId();
+        long score = loadScores(Set.of(creatorId)).getOrDefault(creatorId, 0L);
+        upsert(Map.of(post.getId(), score));
+    }
+
+    public void onPostRemoved(Long postId) {
+        synchronized (this) {
+            Entry old = entryByPostId.remove(postId);
+            if (old != null) {
+                ranking.remove(old);
+            }
+        }
+        StringRedisTemplate redis = redis();
+        if (redis != null) {
+            try {
+                redis.opsForZSet().remove(REDIS_KEY, postId.toString());
+            } catch (Exception e) {
+                redisFailed(e);
+            }
+        }
+    }
+
+    /** 信誉变化后调用：按新热度重排该用户所有公开 open 且未过期的帖子 */
+    public void onReputationChanged(UserReputation reputation) {
+        Long userId = reputation.getId();
+        List<Long> postIds = companionPostRepository
+                .findIdsByCreatorIdAndStatusAndVisibilityAndEndDateFrom(userId, "open", "public", minEndDate());
+        if (postIds.isEmpty()) {
+            return;
+        }
+        long score = popularity(reputation);
+        Map<Long, Long> scores = new HashMap<>();
+        postIds.forEach(id -> scores.put(id, score));
+        upsert(scores);
+    }
+
+    // ---------- 查询 ----------
+
+    /**
+     * 热度最高的若干帖子 ID（降序）。优先读 Redis（ZREVRANGE，O(log n + k)），
+     * 不可用时读本地排行；排行尚未构建完成时返回 null，由调用方降级。
+     */
+    public List<Long> top(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        StringRedisTemplate redis = redisDirty ? null : redis();
+        if (redis != null) {
+            try {
+                Set<String> members = redis.opsForZSet().reverseRange(REDIS_KEY, 0, limit - 1);
+                if (members != null && !members.isEmpty()) {
+                    List<Long> ids = new ArrayList<>(members.size());
+                    members.forEach(m -> ids.add(Long.valueOf(m)));
+                    return ids;
+                }
+            } catch (Exception e) {
+                redisFailed(e);
+            }
+        }
+        synchronized (this) {
+            if (!built) {
+                return null;
+            }
+            List<Long> ids = new ArrayList<>(limit);
+            Iterator<Entry> it = ranking.descendingIterator();
+            while (it.hasNext() && ids.size() < limit) {
+                ids.add(it.next().postId());
+            }
+            return ids;
+        }
+    }
+
+    /** 热度公式（与原实时计算一致） */
+    static long popularity(UserReputation reputation) {
+        if (reputation == null) {
+            return 0L;
+        }
+        long score = 0L;
+        if (reputation.getScore() != null) {
+            score += reputation.getScore();
+        }
+        if (reputation.getTotalTrips() != null) {
+            score += reputation.getTotalTrips() * 10L;
+        }
+        if (reputation.getPositiveCount() != null) {
+            score += reputation.getPositiveCount() * 5L;
+        }
+        return score;
+    }
+
+    /**
+     * Redis 同分按成员字典序排列，数字 ID 的字典序不可靠，
+     * 因此把 ID 编进分数低 32 位：(热度, ID) 组合后仍在 double 的 53 位精度内。
+     */
+    static double redisScore(long popularity, long postId) {
+        return popularity * 4294967296d + (postId & 0xFFFFFFFFL);
+    }
+
+    // ---------- 内部 ----------
+
+    /** 收录窗口：结束日期不早于一个月前 */
+    private static LocalDate minEndDate() {
+        return LocalDate.now().minusMonths(1);
+    }
+
+    private void upsert(Map<Long, Long> scoreByPost) {
+        synchronized (this) {
+            scoreByPost.forEach(this::putLocal);
+        }
+        StringRedisTemplate redis = redis();
+        if (redis != null) {
+            try {
+                Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+                scoreByPost.forEach((postId, score) ->
+                        tuples.add(ZSetOperations.TypedTuple.of(postId.toString(), redisScore(score, postId))));
+                redis.opsForZSet().add(REDIS_KEY, tuples);
+            } catch (Exception e) {
+                redisFailed(e);
+            }
+        }
+    }
+
+    /** 调用方需持有本对象锁 */
+    private void putLocal(Long postId, Long score) {
+        Entry old = entryByPostId.get(postId);
+        if (old != null) {
+            ranking.remove(old);
+        }
+        Entry entry = new Entry(score, postId);
+        ranking.add(entry);
+        entryByPostId.put(postId, entry);
+    }
+
+    private Map<Long, Long> loadScores(Collection<Long> creatorIds) {
+        Map<Long, Long> result = new HashMap<>();
+        List<Long> ids = new ArrayList<>(creatorIds);
+        for (int i = 0; i < ids.size(); i += LOAD_BATCH) {
+            List<Long> batch = ids.subList(i, Math.min(ids.size(), i + LOAD_BATCH));
+            userReputationRepository.findAllWithUserByIdIn(batch)
+                    .forEach(r -> result.put(r.getId(), popularity(r)));
+        }
+        return result;
+    }
+
+    private StringRedisTemplate redis() {
+        if (!redisEnabled || System.currentTimeMillis() < redisRetryAt) {
+            return null;
+        }
+        return redisProvider.getIfAvailable();
+    }
+
+    private void redisFailed(Exception e) {
+        redisRetryAt = System.currentTimeMillis() + REDIS_BACKOFF_MS;
+        redisDirty = true;
+        log.warn("[Popularity] Redis unavailable, using in-process ranking: {}", e.getMessage());
+    }
+}
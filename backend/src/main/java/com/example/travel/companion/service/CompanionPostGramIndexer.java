@@ -0,0 +1,118 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.companion.entity.CompanionPost;
+import com.example.travel.companion.entity.CompanionPostGram;
+import com.example.travel.companion.repository.CompanionPostGramRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 维护结伴帖目的地的 n-gram 倒排表（单字 + 相邻双字）。
+ * 中文地名普遍只有 2～4 个字，双字片段的区分度已足够；单字片段用于一个字的查询（如「苏」）。
+ * 启动时为历史帖子补建索引。
+ */
+@Component
+@Order(2)
+public class CompanionPostGramIndexer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CompanionPostGramIndexer.class);
+
+    private static final int BACKFILL_BATCH = 500;
+
+    private final CompanionPostGramRepository companionPostGramRepository;
+
+    public CompanionPostGramIndexer(CompanionPostGramRepository companionPostGramRepository) {
+        this.companionPostGramRepository = companionPostGramRepository;
+    }
+
+    /** 为帖子（重新）建立片段；需在帖子已有 ID 后调用，与帖子写入处于同一事务 */
+    @Transactional
+    public void index(CompanionPost post) {
+        companionPostGramRepository.deleteByPostId(post.getId());
+        List<CompanionPostGram> rows = new ArrayList<>();
+        for (String gram : grams(post.getDestination())) {
+            rows.add(new CompanionPostGram(gram, post.getId(), post.getStartDate()));
+        }
+        companionPostGramRepository.saveAll(rows);
+    }
+
+    @Transactional
+    public void remove(Long postId) {
+        companionPostGramRepository.deleteByPostId(postId);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            long afterId = 0L;
+            int total = 0;
+            while (true) {
+                List<CompanionPost> batch = companionPostGramRepository
+                        .findUnindexedPosts(afterId, PageRequest.of(0, BACKFILL_BATCH));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (CompanionPost post : batch) {
+                    index(post);
+                }
+                total += batch.size();
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+            if (total > 0) {
+                log.info("[CompanionGram] backfilled {} posts", total);
+            }
+        } catch (Exception e) {
+            log.warn("[CompanionGram] backfill skipped or failed: {}", e.getMessage());
+        }
+    }
+
+    /** 目的地规整：去空白、转小写，使「West Lake」与「westlake」落到相同片段 */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        text.codePoints()
+                .filter(cp -> !Character.isWhitespace(cp))
+                .map(cp -> Character.toLowerCase(cp))
+                .forEach(sb::appendCodePoint);
+        return sb.toString();
+    }
+
+    /** 目的地的全部单字与相邻双字片段（按码点切分，兼容扩展区汉字） */
+    static Set<String> grams(String destination) {
+        int[] cps = normalize(destination).codePoints().toArray();
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i < cps.length; i++) {
+            grams.add(new String(cps, i, 1));
+            if (i + 1 < cps.length) {
+                grams.add(new String(cps, i, 2));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * 为查询串挑选驱动索引扫描的片段：一个字时用单字，否则用第一个双字片段；
+     * 其余字符由回表后的完整子串匹配保证。查询为空时返回 null。
+     */
+    static String driverGram(String query) {
+        int[] cps = normalize(query).codePoints().toArray();
+        if (cps.length == 0) {
+            return null;
+        }
+        return new String(cps, 0, Math.min(2, cps.length));
+    }
+}
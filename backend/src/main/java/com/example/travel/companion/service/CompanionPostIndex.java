@@ -0,0 +1,678 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.companion.entity.CompanionPost;
+import com.example.travel.companion.match.CompatibilityEngine;
+import com.example.travel.companion.match.MatchColumns;
+import com.example.travel.companion.match.MatchQuery;
+import com.example.travel.companion.match.MatchWeights;
+import com.example.travel.companion.repository.CompanionPostRepository;
+import com.example.travel.user.entity.UserPreference;
+import com.example.travel.user.entity.UserReputation;
+import com.example.travel.user.repository.UserPreferenceRepository;
+import com.example.travel.user.repository.UserReputationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 结伴推荐常驻索引。
+ * <p>
+ * 在内存中按「槽位」存放所有公开且 open 的结伴帖（帖子 ID、发起人、出行起止日以 epochDay 存为基本类型数组），
+ * 并维护「标签 → 槽位位图」倒排表；发起人的标签（编号后的有序数组）、旅行风格、信誉分也按槽位成列存放。
+ * 推荐时位图求并得到候选，交给 {@link CompatibilityEngine} 并行打分取 Top-K，不访问数据库。
+ * <p>
+ * 另按自然周维护「周 → 槽位位图」：帖子的出行区间覆盖到的每一周都置位，
+ * 日期区间重叠查询只需对查询窗口内的若干周求并，再逐条精确校验日期、预算与目的地。
+ * <p>
+ * 发布 / 删除结伴帖、偏好或信誉变化时增量更新；另有定时全量重建，兜底库外修改与过期帖子。
+ * 重建期间到达的增量事件会被记下，在新快照换入后重放，不会被旧快照覆盖。
+ */
+@Component
+@Order(10)
+public class CompanionPostIndex implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CompanionPostIndex.class);
+
+    /** 批量加载发起人列时每批的 ID 数，避免 IN 列表过长 */
+    private static final int LOAD_BATCH = 1000;
+
+    /** 跨度超过该周数（或缺少起止日）的帖子不进周桶，单独放在 longTrips 里每次都参与校验 */
+    private static final int MAX_BUCKET_WEEKS = 26;
+
+    private final CompanionPostRepository companionPostRepository;
+    private final UserPreferenceRepository userPreferenceRepository;
+    private final UserReputationRepository userReputationRepository;
+    private final CompatibilityEngine compatibilityEngine;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ---------- 以下字段仅在持有锁时访问 ----------
+    private long[] postIds = new long[1024];
+    private long[] creatorIds = new long[1024];
+    private int[] startDays = new int[1024];
+    private int[] endDays = new int[1024];
+    private int[] budgetMins = new int[1024];
+    private int[] budgetMaxs = new int[1024];
+    private String[] destinations = new String[1024];
+    private int[][] slotTagIds = new int[1024][];
+    private int[] slotStyleIds = new int[1024];
+    private int[] slotReputations = new int[1024];
+    /** 帖子创建时间（UTC 读法的 epochSecond），用于判断预计算推荐列表之后是否有新帖 */
+    private long[] createdAts = new long[1024];
+    private int nextSlot = 0;
+    private final BitSet live = new BitSet();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<Long, Integer> slotByPostId = new HashMap<>();
+    private final Map<Long, BitSet> slotsByCreator = new HashMap<>();
+    private final Map<String, BitSet> slotsByTag = new HashMap<>();
+    private final Map<Integer, BitSet> slotsByWeek = new HashMap<>();
+    private final BitSet longTrips = new BitSet();
+    /** 标签、旅行风格的整数编号，供打分引擎做有序数组求交 */
+    private final Map<String, Integer> tagIdByName = new HashMap<>();
+    private final Map<String, Integer> styleIdByName = new HashMap<>();
+    /**
+     * 全量重建进行中时记下的增量事件：快照在锁外加载，期间提交的发布 / 删除 / 偏好 / 信誉变化
+     * 可能不在快照里，换入快照后在同一写锁内按序重放。为 null 表示当前没有重建在进行。
+     */
+    private List<Runnable> pendingReplay;
+
+    /** 用户列（发起人与发起推荐的用户共用）；读无需加锁，发起人标签变更时在写锁内替换 */
+    private final Map<Long, UserColumns> users = new ConcurrentHashMap<>();
+
+    public CompanionPostIndex(CompanionPostRepository companionPostRepository,
+                              UserPreferenceRepository userPreferenceRepository,
+                              UserReputationRepository userReputationRepository,
+                              CompatibilityEngine compatibilityEngine) {
+        this.companionPostRepository = companionPostRepository;
+        this.userPreferenceRepository = userPreferenceRepository;
+        this.userReputationRepository = userReputationRepository;
+        this.compatibilityEngine = compatibilityEngine;
+    }
+
+    /** 用户维度的推荐列：已拆分好的标签集合、旅行风格、预算区间、信誉分 */
+    record UserColumns(Set<String> tags, String travelStyle, Integer budgetMin, Integer budgetMax,
+                       int reputationScore) {
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("[CompanionIndex] initial build failed: {}", e.getMessage());
+        }
+    }
+
+    /** 全量重建：只载入结束日期不早于一个月前的公开 open 帖子 */
+    @Scheduled(initialDelayString = "${app.companion.index-rebuild-ms:600000}",
+            fixedDelayString = "${app.companion.index-rebuild-ms:600000}")
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingReplay = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            List<CompanionPost> posts = companionPostRepository
+                    .findByStatusAndVisibilityAndEndDateGreaterThanEqual("open", "public", LocalDate.now().minusMonths(1));
+            Set<Long> creatorIdSet = new HashSet<>();
+            for (CompanionPost post : posts) {
+                if (post.getCreator() != null) {
+                    creatorIdSet.add(post.getCreator().getId());
+                }
+            }
+            Map<Long, UserColumns> loaded = loadUsers(creatorIdSet);
+            swapIn(posts, loaded);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                pendingReplay = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /** 清空后载入快照，再重放加载期间记下的增量事件 */
+    private void swapIn(List<CompanionPost> posts, Map<Long, UserColumns> loaded) {
+        int indexed;
+        int tagCount;
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            postIds = new long[Math.max(1024, posts.size() * 2)];
+            creatorIds = new long[postIds.length];
+            startDays = new int[postIds.length];
+            endDays = new int[postIds.length];
+            budgetMins = new int[postIds.length];
+            budgetMaxs = new int[postIds.length];
+            destinations = new String[postIds.length];
+            slotTagIds = new int[postIds.length][];
+            slotStyleIds = new int[postIds.length];
+            slotReputations = new int[postIds.length];
+            createdAts = new long[postIds.length];
+            nextSlot = 0;
+            live.clear();
+            freeSlots.clear();
+            slotByPostId.clear();
+            slotsByCreator.clear();
+            slotsByTag.clear();
+            slotsByWeek.clear();
+            longTrips.clear();
+            tagIdByName.clear();
+            styleIdByName.clear();
+            users.clear();
+            users.putAll(loaded);
+            for (CompanionPost post : posts) {
+                if (post.getCreator() != null) {
+                    addSlot(post);
+                }
+            }
+            List<Runnable> replay = pendingReplay;
+            pendingReplay = null;
+            replay.forEach(Runnable::run);
+            replayed = replay.size();
+            indexed = slotByPostId.size();
+            tagCount = slotsByTag.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("[CompanionIndex] rebuilt: posts={}, creators={}, tags={}, replayed={}",
+                indexed, loaded.size(), tagCount, replayed);
+    }
+
+    // ---------- 增量维护 ----------
+
+    /** 结伴帖新建或变更后调用：公开且 open 的帖子进入索引，否则移出 */
+    public void onPostSaved(CompanionPost post) {
+        if (post.getId() == null) {
+            return;
+        }
+        if (post.getCreator() == null || !"open".equals(post.getStatus()) || !"public".equals(post.getVisibility())) {
+            onPostRemoved(post.getId());
+            return;
+        }
+        Long creatorId = post.getCreator().getId();
+        UserColumns creator = users.get(creatorId);
+        if (creator == null) {
+            creator = loadUser(creatorId);
+        }
+        UserColumns columns = creator;
+        lock.writeLock().lock();
+        try {
+            applyPostSaved(post, columns);
+            record(() -> applyPostSaved(post, columns));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onPostRemoved(Long postId) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(postId);
+            record(() -> removeSlot(postId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 用户偏好（标签 / 旅行风格）变更后调用：重载该用户的列，并把其帖子挪到新标签的倒排表下 */
+    public void onPreferenceChanged(Long userId) {
+        UserColumns fresh = loadUser(userId);
+        lock.writeLock().lock();
+        try {
+            applyPreferenceChanged(userId, fresh);
+            record(() -> applyPreferenceChanged(userId, fresh));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 信誉分变化后调用：只替换列值，不影响倒排表 */
+    public void onReputationChanged(Long userId, int reputationScore) {
+        lock.writeLock().lock();
+        try {
+            applyReputationChanged(userId, reputationScore);
+            record(() -> applyReputationChanged(userId, reputationScore));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 重建进行中时记下事件，待快照换入后重放；须持有写锁 */
+    private void record(Runnable event) {
+        if (pendingReplay != null) {
+            pendingReplay.add(event);
+        }
+    }
+
+    private void applyPostSaved(CompanionPost post, UserColumns creator) {
+        users.putIfAbsent(post.getCreator().getId(), creator);
+        removeSlot(post.getId());
+        addSlot(post);
+    }
+
+    private void applyPreferenceChanged(Long userId, UserColumns fresh) {
+        UserColumns old = users.put(userId, fresh);
+        BitSet owned = slotsByCreator.get(userId);
+        if (owned == null || owned.isEmpty()) {
+            return;
+        }
+        if (old != null) {
+            for (String tag : old.tags()) {
+                BitSet postings = slotsByTag.get(tag);
+                if (postings != null) {
+                    postings.andNot(owned);
+                    if (postings.isEmpty()) {
+                        slotsByTag.remove(tag);
+                    }
+                }
+            }
+        }
+        for (String tag : fresh.tags()) {
+            slotsByTag.computeIfAbsent(tag, k -> new BitSet()).or(owned);
+        }
+        for (int slot = owned.nextSetBit(0); slot >= 0; slot = owned.nextSetBit(slot + 1)) {
+            fillCreatorColumns(slot, fresh);
+        }
+    }
+
+    private void applyReputationChanged(Long userId, int reputationScore) {
+        users.computeIfPresent(userId, (id, c) ->
+                new UserColumns(c.tags(), c.travelStyle(), c.budgetMin(), c.budgetMax(), reputationScore));
+        BitSet owned = slotsByCreator.get(userId);
+        if (owned != null) {
+            for (int slot = owned.nextSetBit(0); slot >= 0; slot = owned.nextSetBit(slot + 1)) {
+                slotReputations[slot] = reputationScore;
+            }
+        }
+    }
+
+    /** 批量预载用户列（推荐预计算前调用），避免逐个用户查询偏好与信誉 */
+    public void preloadUsers(Collection<Long> userIds) {
+        List<Long> missing = new ArrayList<>();
+        for (Long id : userIds) {
+            if (!users.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            loadUsers(missing).forEach(users::putIfAbsent);
+        }
+    }
+
+    // ---------- 查询 ----------
+
+    /**
+     * 按标签为用户推荐：候选为「与用户任一标签相同的发起人」的帖子（排除自己发布的），
+     * 且出行日期落在 [windowStart, windowEnd] 内。
+     * 打分由 {@link CompatibilityEngine} 完成：标签 Jaccard、旅行风格、预算重叠、日期重叠与信誉加权。
+     *
+     * @return 按分数降序的帖子 ID；用户没有偏好标签时返回 null，由调用方降级
+     */
+    public List<Long> recommendByTags(Long userId, int limit, LocalDate windowStart, LocalDate windowEnd) {
+        UserColumns me = users.get(userId);
+        if (me == null) {
+            me = loadUser(userId);
+            users.putIfAbsent(userId, me);
+        }
+        if (me.tags().isEmpty() || limit <= 0) {
+            return me.tags().isEmpty() ? null : List.of();
+        }
+        int from = (int) windowStart.toEpochDay();
+        int to = (int) windowEnd.toEpochDay();
+        List<CompatibilityEngine.Scored> top;
+        lock.readLock().lock();
+        try {
+            BitSet candidates = candidatesFor(userId, me);
+            int[] slots = new int[candidates.cardinality()];
+            int n = 0;
+            for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+                if (startDays[slot] >= from && endDays[slot] <= to) {
+                    slots[n++] = slot;
+                }
+            }
+            MatchColumns columns = new MatchColumns(postIds, startDays, endDays, budgetMins, budgetMaxs,
+                    slotTagIds, slotStyleIds, slotReputations);
+            MatchQuery query = new MatchQuery(lookupTagIds(me.tags()), me.tags().size(),
+                    me.travelStyle() != null ? styleIdByName.getOrDefault(me.travelStyle(), -1) : -1,
+                    me.budgetMin() != null ? me.budgetMin() : Integer.MIN_VALUE,
+                    me.budgetMax() != null ? me.budgetMax() : Integer.MAX_VALUE,
+                    from, to);
+            top = compatibilityEngine.topK(columns, Arrays.copyOf(slots, n), query, MatchWeights.DEFAULT, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Long> ids = new ArrayList<>(top.size());
+        for (CompatibilityEngine.Scored scored : top) {
+            ids.add(scored.postId());
+        }
+        return ids;
+    }
+
+    /**
+     * 预计算列表的新鲜度校验：用户的候选帖子（与其标签相同、出行日期落在窗口内、非本人发布）中
+     * 是否有创建时间晚于 since 的。有则说明预计算之后出现了新的可推荐帖子，调用方应改为在线打分。
+     */
+    public boolean hasCandidatesCreatedAfter(Long userId, LocalDate windowStart, LocalDate windowEnd,
+                                             LocalDateTime since) {
+        UserColumns me = users.get(userId);
+        if (me == null) {
+            me = loadUser(userId);
+            users.putIfAbsent(userId, me);
+        }
+        if (me.tags().isEmpty()) {
+            return false;
+        }
+        int from = (int) windowStart.toEpochDay();
+        int to = (int) windowEnd.toEpochDay();
+        long sinceSecond = since.toEpochSecond(ZoneOffset.UTC);
+        lock.readLock().lock();
+        try {
+            BitSet candidates = candidatesFor(userId, me);
+            for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+                if (createdAts[slot] > sinceSecond && startDays[slot] >= from && endDays[slot] <= to) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 按原顺序保留仍在索引中（公开且 open）的帖子 ID，已关闭、转为私密或删除的剔除 */
+    public List<Long> retainIndexed(List<Long> ids) {
+        List<Long> kept = new ArrayList<>(ids.size());
+        lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                if (slotByPostId.containsKey(id)) {
+                    kept.add(id);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return kept;
+    }
+
+    /**
+     * 日期区间重叠搜索：出行区间与 [from, to] 有交集、预算区间与 [budgetMin, budgetMax] 有交集
+     * （任一端为 null 视为不限），目的地包含 keyword（忽略大小写）。
+     * 结果按 (出发日, ID) 升序，只返回严格位于游标 (afterDay, afterId) 之后的前 limit 条。
+     */
+    public List<OverlapHit> searchOverlapping(LocalDate from, LocalDate to, Integer budgetMin, Integer budgetMax,
+                                              String keyword, int afterDay, long afterId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        int qMin = budgetMin != null ? budgetMin : Integer.MIN_VALUE;
+        int qMax = budgetMax != null ? budgetMax : Integer.MAX_VALUE;
+        String needle = keyword != null && !keyword.isBlank() ? CompanionPostGramIndexer.normalize(keyword) : null;
+        // 大顶堆保留最小的 limit 个 (出发日, ID)
+        PriorityQueue<OverlapHit> heap = new PriorityQueue<>(limit + 1, OverlapHit.ORDER.reversed());
+        lock.readLock().lock();
+        try {
+            BitSet candidates = (BitSet) longTrips.clone();
+            for (int week = Math.floorDiv(fromDay, 7), last = Math.floorDiv(toDay, 7); week <= last; week++) {
+                BitSet bucket = slotsByWeek.get(week);
+                if (bucket != null) {
+                    candidates.or(bucket);
+                }
+            }
+            for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+                if (startDays[slot] > toDay || endDays[slot] < fromDay) {
+                    continue;
+                }
+                if (budgetMins[slot] > qMax || budgetMaxs[slot] < qMin) {
+                    continue;
+                }
+                if (startDays[slot] < afterDay || (startDays[slot] == afterDay && postIds[slot] <= afterId)) {
+                    continue;
+                }
+                if (needle != null && (destinations[slot] == null || !destinations[slot].contains(needle))) {
+                    continue;
+                }
+                OverlapHit hit = new OverlapHit(postIds[slot], startDays[slot]);
+                if (heap.size() < limit) {
+                    heap.add(hit);
+                } else if (OverlapHit.ORDER.compare(hit, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(hit);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<OverlapHit> hits = new ArrayList<>(heap);
+        hits.sort(OverlapHit.ORDER);
+        return hits;
+    }
+
+    /** 重叠搜索命中：帖子 ID 与出发日（epochDay，用于生成下一页游标） */
+    public record OverlapHit(long postId, int startDay) {
+        static final Comparator<OverlapHit> ORDER = Comparator
+                .comparingInt(OverlapHit::startDay)
+                .thenComparingLong(OverlapHit::postId);
+    }
+
+    /** 当前非空的周桶数（测试用） */
+    int weekBucketCount() {
+        lock.readLock().lock();
+        try {
+            return slotsByWeek.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------- 内部：槽位与加载 ----------
+
+    private void addSlot(CompanionPost post) {
+        int slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.pop();
+        ensureCapacity(slot + 1);
+        long creatorId = post.getCreator().getId();
+        postIds[slot] = post.getId();
+        creatorIds[slot] = creatorId;
+        startDays[slot] = post.getStartDate() != null ? (int) post.getStartDate().toEpochDay() : Integer.MIN_VALUE;
+        endDays[slot] = post.getEndDate() != null ? (int) post.getEndDate().toEpochDay() : Integer.MAX_VALUE;
+        budgetMins[slot] = post.getBudgetMin() != null ? post.getBudgetMin() : Integer.MIN_VALUE;
+        budgetMaxs[slot] = post.getBudgetMax() != null ? post.getBudgetMax() : Integer.MAX_VALUE;
+        destinations[slot] = post.getDestination() != null ? CompanionPostGramIndexer.normalize(post.getDestination()) : null;
+        createdAts[slot] = post.getCreatedAt() != null ? post.getCreatedAt().toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+        if (isLongTrip(slot)) {
+            longTrips.set(slot);
+        } else {
+            for (int week = Math.floorDiv(startDays[slot], 7), last = Math.floorDiv(endDays[slot], 7); week <= last; week++) {
+                slotsByWeek.computeIfAbsent(week, k -> new BitSet()).set(slot);
+            }
+        }
+        live.set(slot);
+        slotByPostId.put(post.getId(), slot);
+        slotsByCreator.computeIfAbsent(creatorId, k -> new BitSet()).set(slot);
+        UserColumns creator = users.get(creatorId);
+        if (creator != null) {
+            for (String tag : creator.tags()) {
+                slotsByTag.computeIfAbsent(tag, k -> new BitSet()).set(slot);
+            }
+        }
+        fillCreatorColumns(slot, creator);
+    }
+
+    /** 与用户任一标签相同的发起人的帖子槽位，排除用户自己发布的；须持有读锁或写锁 */
+    private BitSet candidatesFor(Long userId, UserColumns me) {
+        BitSet candidates = new BitSet();
+        for (String tag : me.tags()) {
+            BitSet postings = slotsByTag.get(tag);
+            if (postings != null) {
+                candidates.or(postings);
+            }
+        }
+        BitSet own = slotsByCreator.get(userId);
+        if (own != null) {
+            candidates.andNot(own);
+        }
+        return candidates;
+    }
+
+    /** 把发起人的标签编号、旅行风格编号、信誉分写入槽位列 */
+    private void fillCreatorColumns(int slot, UserColumns creator) {
+        if (creator == null) {
+            slotTagIds[slot] = new int[0];
+            slotStyleIds[slot] = -1;
+            slotReputations[slot] = 0;
+            return;
+        }
+        int[] ids = new int[creator.tags().size()];
+        int i = 0;
+        for (String tag : creator.tags()) {
+            ids[i++] = tagIdByName.computeIfAbsent(tag, k -> tagIdByName.size());
+        }
+        Arrays.sort(ids);
+        slotTagIds[slot] = ids;
+        slotStyleIds[slot] = creator.travelStyle() != null
+                ? styleIdByName.computeIfAbsent(creator.travelStyle(), k -> styleIdByName.size()) : -1;
+        slotReputations[slot] = creator.reputationScore();
+    }
+
+    /** 查询方标签的编号（有序）；索引中从未出现的标签没有编号，直接跳过 */
+    private int[] lookupTagIds(Set<String> tags) {
+        int[] ids = new int[tags.size()];
+        int n = 0;
+        for (String tag : tags) {
+            Integer id = tagIdByName.get(tag);
+            if (id != null) {
+                ids[n++] = id;
+            }
+        }
+        int[] known = Arrays.copyOf(ids, n);
+        Arrays.sort(known);
+        return known;
+    }
+
+    private void removeSlot(Long postId) {
+        Integer slot = slotByPostId.remove(postId);
+        if (slot == null) {
+            return;
+        }
+        live.clear(slot);
+        if (isLongTrip(slot)) {
+            longTrips.clear(slot);
+        } else {
+            for (int week = Math.floorDiv(startDays[slot], 7), last = Math.floorDiv(endDays[slot], 7); week <= last; week++) {
+                BitSet bucket = slotsByWeek.get(week);
+                if (bucket != null) {
+                    bucket.clear(slot);
+                    if (bucket.isEmpty()) {
+                        slotsByWeek.remove(week);
+                    }
+                }
+            }
+        }
+        destinations[slot] = null;
+        slotTagIds[slot] = null;
+        long creatorId = creatorIds[slot];
+        BitSet owned = slotsByCreator.get(creatorId);
+        if (owned != null) {
+            owned.clear(slot);
+            if (owned.isEmpty()) {
+                slotsByCreator.remove(creatorId);
+            }
+        }
+        UserColumns creator = users.get(creatorId);
+        if (creator != null) {
+            for (String tag : creator.tags()) {
+                BitSet postings = slotsByTag.get(tag);
+                if (postings != null) {
+                    postings.clear(slot);
+                    if (postings.isEmpty()) {
+                        slotsByTag.remove(tag);
+                    }
+                }
+            }
+        }
+        freeSlots.push(slot);
+    }
+
+    private boolean isLongTrip(int slot) {
+        return startDays[slot] == Integer.MIN_VALUE || endDays[slot] == Integer.MAX_VALUE
+                || endDays[slot] < startDays[slot]
+                || Math.floorDiv(endDays[slot], 7) - Math.floorDiv(startDays[slot], 7) >= MAX_BUCKET_WEEKS;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= postIds.length) {
+            return;
+        }
+        int newLength = Math.max(size, postIds.length * 2);
+        postIds = Arrays.copyOf(postIds, newLength);
+        creatorIds = Arrays.copyOf(creatorIds, newLength);
+        startDays = Arrays.copyOf(startDays, newLength);
+        endDays = Arrays.copyOf(endDays, newLength);
+        budgetMins = Arrays.copyOf(budgetMins, newLength);
+        budgetMaxs = Arrays.copyOf(budgetMaxs, newLength);
+        destinations = Arrays.copyOf(destinations, newLength);
+        slotTagIds = Arrays.copyOf(slotTagIds, newLength);
+        slotStyleIds = Arrays.copyOf(slotStyleIds, newLength);
+        slotReputations = Arrays.copyOf(slotReputations, newLength);
+        createdAts = Arrays.copyOf(createdAts, newLength);
+    }
+
+    private UserColumns loadUser(Long userId) {
+        return loadUsers(Set.of(userId)).getOrDefault(userId, new UserColumns(Set.of(), null, null, null, 0));
+    }
+
+    private Map<Long, UserColumns> loadUsers(Collection<Long> userIds) {
+        Map<Long, UserColumns> result = new HashMap<>();
+        List<Long> ids = new ArrayList<>(userIds);
+        for (int i = 0; i < ids.size(); i += LOAD_BATCH) {
+            List<Long> batch = ids.subList(i, Math.min(ids.size(), i + LOAD_BATCH));
+            Map<Long, UserPreference> preferences = new HashMap<>();
+            userPreferenceRepository.findAllWithUserByIdIn(batch).forEach(p -> preferences.put(p.getId(), p));
+            Map<Long, UserReputation> reputations = new HashMap<>();
+            userReputationRepository.findAllWithUserByIdIn(batch).forEach(r -> reputations.put(r.getId(), r));
+            for (Long id : batch) {
+                UserPreference pref = preferences.get(id);
+                UserReputation rep = reputations.get(id);
+                result.put(id, new UserColumns(
+                        splitTags(pref != null ? pref.getTags() : null),
+                        pref != null ? pref.getTravelStyle() : null,
+                        pref != null ? pref.getBudgetMin() : null,
+                        pref != null ? pref.getBudgetMax() : null,
+                        rep != null && rep.getScore() != null ? rep.getScore() : 0));
+            }
+        }
+        return result;
+    }
+
+    /** 逗号分隔的标签串只在加载时拆分一次 */
+    static Set<String> splitTags(String tags) {
+        if (tags == null || tags.isBlank()) {
+            return Set.of();
+        }
+        Set<String> set = new HashSet<>();
+        for (String tag : tags.split(",")) {
+            String trimmed = tag.trim();
+            if (!trimmed.isEmpty()) {
+                set.add(trimmed);
+            }
+        }
+        return Set.copyOf(set);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.companion.entity.CompanionPost;
+import com.example.travel.companion.repository.CompanionPostGramRepository;
+import com.example.travel.companion.repository.CompanionPostRepository;
+import com.example.travel.companion.repository.CompanionTeamRepository;
+import com.example.travel.companion.repository.PostChatMessageRepository;
+import com.example.travel.companion.repository.TeamMemberRepository;
+import com.example.travel.companion.repository.TeamShareRepository;
+import com.example.travel.companion.repository.TeamSummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * 结伴帖的级联删除。子表（小队、成员、分享、摘要、群聊、n-gram）一律按外键整体 DELETE，
+ * 不再逐行加载实体再删除。
+ * <p>
+ * 同步模式（默认）在当前事务内删完；异步模式只把帖子标记为 deleted 并摘掉搜索/推荐/收件箱入口，
+ * 群聊等大表由后台按 ID 分批、每批一个短事务回收，避免一次删除长时间持锁。
+ */
+@Component
+public class CompanionPostPurger {
+
+    private static final Logger log = LoggerFactory.getLogger(CompanionPostPurger.class);
+
+    /** 每轮后台回收处理的帖子数 */
+    private static final int POSTS_PER_ROUND = 20;
+
+    private final CompanionPostRepository companionPostRepository;
+    private final CompanionPostGramRepository companionPostGramRepository;
+    private final CompanionTeamRepository companionTeamRepository;
+    private final TeamMemberRepository teamMemberRepository;
+    private final TeamShareRepository teamShareRepository;
+    private final TeamSummaryRepository teamSummaryRepository;
+    private final PostChatMessageRepository postChatMessageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean async;
+    private final int batchSize;
+
+    public CompanionPostPurger(CompanionPostRepository companionPostRepository,
+                               CompanionPostGramRepository companionPostGramRepository,
+                               CompanionTeamRepository companionTeamRepository,
+                               TeamMemberRepository teamMemberRepository,
+                               TeamShareRepository teamShareRepository,
+                               TeamSummaryRepository teamSummaryRepository,
+                               PostChatMessageRepository postChatMessageRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${app.companion.delete.mode:sync}") String mode,
+                               @Value("${app.companion.delete.batch-size:1000}") int batchSize) {
+        this.companionPostRepository = companionPostRepository;
+        this.companionPostGramRepository = companionPostGramRepository;
+        this.companionTeamRepository = companionTeamRepository;
+        this.teamMemberRepository = teamMemberRepository;
+        this.teamShareRepository = teamShareRepository;
+        this.teamSummaryRepository = teamSummaryRepository;
+        this.postChatMessageRepository = postChatMessageRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.async = "async".equalsIgnoreCase(mode);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 删除帖子及其全部子数据（需在调用方事务内执行），返回受影响的小队 ID 供调用方失效缓存。
+     * 异步模式下只做标记与摘除入口，其余交给 {@link #purgeDeleted()}。
+     */
+    public List<Long> delete(CompanionPost post) {
+        Long postId = post.getId();
+        List<Long> teamIds = companionTeamRepository.findIdsByPostId(postId);
+        companionPostGramRepository.deleteByPostId(postId);
+        if (async) {
+            post.setStatus(CompanionPost.STATUS_DELETED);
+            companionPostRepository.save(post);
+            // 摘要行删掉后小队即从成员的消息收件箱消失，其余子数据留给后台回收
+            if (!teamIds.isEmpty()) {
+                teamSummaryRepository.deleteByTeamIdIn(teamIds);
+            }
+            return teamIds;
+        }
+        deleteTeams(teamIds);
+        postChatMessageRepository.deleteByPostId(postId);
+        companionPostRepository.delete(post);
+        return teamIds;
+    }
+
+    /** 后台回收已标记删除的帖子：群聊按 ID 分批删除，最后删小队与帖子本身 */
+    @Scheduled(initialDelayString = "${app.companion.delete.purge-interval-ms:30000}",
+            fixedDelayString = "${app.companion.delete.purge-interval-ms:30000}")
+    public void purgeDeleted() {
+        List<Long> postIds = companionPostRepository.findIdsByStatus(
+                CompanionPost.STATUS_DELETED, PageRequest.of(0, POSTS_PER_ROUND));
+        for (Long postId : postIds) {
+            try {
+                purgePost(postId);
+            } catch (Exception e) {
+                log.warn("Purge companion post {} failed, will retry: {}", postId, e.getMessage());
+            }
+        }
+    }
+
+    private void purgePost(Long postId) {
+        int messages = 0;
+        List<Long> ids;
+        while (!(ids = postChatMessageRepository.findIdsByPostId(postId, PageRequest.of(0, batchSize))).isEmpty()) {
+            List<Long> batch = ids;
+            messages += transactionTemplate.execute(status -> postChatMessageRepository.deleteByIdIn(batch));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            deleteTeams(companionTeamRepository.findIdsByPostId(postId));
+            companionPostGramRepository.deleteByPostId(postId);
+            companionPostRepository.deleteById(postId);
+        });
+        log.info("Purged companion post {}, chatMessages={}", postId, messages);
+    }
+
+    private void deleteTeams(List<Long> teamIds) {
+        if (teamIds.isEmpty()) {
+            return;
+        }
+        teamShareRepository.deleteByTeamIdIn(teamIds);
+        teamMemberRepository.deleteByTeamIdIn(teamIds);
+        teamSummaryRepository.deleteByTeamIdIn(teamIds);
+        companionTeamRepository.deleteByIdIn(teamIds);
+    }
+}
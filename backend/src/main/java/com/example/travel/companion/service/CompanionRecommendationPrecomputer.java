@@ -0,0 +1,171 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.common.tx.AfterCommit;
+import com.example.travel.companion.entity.CompanionRecommendation;
+import com.example.travel.companion.repository.CompanionRecommendationRepository;
+import com.example.travel.user.repository.UserPreferenceRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 已登录用户的结伴推荐预计算。
+ * <p>
+ * 夜间批任务按用户 ID 升序切成若干段，各段在固定大小的线程池中并行：
+ * 用常驻索引为段内每个设置了标签的用户算出 Top-N 帖子，整段一个事务写入 t_companion_recommendation。
+ * 推荐接口只按用户 ID 取一行，并对照索引剔除已失效的帖子；没有预计算结果的新用户、
+ * 或预计算之后出现了新候选帖子时仍走在线打分。
+ */
+@Component
+public class CompanionRecommendationPrecomputer {
+
+    private static final Logger log = LoggerFactory.getLogger(CompanionRecommendationPrecomputer.class);
+
+    private final CompanionRecommendationRepository companionRecommendationRepository;
+    private final UserPreferenceRepository userPreferenceRepository;
+    private final CompanionPostIndex companionPostIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int listSize;
+    private final int partitionSize;
+    private final ExecutorService executor;
+
+    public CompanionRecommendationPrecomputer(CompanionRecommendationRepository companionRecommendationRepository,
+                                              UserPreferenceRepository userPreferenceRepository,
+                                              CompanionPostIndex companionPostIndex,
+                                              TransactionTemplate transactionTemplate,
+                                              @Value("${app.companion.recommend.list-size:50}") int listSize,
+                                              @Value("${app.companion.recommend.partition-size:500}") int partitionSize,
+                                              @Value("${app.companion.recommend.threads:4}") int threads) {
+        this.companionRecommendationRepository = companionRecommendationRepository;
+        this.userPreferenceRepository = userPreferenceRepository;
+        this.companionPostIndex = companionPostIndex;
+        this.transactionTemplate = transactionTemplate;
+        // post_ids 列最多容纳 100 个 ID
+        this.listSize = Math.max(1, Math.min(100, listSize));
+        this.partitionSize = Math.max(1, partitionSize);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "companion-recommend");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 读取预计算结果的前 limit 个帖子 ID，返回前对照常驻索引校验新鲜度：
+     * 已关闭、转为私密或删除的帖子剔除；预计算之后又出现了该用户的新候选帖子时返回 null。
+     * 没有该用户的行、或剔除后不足 limit 个且原列表是截断的，同样返回 null，由调用方在线计算；
+     * 空列表表示该用户没有任何标签匹配。
+     */
+    public List<Long> lookup(Long userId, int limit) {
+        CompanionRecommendation row = companionRecommendationRepository.findById(userId).orElse(null);
+        if (row == null || row.getPostIds() == null || row.getComputedAt() == null) {
+            return null;
+        }
+        LocalDate now = LocalDate.now();
+        if (companionPostIndex.hasCandidatesCreatedAfter(userId, now.minusMonths(1), now.plusYears(1),
+                row.getComputedAt())) {
+            return null;
+        }
+        List<Long> stored = decode(row.getPostIds());
+        List<Long> ids = companionPostIndex.retainIndexed(stored);
+        if (limit > ids.size() && stored.size() >= listSize) {
+            return null;
+        }
+        return ids.subList(0, Math.min(Math.max(limit, 0), ids.size()));
+    }
+
+    /** 全量预计算：每天凌晨执行（索引已在定时重建中保持最新） */
+    @Scheduled(cron = "${app.companion.recommend.precompute-cron:0 30 3 * * *}")
+    public void precomputeAll() {
+        long begin = System.currentTimeMillis();
+        List<Future<Integer>> futures = new ArrayList<>();
+        long afterId = 0L;
+        List<Long> ids;
+        while (!(ids = userPreferenceRepository.findIdsWithTagsAfter(afterId, PageRequest.of(0, partitionSize))).isEmpty()) {
+            List<Long> partition = ids;
+            futures.add(executor.submit(() -> computePartition(partition)));
+            afterId = ids.get(ids.size() - 1);
+        }
+        int users = 0;
+        for (Future<Integer> future : futures) {
+            try {
+                users += future.get();
+            } catch (Exception e) {
+                log.warn("[CompanionRecommend] partition failed: {}", e.getMessage());
+            }
+        }
+        log.info("[CompanionRecommend] precomputed users={}, partitions={}, cost={}ms",
+                users, futures.size(), System.currentTimeMillis() - begin);
+    }
+
+    /**
+     * 偏好（标签 / 旅行风格 / 预算）变更后调用：刷新索引中该用户的列，并在提交后重算其推荐列表。
+     */
+    public void onPreferenceChanged(Long userId) {
+        AfterCommit.run(() -> {
+            companionPostIndex.onPreferenceChanged(userId);
+            executor.submit(() -> computePartition(List.of(userId)));
+        });
+    }
+
+    private int computePartition(List<Long> userIds) {
+        companionPostIndex.preloadUsers(userIds);
+        LocalDate now = LocalDate.now();
+        LocalDateTime computedAt = LocalDateTime.now();
+        List<CompanionRecommendation> rows = new ArrayList<>(userIds.size());
+        List<Long> withoutTags = new ArrayList<>();
+        for (Long userId : userIds) {
+            List<Long> ranked = companionPostIndex.recommendByTags(userId, listSize, now.minusMonths(1), now.plusYears(1));
+            if (ranked == null) {
+                withoutTags.add(userId);
+                continue;
+            }
+            CompanionRecommendation row = new CompanionRecommendation();
+            row.setUserId(userId);
+            row.setPostIds(encode(ranked));
+            row.setComputedAt(computedAt);
+            rows.add(row);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            companionRecommendationRepository.saveAll(rows);
+            if (!withoutTags.isEmpty()) {
+                companionRecommendationRepository.deleteAllByIdInBatch(withoutTags);
+            }
+        });
+        return rows.size();
+    }
+
+    static byte[] encode(List<Long> ids) {
+        ByteBuffer buf = ByteBuffer.allocate(ids.size() * Long.BYTES);
+        ids.forEach(buf::putLong);
+        return buf.array();
+    }
+
+    static List<Long> decode(byte[] packed) {
+        ByteBuffer buf = ByteBuffer.wrap(packed);
+        List<Long> ids = new ArrayList<>(packed.length / Long.BYTES);
+        while (buf.remaining() >= Long.BYTES) {
+            ids.add(buf.getLong());
+        }
+        return ids;
+    }
+}
@@ -1,17 +1,24 @@
 package com.example.travel.companion.service;
 
 import com.example.travel.common.exception.BusinessException;
+import com.example.travel.common.tx.AfterCommit;
 import com.example.travel.companion.dto.CompanionDtos;
 import com.example.travel.companion.entity.CompanionPost;
 import com.example.travel.companion.entity.CompanionTeam;
 import com.example.travel.companion.entity.PostChatMessage;
 import com.example.travel.companion.entity.TeamMember;
 import com.example.travel.companion.entity.TeamShare;
+import com.example.travel.companion.repository.CompanionPostGramRepository;
 import com.example.travel.companion.repository.CompanionPostRepository;
 import com.example.travel.companion.repository.CompanionTeamRepository;
 import com.example.travel.companion.repository.PostChatMessageRepository;
 import com.example.travel.companion.repository.TeamMemberRepository;
+import com.example.travel.companion.repository.TeamInboxRow;
+import com.example.travel.companion.repository.TeamRosterRow;
+import com.example.travel.companion.repository.TeamSummaryRepository;
 import com.example.travel.companion.repository.TeamShareRepository;
+import com.example.travel.media.service.MediaStorageService;
+import com.example.travel.route.service.RouteStatsService;
 import com.example.travel.user.entity.User;
 import com.example.travel.user.entity.UserProfile;
 import com.example.travel.user.entity.UserPreference;
@@ -21,20 +28,31 @@ import com.example.travel.user.repository.UserProfileRepository;
 import com.example.travel.user.repository.UserPreferenceRepository;
 import com.example.travel.user.repository.UserReputationRepository;
 import jakarta.transaction.Transactional;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class CompanionService {
 
+    /** 游标分页搜索的默认与最大页大小 */
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final String SEARCH_MODE_OVERLAP = "overlap";
+    /** 群聊消息分页的默认与最大条数 */
+    private static final int DEFAULT_CHAT_PAGE_SIZE = 200;
+    private static final int MAX_CHAT_PAGE_SIZE = 500;
+
     private final CompanionPostRepository companionPostRepository;
+    private final CompanionPostGramRepository companionPostGramRepository;
     private final CompanionTeamRepository companionTeamRepository;
     private final TeamMemberRepository teamMemberRepository;
     private final TeamShareRepository teamShareRepository;
@@ -43,8 +61,21 @@ public class CompanionService {
     private final UserProfileRepository userProfileRepository;
     private final UserPreferenceRepository userPreferenceRepository;
     private final UserReputationRepository userReputationRepository;
+    private final CompanionPostIndex companionPostIndex;
+    private final CompanionPostGramIndexer companionPostGramIndexer;
+    private final CompanionPopularityBoard companionPopularityBoard;
+    private final TeamRosterCache teamRosterCache;
+    private final TeamSummaryService teamSummaryService;
+    private final TeamSummaryRepository teamSummaryRepository;
+    private final PostChatBroadcaster postChatBroadcaster;
+    private final PostChatSubscriptions postChatSubscriptions;
+    private final MediaStorageService mediaStorageService;
+    private final CompanionPostPurger companionPostPurger;
+    private final CompanionRecommendationPrecomputer companionRecommendationPrecomputer;
+    private final RouteStatsService routeStatsService;
 
     public CompanionService(CompanionPostRepository companionPostRepository,
+                            CompanionPostGramRepository companionPostGramRepository,
                             CompanionTeamRepository companionTeamRepository,
                             TeamMemberRepository teamMemberRepository,
                             TeamShareRepository teamShareRepository,
@@ -52,8 +83,21 @@ public class CompanionService {
                             UserRepository userRepository,
                             UserProfileRepository userProfileRepository,
                             UserPreferenceRepository userPreferenceRepository,
-                            UserReputationRepository userReputationRepository) {
+                            UserReputationRepository userReputationRepository,
+                            CompanionPostIndex companionPostIndex,
+                            CompanionPostGramIndexer companionPostGramIndexer,
+                            CompanionPopularityBoard companionPopularityBoard,
+                            TeamRosterCache teamRosterCache,
+                            TeamSummaryService teamSummaryService,
+                            TeamSummaryRepository teamSummaryRepository,
+                            PostChatBroadcaster postChatBroadcaster,
+                            PostChatSubscriptions postChatSubscriptions,
+                            MediaStorageService mediaStorageService,
+                            CompanionPostPurger companionPostPurger,
+                            CompanionRecommendationPrecomputer companionRecommendationPrecomputer,
+                            RouteStatsService routeStatsService) {
         this.companionPostRepository = companionPostRepository;
+        this.companionPostGramRepository = companionPostGramRepository;
         this.companionTeamRepository = companionTeamRepository;
         this.teamMemberRepository = teamMemberRepository;
         this.teamShareRepository = teamShareRepository;
@@ -62,6 +106,18 @@ public class CompanionService {
         this.userProfileRepository = userProfileRepository;
         this.userPreferenceRepository = userPreferenceRepository;
         this.userReputationRepository = userReputationRepository;
+        this.companionPostIndex = companionPostIndex;
+        this.companionPostGramIndexer = companionPostGramIndexer;
+        this.companionPopularityBoard = companionPopularityBoard;
+        this.teamRosterCache = teamRosterCache;
+        this.teamSummaryService = teamSummaryService;
+        this.teamSummaryRepository = teamSummaryRepository;
+        this.postChatBroadcaster = postChatBroadcaster;
+        this.postChatSubscriptions = postChatSubscriptions;
+        this.mediaStorageService = mediaStorageService;
+        this.companionPostPurger = companionPostPurger;
+        this.companionRecommendationPrecomputer = companionRecommendationPrecomputer;
+        this.routeStatsService = routeStatsService;
     }
 
     private User getCurrentUser() {
@@ -94,26 +150,52 @@ public class CompanionService {
             post.setVisibility(req.getVisibility());
         }
         companionPostRepository.save(post);
+        routeStatsService.onUsageChanged(null, post.getRelatedPlanId());
+        companionPostGramIndexer.index(post);
+        AfterCommit.run(() -> {
+            companionPostIndex.onPostSaved(post);
+            companionPopularityBoard.onPostSaved(post);
+        });
         return post.getId();
     }
 
     /**
      * 删除结伴帖（仅创建者可删）；会一并删除关联小队、小队成员及该帖聊天消息。
+     * 子数据按外键整体删除；配置为异步模式时只做标记，由 {@link CompanionPostPurger} 后台分批回收。
      */
     @Transactional
     public void deletePost(Long postId) {
-        CompanionPost post = companionPostRepository.findById(postId)
-                .orElseThrow(() -> BusinessException.badRequest("结伴信息不存在"));
+        CompanionPost post = findActivePost(postId);
         User current = getCurrentUser();
         if (!current.getId().equals(post.getCreator().getId())) {
             throw BusinessException.forbidden("只能删除自己发布的结伴");
         }
-        companionTeamRepository.findFirstByPostOrderByIdAsc(post).ifPresent(team -> {
-            teamMemberRepository.findByTeam(team).forEach(teamMemberRepository::delete);
-            companionTeamRepository.delete(team);
+        routeStatsService.onUsageChanged(post.getRelatedPlanId(), null);
+        List<Long> teamIds = companionPostPurger.delete(post);
+        teamIds.forEach(teamRosterCache::invalidateAfterCommit);
+        postChatSubscriptions.revalidateAfterCommit(postId, username -> false);
+        AfterCommit.run(() -> {
+            companionPostIndex.onPostRemoved(postId);
+            companionPopularityBoard.onPostRemoved(postId);
         });
-        postChatMessageRepository.findByPostOrderByCreatedAtAsc(post).forEach(postChatMessageRepository::delete);
-        companionPostRepository.delete(post);
+    }
+
+    /** 按 ID 取帖子；异步删除中的帖子视同不存在 */
+    private CompanionPost findActivePost(Long postId) {
+        return companionPostRepository.findById(postId)
+                .filter(post -> !post.isDeleted())
+                .orElseThrow(() -> BusinessException.badRequest("结伴信息不存在"));
+    }
+
+    /** 按 ID 取小队；所属帖子已删除（后台回收中）的小队视同不存在 */
+    private CompanionTeam findActiveTeam(Long teamId) {
+        return companionTeamRepository.findById(teamId)
+                .filter(team -> team.getPost() == null || !team.getPost().isDeleted())
+                .orElseThrow(() -> BusinessException.badRequest("小队不存在"));
+    }
+
+    private static List<CompanionPost> withoutDeleted(List<CompanionPost> posts) {
+        return posts.stream().filter(p -> !p.isDeleted()).collect(Collectors.toList());
     }
 
     public List<CompanionDtos.PostSummary> search(CompanionDtos.SearchRequest req) {
@@ -122,18 +204,110 @@ public class CompanionService {
         LocalDate end = req.getEndDate() != null ? req.getEndDate() : LocalDate.now().plusYears(1);
         List<CompanionPost> posts = companionPostRepository
                 .findByDestinationContainingAndStartDateGreaterThanEqualAndEndDateLessThanEqual(dest, start, end);
-        return posts.stream().map(this::toSummary).collect(Collectors.toList());
+        return toSummaries(withoutDeleted(posts));
+    }
+
+    /**
+     * 游标分页搜索：按 (出发日期, ID) 升序，游标为上一页最后一条的这两个值。
+     * 有目的地关键字时由 n-gram 倒排表驱动扫描，不再对主表做 LIKE '%x%' 全表扫描。
+     */
+    public CompanionDtos.PostPage searchPage(CompanionDtos.SearchRequest req) {
+        int size = req.getSize() == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(MAX_PAGE_SIZE, req.getSize()));
+        LocalDate start = req.getStartDate() != null ? req.getStartDate() : LocalDate.now().minusMonths(1);
+        LocalDate end = req.getEndDate() != null ? req.getEndDate() : LocalDate.now().plusYears(1);
+        if (SEARCH_MODE_OVERLAP.equalsIgnoreCase(req.getMode())) {
+            return searchOverlapping(req, size, start, end);
+        }
+        // 首页游标取 (start, 0)：等价于 start_date >= start
+        LocalDate afterDate = start;
+        long afterId = 0L;
+        if (StringUtils.hasText(req.getCursor())) {
+            long[] cursor = decodeCursor(req.getCursor());
+            LocalDate cursorDate = LocalDate.ofEpochDay(cursor[0]);
+            if (!cursorDate.isBefore(start)) {
+                afterDate = cursorDate;
+                afterId = cursor[1];
+            }
+        }
+        PageRequest limit = PageRequest.of(0, size + 1);
+        // 片段与回表子串校验使用同一规整后的查询串
+        String dest = CompanionPostGramIndexer.normalize(req.getDestination());
+        String gram = CompanionPostGramIndexer.driverGram(dest);
+        List<CompanionPost> rows = gram == null
+                ? companionPostRepository.seekByStartDate(afterDate, afterId, end, limit)
+                : companionPostGramRepository.seekByGram(gram, afterDate, afterId, end,
+                        "%" + escapeLike(dest) + "%", limit);
+        boolean hasMore = rows.size() > size;
+        List<CompanionPost> pageRows = hasMore ? rows.subList(0, size) : rows;
+        CompanionDtos.PostPage page = new CompanionDtos.PostPage();
+        page.setItems(toSummaries(pageRows));
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            CompanionPost last = pageRows.get(pageRows.size() - 1);
+            page.setNextCursor(encodeCursor(last.getStartDate(), last.getId()));
+        }
+        return page;
+    }
+
+    /**
+     * 重叠匹配：行程与 [start, end] 有交集、预算区间有交集的公开 open 帖子，由常驻索引的周位图求解，
+     * 只按命中的 ID 回表。排序与游标格式与普通搜索一致。
+     */
+    private CompanionDtos.PostPage searchOverlapping(CompanionDtos.SearchRequest req, int size,
+                                                     LocalDate start, LocalDate end) {
+        int afterDay = Integer.MIN_VALUE;
+        long afterId = 0L;
+        if (StringUtils.hasText(req.getCursor())) {
+            long[] cursor = decodeCursor(req.getCursor());
+            afterDay = (int) cursor[0];
+            afterId = cursor[1];
+        }
+        List<CompanionPostIndex.OverlapHit> hits = companionPostIndex.searchOverlapping(start, end,
+                req.getBudgetMin(), req.getBudgetMax(), req.getDestination(), afterDay, afterId, size + 1);
+        boolean hasMore = hits.size() > size;
+        List<CompanionPostIndex.OverlapHit> pageHits = hasMore ? hits.subList(0, size) : hits;
+        List<Long> ids = pageHits.stream().map(CompanionPostIndex.OverlapHit::postId).collect(Collectors.toList());
+        CompanionDtos.PostPage page = new CompanionDtos.PostPage();
+        page.setItems(toSummaries(findPostsInOrder(ids)));
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            CompanionPostIndex.OverlapHit last = pageHits.get(pageHits.size() - 1);
+            page.setNextCursor(encodeCursor(last.startDay(), last.postId()));
+        }
+        return page;
+    }
+
+    private static String encodeCursor(LocalDate startDate, Long id) {
+        return encodeCursor(startDate.toEpochDay(), id);
+    }
+
+    private static String encodeCursor(long epochDay, long id) {
+        String raw = epochDay + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            return new long[]{Long.parseLong(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1))};
+        } catch (RuntimeException e) {
+            throw BusinessException.badRequest("无效的分页游标");
+        }
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     public List<CompanionDtos.PostSummary> myPosts() {
         User current = getCurrentUser();
         List<CompanionPost> posts = companionPostRepository.findByCreatorOrderByCreatedAtDesc(current);
-        return posts.stream().map(this::toSummary).collect(Collectors.toList());
+        return toSummaries(withoutDeleted(posts));
     }
 
     public CompanionDtos.PostDetail getPostDetail(Long postId) {
-        CompanionPost post = companionPostRepository.findById(postId)
-                .orElseThrow(() -> BusinessException.badRequest("结伴信息不存在"));
+        CompanionPost post = findActivePost(postId);
         // 复用 summary 的“昵称/头像/信誉/标签”填充逻辑，避免详情页显示邮箱
         CompanionDtos.PostSummary summary = toSummary(post);
         CompanionDtos.PostDetail detail = new CompanionDtos.PostDetail();
@@ -159,8 +333,7 @@ public class CompanionService {
     }
 
     public CompanionDtos.TeamDetail getTeamDetail(Long teamId) {
-        CompanionTeam team = companionTeamRepository.findById(teamId)
-                .orElseThrow(() -> BusinessException.badRequest("小队不存在"));
+        CompanionTeam team = findActiveTeam(teamId);
         CompanionPost post = team.getPost();
         CompanionDtos.TeamDetail detail = new CompanionDtos.TeamDetail();
         detail.setId(team.getId());
@@ -176,34 +349,46 @@ public class CompanionService {
             detail.setBudgetMin(post.getBudgetMin());
             detail.setBudgetMax(post.getBudgetMax());
         }
-        List<TeamMember> members = teamMemberRepository.findByTeam(team);
-        List<CompanionDtos.TeamMemberItem> items = members.stream().map(m -> {
-            CompanionDtos.TeamMemberItem item = new CompanionDtos.TeamMemberItem();
-            item.setUserId(m.getUser().getId());
-            UserProfile profile = userProfileRepository.findById(m.getUser().getId()).orElse(null);
-            Long uid = m.getUser().getId();
-            String displayName = "用户" + uid;
-            if (profile != null && profile.getNickname() != null && !profile.getNickname().isBlank()) {
-                displayName = profile.getNickname();
-            } else if (m.getUser().getPhone() != null && !m.getUser().getPhone().isBlank()) {
-                displayName = m.getUser().getPhone();
-            }
-            // 无昵称且无手机号时显示「用户{id}」，保证每个成员有唯一标识
-            item.setUserName(displayName);
-            item.setAvatar(profile != null ? profile.getAvatar() : null);
-            UserReputation reputation = userReputationRepository.findById(m.getUser().getId()).orElse(null);
-            if (reputation != null && reputation.getLevel() != null) {
-                item.setReputationLevel(reputation.getLevel());
-            }
-            item.setRole(m.getRole());
-            item.setState(m.getState());
-            return item;
-        }).collect(Collectors.toList());
-        detail.setMembers(items);
+        detail.setMembers(teamRosterCache.get(team.getId(), this::loadRoster));
         return detail;
     }
 
     private CompanionDtos.PostSummary toSummary(CompanionPost post) {
+        return toSummaries(List.of(post)).get(0);
+    }
+
+    /**
+     * 批量组装结伴帖摘要：先收集结果中所有发起人 ID，再用 IN 查询各加载一次资料、信誉与偏好，
+     * 最后在内存中拼装，列表接口的查询次数不再随结果条数增长（原为 1 + 3N）。
+     */
+    private List<CompanionDtos.PostSummary> toSummaries(List<CompanionPost> posts) {
+        if (posts.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> creatorIds = posts.stream()
+                .map(CompanionPost::getCreator)
+                .filter(Objects::nonNull)
+                .map(User::getId)
+                .collect(Collectors.toSet());
+        Map<Long, UserProfile> profiles = new HashMap<>();
+        Map<Long, UserReputation> reputations = new HashMap<>();
+        Map<Long, UserPreference> preferences = new HashMap<>();
+        if (!creatorIds.isEmpty()) {
+            userProfileRepository.findAllWithUserByIdIn(creatorIds).forEach(p -> profiles.put(p.getId(), p));
+            userReputationRepository.findAllWithUserByIdIn(creatorIds).forEach(r -> reputations.put(r.getId(), r));
+            userPreferenceRepository.findAllWithUserByIdIn(creatorIds).forEach(p -> preferences.put(p.getId(), p));
+        }
+        List<CompanionDtos.PostSummary> result = new ArrayList<>(posts.size());
+        for (CompanionPost post : posts) {
+            result.add(toSummary(post, profiles, reputations, preferences));
+        }
+        return result;
+    }
+
+    private CompanionDtos.PostSummary toSummary(CompanionPost post,
+                                                Map<Long, UserProfile> profiles,
+                                                Map<Long, UserReputation> reputations,
+                                                Map<Long, UserPreference> preferences) {
         CompanionDtos.PostSummary dto = new CompanionDtos.PostSummary();
         dto.setId(post.getId());
         dto.setDestination(post.getDestination());
@@ -215,27 +400,28 @@ public class CompanionService {
         dto.setBudgetMax(post.getBudgetMax());
         dto.setStatus(post.getStatus());
         if (post.getCreator() != null) {
-            dto.setCreatorId(post.getCreator().getId());
+            Long creatorId = post.getCreator().getId();
+            dto.setCreatorId(creatorId);
             // 获取用户昵称和头像
-            UserProfile profile = userProfileRepository.findById(post.getCreator().getId()).orElse(null);
+            UserProfile profile = profiles.get(creatorId);
             if (profile != null) {
                 if (profile.getNickname() != null && !profile.getNickname().isBlank()) {
                     dto.setCreatorNickname(profile.getNickname());
                 } else {
-                    dto.setCreatorNickname("旅人" + post.getCreator().getId());
+                    dto.setCreatorNickname("旅人" + creatorId);
                 }
                 dto.setCreatorAvatar(profile.getAvatar());
             } else {
-                dto.setCreatorNickname("旅人" + post.getCreator().getId());
+                dto.setCreatorNickname("旅人" + creatorId);
                 dto.setCreatorAvatar(null);
             }
             // 获取用户信誉等级
-            UserReputation reputation = userReputationRepository.findById(post.getCreator().getId()).orElse(null);
+            UserReputation reputation = reputations.get(creatorId);
             if (reputation != null && reputation.getLevel() != null) {
                 dto.setCreatorReputationLevel(reputation.getLevel());
             }
             // 获取用户标签
-            UserPreference preference = userPreferenceRepository.findById(post.getCreator().getId()).orElse(null);
+            UserPreference preference = preferences.get(creatorId);
             if (preference != null && preference.getTags() != null && !preference.getTags().isEmpty()) {
                 dto.setCreatorTags(preference.getTags());
             }
@@ -248,16 +434,39 @@ public class CompanionService {
         return dto;
     }
 
+    /** 小队成员名单：单次联表投影查询 */
+    private List<CompanionDtos.TeamMemberItem> loadRoster(Long teamId) {
+        List<CompanionDtos.TeamMemberItem> items = new ArrayList<>();
+        for (TeamRosterRow row : teamMemberRepository.findRosterByTeamId(teamId)) {
+            CompanionDtos.TeamMemberItem item = new CompanionDtos.TeamMemberItem();
+            item.setUserId(row.getUserId());
+            String displayName = "用户" + row.getUserId();
+            if (row.getNickname() != null && !row.getNickname().isBlank()) {
+                displayName = row.getNickname();
+            } else if (row.getPhone() != null && !row.getPhone().isBlank()) {
+                displayName = row.getPhone();
+            }
+            // 无昵称且无手机号时显示「用户{id}」，保证每个成员有唯一标识
+            item.setUserName(displayName);
+            item.setAvatar(row.getAvatar());
+            item.setReputationLevel(row.getReputationLevel());
+            item.setRole(row.getRole());
+            item.setState(row.getState());
+            items.add(item);
+        }
+        return List.copyOf(items);
+    }
+
     @Transactional
     public Long createTeam(Long postId) {
         User current = getCurrentUser();
-        CompanionPost post = companionPostRepository.findById(postId)
-                .orElseThrow(() -> BusinessException.badRequest("结伴信息不存在"));
+        CompanionPost post = findActivePost(postId);
 
         CompanionTeam team = new CompanionTeam();
         team.setPost(post);
         team.setName(post.getDestination() + " 小队");
         team.setStatus("forming");
+        team.setJoinedCount(1);
         companionTeamRepository.save(team);
 
         TeamMember leader = new TeamMember();
@@ -273,6 +482,8 @@ public class CompanionService {
         welcomeMsg.setUser(null);
         welcomeMsg.setContent("小队已成立，快来和队友聊聊行程吧～");
         postChatMessageRepository.save(welcomeMsg);
+        teamSummaryService.onTeamCreated(team, welcomeMsg);
+        postChatBroadcaster.publishAfterCommit(post.getId(), toPostChatMessageItem(welcomeMsg, null));
 
         return team.getId();
     }
@@ -280,8 +491,7 @@ public class CompanionService {
     @Transactional
     public void joinTeam(Long teamId) {
         User current = getCurrentUser();
-        CompanionTeam team = companionTeamRepository.findById(teamId)
-                .orElseThrow(() -> BusinessException.badRequest("小队不存在"));
+        CompanionTeam team = findActiveTeam(teamId);
         if ("disbanded".equals(team.getStatus())) {
             throw BusinessException.badRequest("小队已解散");
         }
@@ -291,12 +501,30 @@ public class CompanionService {
             return;
         }
 
+        // 先原子占座，再插入成员。占座的条件 UPDATE 取得小队行的排他锁，随后插入成员做外键检查时
+        // 本事务已持有该行锁；若先插入，外键检查先取共享锁，并发加入者各持共享锁等待升级，会互相死锁。
+        if (companionTeamRepository.reserveSeat(teamId, seatCapacity(team)) == 0) {
+            throw BusinessException.badRequest("小队已满员");
+        }
         TeamMember member = new TeamMember();
         member.setTeam(team);
         member.setUser(current);
         member.setRole("member");
         member.setState("joined");
-        teamMemberRepository.save(member);
+        try {
+            teamMemberRepository.saveAndFlush(member);
+        } catch (DataIntegrityViolationException e) {
+            // 并发重复加入被唯一键 (team_id, user_id) 挡住：抛出后整个事务回滚，已占的座位随之释放
+            throw BusinessException.badRequest("您已在该小队中");
+        }
+        teamSummaryService.onMemberJoined(teamId);
+        teamRosterCache.invalidateAfterCommit(teamId);
+    }
+
+    /** 小队座位上限取帖子的最多人数（含队长）；未设置时不限 */
+    private static int seatCapacity(CompanionTeam team) {
+        Integer max = team.getPost() != null ? team.getPost().getMaxPeople() : null;
+        return max != null && max > 0 ? max : Integer.MAX_VALUE;
     }
 
     /**
@@ -305,14 +533,17 @@ public class CompanionService {
     @Transactional
     public void quitTeam(Long teamId) {
         User current = getCurrentUser();
-        CompanionTeam team = companionTeamRepository.findById(teamId)
-                .orElseThrow(() -> BusinessException.badRequest("小队不存在"));
+        CompanionTeam team = findActiveTeam(teamId);
         TeamMember membership = teamMemberRepository.findByTeamAndUser(team, current)
                 .orElseThrow(() -> BusinessException.badRequest("您不是该小队成员"));
         if ("leader".equals(membership.getRole())) {
             throw BusinessException.badRequest("队长请先解散小队或转让队长后再退出");
         }
         teamMemberRepository.delete(membership);
+        companionTeamRepository.releaseSeat(teamId);
+        teamSummaryService.onMemberLeft(teamId);
+        teamRosterCache.invalidateAfterCommit(teamId);
+        revalidateChatSubscriptions(team);
     }
 
     /**
@@ -321,8 +552,7 @@ public class CompanionService {
     @Transactional
     public void dissolveTeam(Long teamId) {
         User current = getCurrentUser();
-        CompanionTeam team = companionTeamRepository.findById(teamId)
-                .orElseThrow(() -> BusinessException.badRequest("小队不存在"));
+        CompanionTeam team = findActiveTeam(teamId);
         TeamMember leader = teamMemberRepository.findByTeamAndUser(team, current)
                 .orElseThrow(() -> BusinessException.forbidden("仅队长可解散小队"));
         if (!"leader".equals(leader.getRole())) {
@@ -330,6 +560,7 @@ public class CompanionService {
         }
         team.setStatus("disbanded");
         companionTeamRepository.save(team);
+        teamRosterCache.invalidateAfterCommit(teamId);
     }
 
     /**
@@ -338,8 +569,7 @@ public class CompanionService {
     @Transactional
     public void removeMember(Long teamId, Long userId) {
         User current = getCurrentUser();
-        CompanionTeam team = companionTeamRepository.findById(teamId)
-                .orElseThrow(() -> BusinessException.badRequest("小队不存在"));
+        CompanionTeam team = findActiveTeam(teamId);
         TeamMember leader = teamMemberRepository.findByTeamAndUser(team, current)
                 .orElseThrow(() -> BusinessException.forbidden("仅队长可移除成员"));
         if (!"leader".equals(leader.getRole())) {
@@ -353,6 +583,19 @@ public class CompanionService {
             throw BusinessException.badRequest("不能移除队长，请先转让队长或解散小队");
         }
         teamMemberRepository.delete(toRemove);
+        companionTeamRepository.releaseSeat(teamId);
+        teamSummaryService.onMemberLeft(teamId);
+        teamRosterCache.invalidateAfterCommit(teamId);
+        revalidateChatSubscriptions(team);
+    }
+
+    /** 成员离队后（事务提交后）注销已无权访问该帖群聊的 STOMP 订阅 */
+    private void revalidateChatSubscriptions(CompanionTeam team) {
+        if (team.getPost() == null) {
+            return;
+        }
+        Long postId = team.getPost().getId();
+        postChatSubscriptions.revalidateAfterCommit(postId, username -> canAccessPostChat(postId, username));
     }
 
     /**
@@ -361,8 +604,7 @@ public class CompanionService {
     @Transactional
     public void shareTeam(Long teamId, Long toUserId) {
         User current = getCurrentUser();
-        CompanionTeam team = companionTeamRepository.findById(teamId)
-                .orElseThrow(() -> BusinessException.badRequest("小队不存在"));
+        CompanionTeam team = findActiveTeam(teamId);
         TeamMember leader = teamMemberRepository.findByTeamAndUser(team, current)
                 .orElseThrow(() -> BusinessException.forbidden("仅队长可分享小队"));
         if (!"leader".equals(leader.getRole())) {
@@ -381,16 +623,46 @@ public class CompanionService {
 
     /**
      * 获取结伴帖内置沟通（小队群聊）消息列表。仅小队成员或帖子发起人可查看；非成员看不到群聊。
+     * <p>
+     * 不带分页参数时返回全部历史（与旧接口一致）；afterId 向后取其后的新消息（WebSocket 重连补齐），
+     * beforeId 向前取其前最近的 limit 条（向上翻历史），只传 limit 时取最近 limit 条。结果均按 ID 升序。
      */
-    public List<CompanionDtos.PostChatMessageItem> getPostChatMessages(Long postId) {
+    public List<CompanionDtos.PostChatMessageItem> getPostChatMessages(Long postId, Long afterId, Long beforeId,
+                                                                      Integer limit) {
         User current = getCurrentUser();
-        CompanionPost post = companionPostRepository.findById(postId)
-                .orElseThrow(() -> BusinessException.badRequest("结伴信息不存在"));
+        CompanionPost post = findActivePost(postId);
         if (!canAccessPostChat(post, current)) {
             throw BusinessException.forbidden("仅小队成员可查看群聊消息，请先加入活动");
         }
-        List<PostChatMessage> list = postChatMessageRepository.findByPostOrderByCreatedAtAsc(post);
-        return list.stream().map(this::toPostChatMessageItem).collect(Collectors.toList());
+        if (afterId == null && beforeId == null && limit == null) {
+            return toPostChatMessageItems(postChatMessageRepository.findByPostOrderByCreatedAtAsc(post));
+        }
+        int size = limit == null ? DEFAULT_CHAT_PAGE_SIZE : Math.max(1, Math.min(MAX_CHAT_PAGE_SIZE, limit));
+        PageRequest page = PageRequest.of(0, size);
+        List<PostChatMessage> list;
+        if (afterId != null) {
+            list = postChatMessageRepository.findByPost_IdAndIdGreaterThanOrderByIdAsc(postId, afterId, page);
+        } else {
+            list = new ArrayList<>(beforeId != null
+                    ? postChatMessageRepository.findByPost_IdAndIdLessThanOrderByIdDesc(postId, beforeId, page)
+                    : postChatMessageRepository.findByPost_IdOrderByIdDesc(postId, page));
+            Collections.reverse(list);
+        }
+        return toPostChatMessageItems(list);
+    }
+
+    /** STOMP 订阅鉴权：与 REST 接口相同，仅发起人或小队成员可订阅该帖群聊 */
+    public boolean canAccessPostChat(Long postId, String username) {
+        Optional<User> user = username.contains("@")
+                ? userRepository.findByEmail(username)
+                : userRepository.findByPhone(username);
+        if (user.isEmpty()) {
+            return false;
+        }
+        return companionPostRepository.findById(postId)
+                .filter(post -> !post.isDeleted())
+                .map(post -> canAccessPostChat(post, user.get()))
+                .orElse(false);
     }
 
     /** 是否为帖子发起人或该帖对应小队的成员（可查看/发送小队群聊） */
@@ -411,8 +683,7 @@ public class CompanionService {
     @Transactional
     public CompanionDtos.PostChatMessageItem sendPostChatMessage(Long postId, CompanionDtos.SendPostChatRequest request) {
         User current = getCurrentUser();
-        CompanionPost post = companionPostRepository.findById(postId)
-                .orElseThrow(() -> BusinessException.badRequest("结伴信息不存在"));
+        CompanionPost post = findActivePost(postId);
         if (!canAccessPostChat(post, current)) {
             throw BusinessException.forbidden("仅小队成员可在群聊中发送消息，请先加入活动");
         }
@@ -432,12 +703,8 @@ public class CompanionService {
             }
             if (content.isEmpty()) content = "分享了一个景点";
         } else if ("image".equals(type)) {
-            if (content.isEmpty()) {
-                throw BusinessException.badRequest("图片内容不能为空");
-            }
-            if (content.length() > 500_000) {
-                throw BusinessException.badRequest("图片过大");
-            }
+            // data URL 转存到媒体存储，消息表只保存 /api/media/{hash} 引用
+            content = mediaStorageService.normalizeImageContent(content, current.getId());
         } else if ("route".equals(type)) {
             if (routeJson == null || routeJson.isEmpty()) {
                 throw BusinessException.badRequest("路线数据不能为空");
@@ -465,15 +732,43 @@ public class CompanionService {
         msg.setRouteJson("route".equals(type) ? routeJson : null);
         msg.setCompanionJson("companion".equals(type) ? companionJson : null);
         postChatMessageRepository.save(msg);
-        return toPostChatMessageItem(msg);
+        teamSummaryService.onMessage(msg);
+        CompanionDtos.PostChatMessageItem item = toPostChatMessageItem(msg);
+        postChatBroadcaster.publishAfterCommit(postId, item);
+        return item;
+    }
+
+    /** 批量转换：发送者昵称一次性按 ID 批量加载 */
+    private List<CompanionDtos.PostChatMessageItem> toPostChatMessageItems(List<PostChatMessage> messages) {
+        Set<Long> senderIds = new HashSet<>();
+        for (PostChatMessage msg : messages) {
+            if (msg.getUser() != null) {
+                senderIds.add(msg.getUser().getId());
+            }
+        }
+        Map<Long, UserProfile> profiles = new HashMap<>();
+        if (!senderIds.isEmpty()) {
+            userProfileRepository.findAllWithUserByIdIn(senderIds).forEach(p -> profiles.put(p.getId(), p));
+        }
+        List<CompanionDtos.PostChatMessageItem> items = new ArrayList<>(messages.size());
+        for (PostChatMessage msg : messages) {
+            items.add(toPostChatMessageItem(msg, msg.getUser() != null ? profiles.get(msg.getUser().getId()) : null));
+        }
+        return items;
     }
 
     private CompanionDtos.PostChatMessageItem toPostChatMessageItem(PostChatMessage msg) {
+        UserProfile profile = msg.getUser() != null
+                ? userProfileRepository.findById(msg.getUser().getId()).orElse(null)
+                : null;
+        return toPostChatMessageItem(msg, profile);
+    }
+
+    private CompanionDtos.PostChatMessageItem toPostChatMessageItem(PostChatMessage msg, UserProfile profile) {
         CompanionDtos.PostChatMessageItem item = new CompanionDtos.PostChatMessageItem();
         item.setId(msg.getId());
         if (msg.getUser() != null) {
             item.setUserId(msg.getUser().getId());
-            UserProfile profile = userProfileRepository.findById(msg.getUser().getId()).orElse(null);
             if (profile != null && profile.getNickname() != null && !profile.getNickname().isBlank()) {
                 item.setAuthorNickname(profile.getNickname());
             } else {
@@ -494,53 +789,25 @@ public class CompanionService {
 
     /**
      * 当前用户加入的小队列表及每条小队对应结伴帖的最近一条聊天预览（供消息中心「小队消息」使用）。
+     * 直接读小队消息摘要，一次查询并在 SQL 中按最后消息时间倒序。
      */
     public List<CompanionDtos.MyTeamMessageItem> myTeamMessages() {
         User current = getCurrentUser();
-        List<TeamMember> memberships = teamMemberRepository.findByUser(current);
         List<CompanionDtos.MyTeamMessageItem> result = new ArrayList<>();
-        Set<Long> seenTeamIds = new HashSet<>();
-        for (TeamMember m : memberships) {
-            CompanionTeam team = m.getTeam();
-            if (team == null || "disbanded".equals(team.getStatus()) || seenTeamIds.contains(team.getId())) {
-                continue;
-            }
-            seenTeamIds.add(team.getId());
+        for (TeamInboxRow row : teamSummaryRepository.findInboxByUserId(current.getId())) {
             CompanionDtos.MyTeamMessageItem item = new CompanionDtos.MyTeamMessageItem();
-            item.setTeamId(team.getId());
-            CompanionPost post = team.getPost();
-            if (post != null) {
-                item.setPostId(post.getId());
-                item.setDestination(post.getDestination() != null ? post.getDestination() : "结伴活动");
-                List<TeamMember> members = teamMemberRepository.findByTeam(team);
-                item.setMemberCount(members != null ? members.size() : 0);
-                Optional<PostChatMessage> lastMsg = postChatMessageRepository.findFirstByPostOrderByCreatedAtDesc(post);
-                if (lastMsg.isPresent()) {
-                    String content = lastMsg.get().getContent();
-                    item.setLastMessagePreview(content != null && content.length() > 80 ? content.substring(0, 80) + "…" : content);
-                    item.setLastMessageTime(lastMsg.get().getCreatedAt());
-                } else {
-                    item.setLastMessagePreview("暂无聊天记录");
-                    item.setLastMessageTime(null);
-                }
+            item.setTeamId(row.getTeamId());
+            item.setPostId(row.getPostId());
+            if (row.getPostId() != null) {
+                item.setDestination(row.getDestination() != null ? row.getDestination() : "结伴活动");
             } else {
-                item.setPostId(null);
-                item.setDestination(team.getName() != null ? team.getName() : "小队");
-                item.setMemberCount(0);
-                item.setLastMessagePreview("暂无聊天记录");
-                item.setLastMessageTime(null);
+                item.setDestination(row.getTeamName() != null ? row.getTeamName() : "小队");
             }
+            item.setMemberCount(row.getMemberCount() != null ? row.getMemberCount() : 0);
+            item.setLastMessagePreview(row.getLastMessagePreview() != null ? row.getLastMessagePreview() : "暂无聊天记录");
+            item.setLastMessageTime(row.getLastMessageAt());
             result.add(item);
         }
-        // 按最后消息时间倒序（有消息的在前）
-        result.sort((a, b) -> {
-            LocalDateTime ta = a.getLastMessageTime();
-            LocalDateTime tb = b.getLastMessageTime();
-            if (ta == null && tb == null) return 0;
-            if (ta == null) return 1;
-            if (tb == null) return -1;
-            return tb.compareTo(ta);
-        });
         return result;
     }
 
@@ -563,166 +830,56 @@ public class CompanionService {
     }
 
     /**
-     * 根据用户标签推荐
+     * 根据用户标签推荐：优先读夜间预计算的推荐列表（按用户 ID 取一行，已对照索引剔除失效帖子）；
+     * 没有预计算结果或结果已过期时由常驻索引在线打分（位图求并 + 有界堆 Top-K）。
+     * 这里只按排好序的 ID 批量取回帖子并组装摘要。
      */
     private List<CompanionDtos.PostSummary> recommendByUserTags(int limit) {
         try {
             User current = getCurrentUser();
-            UserPreference preference = userPreferenceRepository.findById(current.getId()).orElse(null);
-            
-            if (preference == null || preference.getTags() == null || preference.getTags().isEmpty()) {
-                // 如果没有偏好设置，降级为热度推荐
-                return recommendByPopularity(limit);
+            List<Long> rankedIds = companionRecommendationPrecomputer.lookup(current.getId(), limit);
+            if (rankedIds == null) {
+                LocalDate now = LocalDate.now();
+                rankedIds = companionPostIndex.recommendByTags(
+                        current.getId(), limit, now.minusMonths(1), now.plusYears(1));
             }
-
-            // 获取用户标签列表
-            String[] userTags = preference.getTags().split(",");
-            Set<String> userTagSet = Arrays.stream(userTags)
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty())
-                    .collect(Collectors.toSet());
-
-            if (userTagSet.isEmpty()) {
+            // 没有偏好标签或无标签匹配时降级为热度推荐，确保首页有内容展示
+            if (rankedIds == null || rankedIds.isEmpty()) {
                 return recommendByPopularity(limit);
             }
-
-            // 获取所有公开的结伴活动（按日期范围）
-            LocalDate now = LocalDate.now();
-            List<CompanionPost> allPosts = companionPostRepository
-                    .findByDestinationContainingAndStartDateGreaterThanEqualAndEndDateLessThanEqual(
-                            "", now.minusMonths(1), now.plusYears(1));
-            if (allPosts.isEmpty()) {
-                allPosts = companionPostRepository.findTop20ByVisibilityOrderByCreatedAtDesc("public");
-            }
-
-            // 计算每个活动的匹配分数
-            List<CompanionPostWithScore> scoredPosts = allPosts.stream()
-                    .filter(post -> post.getCreator() != null && !post.getCreator().getId().equals(current.getId()))
-                    .map(post -> {
-                        int score = calculateMatchScore(post, userTagSet, preference);
-                        return new CompanionPostWithScore(post, score);
-                    })
-                    .filter(item -> item.score > 0) // 至少有一个标签匹配
-                    .sorted((a, b) -> Integer.compare(b.score, a.score)) // 按分数降序
-                    .limit(limit)
-                    .collect(Collectors.toList());
-
-            // 无标签匹配时降级为热度推荐，确保首页有内容展示
-            if (scoredPosts.isEmpty()) {
-                return recommendByPopularity(limit);
-            }
-            return scoredPosts.stream()
-                    .map(item -> toSummary(item.post))
-                    .collect(Collectors.toList());
-
+            return toSummaries(findPostsInOrder(rankedIds));
         } catch (Exception e) {
             // 如果出错，降级为热度推荐
             return recommendByPopularity(limit);
         }
     }
 
-    /**
-     * 根据热度推荐（信誉分 + 完成行程次数）
-     * 优先取最近创建的公开结伴帖，避免日期过滤过严导致无推荐
-     */
-    private List<CompanionDtos.PostSummary> recommendByPopularity(int limit) {
-        List<CompanionPost> allPosts = companionPostRepository.findTop20ByVisibilityOrderByCreatedAtDesc("public");
-
-        // 计算每个活动的热度分数
-        List<CompanionPostWithScore> scoredPosts = allPosts.stream()
-                .filter(post -> post.getCreator() != null)
-                .map(post -> {
-                    int score = calculatePopularityScore(post);
-                    return new CompanionPostWithScore(post, score);
-                })
-                .sorted((a, b) -> Integer.compare(b.score, a.score)) // 按分数降序
-                .limit(limit)
-                .collect(Collectors.toList());
-
-        return scoredPosts.stream()
-                .map(item -> toSummary(item.post))
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * 计算匹配分数（基于标签匹配）
-     */
-    private int calculateMatchScore(CompanionPost post, Set<String> userTags, UserPreference preference) {
-        int score = 0;
-        
-        // 获取创建者的偏好标签
-        User creator = post.getCreator();
-        if (creator != null) {
-            UserPreference creatorPref = userPreferenceRepository.findById(creator.getId()).orElse(null);
-            if (creatorPref != null && creatorPref.getTags() != null && !creatorPref.getTags().isEmpty()) {
-                String[] creatorTags = creatorPref.getTags().split(",");
-                for (String tag : creatorTags) {
-                    String trimmedTag = tag.trim();
-                    if (userTags.contains(trimmedTag)) {
-                        score += 10; // 每个匹配的标签加10分
-                    }
-                }
+    /** 按给定 ID 顺序批量取回帖子，已被删除的跳过 */
+    private List<CompanionPost> findPostsInOrder(List<Long> ids) {
+        Map<Long, CompanionPost> byId = new HashMap<>();
+        companionPostRepository.findAllById(ids).forEach(p -> byId.put(p.getId(), p));
+        List<CompanionPost> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            CompanionPost post = byId.get(id);
+            if (post != null && !post.isDeleted()) {
+                ordered.add(post);
             }
         }
-
-        // 如果旅行风格匹配，额外加分
-        if (preference.getTravelStyle() != null && creator != null) {
-            UserPreference creatorPref = userPreferenceRepository.findById(creator.getId()).orElse(null);
-            if (creatorPref != null && preference.getTravelStyle().equals(creatorPref.getTravelStyle())) {
-                score += 20; // 旅行风格匹配加20分
-            }
-        }
-
-        // 信誉分作为加分项
-        if (creator != null) {
-            UserReputation reputation = userReputationRepository.findById(creator.getId()).orElse(null);
-            if (reputation != null && reputation.getScore() != null) {
-                score += reputation.getScore() / 10; // 信誉分除以10作为加分
-            }
-        }
-
-        return score;
+        return ordered;
     }
 
     /**
-     * 计算热度分数（信誉分 + 完成行程次数）
+     * 根据热度推荐（信誉分 + 完成行程次数 + 好评次数）：直接读预先维护的热度排行，
+     * 排行尚未就绪时退回最近创建的公开结伴帖，避免首页无内容。
      */
-    private int calculatePopularityScore(CompanionPost post) {
-        int score = 0;
-        User creator = post.getCreator();
-        
-        if (creator != null) {
-            UserReputation reputation = userReputationRepository.findById(creator.getId()).orElse(null);
-            if (reputation != null) {
-                // 信誉分权重：1分 = 1分
-                if (reputation.getScore() != null) {
-                    score += reputation.getScore();
-                }
-                // 完成行程次数权重：1次 = 10分
-                if (reputation.getTotalTrips() != null) {
-                    score += reputation.getTotalTrips() * 10;
-                }
-                // 好评次数权重：1次 = 5分
-                if (reputation.getPositiveCount() != null) {
-                    score += reputation.getPositiveCount() * 5;
-                }
-            }
-        }
-
-        return score;
-    }
-
-    /**
-     * 内部类：用于排序的结伴活动与分数
-     */
-    private static class CompanionPostWithScore {
-        final CompanionPost post;
-        final int score;
-
-        CompanionPostWithScore(CompanionPost post, int score) {
-            this.post = post;
-            this.score = score;
+    private List<CompanionDtos.PostSummary> recommendByPopularity(int limit) {
+        List<Long> rankedIds = companionPopularityBoard.top(limit);
+        if (rankedIds == null || rankedIds.isEmpty()) {
+            List<CompanionPost> recent = withoutDeleted(
+                    companionPostRepository.findTop20ByVisibilityOrderByCreatedAtDesc("public"));
+            return toSummaries(recent.subList(0, Math.min(Math.max(limit, 0), recent.size())));
         }
+        return toSummaries(findPostsInOrder(rankedIds));
     }
 }
 
@@ -0,0 +1,44 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.common.tx.AfterCommit;
+import com.example.travel.companion.dto.CompanionDtos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 把新的结伴群聊消息推送到 STOMP 主题 /topic/companion/posts/{postId}/chat。
+ * 在事务提交后推送，避免客户端收到随后回滚的消息；推送失败只记日志，客户端重连后用增量接口补齐。
+ */
+@Component
+public class PostChatBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(PostChatBroadcaster.class);
+
+    /** 消息模板由 WebSocket 配置创建，延迟获取以免与鉴权拦截器形成循环依赖 */
+    private final ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+
+    public PostChatBroadcaster(ObjectProvider<SimpMessagingTemplate> messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    public static String topic(Long postId) {
+        return "/topic/companion/posts/" + postId + "/chat";
+    }
+
+    public void publishAfterCommit(Long postId, CompanionDtos.PostChatMessageItem item) {
+        AfterCommit.run(() -> {
+            SimpMessagingTemplate template = messagingTemplate.getIfAvailable();
+            if (template == null) {
+                return;
+            }
+            try {
+                template.convertAndSend(topic(postId), item);
+            } catch (Exception e) {
+                log.warn("[PostChat] push failed: postId={}, msgId={}, {}", postId, item.getId(), e.getMessage());
+            }
+        });
+    }
+}
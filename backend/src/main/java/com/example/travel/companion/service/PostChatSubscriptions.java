@@ -0,0 +1,140 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.common.tx.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * 结伴群聊的 STOMP 订阅登记：订阅鉴权通过后登记，退订或断开连接时移除。
+ * <p>
+ * 成员退出、被移除或帖子删除后（事务提交后），按与订阅鉴权相同的规则重新校验该帖的全部订阅，
+ * 已无权限的订阅从消息代理中注销，连接未断开也不会再收到该帖的后续消息。
+ */
+@Component
+public class PostChatSubscriptions {
+
+    private static final Logger log = LoggerFactory.getLogger(PostChatSubscriptions.class);
+
+    record Subscription(String sessionId, String subscriptionId, Long postId, String username) {
+    }
+
+    private final ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+    private final Map<Long, Set<Subscription>> byPost = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscription>> bySession = new ConcurrentHashMap<>();
+
+    public PostChatSubscriptions(ObjectProvider<SimpMessagingTemplate> messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    public void add(String sessionId, String subscriptionId, Long postId, String username) {
+        if (sessionId == null || subscriptionId == null) {
+            return;
+        }
+        Subscription sub = new Subscription(sessionId, subscriptionId, postId, username);
+        bySession.computeIfAbsent(sessionId, k -> ConcurrentHashMap.newKeySet()).add(sub);
+        byPost.computeIfAbsent(postId, k -> ConcurrentHashMap.newKeySet()).add(sub);
+    }
+
+    public void remove(String sessionId, String subscriptionId) {
+        Set<Subscription> subs = sessionId != null ? bySession.get(sessionId) : null;
+        if (subs == null) {
+            return;
+        }
+        for (Subscription sub : List.copyOf(subs)) {
+            if (sub.subscriptionId().equals(subscriptionId)) {
+                forget(sub);
+            }
+        }
+    }
+
+    public void removeSession(String sessionId) {
+        Set<Subscription> subs = sessionId != null ? bySession.remove(sessionId) : null;
+        if (subs != null) {
+            subs.forEach(this::forget);
+        }
+    }
+
+    /**
+     * 事务提交后重新校验该帖的订阅：stillAllowed 按订阅者用户名判断是否仍可访问群聊，
+     * 不再允许的订阅被注销。
+     */
+    public void revalidateAfterCommit(Long postId, Predicate<String> stillAllowed) {
+        AfterCommit.run(() -> revalidate(postId, stillAllowed));
+    }
+
+    void revalidate(Long postId, Predicate<String> stillAllowed) {
+        Set<Subscription> subs = byPost.get(postId);
+        if (subs == null || subs.isEmpty()) {
+            return;
+        }
+        List<Subscription> revoked = new ArrayList<>();
+        for (Subscription sub : List.copyOf(subs)) {
+            boolean allowed;
+            try {
+                allowed = stillAllowed.test(sub.username());
+            } catch (Exception e) {
+                log.warn("[PostChat] subscription check failed: postId={}, {}", postId, e.getMessage());
+                allowed = false;
+            }
+            if (!allowed) {
+                revoked.add(sub);
+            }
+        }
+        revoked.forEach(this::revoke);
+    }
+
+    int size() {
+        return byPost.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void revoke(Subscription sub) {
+        forget(sub);
+        SimpMessagingTemplate template = messagingTemplate.getIfAvailable();
+        if (template == null) {
+            return;
+        }
+        // 交给消息代理的退订消息：与客户端发出 UNSUBSCRIBE 的效果相同
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        accessor.setSessionId(sub.sessionId());
+        accessor.setSubscriptionId(sub.subscriptionId());
+        accessor.setLeaveMutable(true);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        try {
+            template.getMessageChannel().send(message);
+            log.info("[PostChat] subscription revoked: postId={}, session={}", sub.postId(), sub.sessionId());
+        } catch (Exception e) {
+            log.warn("[PostChat] revoke failed: postId={}, session={}, {}", sub.postId(), sub.sessionId(), e.getMessage());
+        }
+    }
+
+    private void forget(Subscription sub) {
+        Set<Subscription> session = bySession.get(sub.sessionId());
+        if (session != null) {
+            session.remove(sub);
+            if (session.isEmpty()) {
+                bySession.remove(sub.sessionId(), session);
+            }
+        }
+        Set<Subscription> post = byPost.get(sub.postId());
+        if (post != null) {
+            post.remove(sub);
+            if (post.isEmpty()) {
+                byPost.remove(sub.postId(), post);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.common.cache.LruTtlCache;
+import com.example.travel.common.tx.AfterCommit;
+import com.example.travel.companion.dto.CompanionDtos;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 小队成员名单缓存（按小队 ID）。
+ * 加入 / 退出 / 移除成员 / 解散小队后失效；TTL 兜底成员改昵称、头像或信誉等级变化。
+ */
+@Component
+public class TeamRosterCache {
+
+    private final LruTtlCache<Long, List<CompanionDtos.TeamMemberItem>> cache;
+
+    public TeamRosterCache(@Value("${app.companion.roster-cache.max-entries:10000}") int maxEntries,
+                           @Value("${app.companion.roster-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.cache = new LruTtlCache<>(maxEntries, ttlSeconds * 1000L);
+    }
+
+    public List<CompanionDtos.TeamMemberItem> get(Long teamId,
+                                                  Function<Long, List<CompanionDtos.TeamMemberItem>> loader) {
+        return cache.get(teamId, loader);
+    }
+
+    /** 事务提交后再失效，避免并发读在提交前把旧名单重新放回缓存 */
+    public void invalidateAfterCommit(Long teamId) {
+        AfterCommit.run(() -> cache.invalidate(teamId));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.companion.entity.CompanionTeam;
+import com.example.travel.companion.entity.PostChatMessage;
+import com.example.travel.companion.entity.TeamSummary;
+import com.example.travel.companion.repository.CompanionTeamRepository;
+import com.example.travel.companion.repository.PostChatMessageRepository;
+import com.example.travel.companion.repository.TeamMemberRepository;
+import com.example.travel.companion.repository.TeamSummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 维护小队消息摘要（t_team_summary）。各方法应在业务写操作的同一事务内调用，
+ * 摘要与成员关系、聊天消息同时提交或回滚。启动时为历史小队补建摘要与占座计数。
+ */
+@Service
+@Order(3)
+public class TeamSummaryService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TeamSummaryService.class);
+
+    /** 预览最多保留的字符数 */
+    static final int PREVIEW_LENGTH = 80;
+
+    private final TeamSummaryRepository teamSummaryRepository;
+    private final CompanionTeamRepository companionTeamRepository;
+    private final TeamMemberRepository teamMemberRepository;
+    private final PostChatMessageRepository postChatMessageRepository;
+
+    public TeamSummaryService(TeamSummaryRepository teamSummaryRepository,
+                              CompanionTeamRepository companionTeamRepository,
+                              TeamMemberRepository teamMemberRepository,
+                              PostChatMessageRepository postChatMessageRepository) {
+        this.teamSummaryRepository = teamSummaryRepository;
+        this.companionTeamRepository = companionTeamRepository;
+        this.teamMemberRepository = teamMemberRepository;
+        this.postChatMessageRepository = postChatMessageRepository;
+    }
+
+    /** 建队：队长为首个成员，欢迎语为首条消息 */
+    public void onTeamCreated(CompanionTeam team, PostChatMessage welcomeMsg) {
+        TeamSummary summary = new TeamSummary();
+        summary.setTeamId(team.getId());
+        summary.setPostId(team.getPost() != null ? team.getPost().getId() : null);
+        summary.setMemberCount(1);
+        if (welcomeMsg != null) {
+            summary.setLastMessageId(welcomeMsg.getId());
+            summary.setLastMessagePreview(preview(welcomeMsg.getType(), welcomeMsg.getContent()));
+            summary.setLastMessageAt(welcomeMsg.getCreatedAt());
+            summary.setLastSenderId(welcomeMsg.getUser() != null ? welcomeMsg.getUser().getId() : null);
+        }
+        teamSummaryRepository.save(summary);
+    }
+
+    public void onMemberJoined(Long teamId) {
+        teamSummaryRepository.addMemberCount(teamId, 1);
+    }
+
+    public void onMemberLeft(Long teamId) {
+        teamSummaryRepository.addMemberCount(teamId, -1);
+    }
+
+    /** 帖子群聊新消息：该帖下所有小队共用同一群聊 */
+    public void onMessage(PostChatMessage msg) {
+        teamSummaryRepository.updateLastMessage(
+                msg.getPost().getId(),
+                msg.getId(),
+                preview(msg.getType(), msg.getContent()),
+                msg.getCreatedAt(),
+                msg.getUser() != null ? msg.getUser().getId() : null);
+    }
+
+    public void onTeamDeleted(Long teamId) {
+        teamSummaryRepository.deleteByTeamId(teamId);
+    }
+
+    /** 与私信会话一致：图片、景点显示占位文字，其余截取前 80 个字符 */
+    static String preview(String type, String content) {
+        if ("image".equals(type)) {
+            return "[图片]";
+        }
+        if ("spot".equals(type)) {
+            return "[景点]";
+        }
+        if (content == null) {
+            return null;
+        }
+        return content.length() > PREVIEW_LENGTH ? content.substring(0, PREVIEW_LENGTH) + "…" : content;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            int seats = companionTeamRepository.backfillJoinedCount();
+            if (seats > 0) {
+                log.info("[TeamSummary] backfilled joinedCount for {} teams", seats);
+            }
+            List<Long> teamIds = teamSummaryRepository.findTeamIdsWithoutSummary();
+            for (Long teamId : teamIds) {
+                companionTeamRepository.findById(teamId).ifPresent(this::backfill);
+            }
+            if (!teamIds.isEmpty()) {
+                log.info("[TeamSummary] backfilled {} teams", teamIds.size());
+            }
+        } catch (Exception e) {
+            log.warn("[TeamSummary] backfill skipped or failed: {}", e.getMessage());
+        }
+    }
+
+    /** 补建单个小队的摘要：只取最后一条消息的前若干字符，不读取完整内容 */
+    private void backfill(CompanionTeam team) {
+        TeamSummary summary = new TeamSummary();
+        summary.setTeamId(team.getId());
+        summary.setMemberCount((int) teamMemberRepository.countByTeam_Id(team.getId()));
+        if (team.getPost() != null) {
+            summary.setPostId(team.getPost().getId());
+            postChatMessageRepository.findLatestHeads(team.getPost().getId(), PageRequest.of(0, 1))
+                    .stream().findFirst().ifPresent(head -> {
+                        summary.setLastMessageId(head.getId());
+                        summary.setLastMessagePreview(preview(head.getType(), head.getHead()));
+                        summary.setLastMessageAt(head.getCreatedAt());
+                        summary.setLastSenderId(head.getUserId());
+                    });
+        }
+        teamSummaryRepository.save(summary);
+    }
+}
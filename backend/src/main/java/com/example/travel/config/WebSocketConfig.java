@@ -0,0 +1,65 @@
+package com.example.travel.config;
+
+import com.example.travel.security.StompAuthChannelInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+/**
+ * STOMP over WebSocket：结伴群聊实时推送。
+ * <p>
+ * 客户端连接 /ws，CONNECT 帧携带 Authorization: Bearer &lt;token&gt;，
+ * 订阅 /topic/companion/posts/{postId}/chat 接收新消息；发送仍走 REST 接口。
+ * 每个连接的发送缓冲区与发送耗时都有上限，慢客户端超限会被断开，不会拖慢其他连接的推送。
+ */
+@Configuration
+@EnableWebSocketMessageBroker
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+    private final int sendBufferSizeLimit;
+    private final int sendTimeLimitMs;
+
+    public WebSocketConfig(StompAuthChannelInterceptor stompAuthChannelInterceptor,
+                           @Value("${app.ws.send-buffer-size-limit:524288}") int sendBufferSizeLimit,
+                           @Value("${app.ws.send-time-limit-ms:10000}") int sendTimeLimitMs) {
+        this.stompAuthChannelInterceptor = stompAuthChannelInterceptor;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+    }
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws").setAllowedOriginPatterns("*");
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        registry.enableSimpleBroker("/topic");
+        registry.setApplicationDestinationPrefixes("/app");
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration
+                .setMessageSizeLimit(64 * 1024)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimitMs);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthChannelInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // 出站线程池有界：单个连接阻塞时只占用一个线程，排队消息数有上限
+        registration.taskExecutor().corePoolSize(4).maxPoolSize(16).queueCapacity(10_000);
+    }
+}
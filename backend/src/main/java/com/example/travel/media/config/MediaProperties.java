@@ -0,0 +1,40 @@
+package com.example.travel.media.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.media")
+public class MediaProperties {
+
+    /** 媒体文件根目录，按 SHA-256 前两级分目录存放 */
+    private String root = "./data/media";
+    /** 单个文件最大字节数 */
+    private long maxBytes = 5L * 1024 * 1024;
+    /** 浏览器缓存时长（秒）；内容按哈希寻址、永不变化，可设得很长 */
+    private long cacheMaxAgeSeconds = 365L * 24 * 3600;
+
+    public String getRoot() {
+        return root;
+    }
+
+    public void setRoot(String root) {
+        this.root = root;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getCacheMaxAgeSeconds() {
+        return cacheMaxAgeSeconds;
+    }
+
+    public void setCacheMaxAgeSeconds(long cacheMaxAgeSeconds) {
+        this.cacheMaxAgeSeconds = cacheMaxAgeSeconds;
+    }
+}
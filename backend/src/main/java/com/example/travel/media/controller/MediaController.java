@@ -0,0 +1,77 @@
+package com.example.travel.media.controller;
+
+import com.example.travel.common.api.ApiResponse;
+import com.example.travel.common.exception.BusinessException;
+import com.example.travel.media.config.MediaProperties;
+import com.example.travel.media.dto.MediaDtos;
+import com.example.travel.media.entity.MediaObject;
+import com.example.travel.media.service.MediaStorageService;
+import com.example.travel.user.entity.User;
+import com.example.travel.user.repository.UserRepository;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 媒体上传与读取。读取接口返回文件 Resource，由 Spring 流式写出并自动处理 Range（206 分段）请求；
+ * 内容按哈希寻址、永不变化，因此附带长期缓存头与 ETag。
+ */
+@RestController
+@RequestMapping("/api/media")
+public class MediaController {
+
+    private final MediaStorageService mediaStorageService;
+    private final MediaProperties mediaProperties;
+    private final UserRepository userRepository;
+
+    public MediaController(MediaStorageService mediaStorageService,
+                           MediaProperties mediaProperties,
+                           UserRepository userRepository) {
+        this.mediaStorageService = mediaStorageService;
+        this.mediaProperties = mediaProperties;
+        this.userRepository = userRepository;
+    }
+
+    private User getCurrentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String username = auth.getName();
+        return (username.contains("@")
+                ? userRepository.findByEmail(username)
+                : userRepository.findByPhone(username))
+                .orElseThrow(() -> BusinessException.unauthorized("用户未登录"));
+    }
+
+    /** 上传图片（需登录），返回可直接作为消息内容使用的引用地址 */
+    @PostMapping
+    public ApiResponse<MediaDtos.UploadResponse> upload(@RequestParam("file") MultipartFile file) throws IOException {
+        User current = getCurrentUser();
+        MediaObject media = mediaStorageService.store(file.getBytes(), current.getId());
+        MediaDtos.UploadResponse resp = new MediaDtos.UploadResponse();
+        resp.setHash(media.getHash());
+        resp.setUrl(MediaStorageService.url(media.getHash()));
+        resp.setContentType(media.getContentType());
+        resp.setSize(media.getSizeBytes());
+        return ApiResponse.success(resp);
+    }
+
+    @GetMapping("/{hash}")
+    public ResponseEntity<Resource> get(@PathVariable String hash) {
+        return mediaStorageService.find(hash)
+                .<ResponseEntity<Resource>>map(media -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(media.getContentType()))
+                        .cacheControl(CacheControl.maxAge(mediaProperties.getCacheMaxAgeSeconds(), TimeUnit.SECONDS)
+                                .cachePublic().immutable())
+                        .eTag(media.getHash())
+                        .body(new FileSystemResource(mediaStorageService.path(media.getHash()))))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
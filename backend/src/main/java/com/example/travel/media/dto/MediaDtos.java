@@ -0,0 +1,16 @@
+package com.example.travel.media.dto;
+
+import lombok.Data;
+
+@Data
+public class MediaDtos {
+
+    @Data
+    public static class UploadResponse {
+        private String hash;
+        /** 可直接作为 img src 或消息 content 使用的引用地址 */
+        private String url;
+        private String contentType;
+        private Long size;
+    }
+}
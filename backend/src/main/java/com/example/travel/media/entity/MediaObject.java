@@ -0,0 +1,42 @@
+package com.example.travel.media.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 媒体对象：以内容 SHA-256 为主键，相同内容只存一份。
+ * 字节存放在本地文件系统（见 MediaStorageService），这里只记录元数据。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "t_media_object")
+public class MediaObject {
+
+    /** 内容 SHA-256（小写十六进制） */
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(length = 64, nullable = false)
+    private String contentType;
+
+    private Long sizeBytes;
+
+    /** 首次上传者 */
+    private Long uploaderId;
+
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
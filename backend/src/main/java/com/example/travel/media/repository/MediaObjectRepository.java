@@ -0,0 +1,7 @@
+package com.example.travel.media.repository;
+
+import com.example.travel.media.entity.MediaObject;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MediaObjectRepository extends JpaRepository<MediaObject, String> {
+}
@@ -0,0 +1,101 @@
+package com.example.travel.media.service;
+
+import com.example.travel.companion.entity.PostChatMessage;
+import com.example.travel.companion.repository.PostChatMessageRepository;
+import com.example.travel.social.entity.PrivateMessage;
+import com.example.travel.social.repository.PrivateMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 启动时把历史消息中以 base64 内联的图片迁入媒体存储，消息内容替换为 /api/media/{sha256} 引用。
+ * 按 ID 分批、逐条处理，单条失败只记日志并跳过。
+ */
+@Component
+@Order(4)
+public class MediaMigrationRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(MediaMigrationRunner.class);
+
+    private static final int BATCH = 100;
+
+    private final MediaStorageService mediaStorageService;
+    private final PostChatMessageRepository postChatMessageRepository;
+    private final PrivateMessageRepository privateMessageRepository;
+
+    public MediaMigrationRunner(MediaStorageService mediaStorageService,
+                                PostChatMessageRepository postChatMessageRepository,
+                                PrivateMessageRepository privateMessageRepository) {
+        this.mediaStorageService = mediaStorageService;
+        this.postChatMessageRepository = postChatMessageRepository;
+        this.privateMessageRepository = privateMessageRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            int chat = migratePostChat();
+            int direct = migratePrivate();
+            if (chat + direct > 0) {
+                log.info("Migration: inline images -> media store, postChat={}, private={}", chat, direct);
+            }
+        } catch (Exception e) {
+            log.warn("Migration inline images skipped or failed: {}", e.getMessage());
+        }
+    }
+
+    private int migratePostChat() {
+        int migrated = 0;
+        long afterId = 0L;
+        List<Long> ids;
+        while (!(ids = postChatMessageRepository.findInlineImageIds(afterId, PageRequest.of(0, BATCH))).isEmpty()) {
+            for (Long id : ids) {
+                PostChatMessage msg = postChatMessageRepository.findById(id).orElse(null);
+                if (msg == null) {
+                    continue;
+                }
+                try {
+                    Long uploaderId = msg.getUser() != null ? msg.getUser().getId() : null;
+                    msg.setContent(mediaStorageService.normalizeImageContent(msg.getContent(), uploaderId));
+                    postChatMessageRepository.save(msg);
+                    migrated++;
+                } catch (Exception e) {
+                    log.warn("Migration post chat image {} skipped: {}", id, e.getMessage());
+                }
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+        return migrated;
+    }
+
+    private int migratePrivate() {
+        int migrated = 0;
+        long afterId = 0L;
+        List<Long> ids;
+        while (!(ids = privateMessageRepository.findInlineImageIds(afterId, PageRequest.of(0, BATCH))).isEmpty()) {
+            for (Long id : ids) {
+                PrivateMessage msg = privateMessageRepository.findById(id).orElse(null);
+                if (msg == null) {
+                    continue;
+                }
+                try {
+                    Long uploaderId = msg.getSender() != null ? msg.getSender().getId() : null;
+                    msg.setContent(mediaStorageService.normalizeImageContent(msg.getContent(), uploaderId));
+                    privateMessageRepository.save(msg);
+                    migrated++;
+                } catch (Exception e) {
+                    log.warn("Migration private image {} skipped: {}", id, e.getMessage());
+                }
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+        return migrated;
+    }
+}
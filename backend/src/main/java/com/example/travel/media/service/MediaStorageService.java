@@ -0,0 +1,192 @@
+package com.example.travel.media.service;
+
+import com.example.travel.common.cache.LruTtlCache;
+import com.example.travel.common.exception.BusinessException;
+import com.example.travel.media.config.MediaProperties;
+import com.example.travel.media.entity.MediaObject;
+import com.example.travel.media.repository.MediaObjectRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * 按内容寻址的媒体存储：字节写入本地文件 {root}/{h0h1}/{h2h3}/{sha256}，元数据写 t_media_object。
+ * 相同内容只存一份；消息表里只保存形如 /api/media/{sha256} 的引用。
+ */
+@Service
+public class MediaStorageService {
+
+    public static final String URL_PREFIX = "/api/media/";
+
+    private static final Pattern HASH = Pattern.compile("^[0-9a-f]{64}$");
+
+    /** 外链图片地址的最大长度（非 data URL 时按原样保存） */
+    private static final int MAX_EXTERNAL_URL_LENGTH = 1024;
+
+    private final MediaObjectRepository mediaObjectRepository;
+    private final MediaProperties properties;
+    private final Path root;
+    /** 读路径只需元数据里的 Content-Type，缓存以免每次取图都查库 */
+    private final LruTtlCache<String, MediaObject> metaCache = new LruTtlCache<>(10_000, 3600_000L);
+
+    public MediaStorageService(MediaObjectRepository mediaObjectRepository, MediaProperties properties) {
+        this.mediaObjectRepository = mediaObjectRepository;
+        this.properties = properties;
+        this.root = Paths.get(properties.getRoot()).toAbsolutePath().normalize();
+    }
+
+    public static String url(String hash) {
+        return URL_PREFIX + hash;
+    }
+
+    public static boolean isValidHash(String hash) {
+        return hash != null && HASH.matcher(hash).matches();
+    }
+
+    /**
+     * 保存图片字节，返回媒体对象；内容已存在时直接复用。
+     * 类型按文件头识别，不信任客户端声明。
+     */
+    public MediaObject store(byte[] bytes, Long uploaderId) {
+        if (bytes == null || bytes.length == 0) {
+            throw BusinessException.badRequest("文件为空");
+        }
+        if (bytes.length > properties.getMaxBytes()) {
+            throw BusinessException.badRequest("图片过大");
+        }
+        String contentType = sniffImageType(bytes);
+        if (contentType == null) {
+            throw BusinessException.badRequest("仅支持 PNG / JPEG / GIF / WebP 图片");
+        }
+        String hash = sha256(bytes);
+        Path target = path(hash);
+        try {
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Path tmp = Files.createTempFile(target.getParent(), hash, ".tmp");
+                try {
+                    Files.write(tmp, bytes);
+                    moveIntoPlace(tmp, target);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入媒体文件失败: " + hash, e);
+        }
+        Optional<MediaObject> existing = mediaObjectRepository.findById(hash);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        MediaObject media = new MediaObject();
+        media.setHash(hash);
+        media.setContentType(contentType);
+        media.setSizeBytes((long) bytes.length);
+        media.setUploaderId(uploaderId);
+        try {
+            return mediaObjectRepository.save(media);
+        } catch (DataIntegrityViolationException e) {
+            // 并发上传同一内容：另一方已写入元数据
+            return mediaObjectRepository.findById(hash).orElse(media);
+        }
+    }
+
+    /**
+     * 规整图片消息内容：data URL 解码后入库存储并替换为媒体引用；
+     * 已是媒体引用或普通外链时原样返回。
+     */
+    public String normalizeImageContent(String content, Long uploaderId) {
+        if (content == null || content.isBlank()) {
+            throw BusinessException.badRequest("图片内容不能为空");
+        }
+        String trimmed = content.trim();
+        if (trimmed.startsWith("data:")) {
+            return url(store(decodeDataUrl(trimmed, properties.getMaxBytes()), uploaderId).getHash());
+        }
+        if (trimmed.length() > MAX_EXTERNAL_URL_LENGTH) {
+            throw BusinessException.badRequest("图片地址过长");
+        }
+        return trimmed;
+    }
+
+    /** 读路径：元数据（含 Content-Type）与文件都存在时返回 */
+    public Optional<MediaObject> find(String hash) {
+        if (!isValidHash(hash)) {
+            return Optional.empty();
+        }
+        MediaObject media = metaCache.get(hash, h -> mediaObjectRepository.findById(h).orElse(null));
+        if (media == null || !Files.isReadable(path(hash))) {
+            return Optional.empty();
+        }
+        return Optional.of(media);
+    }
+
+    public Path path(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    /** 解码 base64 data URL；按编码长度估算的字节数超过 maxBytes 时在解码前拒绝，不为超大内容分配内存 */
+    static byte[] decodeDataUrl(String dataUrl, long maxBytes) {
+        int comma = dataUrl.indexOf(',');
+        if (comma < 0 || !dataUrl.startsWith(";base64", comma - ";base64".length())) {
+            throw BusinessException.badRequest("图片数据格式错误");
+        }
+        if ((dataUrl.length() - comma - 1L) * 3 / 4 > maxBytes) {
+            throw BusinessException.badRequest("图片过大");
+        }
+        try {
+            return Base64.getMimeDecoder().decode(dataUrl.substring(comma + 1));
+        } catch (IllegalArgumentException e) {
+            throw BusinessException.badRequest("图片数据格式错误");
+        }
+    }
+
+    static String sniffImageType(byte[] b) {
+        if (b.length >= 8 && (b[0] & 0xFF) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G') {
+            return "image/png";
+        }
+        if (b.length >= 3 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xD8 && (b[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (b.length >= 6 && b[0] == 'G' && b[1] == 'I' && b[2] == 'F' && b[3] == '8') {
+            return "image/gif";
+        }
+        if (b.length >= 12 && b[0] == 'R' && b[1] == 'I' && b[2] == 'F' && b[3] == 'F'
+                && b[8] == 'W' && b[9] == 'E' && b[10] == 'B' && b[11] == 'P') {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void moveIntoPlace(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (FileAlreadyExistsException e) {
+            // 并发写入同一内容：已有文件即可
+        }
+    }
+}
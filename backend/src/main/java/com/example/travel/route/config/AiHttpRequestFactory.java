@@ -0,0 +1,297 @@
+package com.example.travel.route.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AI 服务商专用的请求工厂（基于 JDK HttpClient，连接复用并优先协商 HTTP/2）。
+ * <p>
+ * Spring 自带的 JdkClientHttpRequestFactory 的读超时只约束等待响应头，读响应体没有任何时限，
+ * 且调用线程被中断时不会取消底层请求。这里改为：
+ * <ul>
+ *   <li>整个调用（响应头 + 响应体）受总时限约束，响应体另有空闲超时（两次收到数据的最长间隔），
+ *       超时即取消底层请求并抛出 {@link SocketTimeoutException}，上游在流式输出中途卡住时不会长期占用线程与并发名额；</li>
+ *   <li>调用线程被中断（如对冲落败）时，无论在等响应头还是在读响应体，都立即取消底层请求并抛出 {@link InterruptedIOException}，
+ *       同时保留线程的中断标记。</li>
+ * </ul>
+ */
+public class AiHttpRequestFactory implements ClientHttpRequestFactory {
+
+    /** JDK HttpClient 自行管理、不允许手动设置的请求头 */
+    private static final Set<String> DISALLOWED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final HttpClient httpClient;
+    private final Duration totalTimeout;
+    private final Duration idleTimeout;
+
+    public AiHttpRequestFactory(HttpClient httpClient, Duration totalTimeout, Duration idleTimeout) {
+        this.httpClient = httpClient;
+        this.totalTimeout = totalTimeout;
+        this.idleTimeout = idleTimeout;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new Request(uri, httpMethod);
+    }
+
+    private final class Request extends AbstractClientHttpRequest {
+
+        private final URI uri;
+        private final HttpMethod method;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+        Request(URI uri, HttpMethod method) {
+            this.uri = uri;
+            this.method = method;
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return method;
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        protected OutputStream getBodyInternal(HttpHeaders headers) {
+            return body;
+        }
+
+        @Override
+        protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+            long deadline = System.nanoTime() + totalTimeout.toNanos();
+            HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(totalTimeout);
+            headers.forEach((name, values) -> {
+                if (!DISALLOWED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                    values.forEach(value -> builder.header(name, value));
+                }
+            });
+            byte[] bytes = body.toByteArray();
+            builder.method(method.name(), bytes.length == 0
+                    ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofByteArray(bytes));
+            HttpResponse<Flow.Publisher<List<ByteBuffer>>> response;
+            try {
+                // send 在调用线程被中断时会取消底层请求
+                response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofPublisher());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("AI request interrupted while waiting for response headers");
+            }
+            BodyStream stream = new BodyStream(idleTimeout.toNanos(), deadline);
+            response.body().subscribe(stream);
+            return new Response(response, stream);
+        }
+    }
+
+    private static final class Response implements ClientHttpResponse {
+
+        private final HttpResponse<?> response;
+        private final BodyStream body;
+        private HttpHeaders headers;
+
+        Response(HttpResponse<?> response, BodyStream body) {
+            this.response = response;
+            this.body = body;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return HttpStatusCode.valueOf(response.statusCode());
+        }
+
+        @Override
+        public String getStatusText() {
+            HttpStatus status = HttpStatus.resolve(response.statusCode());
+            return status != null ? status.getReasonPhrase() : "";
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                HttpHeaders copy = new HttpHeaders();
+                response.headers().map().forEach(copy::addAll);
+                headers = HttpHeaders.readOnlyHttpHeaders(copy);
+            }
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public void close() {
+            body.close();
+        }
+    }
+
+    /**
+     * 响应体：逐块向上游请求数据，读取方最多等待到空闲超时与总时限中较早的一个；
+     * 超时、被中断或提前关闭时取消订阅，JDK HttpClient 随即中止这次请求。
+     */
+    private static final class BodyStream extends InputStream implements Flow.Subscriber<List<ByteBuffer>> {
+
+        private static final List<ByteBuffer> END = Collections.unmodifiableList(new ArrayList<>());
+
+        private final BlockingQueue<List<ByteBuffer>> chunks = new LinkedBlockingQueue<>();
+        private final long idleNanos;
+        private final long deadline;
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable failure;
+        private volatile boolean closed;
+        private Iterator<ByteBuffer> batch;
+        private ByteBuffer buffer;
+        private boolean finished;
+
+        BodyStream(long idleNanos, long deadline) {
+            this.idleNanos = idleNanos;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+            subscription = s;
+            if (closed) {
+                s.cancel();
+            } else {
+                s.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            chunks.offer(item);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            failure = t;
+            chunks.offer(END);
+        }
+
+        @Override
+        public void onComplete() {
+            chunks.offer(END);
+        }
+
+        @Override
+        public int read() throws IOException {
+            ByteBuffer b = current();
+            return b == null ? -1 : b.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            ByteBuffer b = current();
+            if (b == null) {
+                return -1;
+            }
+            int n = Math.min(len, b.remaining());
+            b.get(bytes, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer != null ? buffer.remaining() : 0;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            Flow.Subscription s = subscription;
+            if (s != null && !finished) {
+                s.cancel();
+            }
+        }
+
+        /** 当前可读的缓冲；读到末尾返回 null */
+        private ByteBuffer current() throws IOException {
+            if (closed) {
+                throw new IOException("AI response stream closed");
+            }
+            while (buffer == null || !buffer.hasRemaining()) {
+                if (finished) {
+                    return null;
+                }
+                if (batch != null && batch.hasNext()) {
+                    buffer = batch.next();
+                    continue;
+                }
+                List<ByteBuffer> next = take();
+                if (next == END) {
+                    finished = true;
+                    if (failure != null) {
+                        throw new IOException("AI response failed: " + failure.getMessage(), failure);
+                    }
+                    return null;
+                }
+                batch = next.iterator();
+                subscription.request(1);
+            }
+            return buffer;
+        }
+
+        private List<ByteBuffer> take() throws IOException {
+            long remaining = deadline - System.nanoTime();
+            List<ByteBuffer> next = null;
+            if (remaining > 0) {
+                try {
+                    next = chunks.poll(Math.min(idleNanos, remaining), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    close();
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("AI response read interrupted");
+                }
+            }
+            if (next == null) {
+                close();
+                throw new SocketTimeoutException(deadline - System.nanoTime() <= 0
+                        ? "AI response exceeded total timeout"
+                        : "AI response idle for more than " + TimeUnit.NANOSECONDS.toMillis(idleNanos) + "ms");
+            }
+            return next;
+        }
+    }
+}
@@ -3,6 +3,9 @@ package com.example.travel.route.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 @ConfigurationProperties(prefix = "app.ai")
 public class AiRouteProperties {
@@ -11,7 +14,28 @@ public class AiRouteProperties {
     private String apiKey = "";
     private String baseUrl = "https://api.openai.com";
     private String model = "gpt-4o-mini";
+    /** 单次调用的总时限（含等待响应头与读取响应体） */
     private int timeoutSeconds = 60;
+    /** 读取响应体时两次收到数据的最长间隔，超过即断开 */
+    private int idleTimeoutSeconds = 30;
+    /** 同时进行的上游调用上限；已满时最多等待 acquireWaitMillis */
+    private int maxConcurrent = 8;
+    private long acquireWaitMillis = 2000;
+    /** 令牌桶限速：每分钟请求数与突发容量 */
+    private int ratePerMinute = 30;
+    private int burst = 10;
+    /** 连续多少次超时 / 连接失败后熔断，熔断持续秒数 */
+    private int breakerFailureThreshold = 3;
+    private int breakerOpenSeconds = 60;
+    /** 备用服务商（OpenAI 兼容），按顺序作为对冲 / 故障转移目标；各自独立限流与熔断 */
+    private List<Provider> fallbacks = new ArrayList<>();
+    /** 对冲：主服务商超过自身延迟的 hedgePercentile 分位仍未返回时，向备用服务商发出同一请求 */
+    private boolean hedgeEnabled = true;
+    private double hedgePercentile = 0.9;
+    /** 对冲等待下限，避免分位数偏低时几乎每个请求都被对冲 */
+    private long hedgeMinDelayMillis = 5000;
+    /** 主服务商延迟样本不足时使用的固定等待 */
+    private long hedgeDefaultDelayMillis = 60000;
 
     public boolean isEnabled() {
         return enabled;
@@ -53,7 +77,148 @@ public class AiRouteProperties {
         this.timeoutSeconds = timeoutSeconds;
     }
 
+    public int getIdleTimeoutSeconds() {
+        return idleTimeoutSeconds;
+    }
+
+    public void setIdleTimeoutSeconds(int idleTimeoutSeconds) {
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public long getAcquireWaitMillis() {
+        return acquireWaitMillis;
+    }
+
+    public void setAcquireWaitMillis(long acquireWaitMillis) {
+        this.acquireWaitMillis = acquireWaitMillis;
+    }
+
+    public int getRatePerMinute() {
+        return ratePerMinute;
+    }
+
+    public void setRatePerMinute(int ratePerMinute) {
+        this.ratePerMinute = ratePerMinute;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public int getBreakerFailureThreshold() {
+        return breakerFailureThreshold;
+    }
+
+    public void setBreakerFailureThreshold(int breakerFailureThreshold) {
+        this.breakerFailureThreshold = breakerFailureThreshold;
+    }
+
+    public int getBreakerOpenSeconds() {
+        return breakerOpenSeconds;
+    }
+
+    public void setBreakerOpenSeconds(int breakerOpenSeconds) {
+        this.breakerOpenSeconds = breakerOpenSeconds;
+    }
+
+    public List<Provider> getFallbacks() {
+        return fallbacks;
+    }
+
+    public void setFallbacks(List<Provider> fallbacks) {
+        this.fallbacks = fallbacks;
+    }
+
+    public boolean isHedgeEnabled() {
+        return hedgeEnabled;
+    }
+
+    public void setHedgeEnabled(boolean hedgeEnabled) {
+        this.hedgeEnabled = hedgeEnabled;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public long getHedgeMinDelayMillis() {
+        return hedgeMinDelayMillis;
+    }
+
+    public void setHedgeMinDelayMillis(long hedgeMinDelayMillis) {
+        this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+    }
+
+    public long getHedgeDefaultDelayMillis() {
+        return hedgeDefaultDelayMillis;
+    }
+
+    public void setHedgeDefaultDelayMillis(long hedgeDefaultDelayMillis) {
+        this.hedgeDefaultDelayMillis = hedgeDefaultDelayMillis;
+    }
+
     public boolean hasApiKey() {
         return apiKey != null && !apiKey.isBlank();
     }
+
+    /** 一个备用服务商的连接参数 */
+    public static class Provider {
+
+        private String name;
+        private String apiKey = "";
+        private String baseUrl;
+        private String model;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public void setApiKey(String apiKey) {
+            this.apiKey = apiKey;
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public void setBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public void setModel(String model) {
+            this.model = model;
+        }
+
+        public boolean hasApiKey() {
+            return apiKey != null && !apiKey.isBlank();
+        }
+    }
 }
@@ -6,6 +6,9 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Configuration
 public class RestTemplateConfig {
 
@@ -18,13 +21,21 @@ public class RestTemplateConfig {
         return new RestTemplate(factory);
     }
 
-    /** AI 路线生成专用：读超时较长（DeepSeek 等生成多套方案可能需 2～3 分钟） */
+    /**
+     * AI 路线生成专用：基于 JDK HttpClient，连接复用（keep-alive 连接池）并优先协商 HTTP/2，
+     * 避免每次生成都重新建连和 TLS 握手。总时限较长（DeepSeek 等生成多套方案可能需 2～3 分钟），
+     * 响应体另设空闲超时，流式输出中途卡住时及时断开，见 {@link AiHttpRequestFactory}。
+     */
     @Bean("aiRouteRestTemplate")
     public RestTemplate aiRouteRestTemplate(AiRouteProperties aiProps) {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(15_000);
-        int readMs = (aiProps.getTimeoutSeconds() > 0 ? aiProps.getTimeoutSeconds() : 180) * 1000;
-        factory.setReadTimeout(readMs);
-        return new RestTemplate(factory);
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(15))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        int totalSeconds = aiProps.getTimeoutSeconds() > 0 ? aiProps.getTimeoutSeconds() : 180;
+        int idleSeconds = aiProps.getIdleTimeoutSeconds() > 0 ? aiProps.getIdleTimeoutSeconds() : 30;
+        return new RestTemplate(new AiHttpRequestFactory(httpClient,
+                Duration.ofSeconds(totalSeconds), Duration.ofSeconds(idleSeconds)));
     }
 }
@@ -3,9 +3,14 @@ package com.example.travel.route.controller;
 import com.example.travel.common.api.ApiResponse;
 import com.example.travel.route.dto.TripPlanDtos;
 import com.example.travel.route.entity.TripPlan;
+import com.example.travel.route.service.AiRouteCache;
+import com.example.travel.route.service.AiRouteClient;
+import com.example.travel.route.service.AiRouteJobService;
 import com.example.travel.route.service.RoutePlanService;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -14,9 +19,18 @@ import java.util.List;
 public class RoutePlanController {
 
     private final RoutePlanService routePlanService;
+    private final AiRouteJobService aiRouteJobService;
+    private final AiRouteCache aiRouteCache;
+    private final AiRouteClient aiRouteClient;
 
-    public RoutePlanController(RoutePlanService routePlanService) {
+    public RoutePlanController(RoutePlanService routePlanService,
+                               AiRouteJobService aiRouteJobService,
+                               AiRouteCache aiRouteCache,
+                               AiRouteClient aiRouteClient) {
         this.routePlanService = routePlanService;
+        this.aiRouteJobService = aiRouteJobService;
+        this.aiRouteCache = aiRouteCache;
+        this.aiRouteClient = aiRouteClient;
     }
 
     @PostMapping
@@ -51,12 +65,77 @@ public class RoutePlanController {
     }
 
     /**
-     * AI 生成路线方案（不落库，仅返回多方案供前端展示）
+     * AI 生成路线方案（不落库，仅返回多方案供前端展示）；需登录。
+     * 在异步任务线程池中执行并等待结果，排队已满时返回 429；前端改用流式接口，此接口仅为兼容保留
      * POST /api/routes/ai-generate
      */
+    @Deprecated
     @PostMapping("/ai-generate")
     public ApiResponse<TripPlanDtos.AiGenerateResponse> aiGenerate(@RequestBody TripPlanDtos.AiGenerateRequest request) {
-        return ApiResponse.success(routePlanService.generateAiPlan(request));
+        return ApiResponse.success(aiRouteJobService.generate(request));
+    }
+
+    /**
+     * 流式 AI 生成（SSE）：每生成完一天推送 day 事件、每个方案推送 variant 事件，
+     * 最终以 done（AI 结果）或 fallback（mock 结果）结束
+     * POST /api/routes/ai-generate/stream
+     */
+    @PostMapping(value = "/ai-generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter aiGenerateStream(@RequestBody TripPlanDtos.AiGenerateRequest request) {
+        return aiRouteJobService.stream(request);
     }
-}
 
+    /**
+     * 提交 AI 生成异步任务，立即返回任务 ID（生成在后台有界线程池中执行）
+     * POST /api/routes/ai-generate/jobs
+     */
+    @PostMapping("/ai-generate/jobs")
+    public ApiResponse<TripPlanDtos.AiJobResponse> submitAiJob(@RequestBody TripPlanDtos.AiGenerateRequest request) {
+        return ApiResponse.success(aiRouteJobService.submit(request));
+    }
+
+    /**
+     * AI 生成任务队列指标：排队数、执行中、拒绝数、平均等待/执行耗时
+     * GET /api/routes/ai-generate/jobs/metrics
+     */
+    @GetMapping("/ai-generate/jobs/metrics")
+    public ApiResponse<TripPlanDtos.AiJobMetrics> aiJobMetrics() {
+        return ApiResponse.success(aiRouteJobService.metrics());
+    }
+
+    /**
+     * AI 生成结果缓存命中率
+     * GET /api/routes/ai-generate/cache/metrics
+     */
+    @GetMapping("/ai-generate/cache/metrics")
+    public ApiResponse<TripPlanDtos.AiCacheMetrics> aiCacheMetrics() {
+        return ApiResponse.success(aiRouteCache.metrics());
+    }
+
+    /**
+     * 各 AI 服务商的调用保护状态（熔断、在途并发、剩余令牌、拒绝次数）、延迟分位数与对冲胜出次数
+     * GET /api/routes/ai-generate/provider/metrics
+     */
+    @GetMapping("/ai-generate/provider/metrics")
+    public ApiResponse<List<TripPlanDtos.AiProviderMetrics>> aiProviderMetrics() {
+        return ApiResponse.success(aiRouteClient.providerMetrics());
+    }
+
+    /**
+     * 轮询 AI 生成任务状态，完成后 result 为生成结果
+     * GET /api/routes/ai-generate/jobs/{jobId}
+     */
+    @GetMapping("/ai-generate/jobs/{jobId}")
+    public ApiResponse<TripPlanDtos.AiJobResponse> getAiJob(@PathVariable String jobId) {
+        return ApiResponse.success(aiRouteJobService.get(jobId));
+    }
+
+    /**
+     * 以 SSE 订阅 AI 生成任务进度，事件名为任务状态，终态后服务端关闭连接
+     * GET /api/routes/ai-generate/jobs/{jobId}/events
+     */
+    @GetMapping(value = "/ai-generate/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter aiJobEvents(@PathVariable String jobId) {
+        return aiRouteJobService.subscribe(jobId);
+    }
+}
@@ -68,6 +68,90 @@ public class TripPlanDtos {
         private List<AiPlanVariant> variants;
     }
 
+    /** AI 生成结果缓存指标 */
+    @Data
+    public static class AiCacheMetrics {
+        private boolean enabled;
+        private boolean diskEnabled;
+        private int entries;
+        private long memoryHits;
+        private long diskHits;
+        private long misses;
+        private long stores;
+        /** 与在途的相同请求合并、未单独调用上游的次数 */
+        private long coalesced;
+        private double hitRate;
+    }
+
+    /** AI 服务商调用保护状态：熔断、并发与限速 */
+    @Data
+    public static class AiProviderMetrics {
+        private String name;
+        /** closed / open / half_open */
+        private String breakerState;
+        private int consecutiveFailures;
+        private int maxConcurrent;
+        private int inFlight;
+        private int availableTokens;
+        private long rejectedByBreaker;
+        private long rejectedByRate;
+        private long rejectedByConcurrency;
+        private long transportFailures;
+        /** 成功调用的延迟分布（近期样本权重更高），对冲阈值据此调整 */
+        private long latencySamples;
+        private long p50Millis;
+        private long p90Millis;
+        private long p99Millis;
+        /** 作为对冲目标被发起的次数 / 对冲竞速中胜出的次数 */
+        private long hedges;
+        private long wins;
+    }
+
+    /** 流式生成：某方案的一天已生成完毕 */
+    @Data
+    public static class AiStreamDay {
+        private int variantIndex;
+        private String variantId;
+        private String variantName;
+        private AiDayPlan day;
+    }
+
+    /** 流式生成：某方案已完整生成 */
+    @Data
+    public static class AiStreamVariant {
+        private int variantIndex;
+        private AiPlanVariant variant;
+    }
+
+    /** AI 生成异步任务状态：queued / running / done / failed；done 时 result 为生成结果 */
+    @Data
+    public static class AiJobResponse {
+        private String jobId;
+        private String status;
+        /** 排队中时前面还有多少个任务 */
+        private Integer queuePosition;
+        private AiGenerateResponse result;
+        private String error;
+        private Long waitMillis;
+        private Long runMillis;
+    }
+
+    /** AI 生成任务队列指标 */
+    @Data
+    public static class AiJobMetrics {
+        private int maxConcurrency;
+        private int queueCapacity;
+        private int queued;
+        private int running;
+        private long submitted;
+        private long rejected;
+        private long completed;
+        private long failed;
+        private long avgWaitMillis;
+        private long avgRunMillis;
+        private long maxRunMillis;
+    }
+
     @Data
     public static class CreateRequest {
         @NotBlank
@@ -104,6 +188,8 @@ public class TripPlanDtos {
         private String endTime;
         private String transport;
         private Integer estimatedCost;
+        /** 停留时长（分钟）；未填开始时间时据此与通勤时间排程 */
+        private Integer stayMinutes;
         /** 景点/活动经度 */
         private Double lng;
         /** 景点/活动纬度 */
@@ -115,6 +201,8 @@ public class TripPlanDtos {
         private Integer dayIndex;
         private LocalDate date;
         private List<Activity> activities;
+        /** 排程超出当日时间窗的分钟数，0 表示未超出（保存时由服务端计算） */
+        private Integer overflowMinutes;
     }
 
     @Data
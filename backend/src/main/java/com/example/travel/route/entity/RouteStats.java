@@ -0,0 +1,42 @@
+package com.example.travel.route.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * 路线互动计数（与行程一一对应）：点赞、收藏、被游记/结伴引用次数在写入时原地增减，
+ * 热度按时间衰减公式定时重算，供热门路线直接按索引取前 N。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "t_route_stats", indexes = {
+    @Index(name = "idx_route_stats_hotness", columnList = "hotness,plan_id")
+})
+public class RouteStats {
+
+    /** 与行程共用主键 */
+    @Id
+    @Column(name = "plan_id")
+    private Long planId;
+
+    /** 主键即行程外键（删除行程时级联删除计数行）；计数读写走原生 SQL，不经过此关联 */
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "plan_id", foreignKey = @ForeignKey(name = "fk_route_stats_plan"))
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private TripPlan plan;
+
+    private Long likeCount = 0L;
+
+    private Long favoriteCount = 0L;
+
+    private Long usageCount = 0L;
+
+    private Double hotness = 0.0;
+}
@@ -29,6 +29,7 @@ public class TripActivity {
     private String endTime;
 
     private String transport; // 步行 / 地铁 / 出租车 等
+    private Integer stayMinutes; // 停留时长（分钟），排程用
     private Integer estimatedCost;
 
     // 新增：经纬度，用于前端地图折线展示真实位置（可为空）
@@ -24,5 +24,8 @@ public class TripDay {
 
     private Integer dayIndex;
     private LocalDate date;
+
+    /** 排程超出当日时间窗的分钟数，0 表示未超出；历史数据可能为空 */
+    private Integer overflowMinutes;
 }
 
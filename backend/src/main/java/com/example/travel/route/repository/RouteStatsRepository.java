@@ -0,0 +1,76 @@
+package com.example.travel.route.repository;
+
+import com.example.travel.route.entity.RouteStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * 路线互动计数的持久化接口。计数用单条 UPDATE 原地增减，避免读改写竞争；
+ * 计数行只在创建行程时建立（历史行程由启动对账补建），不会为不存在的路线生成孤儿行。
+ */
+public interface RouteStatsRepository extends JpaRepository<RouteStats, Long> {
+
+    /** 新建行程时建立计数行（已存在则不动） */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO t_route_stats (plan_id, like_count, favorite_count, usage_count, hotness) "
+            + "VALUES (:planId, 0, 0, 0, 0) ON DUPLICATE KEY UPDATE plan_id = plan_id", nativeQuery = true)
+    int insertIfAbsent(@Param("planId") Long planId);
+
+    /** 增减计数；只更新已有的行，目标路线不存在时影响 0 行 */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE t_route_stats SET like_count = GREATEST(like_count + :likes, 0), "
+            + "favorite_count = GREATEST(favorite_count + :favorites, 0), "
+            + "usage_count = GREATEST(usage_count + :usages, 0) WHERE plan_id = :planId", nativeQuery = true)
+    int addCounts(@Param("planId") Long planId,
+                  @Param("likes") long likes,
+                  @Param("favorites") long favorites,
+                  @Param("usages") long usages);
+
+    /**
+     * 热度重算（Hacker News 式重力衰减）：(点赞 + 2×收藏 + 3×引用) / (发布小时数 + 2)^gravity。
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE t_route_stats s JOIN t_trip_plan p ON p.id = s.plan_id "
+            + "SET s.hotness = (s.like_count + 2 * s.favorite_count + 3 * s.usage_count) "
+            + "/ POW(GREATEST(TIMESTAMPDIFF(HOUR, p.created_at, NOW()), 0) + 2, :gravity)", nativeQuery = true)
+    int recomputeHotness(@Param("gravity") double gravity);
+
+    /** 清理行程已删除的计数行（加外键之前的历史数据） */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM t_route_stats WHERE plan_id NOT IN (SELECT p.id FROM t_trip_plan p)", nativeQuery = true)
+    int deleteOrphans();
+
+    /** 对账：按明细表重算全部行程的计数（缺行时补建） */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO t_route_stats (plan_id, like_count, favorite_count, usage_count, hotness) "
+            + "SELECT p.id, "
+            + "(SELECT COUNT(*) FROM t_content_like l WHERE l.target_type = 'route' AND l.target_id = p.id), "
+            + "(SELECT COUNT(*) FROM t_content_favorite f WHERE f.target_type = 'route' AND f.target_id = p.id), "
+            + "(SELECT COUNT(*) FROM t_travel_note n WHERE n.related_plan_id = p.id) "
+            + "+ (SELECT COUNT(*) FROM t_companion_post c WHERE c.related_plan_id = p.id "
+            + "AND (c.status IS NULL OR c.status <> 'deleted')), "
+            + "0 FROM t_trip_plan p "
+            + "ON DUPLICATE KEY UPDATE like_count = VALUES(like_count), favorite_count = VALUES(favorite_count), "
+            + "usage_count = VALUES(usage_count)", nativeQuery = true)
+    int reconcileAll();
+
+    /** 热门路线：按热度降序，同分时新行程优先，走 (hotness, plan_id) 索引 */
+    @Query("SELECT s.planId FROM RouteStats s ORDER BY s.hotness DESC, s.planId DESC")
+    List<Long> findHottestPlanIds(Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RouteStats s WHERE s.planId = :planId")
+    int deleteByPlanId(@Param("planId") Long planId);
+}
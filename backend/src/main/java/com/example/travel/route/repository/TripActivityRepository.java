@@ -2,12 +2,40 @@ package com.example.travel.route.repository;
 
 import com.example.travel.route.entity.TripActivity;
 import com.example.travel.route.entity.TripDay;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface TripActivityRepository extends JpaRepository<TripActivity, Long> {
 
     List<TripActivity> findByTripDayOrderByStartTimeAscIdAsc(TripDay tripDay);
+
+    /**
+     * 详情加载：一次取回整条路线的活动，按天、ID（即当天的游览顺序）排序，由调用方按天分组。
+     * 不按 start_time 排：排程跨过午夜的活动显示为次日时间（如 "00:30"），按字符串排会被排到当天最前。
+     */
+    @Query("SELECT a FROM TripActivity a WHERE a.tripDay.id IN (SELECT d.id FROM TripDay d WHERE d.plan.id = :planId) "
+            + "ORDER BY a.tripDay.id ASC, a.id ASC")
+    List<TripActivity> findByPlanId(@Param("planId") Long planId);
+
+    /** 排程补齐：含未排时间活动的天 ID（按 ID 游标分批） */
+    @Query("SELECT DISTINCT a.tripDay.id FROM TripActivity a WHERE a.tripDay.id > :afterDayId "
+            + "AND (a.startTime IS NULL OR a.startTime = '' OR a.endTime IS NULL OR a.endTime = '') "
+            + "ORDER BY a.tripDay.id ASC")
+    List<Long> findUnscheduledDayIds(@Param("afterDayId") Long afterDayId, Pageable pageable);
+
+    /** 取若干天的全部活动，按天、ID（即添加顺序）排序 */
+    @Query("SELECT a FROM TripActivity a WHERE a.tripDay.id IN :dayIds ORDER BY a.tripDay.id ASC, a.id ASC")
+    List<TripActivity> findByDayIdsInOrder(@Param("dayIds") Collection<Long> dayIds);
+
+    /** 删除路线时一次性删除其所有天的活动 */
+    @Modifying
+    @Query("DELETE FROM TripActivity a WHERE a.tripDay.id IN (SELECT d.id FROM TripDay d WHERE d.plan.id = :planId)")
+    int deleteByPlanId(@Param("planId") Long planId);
 }
 
@@ -3,11 +3,18 @@ package com.example.travel.route.repository;
 import com.example.travel.route.entity.TripDay;
 import com.example.travel.route.entity.TripPlan;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface TripDayRepository extends JpaRepository<TripDay, Long> {
 
     List<TripDay> findByPlanOrderByDayIndexAsc(TripPlan plan);
+
+    @Modifying
+    @Query("DELETE FROM TripDay d WHERE d.plan.id = :planId")
+    int deleteByPlanId(@Param("planId") Long planId);
 }
 
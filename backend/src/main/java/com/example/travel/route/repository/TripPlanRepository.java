@@ -3,8 +3,12 @@ package com.example.travel.route.repository;
 import com.example.travel.route.entity.TripPlan;
 import com.example.travel.user.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface TripPlanRepository extends JpaRepository<TripPlan, Long> {
 
@@ -12,7 +16,12 @@ public interface TripPlanRepository extends JpaRepository<TripPlan, Long> {
 
     long countByOwner(User owner);
 
-    /** 热门线路兜底：取最新一批用于计算热度 */
-    List<TripPlan> findTop50ByOrderByCreatedAtDesc();
+    /** 详情加载：连带创建者一并取回 */
+    @Query("SELECT p FROM TripPlan p LEFT JOIN FETCH p.owner WHERE p.id = :id")
+    Optional<TripPlan> findWithOwnerById(@Param("id") Long id);
+
+    /** 热门路线：按 ID 批量取回并连带创建者 */
+    @Query("SELECT p FROM TripPlan p LEFT JOIN FETCH p.owner WHERE p.id IN :ids")
+    List<TripPlan> findAllWithOwnerByIdIn(@Param("ids") Collection<Long> ids);
 }
 
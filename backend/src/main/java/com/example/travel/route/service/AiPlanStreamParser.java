@@ -0,0 +1,221 @@
+package com.example.travel.route.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AI 路线 JSON 的增量解析器：按模型输出的文本片段逐字符喂入，
+ * 只跟踪对象/数组嵌套与字符串边界，在 variants[i].days[j] 或 variants[i] 闭合时
+ * 截取该段文本交给 Jackson 解析并回调。
+ * <p>
+ * 容错：根对象之前的任何文字（如 markdown 代码块标记）会被忽略，根对象闭合之后的内容也不再处理；
+ * 单个片段解析失败只跳过该片段，不影响后续。非线程安全，一次生成对应一个实例。
+ */
+final class AiPlanStreamParser {
+
+    interface Listener {
+        /** variants[variantIndex].days 中的一天已闭合；variantId / variantName 为该方案此前已输出的字段，可能为 null */
+        void onDay(int variantIndex, String variantId, String variantName, JsonNode day);
+
+        /** variants[variantIndex] 已闭合 */
+        void onVariant(int variantIndex, JsonNode variant);
+    }
+
+    /** 一层对象或数组 */
+    private static final class Frame {
+        final boolean object;
+        final int start;
+        /** 在父对象中的字段名（父为数组时为 null） */
+        final String label;
+        /** 在父数组中的序号（父为对象时为 -1） */
+        final int index;
+        /** 对象：下一个字符串是否为字段名；当前字段名 */
+        boolean expectingKey = true;
+        String currentKey;
+        /** 数组：已出现的子对象数 */
+        int children;
+        /** 方案对象上已出现的 id / name */
+        String id;
+        String name;
+
+        Frame(boolean object, int start, String label, int index) {
+            this.object = object;
+            this.start = start;
+            this.label = label;
+            this.index = index;
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Listener listener;
+    private final StringBuilder buf = new StringBuilder();
+    private final List<Frame> stack = new ArrayList<>();
+    private boolean started;
+    private boolean finished;
+    private boolean inString;
+    private boolean escaped;
+    private int stringStart;
+    private int scanned;
+    private int rootStart;
+    private int rootEnd;
+
+    AiPlanStreamParser(ObjectMapper objectMapper, Listener listener) {
+        this.objectMapper = objectMapper;
+        this.listener = listener;
+    }
+
+    /** 喂入下一段模型输出 */
+    void feed(CharSequence chunk) {
+        if (finished || chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        buf.append(chunk);
+        while (scanned < buf.length() && !finished) {
+            step(buf.charAt(scanned), scanned);
+            scanned++;
+        }
+    }
+
+    /** 根对象是否已完整闭合 */
+    boolean isComplete() {
+        return finished;
+    }
+
+    /** 根对象的完整文本（未闭合时为目前已收到的部分） */
+    String json() {
+        if (!started) {
+            return "";
+        }
+        return buf.substring(rootStart, finished ? rootEnd : buf.length());
+    }
+
+    private void step(char c, int pos) {
+        if (!started) {
+            if (c == '{') {
+                started = true;
+                rootStart = pos;
+                stack.add(new Frame(true, pos, null, -1));
+            }
+            return;
+        }
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                inString = false;
+                onStringEnd(pos);
+            }
+            return;
+        }
+        switch (c) {
+            case '"' -> {
+                inString = true;
+                stringStart = pos;
+            }
+            case '{', '[' -> open(c == '{', pos);
+            case '}', ']' -> close(pos);
+            case ':' -> {
+                Frame top = top();
+                if (top.object) {
+                    top.expectingKey = false;
+                }
+            }
+            case ',' -> {
+                Frame top = top();
+                if (top.object) {
+                    top.expectingKey = true;
+                    top.currentKey = null;
+                }
+            }
+            default -> {
+                // 数字、true/false/null 与空白无需跟踪
+            }
+        }
+    }
+
+    private void open(boolean object, int pos) {
+        Frame parent = top();
+        Frame frame;
+        if (parent.object) {
+            frame = new Frame(object, pos, parent.currentKey, -1);
+        } else {
+            frame = new Frame(object, pos, null, object ? parent.children++ : -1);
+        }
+        stack.add(frame);
+    }
+
+    private void close(int pos) {
+        Frame frame = stack.remove(stack.size() - 1);
+        if (stack.isEmpty()) {
+            finished = true;
+            rootEnd = pos + 1;
+            return;
+        }
+        if (!frame.object) {
+            return;
+        }
+        int depth = stack.size() + 1;
+        // 深度：1 根对象，2 variants 数组，3 方案对象，4 days 数组，5 单日对象
+        if (depth == 3 && isVariantsArray(stack.get(1))) {
+            JsonNode node = parse(frame.start, pos);
+            if (node != null) {
+                listener.onVariant(frame.index, node);
+            }
+        } else if (depth == 5 && isVariantsArray(stack.get(1)) && "days".equals(stack.get(3).label)) {
+            JsonNode node = parse(frame.start, pos);
+            if (node != null) {
+                Frame variant = stack.get(2);
+                listener.onDay(variant.index, variant.id, variant.name, node);
+            }
+        }
+    }
+
+    private void onStringEnd(int pos) {
+        Frame top = top();
+        if (!top.object) {
+            return;
+        }
+        if (top.expectingKey) {
+            top.currentKey = decode(stringStart, pos);
+            return;
+        }
+        // 方案对象上的 id / name 提前记下，单日事件可带上所属方案
+        if (stack.size() == 3 && isVariantsArray(stack.get(1))) {
+            if ("id".equals(top.currentKey)) {
+                top.id = decode(stringStart, pos);
+            } else if ("name".equals(top.currentKey)) {
+                top.name = decode(stringStart, pos);
+            }
+        }
+    }
+
+    private static boolean isVariantsArray(Frame frame) {
+        return !frame.object && "variants".equals(frame.label);
+    }
+
+    private Frame top() {
+        return stack.get(stack.size() - 1);
+    }
+
+    /** 解码 [quoteStart, quoteEnd] 处的 JSON 字符串字面量（含两端引号） */
+    private String decode(int quoteStart, int quoteEnd) {
+        try {
+            return objectMapper.readValue(buf.substring(quoteStart, quoteEnd + 1), String.class);
+        } catch (Exception e) {
+            return buf.substring(quoteStart + 1, quoteEnd);
+        }
+    }
+
+    private JsonNode parse(int start, int end) {
+        try {
+            return objectMapper.readTree(buf.substring(start, end + 1));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.dto.TripPlanDtos;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个 OpenAI 兼容的 AI 服务商：连接参数、调用保护与延迟统计。
+ */
+final class AiProvider {
+
+    final String name;
+    final String baseUrl;
+    final String apiKey;
+    final String model;
+    final AiProviderGuard guard;
+    final LatencyHistogram latency = new LatencyHistogram();
+    /** 作为对冲目标被发起的次数，以及对冲竞速中胜出的次数 */
+    final LongAdder hedges = new LongAdder();
+    final LongAdder wins = new LongAdder();
+
+    AiProvider(String name, String baseUrl, String apiKey, String model, AiProviderGuard guard) {
+        this.name = name;
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey.trim();
+        this.model = model;
+        this.guard = guard;
+    }
+
+    String chatUrl() {
+        return baseUrl.replaceAll("/$", "") + "/v1/chat/completions";
+    }
+
+    TripPlanDtos.AiProviderMetrics metrics() {
+        TripPlanDtos.AiProviderMetrics m = guard.metrics();
+        m.setLatencySamples(latency.samples());
+        m.setP50Millis(latency.percentile(0.5));
+        m.setP90Millis(latency.percentile(0.9));
+        m.setP99Millis(latency.percentile(0.99));
+        m.setHedges(hedges.sum());
+        m.setWins(wins.sum());
+        return m;
+    }
+}
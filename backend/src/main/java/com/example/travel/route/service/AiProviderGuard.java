@@ -0,0 +1,223 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.dto.TripPlanDtos;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个 AI 服务商的调用保护：并发上限（信号量）、令牌桶限速与熔断器。
+ * <p>
+ * 熔断器在连续若干次超时、连接失败或 5xx 后打开，打开期间直接拒绝、由调用方回退 mock，
+ * 不再让每个请求都等满读超时；冷却期过后放行一个探测请求（半开），成功则关闭，失败则重新打开。
+ * 解析失败、4xx 等请求本身的问题不计入熔断。
+ */
+public class AiProviderGuard {
+
+    public static final String CLOSED = "closed";
+    public static final String OPEN = "open";
+    public static final String HALF_OPEN = "half_open";
+
+    /** 一次获准的调用，结束时调用 {@link #success()}、{@link #failure(Throwable)} 或 {@link #cancel()}；只有第一次调用生效 */
+    public final class Permit {
+        private boolean finished;
+
+        public void success() {
+            if (finish()) {
+                onSuccess();
+            }
+        }
+
+        /** 上游失败；仅超时、连接失败与 5xx 计入熔断，其余说明服务商可用，按成功处理熔断状态 */
+        public void failure(Throwable error) {
+            if (finish()) {
+                if (isTransportFailure(error)) {
+                    onTransportFailure();
+                } else {
+                    onSuccess();
+                }
+            }
+        }
+
+        /** 调用被主动取消（如对冲落败）：只归还并发名额，不影响熔断计数 */
+        public void cancel() {
+            if (finish()) {
+                onCancelled();
+            }
+        }
+
+        private synchronized boolean finish() {
+            if (finished) {
+                return false;
+            }
+            finished = true;
+            concurrency.release();
+            return true;
+        }
+    }
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long acquireWaitMillis;
+    private final Semaphore concurrency;
+
+    /** 令牌桶：容量 burst，每毫秒补充 refillPerMilli 个 */
+    private final double bucketCapacity;
+    private final double refillPerMilli;
+    private double tokens;
+    private long lastRefill;
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private String state = CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    private final LongAdder rejectedByBreaker = new LongAdder();
+    private final LongAdder rejectedByRate = new LongAdder();
+    private final LongAdder rejectedByConcurrency = new LongAdder();
+    private final LongAdder transportFailures = new LongAdder();
+
+    public AiProviderGuard(String name, int maxConcurrent, long acquireWaitMillis,
+                           int ratePerMinute, int burst, int failureThreshold, long openSeconds) {
+        this.name = name;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.acquireWaitMillis = Math.max(0, acquireWaitMillis);
+        this.concurrency = new Semaphore(this.maxConcurrent, true);
+        this.bucketCapacity = Math.max(1, burst);
+        this.refillPerMilli = Math.max(1, ratePerMinute) / 60_000.0;
+        this.tokens = bucketCapacity;
+        this.lastRefill = System.currentTimeMillis();
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(1, openSeconds) * 1000L;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** 申请一次调用；熔断打开、限速或并发已满（等待 acquireWaitMillis 后仍无空位）时返回 null */
+    public Permit tryAcquire() {
+        boolean probe;
+        synchronized (this) {
+            probe = admitByBreaker();
+            if (!probe && !CLOSED.equals(state)) {
+                rejectedByBreaker.increment();
+                return null;
+            }
+            if (!takeToken()) {
+                if (probe) {
+                    probeInFlight = false;
+                }
+                rejectedByRate.increment();
+                return null;
+            }
+        }
+        boolean acquired;
+        try {
+            acquired = concurrency.tryAcquire(acquireWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            synchronized (this) {
+                if (probe) {
+                    probeInFlight = false;
+                }
+            }
+            rejectedByConcurrency.increment();
+            return null;
+        }
+        return new Permit();
+    }
+
+    public synchronized TripPlanDtos.AiProviderMetrics metrics() {
+        refill();
+        TripPlanDtos.AiProviderMetrics m = new TripPlanDtos.AiProviderMetrics();
+        m.setName(name);
+        m.setBreakerState(state);
+        m.setConsecutiveFailures(consecutiveFailures);
+        m.setMaxConcurrent(maxConcurrent);
+        m.setInFlight(maxConcurrent - concurrency.availablePermits());
+        m.setAvailableTokens((int) tokens);
+        m.setRejectedByBreaker(rejectedByBreaker.sum());
+        m.setRejectedByRate(rejectedByRate.sum());
+        m.setRejectedByConcurrency(rejectedByConcurrency.sum());
+        m.setTransportFailures(transportFailures.sum());
+        return m;
+    }
+
+    /**
+     * 熔断状态判定（须持有锁）：返回 true 表示本次作为半开探测放行；
+     * 返回 false 时调用方按 state 是否为 CLOSED 决定放行或拒绝。
+     */
+    private boolean admitByBreaker() {
+        if (OPEN.equals(state) && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = HALF_OPEN;
+        }
+        if (HALF_OPEN.equals(state) && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean takeToken() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    private void refill() {
+        long now = System.currentTimeMillis();
+        tokens = Math.min(bucketCapacity, tokens + (now - lastRefill) * refillPerMilli);
+        lastRefill = now;
+    }
+
+    private synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = CLOSED;
+    }
+
+    /** 半开探测被取消时允许下一个请求重新探测 */
+    private synchronized void onCancelled() {
+        probeInFlight = false;
+    }
+
+    private synchronized void onTransportFailure() {
+        transportFailures.increment();
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (HALF_OPEN.equals(state) || consecutiveFailures >= failureThreshold) {
+            state = OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /** 超时、连接失败、服务端 5xx 等说明服务商不可用的异常（沿 cause 链查找） */
+    static boolean isTransportFailure(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof HttpTimeoutException || t instanceof SocketTimeoutException
+                    || t instanceof TimeoutException || t instanceof ConnectException
+                    || t instanceof ClosedChannelException || t instanceof ResourceAccessException
+                    || t instanceof HttpServerErrorException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.travel.route.service;
+
+import com.example.travel.common.cache.LruTtlCache;
+import com.example.travel.route.dto.TripPlanDtos;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AI 路线生成结果缓存。
+ * <p>
+ * 以归一化的请求指纹为键：目的地（去重排序）、天数、预算档位（约 25% 一档）、兴趣权重档位（20 分一档）、
+ * 节奏与交通方式。出发地与人数不参与，以提高相近请求的复用率。缓存内容与具体日期无关，
+ * 命中时复制一份并按调用方的出发日期重排每天的日期。
+ * <p>
+ * 内存层为 LRU + TTL；配置 app.ai.cache.dir 后另写一份 JSON 文件到磁盘，重启后仍可命中。
+ */
+@Component
+public class AiRouteCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AiRouteCache.class);
+
+    /** 指纹格式变化时递增，使旧的磁盘条目自然失效 */
+    private static final String FINGERPRINT_VERSION = "v1";
+    private static final double BUDGET_BAND = Math.log(1.25);
+    private static final int INTEREST_BAND = 20;
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final LruTtlCache<String, TripPlanDtos.AiGenerateResponse> memory;
+    private final Path dir;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public AiRouteCache(ObjectMapper objectMapper,
+                        @Value("${app.ai.cache.enabled:true}") boolean enabled,
+                        @Value("${app.ai.cache.max-entries:500}") int maxEntries,
+                        @Value("${app.ai.cache.ttl-minutes:1440}") long ttlMinutes,
+                        @Value("${app.ai.cache.dir:}") String dir) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.ttlMillis = ttlMinutes * 60_000L;
+        this.memory = new LruTtlCache<>(Math.max(1, maxEntries), ttlMillis);
+        this.dir = dir == null || dir.isBlank() ? null : Path.of(dir);
+        if (this.dir != null) {
+            try {
+                Files.createDirectories(this.dir);
+            } catch (Exception e) {
+                log.warn("[AI缓存] 无法创建磁盘缓存目录 {}: {}", dir, e.getMessage());
+            }
+        }
+    }
+
+    /** 命中时返回按 req 出发日期重排日期后的副本，否则返回 null */
+    public TripPlanDtos.AiGenerateResponse get(TripPlanDtos.AiGenerateRequest req) {
+        if (!enabled) {
+            return null;
+        }
+        String key = fingerprint(req);
+        TripPlanDtos.AiGenerateResponse cached = memory.get(key);
+        if (cached != null) {
+            memoryHits.increment();
+        } else {
+            cached = readDisk(key);
+            if (cached != null) {
+                diskHits.increment();
+                memory.put(key, cached);
+            }
+        }
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        return adapt(cached, req);
+    }
+
+    /** 把同一指纹下的结果改造成 req 可用的独立副本（深拷贝并重排日期）；resp 为 null 时返回 null */
+    TripPlanDtos.AiGenerateResponse adapt(TripPlanDtos.AiGenerateResponse resp, TripPlanDtos.AiGenerateRequest req) {
+        return resp == null ? null : redate(copy(resp), req);
+    }
+
+    /** 记录一次并发相同请求合并（未发起上游调用，等待在途请求的结果） */
+    void recordCoalesced() {
+        coalesced.increment();
+    }
+
+    /** 写入生成成功的结果（保存副本，调用方之后的修改不影响缓存） */
+    public void put(TripPlanDtos.AiGenerateRequest req, TripPlanDtos.AiGenerateResponse resp) {
+        if (!enabled || resp == null || resp.getVariants() == null || resp.getVariants().isEmpty()) {
+            return;
+        }
+        String key = fingerprint(req);
+        TripPlanDtos.AiGenerateResponse stored = copy(resp);
+        if (stored == null) {
+            return;
+        }
+        memory.put(key, stored);
+        writeDisk(key, stored);
+        stores.increment();
+    }
+
+    public TripPlanDtos.AiCacheMetrics metrics() {
+        TripPlanDtos.AiCacheMetrics m = new TripPlanDtos.AiCacheMetrics();
+        m.setEnabled(enabled);
+        m.setDiskEnabled(dir != null);
+        m.setEntries(memory.size());
+        long memHits = memoryHits.sum();
+        long dHits = diskHits.sum();
+        long miss = misses.sum();
+        m.setMemoryHits(memHits);
+        m.setDiskHits(dHits);
+        m.setMisses(miss);
+        m.setStores(stores.sum());
+        m.setCoalesced(coalesced.sum());
+        long lookups = memHits + dHits + miss;
+        m.setHitRate(lookups > 0 ? (double) (memHits + dHits) / lookups : 0);
+        return m;
+    }
+
+    /** 归一化请求指纹 */
+    String fingerprint(TripPlanDtos.AiGenerateRequest req) {
+        List<String> destinations = req.getDestinations() == null ? List.of() : req.getDestinations().stream()
+                .filter(Objects::nonNull)
+                .map(d -> d.trim().toLowerCase(Locale.ROOT))
+                .filter(d -> !d.isEmpty())
+                .distinct()
+                .sorted()
+                .toList();
+        long days = ChronoUnit.DAYS.between(req.getStartDate(), req.getEndDate()) + 1;
+        int budget = req.getTotalBudget() != null ? req.getTotalBudget() : 8000;
+        long budgetBand = budget <= 0 ? 0 : Math.round(Math.log(budget) / BUDGET_BAND);
+        return String.join("|",
+                FINGERPRINT_VERSION,
+                String.join(",", destinations),
+                "d" + days,
+                "b" + budgetBand,
+                normalize(req.getIntensity(), "moderate"),
+                normalize(req.getTransport(), "mixed"),
+                interestBands(req.getInterestWeightsJson()));
+    }
+
+    private static String normalize(String value, String defaultValue) {
+        return value == null || value.isBlank() ? defaultValue : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** 兴趣权重按键排序并分档，如 culture:4,food:3；无法解析时原样参与 */
+    private String interestBands(String json) {
+        if (json == null || json.isBlank()) {
+            return "";
+        }
+        try {
+            JsonNode node = objectMapper.readTree(json);
+            Map<String, Integer> bands = new TreeMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> e = it.next();
+                bands.put(e.getKey(), e.getValue().asInt(0) / INTEREST_BAND);
+            }
+            StringBuilder sb = new StringBuilder();
+            bands.forEach((k, v) -> sb.append(sb.isEmpty() ? "" : ",").append(k).append(':').append(v));
+            return sb.toString();
+        } catch (Exception e) {
+            return json.trim();
+        }
+    }
+
+    private TripPlanDtos.AiGenerateResponse copy(TripPlanDtos.AiGenerateResponse resp) {
+        try {
+            return objectMapper.readValue(objectMapper.writeValueAsBytes(resp), TripPlanDtos.AiGenerateResponse.class);
+        } catch (Exception e) {
+            log.warn("[AI缓存] 复制结果失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static TripPlanDtos.AiGenerateResponse redate(TripPlanDtos.AiGenerateResponse resp,
+                                                          TripPlanDtos.AiGenerateRequest req) {
+        if (resp == null) {
+            return null;
+        }
+        for (TripPlanDtos.AiPlanVariant variant : resp.getVariants()) {
+            if (variant.getDays() == null) {
+                continue;
+            }
+            for (int i = 0; i < variant.getDays().size(); i++) {
+                TripPlanDtos.AiDayPlan day = variant.getDays().get(i);
+                int dayIndex = day.getDayIndex() != null && day.getDayIndex() > 0 ? day.getDayIndex() : i + 1;
+                day.setDate(req.getStartDate().plusDays(dayIndex - 1));
+            }
+        }
+        return resp;
+    }
+
+    private Path fileOf(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return dir.resolve(HexFormat.of().formatHex(hash) + ".json");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private TripPlanDtos.AiGenerateResponse readDisk(String key) {
+        if (dir == null) {
+            return null;
+        }
+        Path file = fileOf(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            JsonNode root = objectMapper.readTree(file.toFile());
+            if (!key.equals(root.path("fingerprint").asText())
+                    || System.currentTimeMillis() - root.path("savedAt").asLong(0) > ttlMillis) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            return objectMapper.treeToValue(root.path("response"), TripPlanDtos.AiGenerateResponse.class);
+        } catch (Exception e) {
+            log.warn("[AI缓存] 读取磁盘缓存失败 {}: {}", file.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, TripPlanDtos.AiGenerateResponse resp) {
+        if (dir == null) {
+            return;
+        }
+        Path file = fileOf(key);
+        try {
+            ObjectNode root = objectMapper.createObjectNode();
+            root.put("fingerprint", key);
+            root.put("savedAt", System.currentTimeMillis());
+            root.set("response", objectMapper.valueToTree(resp));
+            // 先写临时文件再原子替换，避免并发读到半个文件
+            Path tmp = Files.createTempFile(dir, "ai-", ".tmp");
+            objectMapper.writeValue(tmp.toFile(), root);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.warn("[AI缓存] 写入磁盘缓存失败 {}: {}", file.getFileName(), e.getMessage());
+        }
+    }
+}
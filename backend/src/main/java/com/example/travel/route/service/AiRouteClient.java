@@ -4,47 +4,90 @@ import com.example.travel.route.config.AiRouteProperties;
 import com.example.travel.route.dto.TripPlanDtos;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * 调用 OpenAI 兼容 API 生成旅行路线（根据表单参数生成不同内容）。
  * 支持 OpenAI、Azure OpenAI、通义千问、智谱、OpenRouter 等。
+ * <p>
+ * 可配置多个服务商（app.ai 为主，app.ai.fallbacks 为备用）：主服务商超过自身延迟分位数仍未返回时，
+ * 向备用服务商发出对冲请求，先解析校验通过的结果胜出，另一路被中断；各服务商独立限流、熔断并统计延迟。
  */
 @Service
 public class AiRouteClient {
 
     private static final Logger log = LoggerFactory.getLogger(AiRouteClient.class);
 
+    /** 主服务商成功样本少于此数时，对冲阈值使用固定的 hedgeDefaultDelayMillis */
+    private static final int HEDGE_MIN_SAMPLES = 20;
+
     private final AiRouteProperties properties;
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final AiRouteCache aiRouteCache;
+    /** 按优先级排列的服务商，第一个为主服务商；只含已配置 API Key 的 */
+    private final List<AiProvider> providers;
+    /** 对冲请求的执行线程；并发受各服务商的 AiProviderGuard 约束 */
+    private final ExecutorService hedgePool;
+    /** 在途的上游调用，按归一化请求指纹索引 */
+    private final ConcurrentHashMap<String, CompletableFuture<TripPlanDtos.AiGenerateResponse>> inFlight =
+            new ConcurrentHashMap<>();
 
     public AiRouteClient(AiRouteProperties properties,
                          @Qualifier("aiRouteRestTemplate") RestTemplate restTemplate,
-                         ObjectMapper objectMapper) {
+                         ObjectMapper objectMapper,
+                         AiRouteCache aiRouteCache) {
         this.properties = properties;
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
+        this.aiRouteCache = aiRouteCache;
+        this.providers = buildProviders(properties);
+        this.hedgePool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "ai-hedge");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hedgePool.shutdownNow();
     }
 
     public boolean isAvailable() {
-        return properties.isEnabled() && properties.hasApiKey();
+        return properties.isEnabled() && !providers.isEmpty();
     }
 
     /**
@@ -54,33 +97,185 @@ public class AiRouteClient {
         if (!isAvailable()) {
             if (!properties.isEnabled()) {
                 log.info("[AI路线] 未调用 AI：app.ai.enabled=false，请在 application.yml 中设为 true");
-            } else if (!properties.hasApiKey()) {
+            } else if (providers.isEmpty()) {
                 log.info("[AI路线] 未调用 AI：未配置 API Key，请设置环境变量 OPENAI_API_KEY 或在 application.yml 中配置 app.ai.api-key");
             }
             return null;
         }
-        String prompt = buildPrompt(req);
-        String url = properties.getBaseUrl().replaceAll("/$", "") + "/v1/chat/completions";
-        log.info("[AI路线] 开始调用 AI: url={}, model={}, 目的地={}", url, properties.getModel(), req.getDestinations());
+        TripPlanDtos.AiGenerateResponse cached = aiRouteCache.get(req);
+        if (cached != null) {
+            log.info("[AI路线] 命中生成缓存: 目的地={}", req.getDestinations());
+            return cached;
+        }
+        return singleFlight(req, null, () -> callUpstream(req));
+    }
+
+    /**
+     * 调用上游生成：多个服务商且开启对冲时走 {@link #hedged}，否则按优先级依次尝试直到得到有效结果。
+     */
+    private TripPlanDtos.AiGenerateResponse callUpstream(TripPlanDtos.AiGenerateRequest req) {
+        TripPlanDtos.AiGenerateResponse result = providers.size() > 1 && properties.isHedgeEnabled()
+                ? hedged(req)
+                : failover(req, 0);
+        if (result != null) {
+            aiRouteCache.put(req, result);
+        }
+        return result;
+    }
+
+    /**
+     * 对冲调用：先请求主服务商，等待其延迟分位数（见 {@link #hedgeDelay}）；
+     * 到时仍未返回则向第二个服务商发出同一请求，两路中先解析校验通过的胜出，另一路被中断。
+     * 主服务商在等待期内失败（含熔断 / 限速拒绝）时不再等待，直接依次尝试备用服务商。
+     */
+    private TripPlanDtos.AiGenerateResponse hedged(TripPlanDtos.AiGenerateRequest req) {
+        AiProvider primary = providers.get(0);
+        Attempt first = start(primary, req);
+        long delay = hedgeDelay(primary);
+        try {
+            TripPlanDtos.AiGenerateResponse result = first.result.get(delay, TimeUnit.MILLISECONDS);
+            return result != null ? result : failover(req, 1);
+        } catch (TimeoutException e) {
+            // 超过对冲阈值，继续向下发出对冲请求
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            first.cancel();
+            return null;
+        } catch (ExecutionException e) {
+            return failover(req, 1);
+        }
+        AiProvider secondary = providers.get(1);
+        secondary.hedges.increment();
+        log.info("[AI路线] 服务商 {} 超过 {}ms 未返回，对冲请求 {}", primary.name, delay, secondary.name);
+        return race(List.of(first, start(secondary, req)));
+    }
+
+    /** 等待多路调用，返回第一个有效结果并中断其余；全部失败时返回 null */
+    private TripPlanDtos.AiGenerateResponse race(List<Attempt> attempts) {
+        CompletableFuture<Attempt> winner = new CompletableFuture<>();
+        for (Attempt attempt : attempts) {
+            attempt.result.thenAccept(r -> {
+                if (r != null) {
+                    winner.complete(attempt);
+                }
+            });
+        }
+        CompletableFuture.allOf(attempts.stream().map(a -> a.result).toArray(CompletableFuture[]::new))
+                .thenRun(() -> winner.complete(attempts.stream()
+                        .filter(a -> a.result.join() != null)
+                        .findFirst()
+                        .orElse(null)));
+        Attempt won = null;
+        try {
+            won = winner.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // 不会发生：winner 只以正常值完成
+        }
+        for (Attempt attempt : attempts) {
+            if (attempt != won) {
+                attempt.cancel();
+            }
+        }
+        if (won == null) {
+            return null;
+        }
+        won.provider.wins.increment();
+        log.info("[AI路线] 对冲竞速由服务商 {} 胜出", won.provider.name);
+        return won.result.join();
+    }
+
+    /** 从第 from 个服务商起依次尝试，返回第一个有效结果 */
+    private TripPlanDtos.AiGenerateResponse failover(TripPlanDtos.AiGenerateRequest req, int from) {
+        for (int i = from; i < providers.size(); i++) {
+            TripPlanDtos.AiGenerateResponse result = attempt(providers.get(i), req);
+            if (result != null) {
+                return result;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 对冲等待时间：主服务商近期成功调用延迟的 hedgePercentile 分位，不低于 hedgeMinDelayMillis；
+     * 样本不足时使用 hedgeDefaultDelayMillis。阈值随延迟直方图自动调整。
+     */
+    private long hedgeDelay(AiProvider primary) {
+        if (primary.latency.samples() < HEDGE_MIN_SAMPLES) {
+            return Math.max(0, properties.getHedgeDefaultDelayMillis());
+        }
+        return Math.max(properties.getHedgeMinDelayMillis(), primary.latency.percentile(properties.getHedgePercentile()));
+    }
+
+    /** 在对冲线程上异步调用一个服务商 */
+    private Attempt start(AiProvider provider, TripPlanDtos.AiGenerateRequest req) {
+        CompletableFuture<TripPlanDtos.AiGenerateResponse> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = hedgePool.submit(() -> {
+                try {
+                    result.complete(attempt(provider, req));
+                } catch (RuntimeException e) {
+                    result.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.complete(null);
+            task = null;
+        }
+        return new Attempt(provider, result, task);
+    }
+
+    /** 一路进行中的调用；cancel 中断执行线程，使其阻塞中的 HTTP 请求提前结束 */
+    private static final class Attempt {
+        final AiProvider provider;
+        final CompletableFuture<TripPlanDtos.AiGenerateResponse> result;
+        final Future<?> task;
+
+        Attempt(AiProvider provider, CompletableFuture<TripPlanDtos.AiGenerateResponse> result, Future<?> task) {
+            this.provider = provider;
+            this.result = result;
+            this.task = task;
+        }
+
+        void cancel() {
+            if (task != null) {
+                task.cancel(true);
+            }
+            result.complete(null);
+        }
+    }
+
+    /**
+     * 调用一个服务商并解析结果；方案为空或不完整视为无效。
+     * 失败、被拒绝或无效时返回 null；成功时把耗时计入该服务商的延迟直方图。
+     */
+    private TripPlanDtos.AiGenerateResponse attempt(AiProvider provider, TripPlanDtos.AiGenerateRequest req) {
+        AiProviderGuard.Permit permit = acquire(provider);
+        if (permit == null) {
+            return null;
+        }
+        String url = provider.chatUrl();
+        log.info("[AI路线] 开始调用 AI: provider={}, url={}, model={}, 目的地={}", provider.name, url, provider.model, req.getDestinations());
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(properties.getApiKey().trim());
-        Map<String, Object> body = new HashMap<>();
-        body.put("model", properties.getModel());
-        body.put("messages", List.of(
-                Map.of("role", "system", "content", SYSTEM_PROMPT),
-                Map.of("role", "user", "content", prompt)
-        ));
-        body.put("response_format", Map.of("type", "json_object"));
-        body.put("temperature", 0.7);
+        headers.setBearerAuth(provider.apiKey);
+        Map<String, Object> body = buildRequestBody(req, provider.model);
+        long startedAt = System.currentTimeMillis();
         try {
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
             ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
             if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                log.warn("[AI路线] API 非 2xx 或空 body: {}", response.getStatusCode());
+                log.warn("[AI路线] {} API 非 2xx 或空 body: {}", provider.name, response.getStatusCode());
+                permit.success();
                 return null;
             }
             String rawBody = response.getBody();
+            permit.success();
             log.info("[AI路线] AI 原始响应长度: {} 字符", rawBody != null ? rawBody.length() : 0);
             JsonNode root = objectMapper.readTree(rawBody);
             JsonNode choices = root.path("choices");
@@ -95,19 +290,272 @@ public class AiRouteClient {
             }
             log.info("[AI路线] AI 返回 content 预览(前800字符): {}", content.length() > 800 ? content.substring(0, 800) + "..." : content);
             TripPlanDtos.AiGenerateResponse parsed = parseResponse(content, req.getStartDate());
-            if (parsed != null && parsed.getVariants() != null) {
-                log.info("[AI路线] AI 解析成功: 方案数={}, 各方案天数={}",
-                        parsed.getVariants().size(),
-                        parsed.getVariants().stream()
-                                .map(v -> v.getDays() != null ? v.getDays().size() : 0)
-                                .toList());
-                log.debug("[AI路线] AI 解析后的完整数据: {}", toJsonSafe(parsed));
+            if (!isValid(parsed)) {
+                log.warn("[AI路线] {} 返回的方案为空或不完整", provider.name);
+                return null;
             }
+            long elapsed = System.currentTimeMillis() - startedAt;
+            provider.latency.record(elapsed);
+            log.info("[AI路线] AI 解析成功: provider={}, 耗时={}ms, 方案数={}, 各方案天数={}",
+                    provider.name, elapsed,
+                    parsed.getVariants().size(),
+                    parsed.getVariants().stream()
+                            .map(v -> v.getDays() != null ? v.getDays().size() : 0)
+                            .toList());
+            log.debug("[AI路线] AI 解析后的完整数据: {}", toJsonSafe(parsed));
             return parsed;
         } catch (Exception e) {
-            log.warn("[AI路线] 调用失败，将回退 mock: {}", e.getMessage());
+            if (Thread.currentThread().isInterrupted()) {
+                // 对冲落败被中断：不是服务商的故障，不计入熔断
+                permit.cancel();
+                log.info("[AI路线] {} 的调用已取消（对冲落败）", provider.name);
+                return null;
+            }
+            permit.failure(e);
+            log.warn("[AI路线] {} 调用失败: {}", provider.name, e.getMessage());
+            return null;
+        }
+    }
+
+    /** 至少一个方案，且每个方案都有行程天 */
+    private static boolean isValid(TripPlanDtos.AiGenerateResponse resp) {
+        return resp != null && resp.getVariants() != null && !resp.getVariants().isEmpty()
+                && resp.getVariants().stream().allMatch(v -> v.getDays() != null && !v.getDays().isEmpty());
+    }
+
+    /** 流式生成回调：某方案的一天、或整个方案输出完毕时各触发一次（在调用线程上执行） */
+    public interface StreamListener {
+        void onDay(int variantIndex, String variantId, String variantName, TripPlanDtos.AiDayPlan day);
+
+        void onVariant(int variantIndex, TripPlanDtos.AiPlanVariant variant);
+    }
+
+    /**
+     * 以 stream 模式调用 AI：边接收 token 边增量解析，每闭合一天 / 一个方案即回调 listener。
+     * 全部输出完毕且完整 JSON 解析成功时返回结果；不可用、流中途断开或输出不完整时返回 null，由调用方回退 mock。
+     * listener 抛出的异常会中断读取并关闭上游连接（如浏览器已断开）。
+     */
+    public TripPlanDtos.AiGenerateResponse generateStreaming(TripPlanDtos.AiGenerateRequest req, StreamListener listener) {
+        if (!isAvailable()) {
+            return null;
+        }
+        TripPlanDtos.AiGenerateResponse cached = aiRouteCache.get(req);
+        if (cached != null) {
+            log.info("[AI路线] 流式生成命中缓存: 目的地={}", req.getDestinations());
+            replay(cached, listener);
+            return cached;
+        }
+        return singleFlight(req, listener, () -> streamUpstream(req, listener));
+    }
+
+    /**
+     * 并发相同请求（同一归一化指纹）合并为一次上游调用：第一个调用方发起请求，其余等待其结果，
+     * 各自拿到按本人出发日期重排的副本；结果为 null（失败）时一起回退 mock。
+     * 流式调用方作为跟随者时，在结果到达后按事件顺序回放。
+     * 注意：流式发起方的浏览器中途断开会中断上游读取，此时跟随者同样回退 mock。
+     */
+    private TripPlanDtos.AiGenerateResponse singleFlight(TripPlanDtos.AiGenerateRequest req, StreamListener listener,
+                                                         Supplier<TripPlanDtos.AiGenerateResponse> upstream) {
+        String key = aiRouteCache.fingerprint(req);
+        CompletableFuture<TripPlanDtos.AiGenerateResponse> mine = new CompletableFuture<>();
+        CompletableFuture<TripPlanDtos.AiGenerateResponse> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            aiRouteCache.recordCoalesced();
+            log.info("[AI路线] 相同请求正在生成，等待共享结果: 目的地={}", req.getDestinations());
+            TripPlanDtos.AiGenerateResponse shared = aiRouteCache.adapt(leader.join(), req);
+            if (shared != null && listener != null) {
+                replay(shared, listener);
+            }
+            return shared;
+        }
+        TripPlanDtos.AiGenerateResponse result = null;
+        try {
+            result = upstream.get();
+            return result;
+        } finally {
+            inFlight.remove(key, mine);
+            mine.complete(result);
+        }
+    }
+
+    /**
+     * 流式调用不做对冲：事件已在推给浏览器，中途换服务商会产生重复的天。
+     * 按优先级选第一个放行的服务商；某个服务商在输出任何事件之前就失败时，转到下一个。
+     */
+    private TripPlanDtos.AiGenerateResponse streamUpstream(TripPlanDtos.AiGenerateRequest req, StreamListener listener) {
+        boolean[] emitted = {false};
+        StreamListener tracking = new StreamListener() {
+            @Override
+            public void onDay(int variantIndex, String variantId, String variantName, TripPlanDtos.AiDayPlan day) {
+                emitted[0] = true;
+                listener.onDay(variantIndex, variantId, variantName, day);
+            }
+
+            @Override
+            public void onVariant(int variantIndex, TripPlanDtos.AiPlanVariant variant) {
+                emitted[0] = true;
+                listener.onVariant(variantIndex, variant);
+            }
+        };
+        for (AiProvider provider : providers) {
+            TripPlanDtos.AiGenerateResponse parsed = streamFrom(provider, req, tracking);
+            if (parsed != null) {
+                aiRouteCache.put(req, parsed);
+                return parsed;
+            }
+            if (emitted[0]) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private TripPlanDtos.AiGenerateResponse streamFrom(AiProvider provider, TripPlanDtos.AiGenerateRequest req,
+                                                       StreamListener listener) {
+        AiProviderGuard.Permit permit = acquire(provider);
+        if (permit == null) {
+            return null;
+        }
+        String url = provider.chatUrl();
+        LocalDate startDate = req.getStartDate();
+        log.info("[AI路线] 开始流式调用 AI: provider={}, url={}, model={}, 目的地={}", provider.name, url, provider.model, req.getDestinations());
+        AiPlanStreamParser parser = new AiPlanStreamParser(objectMapper, new AiPlanStreamParser.Listener() {
+            @Override
+            public void onDay(int variantIndex, String variantId, String variantName, JsonNode day) {
+                listener.onDay(variantIndex, variantId, variantName, parseDay(day, startDate));
+            }
+
+            @Override
+            public void onVariant(int variantIndex, JsonNode variant) {
+                listener.onVariant(variantIndex, parseVariant(variant, startDate));
+            }
+        });
+        Map<String, Object> body = buildRequestBody(req, provider.model);
+        body.put("stream", true);
+        long startedAt = System.currentTimeMillis();
+        try {
+            restTemplate.execute(url, HttpMethod.POST, request -> {
+                request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_JSON));
+                request.getHeaders().setBearerAuth(provider.apiKey);
+                objectMapper.writeValue(request.getBody(), body);
+            }, response -> {
+                readStream(response.getBody(), parser);
+                return null;
+            });
+            permit.success();
+        } catch (Exception e) {
+            permit.failure(e);
+            log.warn("[AI路线] {} 流式调用中断: {}", provider.name, e.getMessage());
+            return null;
+        }
+        if (!parser.isComplete()) {
+            log.warn("[AI路线] {} 流式输出不完整（{} 字符）", provider.name, parser.json().length());
+            return null;
+        }
+        TripPlanDtos.AiGenerateResponse parsed = parseResponse(parser.json(), startDate);
+        if (!isValid(parsed)) {
             return null;
         }
+        provider.latency.record(System.currentTimeMillis() - startedAt);
+        return parsed;
+    }
+
+    /** 缓存命中时按流式事件的顺序回放，前端处理方式不变 */
+    private static void replay(TripPlanDtos.AiGenerateResponse resp, StreamListener listener) {
+        for (int i = 0; i < resp.getVariants().size(); i++) {
+            TripPlanDtos.AiPlanVariant variant = resp.getVariants().get(i);
+            if (variant.getDays() != null) {
+                for (TripPlanDtos.AiDayPlan day : variant.getDays()) {
+                    listener.onDay(i, variant.getId(), variant.getName(), day);
+                }
+            }
+            listener.onVariant(i, variant);
+        }
+    }
+
+    /**
+     * 读取 OpenAI 兼容的 SSE 流（data: {...} 行，以 data: [DONE] 结束），把每块 delta.content 喂给解析器。
+     * 个别服务忽略 stream 参数直接返回完整 JSON，此时整体读完后按非流式响应取 content。
+     */
+    private void readStream(InputStream in, AiPlanStreamParser parser) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        StringBuilder plain = null;
+        String line;
+        while ((line = reader.readLine()) != null && !parser.isComplete()) {
+            if (plain != null) {
+                plain.append(line).append('\n');
+                continue;
+            }
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith(":")) {
+                continue;
+            }
+            if (!trimmed.startsWith("data:")) {
+                plain = new StringBuilder(line).append('\n');
+                continue;
+            }
+            String data = trimmed.substring(5).trim();
+            if ("[DONE]".equals(data)) {
+                break;
+            }
+            JsonNode choice = objectMapper.readTree(data).path("choices").path(0);
+            parser.feed(choice.path("delta").path("content").asText(""));
+        }
+        if (plain != null) {
+            JsonNode root = objectMapper.readTree(plain.toString());
+            parser.feed(root.path("choices").path(0).path("message").path("content").asText(""));
+        }
+    }
+
+    /** 申请服务商调用许可；熔断打开、限速或并发已满时返回 null，调用方改用下一个服务商或回退 mock */
+    private AiProviderGuard.Permit acquire(AiProvider provider) {
+        AiProviderGuard.Permit permit = provider.guard.tryAcquire();
+        if (permit == null) {
+            log.warn("[AI路线] 服务商 {} 熔断 / 限速 / 并发已满，跳过", provider.name);
+        }
+        return permit;
+    }
+
+    /** 各服务商的调用保护状态与延迟分布，按优先级排列 */
+    public List<TripPlanDtos.AiProviderMetrics> providerMetrics() {
+        return providers.stream().map(AiProvider::metrics).toList();
+    }
+
+    private List<AiProvider> buildProviders(AiRouteProperties p) {
+        List<AiProvider> list = new ArrayList<>();
+        if (p.hasApiKey()) {
+            list.add(newProvider(p.getModel(), p.getBaseUrl(), p.getApiKey(), p.getModel()));
+        }
+        for (AiRouteProperties.Provider f : p.getFallbacks()) {
+            if (!f.hasApiKey() || f.getBaseUrl() == null || f.getBaseUrl().isBlank()
+                    || f.getModel() == null || f.getModel().isBlank()) {
+                log.warn("[AI路线] 忽略备用服务商 {}：api-key / base-url / model 未配置完整", f.getName());
+                continue;
+            }
+            String name = f.getName() != null && !f.getName().isBlank() ? f.getName() : f.getModel();
+            list.add(newProvider(name, f.getBaseUrl(), f.getApiKey(), f.getModel()));
+        }
+        return List.copyOf(list);
+    }
+
+    private AiProvider newProvider(String name, String baseUrl, String apiKey, String model) {
+        AiProviderGuard guard = new AiProviderGuard(name, properties.getMaxConcurrent(),
+                properties.getAcquireWaitMillis(), properties.getRatePerMinute(), properties.getBurst(),
+                properties.getBreakerFailureThreshold(), properties.getBreakerOpenSeconds());
+        return new AiProvider(name, baseUrl, apiKey, model, guard);
+    }
+
+    private Map<String, Object> buildRequestBody(TripPlanDtos.AiGenerateRequest req, String model) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("model", model);
+        body.put("messages", List.of(
+                Map.of("role", "system", "content", SYSTEM_PROMPT),
+                Map.of("role", "user", "content", buildPrompt(req))
+        ));
+        body.put("response_format", Map.of("type", "json_object"));
+        body.put("temperature", 0.7);
+        return body;
     }
 
     private static final String SYSTEM_PROMPT = """
@@ -216,52 +664,7 @@ public class AiRouteClient {
             if (!variantsNode.isArray()) return null;
             List<TripPlanDtos.AiPlanVariant> variants = new ArrayList<>();
             for (JsonNode vNode : variantsNode) {
-                TripPlanDtos.AiPlanVariant variant = new TripPlanDtos.AiPlanVariant();
-                variant.setId(vNode.path("id").asText("a"));
-                variant.setName(vNode.path("name").asText("方案"));
-                ArrayNode daysArray = (ArrayNode) vNode.path("days");
-                List<TripPlanDtos.AiDayPlan> days = new ArrayList<>();
-                for (JsonNode dNode : daysArray) {
-                    TripPlanDtos.AiDayPlan day = new TripPlanDtos.AiDayPlan();
-                    int dayIndex = dNode.path("dayIndex").asInt(1);
-                    day.setDayIndex(dayIndex);
-                    String dateStr = dNode.path("date").asText(null);
-                    if (dateStr != null && !dateStr.isBlank()) {
-                        try {
-                            day.setDate(LocalDate.parse(dateStr));
-                        } catch (Exception e) {
-                            day.setDate(startDate.plusDays(dayIndex - 1));
-                        }
-                    } else {
-                        day.setDate(startDate.plusDays(dayIndex - 1));
-                    }
-                    day.setDurationMinutes(dNode.path("durationMinutes").asInt(180));
-                    day.setDistanceKm(dNode.path("distanceKm").asInt(10));
-                    day.setCommuteMinutes(dNode.path("commuteMinutes").asInt(20));
-                    ArrayNode itemsArray = (ArrayNode) dNode.path("items");
-                    List<TripPlanDtos.AiPoiItem> items = new ArrayList<>();
-                    for (JsonNode iNode : itemsArray) {
-                        TripPlanDtos.AiPoiItem item = new TripPlanDtos.AiPoiItem();
-                        item.setId(iNode.path("id").asText(UUID.randomUUID().toString().replace("-", "").substring(0, 9)));
-                        item.setName(iNode.path("name").asText("景点"));
-                        item.setImage(iNode.path("image").asText("https://picsum.photos/seed/poi/320/180"));
-                        item.setStayMinutes(iNode.path("stayMinutes").asInt(60));
-                        List<String> tags = new ArrayList<>();
-                        iNode.path("tags").forEach(t -> tags.add(t.asText()));
-                        item.setTags(tags);
-                        if (iNode.has("lng") && !iNode.path("lng").isNull()) {
-                            item.setLng(iNode.path("lng").asDouble());
-                        }
-                        if (iNode.has("lat") && !iNode.path("lat").isNull()) {
-                            item.setLat(iNode.path("lat").asDouble());
-                        }
-                        items.add(item);
-                    }
-                    day.setItems(items);
-                    days.add(day);
-                }
-                variant.setDays(days);
-                variants.add(variant);
+                variants.add(parseVariant(vNode, startDate));
             }
             TripPlanDtos.AiGenerateResponse resp = new TripPlanDtos.AiGenerateResponse();
             resp.setVariants(variants);
@@ -271,4 +674,55 @@ public class AiRouteClient {
             return null;
         }
     }
+
+    private TripPlanDtos.AiPlanVariant parseVariant(JsonNode vNode, LocalDate startDate) {
+        TripPlanDtos.AiPlanVariant variant = new TripPlanDtos.AiPlanVariant();
+        variant.setId(vNode.path("id").asText("a"));
+        variant.setName(vNode.path("name").asText("方案"));
+        List<TripPlanDtos.AiDayPlan> days = new ArrayList<>();
+        for (JsonNode dNode : vNode.path("days")) {
+            days.add(parseDay(dNode, startDate));
+        }
+        variant.setDays(days);
+        return variant;
+    }
+
+    private TripPlanDtos.AiDayPlan parseDay(JsonNode dNode, LocalDate startDate) {
+        TripPlanDtos.AiDayPlan day = new TripPlanDtos.AiDayPlan();
+        int dayIndex = dNode.path("dayIndex").asInt(1);
+        day.setDayIndex(dayIndex);
+        String dateStr = dNode.path("date").asText(null);
+        if (dateStr != null && !dateStr.isBlank()) {
+            try {
+                day.setDate(LocalDate.parse(dateStr));
+            } catch (Exception e) {
+                day.setDate(startDate.plusDays(dayIndex - 1));
+            }
+        } else {
+            day.setDate(startDate.plusDays(dayIndex - 1));
+        }
+        day.setDurationMinutes(dNode.path("durationMinutes").asInt(180));
+        day.setDistanceKm(dNode.path("distanceKm").asInt(10));
+        day.setCommuteMinutes(dNode.path("commuteMinutes").asInt(20));
+        List<TripPlanDtos.AiPoiItem> items = new ArrayList<>();
+        for (JsonNode iNode : dNode.path("items")) {
+            TripPlanDtos.AiPoiItem item = new TripPlanDtos.AiPoiItem();
+            item.setId(iNode.path("id").asText(UUID.randomUUID().toString().replace("-", "").substring(0, 9)));
+            item.setName(iNode.path("name").asText("景点"));
+            item.setImage(iNode.path("image").asText("https://picsum.photos/seed/poi/320/180"));
+            item.setStayMinutes(iNode.path("stayMinutes").asInt(60));
+            List<String> tags = new ArrayList<>();
+            iNode.path("tags").forEach(t -> tags.add(t.asText()));
+            item.setTags(tags);
+            if (iNode.has("lng") && !iNode.path("lng").isNull()) {
+                item.setLng(iNode.path("lng").asDouble());
+            }
+            if (iNode.has("lat") && !iNode.path("lat").isNull()) {
+                item.setLat(iNode.path("lat").asDouble());
+            }
+            items.add(item);
+        }
+        day.setItems(items);
+        return day;
+    }
 }
@@ -0,0 +1,351 @@
+package com.example.travel.route.service;
+
+import com.example.travel.common.cache.LruTtlCache;
+import com.example.travel.common.exception.BusinessException;
+import com.example.travel.route.config.AiRouteProperties;
+import com.example.travel.route.dto.TripPlanDtos;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AI 路线生成异步任务。
+ * <p>
+ * 单次生成可能耗时数分钟，同步接口会长时间占用 Tomcat 工作线程。这里改为提交即返回任务 ID：
+ * 生成在专用的有界线程池中执行，排队数达到上限时直接拒绝；客户端轮询任务状态或订阅 SSE 等待结果。
+ * 任务结果在内存中保留一段时间后淘汰，不落库。流式生成（{@link #stream}）与同步接口（{@link #generate}）
+ * 也在同一线程池中执行，排队规则相同。
+ */
+@Service
+public class AiRouteJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(AiRouteJobService.class);
+
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_DONE = "done";
+    public static final String STATUS_FAILED = "failed";
+
+    private final RoutePlanService routePlanService;
+    private final LruTtlCache<String, Job> jobs;
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final long sseTimeoutMillis;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalWaitMillis = new LongAdder();
+    private final LongAdder totalRunMillis = new LongAdder();
+    private final AtomicLong maxRunMillis = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public AiRouteJobService(RoutePlanService routePlanService,
+                             AiRouteProperties aiRouteProperties,
+                             @Value("${app.route.ai-jobs.threads:4}") int threads,
+                             @Value("${app.route.ai-jobs.queue-capacity:50}") int queueCapacity,
+                             @Value("${app.route.ai-jobs.max-retained:2000}") int maxRetained,
+                             @Value("${app.route.ai-jobs.retain-minutes:30}") long retainMinutes) {
+        this.routePlanService = routePlanService;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.jobs = new LruTtlCache<>(Math.max(this.queueCapacity * 2, maxRetained), retainMinutes * 60_000L);
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.queueCapacity), r -> {
+            Thread t = new Thread(r, "ai-route-job");
+            t.setDaemon(true);
+            return t;
+        });
+        // 等待上限：排满队列时最后一个任务要等前面各批跑完，再加上自身的生成时间
+        int timeoutSeconds = aiRouteProperties.getTimeoutSeconds() > 0 ? aiRouteProperties.getTimeoutSeconds() : 180;
+        this.sseTimeoutMillis = (long) timeoutSeconds * 1000L * (this.queueCapacity / poolSize + 2);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** 校验参数后入队，返回任务初始状态；队列已满时拒绝 */
+    public TripPlanDtos.AiJobResponse submit(TripPlanDtos.AiGenerateRequest req) {
+        return toResponse(enqueue(req));
+    }
+
+    /**
+     * 同步生成：同样入队执行（队列已满时 429），调用线程等待任务结束。
+     * 同时阻塞在这里的请求线程因此不超过线程数 + 队列容量，不会耗尽 Tomcat 工作线程。
+     */
+    public TripPlanDtos.AiGenerateResponse generate(TripPlanDtos.AiGenerateRequest req) {
+        Job job = enqueue(req);
+        try {
+            job.finished.get(sseTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(503, "生成已取消");
+        } catch (TimeoutException e) {
+            throw new BusinessException(504, "AI 生成超时，请稍后重试");
+        } catch (ExecutionException e) {
+            // runJob 不会异常完成
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            jobs.invalidate(job.id);
+        }
+        if (job.error != null) {
+            throw new BusinessException(500, job.error);
+        }
+        return job.result;
+    }
+
+    private Job enqueue(TripPlanDtos.AiGenerateRequest req) {
+        routePlanService.validateAiRequest(req);
+        Job job = new Job(UUID.randomUUID().toString().replace("-", ""), sequence.incrementAndGet());
+        jobs.put(job.id, job);
+        try {
+            executor.execute(new JobTask(job, req));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.id);
+            rejected.increment();
+            throw new BusinessException(429, "AI 生成排队人数较多，请稍后再试");
+        }
+        submitted.increment();
+        return job;
+    }
+
+    public TripPlanDtos.AiJobResponse get(String jobId) {
+        return toResponse(requireJob(jobId));
+    }
+
+    /**
+     * 订阅任务进度：立即推送一次当前状态，之后在开始执行、完成或失败时各推送一次，终态后关闭连接。
+     */
+    public SseEmitter subscribe(String jobId) {
+        Job job = requireJob(jobId);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMillis);
+        emitter.onCompletion(() -> job.emitters.remove(emitter));
+        emitter.onTimeout(() -> job.emitters.remove(emitter));
+        emitter.onError(e -> job.emitters.remove(emitter));
+        synchronized (job) {
+            if (!send(emitter, toResponse(job))) {
+                return emitter;
+            }
+            if (job.isFinished()) {
+                emitter.complete();
+            } else {
+                job.emitters.add(emitter);
+            }
+        }
+        return emitter;
+    }
+
+    /**
+     * 流式生成：与异步任务共用同一个有界线程池，按生成进度推送 day / variant 事件，
+     * 以 done（AI 结果）或 fallback（mock 结果）结束。浏览器断开后停止读取上游。
+     */
+    public SseEmitter stream(TripPlanDtos.AiGenerateRequest req) {
+        routePlanService.validateAiRequest(req);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMillis);
+        long createdAt = System.currentTimeMillis();
+        try {
+            executor.execute(() -> runStream(emitter, req, createdAt));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new BusinessException(429, "AI 生成排队人数较多，请稍后再试");
+        }
+        submitted.increment();
+        return emitter;
+    }
+
+    public TripPlanDtos.AiJobMetrics metrics() {
+        TripPlanDtos.AiJobMetrics m = new TripPlanDtos.AiJobMetrics();
+        m.setMaxConcurrency(executor.getMaximumPoolSize());
+        m.setQueueCapacity(queueCapacity);
+        m.setQueued(executor.getQueue().size());
+        m.setRunning(executor.getActiveCount());
+        m.setSubmitted(submitted.sum());
+        m.setRejected(rejected.sum());
+        long done = completed.sum();
+        long fail = failed.sum();
+        m.setCompleted(done);
+        m.setFailed(fail);
+        long finished = done + fail;
+        m.setAvgWaitMillis(finished > 0 ? totalWaitMillis.sum() / finished : 0);
+        m.setAvgRunMillis(finished > 0 ? totalRunMillis.sum() / finished : 0);
+        m.setMaxRunMillis(maxRunMillis.get());
+        return m;
+    }
+
+    private void runJob(Job job, TripPlanDtos.AiGenerateRequest req) {
+        synchronized (job) {
+            job.status = STATUS_RUNNING;
+            job.startedAt = System.currentTimeMillis();
+            broadcast(job, false);
+        }
+        TripPlanDtos.AiGenerateResponse result = null;
+        String error = null;
+        try {
+            result = routePlanService.generateAiPlan(req);
+        } catch (BusinessException e) {
+            error = e.getMessage();
+        } catch (Exception e) {
+            log.warn("[AI路线] 异步任务 {} 失败: {}", job.id, e.getMessage());
+            error = "生成失败，请稍后重试";
+        }
+        synchronized (job) {
+            job.finishedAt = System.currentTimeMillis();
+            job.result = result;
+            job.error = error;
+            job.status = error == null ? STATUS_DONE : STATUS_FAILED;
+            broadcast(job, true);
+        }
+        job.finished.complete(null);
+        long wait = job.startedAt - job.createdAt;
+        long run = job.finishedAt - job.startedAt;
+        record(wait, run, error == null);
+        log.info("[AI路线] 异步任务 {} {}: wait={}ms, run={}ms", job.id, job.status, wait, run);
+    }
+
+    private void runStream(SseEmitter emitter, TripPlanDtos.AiGenerateRequest req, long createdAt) {
+        long startedAt = System.currentTimeMillis();
+        boolean ok = true;
+        try {
+            routePlanService.streamAiPlan(req, (name, data) -> {
+                try {
+                    emitter.send(SseEmitter.event().name(name).data(data));
+                } catch (IOException e) {
+                    // 浏览器已断开：抛出以中断上游读取
+                    throw new IllegalStateException("SSE client disconnected", e);
+                }
+            });
+            emitter.complete();
+        } catch (Exception e) {
+            ok = false;
+            log.info("[AI路线] 流式生成结束于异常: {}", e.getMessage());
+            emitter.completeWithError(e);
+        }
+        record(startedAt - createdAt, System.currentTimeMillis() - startedAt, ok);
+    }
+
+    private void record(long waitMillis, long runMillis, boolean success) {
+        totalWaitMillis.add(waitMillis);
+        totalRunMillis.add(runMillis);
+        maxRunMillis.accumulateAndGet(runMillis, Math::max);
+        (success ? completed : failed).increment();
+    }
+
+    /** 调用方须持有 job 锁 */
+    private void broadcast(Job job, boolean finished) {
+        TripPlanDtos.AiJobResponse snapshot = toResponse(job);
+        for (SseEmitter emitter : job.emitters) {
+            if (send(emitter, snapshot) && finished) {
+                emitter.complete();
+            }
+        }
+        if (finished) {
+            job.emitters.clear();
+        }
+    }
+
+    private boolean send(SseEmitter emitter, TripPlanDtos.AiJobResponse snapshot) {
+        try {
+            emitter.send(SseEmitter.event().name(snapshot.getStatus()).data(snapshot));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private Job requireJob(String jobId) {
+        Job job = jobId != null ? jobs.get(jobId) : null;
+        if (job == null) {
+            throw BusinessException.badRequest("任务不存在或已过期");
+        }
+        return job;
+    }
+
+    private TripPlanDtos.AiJobResponse toResponse(Job job) {
+        TripPlanDtos.AiJobResponse resp = new TripPlanDtos.AiJobResponse();
+        resp.setJobId(job.id);
+        resp.setStatus(job.status);
+        resp.setResult(job.result);
+        resp.setError(job.error);
+        if (STATUS_QUEUED.equals(job.status)) {
+            resp.setQueuePosition(queuePosition(job));
+        }
+        if (job.startedAt > 0) {
+            resp.setWaitMillis(job.startedAt - job.createdAt);
+        }
+        if (job.finishedAt > 0) {
+            resp.setRunMillis(job.finishedAt - job.startedAt);
+        }
+        return resp;
+    }
+
+    /** 排在该任务之前的排队任务数 */
+    private int queuePosition(Job job) {
+        int ahead = 0;
+        for (Runnable r : executor.getQueue()) {
+            if (r instanceof JobTask t && t.job.seq < job.seq) {
+                ahead++;
+            }
+        }
+        return ahead;
+    }
+
+    /** 队列中的任务项；保留 job 引用以便估算排队位置 */
+    private final class JobTask implements Runnable {
+        final Job job;
+        final TripPlanDtos.AiGenerateRequest req;
+
+        JobTask(Job job, TripPlanDtos.AiGenerateRequest req) {
+            this.job = job;
+            this.req = req;
+        }
+
+        @Override
+        public void run() {
+            runJob(job, req);
+        }
+    }
+
+    private static final class Job {
+        final String id;
+        final long seq;
+        final long createdAt = System.currentTimeMillis();
+        final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        /** 任务进入终态后完成，供同步接口等待 */
+        final CompletableFuture<Void> finished = new CompletableFuture<>();
+        volatile String status = STATUS_QUEUED;
+        volatile long startedAt;
+        volatile long finishedAt;
+        volatile TripPlanDtos.AiGenerateResponse result;
+        volatile String error;
+
+        Job(String id, long seq) {
+            this.id = id;
+            this.seq = seq;
+        }
+
+        boolean isFinished() {
+            return STATUS_DONE.equals(status) || STATUS_FAILED.equals(status);
+        }
+    }
+}
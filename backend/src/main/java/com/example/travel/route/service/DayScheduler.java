@@ -0,0 +1,138 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.dto.TripPlanDtos;
+import com.example.travel.route.entity.TripActivity;
+import com.example.travel.route.entity.TripDay;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单日活动排程：按停留时长与相邻活动之间的通勤时间（距离与交通方式见 {@link RouteOptimizer}）依次排定开始 / 结束时间。
+ * <p>
+ * 已填写开始时间的活动视为用户指定，时间保持不动，后续活动从它结束时接着排；其余活动从上一项结束
+ * 加通勤时间开始，第一项从当日开始时间开始。排完后最后结束时间超出当日时间窗的分钟数记为 overflowMinutes。
+ * 排程在保存行程时计算一次并落库，详情读取时不再推算。
+ */
+@Component
+public class DayScheduler {
+
+    /** 一项活动的排程输入；startTime / endTime 为已有时间（可为空） */
+    record Stop(Integer stayMinutes, String transport, Double lng, Double lat, String startTime, String endTime) {
+    }
+
+    /** 排程结果：各活动的开始 / 结束分钟数（自 0 点起），以及超出时间窗的分钟数 */
+    record Schedule(int[] startMinutes, int[] endMinutes, int overflowMinutes) {
+    }
+
+    private final int dayStartMinutes;
+    private final int dayEndMinutes;
+    private final int defaultStayMinutes;
+
+    public DayScheduler(@Value("${app.route.schedule.day-start:09:00}") String dayStart,
+                        @Value("${app.route.schedule.day-end:21:00}") String dayEnd,
+                        @Value("${app.route.schedule.default-stay-minutes:60}") int defaultStayMinutes) {
+        this.dayStartMinutes = parseTime(dayStart, 9 * 60);
+        this.dayEndMinutes = Math.max(this.dayStartMinutes, parseTime(dayEnd, 21 * 60));
+        this.defaultStayMinutes = Math.max(1, defaultStayMinutes);
+    }
+
+    /** 为保存请求中的一天排程：回写各活动的 startTime / endTime 与当天的 overflowMinutes */
+    public void scheduleDay(TripPlanDtos.Day day) {
+        List<TripPlanDtos.Activity> activities = day.getActivities() != null ? day.getActivities() : List.of();
+        List<Stop> stops = new ArrayList<>(activities.size());
+        for (TripPlanDtos.Activity a : activities) {
+            stops.add(new Stop(a.getStayMinutes(), a.getTransport(), a.getLng(), a.getLat(), a.getStartTime(), a.getEndTime()));
+        }
+        Schedule schedule = schedule(stops);
+        for (int i = 0; i < activities.size(); i++) {
+            activities.get(i).setStartTime(formatTime(schedule.startMinutes()[i]));
+            activities.get(i).setEndTime(formatTime(schedule.endMinutes()[i]));
+        }
+        day.setOverflowMinutes(schedule.overflowMinutes());
+    }
+
+    /** 为已落库的一天排程（历史数据补齐），activities 须按当天的先后顺序排列 */
+    public void scheduleDay(TripDay day, List<TripActivity> activities) {
+        List<Stop> stops = new ArrayList<>(activities.size());
+        for (TripActivity a : activities) {
+            stops.add(new Stop(a.getStayMinutes(), a.getTransport(), a.getLng(), a.getLat(), a.getStartTime(), a.getEndTime()));
+        }
+        Schedule schedule = schedule(stops);
+        for (int i = 0; i < activities.size(); i++) {
+            activities.get(i).setStartTime(formatTime(schedule.startMinutes()[i]));
+            activities.get(i).setEndTime(formatTime(schedule.endMinutes()[i]));
+        }
+        day.setOverflowMinutes(schedule.overflowMinutes());
+    }
+
+    Schedule schedule(List<Stop> stops) {
+        int n = stops.size();
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        int cursor = dayStartMinutes;
+        int latestEnd = dayStartMinutes;
+        for (int i = 0; i < n; i++) {
+            Stop stop = stops.get(i);
+            int fixedStart = parseTime(stop.startTime(), -1);
+            int fixedEnd = parseTime(stop.endTime(), -1);
+            int stay = stayOf(stop, fixedStart, fixedEnd);
+            int start;
+            if (fixedStart >= 0) {
+                start = fixedStart;
+            } else {
+                start = cursor;
+                if (i > 0) {
+                    Stop prev = stops.get(i - 1);
+                    double km = RouteOptimizer.legKm(prev.lng(), prev.lat(), stop.lng(), stop.lat());
+                    start += RouteOptimizer.modeOf(stop.transport(), km).minutes(km);
+                }
+            }
+            int end = fixedStart >= 0 && fixedEnd > fixedStart ? fixedEnd : start + stay;
+            starts[i] = start;
+            ends[i] = end;
+            cursor = end;
+            latestEnd = Math.max(latestEnd, end);
+        }
+        return new Schedule(starts, ends, Math.max(0, latestEnd - dayEndMinutes));
+    }
+
+    /** 停留时长：优先取 stayMinutes，其次由已有起止时间推算，最后用默认值 */
+    private int stayOf(Stop stop, int fixedStart, int fixedEnd) {
+        if (stop.stayMinutes() != null && stop.stayMinutes() > 0) {
+            return stop.stayMinutes();
+        }
+        if (fixedStart >= 0 && fixedEnd > fixedStart) {
+            return fixedEnd - fixedStart;
+        }
+        return defaultStayMinutes;
+    }
+
+    /** 解析 "HH:mm"（小时可为一位）；为空或格式不对时返回 fallback */
+    static int parseTime(String time, int fallback) {
+        if (time == null) {
+            return fallback;
+        }
+        String t = time.trim();
+        int colon = t.indexOf(':');
+        if (colon < 1 || colon > 2 || t.length() != colon + 3) {
+            return fallback;
+        }
+        try {
+            int h = Integer.parseInt(t.substring(0, colon));
+            int m = Integer.parseInt(t.substring(colon + 1));
+            return h >= 0 && h < 24 && m >= 0 && m < 60 ? h * 60 + m : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /** 将分钟数转为 "HH:mm"；跨过午夜的按次日时间显示，是否超出由 overflowMinutes 标记 */
+    static String formatTime(int totalMinutes) {
+        int h = (totalMinutes / 60) % 24;
+        int m = totalMinutes % 60;
+        return String.format("%02d:%02d", h, m);
+    }
+}
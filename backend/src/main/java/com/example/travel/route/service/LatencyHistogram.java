@@ -0,0 +1,62 @@
+package com.example.travel.route.service;
+
+/**
+ * 延迟直方图：对数分桶（50ms 起每档 ×1.2，覆盖到数十分钟），按分位数估算延迟。
+ * 样本总数超过上限时全部计数减半，使旧样本权重逐步衰减，分位数随服务商近况自动调整。
+ */
+final class LatencyHistogram {
+
+    private static final double FIRST_BOUND_MILLIS = 50;
+    private static final double RATIO = 1.2;
+    private static final int BUCKETS = 60;
+    private static final double DECAY_AT = 500;
+
+    private final double[] counts = new double[BUCKETS];
+    private double total;
+    private long samples;
+
+    synchronized void record(long millis) {
+        counts[bucketOf(millis)]++;
+        total++;
+        samples++;
+        if (total > DECAY_AT) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] /= 2;
+            }
+            total /= 2;
+        }
+    }
+
+    /** 累计记录过的样本数（不受衰减影响） */
+    synchronized long samples() {
+        return samples;
+    }
+
+    /** 分位数 p（0～1）对应的延迟上界；没有样本时返回 -1 */
+    synchronized long percentile(double p) {
+        if (total <= 0) {
+            return -1;
+        }
+        double target = Math.max(0, Math.min(1, p)) * total;
+        double cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += counts[i];
+            if (cumulative >= target && counts[i] > 0) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    private static int bucketOf(long millis) {
+        if (millis <= FIRST_BOUND_MILLIS) {
+            return 0;
+        }
+        int i = (int) Math.ceil(Math.log(millis / FIRST_BOUND_MILLIS) / Math.log(RATIO));
+        return Math.min(BUCKETS - 1, i);
+    }
+
+    private static long upperBound(int bucket) {
+        return Math.round(FIRST_BOUND_MILLIS * Math.pow(RATIO, bucket));
+    }
+}
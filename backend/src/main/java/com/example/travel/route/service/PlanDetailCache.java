@@ -0,0 +1,34 @@
+package com.example.travel.route.service;
+
+import com.example.travel.common.cache.LruTtlCache;
+import com.example.travel.common.tx.AfterCommit;
+import com.example.travel.route.dto.TripPlanDtos;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * 路线详情缓存（按行程 ID 缓存组装好的 PlanResponse，含全部天与活动）。
+ * 详情接口公开访问，热门分享路线会被反复读取；删除或编辑行程后失效，
+ * TTL 兜底引用次数、作者昵称等派生字段的变化。缓存对象只读，调用方不得修改。
+ */
+@Component
+public class PlanDetailCache {
+
+    private final LruTtlCache<Long, TripPlanDtos.PlanResponse> cache;
+
+    public PlanDetailCache(@Value("${app.route.plan-cache.max-entries:5000}") int maxEntries,
+                           @Value("${app.route.plan-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.cache = new LruTtlCache<>(maxEntries, ttlSeconds * 1000L);
+    }
+
+    public TripPlanDtos.PlanResponse get(Long planId, Function<Long, TripPlanDtos.PlanResponse> loader) {
+        return cache.get(planId, loader);
+    }
+
+    /** 事务提交后再失效，避免并发读在提交前把旧详情重新放回缓存 */
+    public void invalidateAfterCommit(Long planId) {
+        AfterCommit.run(() -> cache.invalidate(planId));
+    }
+}
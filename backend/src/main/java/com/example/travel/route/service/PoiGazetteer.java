@@ -0,0 +1,321 @@
+package com.example.travel.route.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * POI 地名库：按名称（含别名、模糊名）查找景点经纬度，供 AI / mock 方案中缺坐标的地点补全。
+ * <p>
+ * 源数据为 TSV（app.route.gazetteer.source），启动时编译为紧凑的二进制文件（{@link PoiGazetteerFile}）
+ * 写到 app.route.gazetteer.file 并内存映射；源数据未变化时直接映射已有文件。未配置文件路径时编译到堆内。
+ * <p>
+ * 查找顺序：归一化名称在名称表上二分精确匹配；未命中时走二元字组（bigram）倒排索引做模糊匹配，
+ * 包含关系（如"杭州西湖景区"包含"西湖"）优先，其余按 Dice 系数打分。行程目的地是地名库已知城市时，
+ * 只接受这些城市（或未标城市）的候选，避免匹配到外地同名地点；得分相同时取离当天已定位地点最近的。
+ */
+@Component
+public class PoiGazetteer {
+
+    private static final Logger log = LoggerFactory.getLogger(PoiGazetteer.class);
+
+    /** 非包含关系的模糊匹配最低 Dice 系数 */
+    private static final double MIN_FUZZY_SCORE = 0.6;
+
+    private final ByteBuffer buf;
+    private final int entryCount;
+    private final int nameCount;
+    private final int namesAt;
+    private final int poolAt;
+    /** 二元字组 → 名称表行号 */
+    private final Map<Long, int[]> bigramPostings = new HashMap<>();
+    /** 每个名称的字符数与去重后的二元字组数 */
+    private final int[] keyLengths;
+    private final int[] bigramCounts;
+    /** 已知城市 → 字符串池引用（地点表中的城市以引用比较，不必解码） */
+    private final Map<String, Integer> knownCities = new HashMap<>();
+
+    public PoiGazetteer(ResourceLoader resourceLoader,
+                        @Value("${app.route.gazetteer.source:classpath:poi/gazetteer.tsv}") String source,
+                        @Value("${app.route.gazetteer.file:}") String file) {
+        long startedAt = System.currentTimeMillis();
+        ByteBuffer loaded;
+        try {
+            loaded = load(resourceLoader.getResource(source), file);
+        } catch (Exception e) {
+            log.warn("[POI] 地名库加载失败，坐标补全不可用: {}", e.getMessage());
+            loaded = ByteBuffer.allocate(0);
+        }
+        boolean valid = loaded.capacity() >= PoiGazetteerFile.HEADER_BYTES;
+        this.buf = loaded;
+        this.entryCount = valid ? buf.getInt(16) : 0;
+        this.nameCount = valid ? buf.getInt(20) : 0;
+        this.namesAt = PoiGazetteerFile.HEADER_BYTES + entryCount * PoiGazetteerFile.ENTRY_BYTES;
+        this.poolAt = namesAt + nameCount * PoiGazetteerFile.NAME_BYTES;
+        this.keyLengths = new int[nameCount];
+        this.bigramCounts = new int[nameCount];
+        buildIndex();
+        log.info("[POI] 地名库已加载: 地点={}, 名称={}, 城市={}, 内存映射={}, 耗时={}ms",
+                entryCount, nameCount, knownCities.size(), buf.isDirect(), System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * 按名称查找坐标 {lng, lat}；找不到时返回 null。
+     *
+     * @param cities 行程目的地，用于同名消歧与排除外地地点；可为空
+     * @param near   当天已定位地点的中心 {lng, lat}，候选得分相同时取最近的；可为 null
+     */
+    public double[] locate(String name, Collection<String> cities, double[] near) {
+        if (entryCount == 0) {
+            return null;
+        }
+        String key = PoiGazetteerFile.normalize(name);
+        if (key.isEmpty()) {
+            return null;
+        }
+        Set<Integer> scope = cityScope(cities);
+        int entry = exact(key, scope, near);
+        if (entry < 0) {
+            entry = fuzzy(key, scope, near);
+        }
+        return entry < 0 ? null : new double[]{lng(entry), lat(entry)};
+    }
+
+    public int size() {
+        return entryCount;
+    }
+
+    private int exact(String key, Set<Integer> scope, double[] near) {
+        byte[] target = key.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = nameCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareKey(mid, target) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int best = -1;
+        for (int row = lo; row < nameCount && compareKey(row, target) == 0; row++) {
+            int entry = entryOf(row);
+            if (inScope(entry, scope) && (best < 0 || closer(entry, best, near))) {
+                best = entry;
+            }
+        }
+        return best;
+    }
+
+    private int fuzzy(String key, Set<Integer> scope, double[] near) {
+        int[] cps = key.codePoints().toArray();
+        Set<Long> grams = bigrams(cps);
+        if (grams.isEmpty()) {
+            return -1;
+        }
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (Long gram : grams) {
+            int[] rows = bigramPostings.get(gram);
+            if (rows != null) {
+                for (int row : rows) {
+                    shared.merge(row, 1, Integer::sum);
+                }
+            }
+        }
+        int best = -1;
+        double bestScore = 0;
+        for (Map.Entry<Integer, Integer> e : shared.entrySet()) {
+            int row = e.getKey();
+            int entry = entryOf(row);
+            if (!inScope(entry, scope)) {
+                continue;
+            }
+            int len = keyLengths[row];
+            double score;
+            String rowKey = string(buf.getInt(namesAt + row * PoiGazetteerFile.NAME_BYTES));
+            if (len >= 2 && (key.contains(rowKey) || rowKey.contains(key))) {
+                // 包含关系优先于一般相似，长度越接近越好
+                score = 1 + (double) Math.min(len, cps.length) / Math.max(len, cps.length);
+            } else {
+                score = 2.0 * e.getValue() / (grams.size() + bigramCounts[row]);
+                if (score < MIN_FUZZY_SCORE) {
+                    continue;
+                }
+            }
+            if (best < 0 || score > bestScore || (score == bestScore && tieBreak(entry, best, near))) {
+                best = entry;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /** 目的地中地名库已知的城市（池引用）；为空表示不限城市 */
+    private Set<Integer> cityScope(Collection<String> cities) {
+        Set<Integer> scope = new HashSet<>();
+        if (cities != null) {
+            for (String city : cities) {
+                String c = PoiGazetteerFile.normalizeCity(city);
+                if (c.isEmpty()) {
+                    continue;
+                }
+                knownCities.forEach((known, ref) -> {
+                    if (c.contains(known) || known.contains(c)) {
+                        scope.add(ref);
+                    }
+                });
+            }
+        }
+        return scope;
+    }
+
+    private boolean inScope(int entry, Set<Integer> scope) {
+        if (scope.isEmpty()) {
+            return true;
+        }
+        int cityRef = buf.getInt(entryAt(entry) + 12);
+        return scope.contains(cityRef) || Short.toUnsignedInt(buf.getShort(poolAt + cityRef)) == 0;
+    }
+
+    /** a 是否比 b 更靠近 near；near 为 null 时保持先到者 */
+    private boolean closer(int a, int b, double[] near) {
+        return near != null && distance2(a, near) < distance2(b, near);
+    }
+
+    /** 得分相同：有 near 时取更近者，否则取地点表中靠前者，使结果与遍历顺序无关 */
+    private boolean tieBreak(int a, int b, double[] near) {
+        return near != null ? closer(a, b, near) : a < b;
+    }
+
+    private double distance2(int entry, double[] near) {
+        double dx = (lng(entry) - near[0]) * Math.cos(Math.toRadians(near[1]));
+        double dy = lat(entry) - near[1];
+        return dx * dx + dy * dy;
+    }
+
+    private void buildIndex() {
+        Map<Long, List<Integer>> postings = new HashMap<>();
+        for (int row = 0; row < nameCount; row++) {
+            int[] cps = string(buf.getInt(namesAt + row * PoiGazetteerFile.NAME_BYTES)).codePoints().toArray();
+            Set<Long> grams = bigrams(cps);
+            keyLengths[row] = cps.length;
+            bigramCounts[row] = grams.size();
+            for (Long gram : grams) {
+                postings.computeIfAbsent(gram, k -> new ArrayList<>()).add(row);
+            }
+        }
+        postings.forEach((gram, rows) -> bigramPostings.put(gram, rows.stream().mapToInt(Integer::intValue).toArray()));
+        for (int entry = 0; entry < entryCount; entry++) {
+            int cityRef = buf.getInt(entryAt(entry) + 12);
+            String city = string(cityRef);
+            if (!city.isEmpty()) {
+                knownCities.put(city, cityRef);
+            }
+        }
+    }
+
+    private static Set<Long> bigrams(int[] cps) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + 1 < cps.length; i++) {
+            grams.add(((long) cps[i] << 32) | cps[i + 1]);
+        }
+        return grams;
+    }
+
+    /** 名称表第 row 行的名称与 target 按无符号字节序比较 */
+    private int compareKey(int row, byte[] target) {
+        int at = poolAt + buf.getInt(namesAt + row * PoiGazetteerFile.NAME_BYTES);
+        int len = Short.toUnsignedInt(buf.getShort(at));
+        int n = Math.min(len, target.length);
+        for (int i = 0; i < n; i++) {
+            int c = Integer.compare(Byte.toUnsignedInt(buf.get(at + 2 + i)), Byte.toUnsignedInt(target[i]));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(len, target.length);
+    }
+
+    private int entryOf(int row) {
+        return buf.getInt(namesAt + row * PoiGazetteerFile.NAME_BYTES + 4);
+    }
+
+    private int entryAt(int entry) {
+        return PoiGazetteerFile.HEADER_BYTES + entry * PoiGazetteerFile.ENTRY_BYTES;
+    }
+
+    private double lng(int entry) {
+        return buf.getInt(entryAt(entry)) / 1e6;
+    }
+
+    private double lat(int entry) {
+        return buf.getInt(entryAt(entry) + 4) / 1e6;
+    }
+
+    private String string(int ref) {
+        int at = poolAt + ref;
+        byte[] bytes = new byte[Short.toUnsignedInt(buf.getShort(at))];
+        buf.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** 读取源数据；目标文件存在且由同一份源数据编译时直接映射，否则重新编译 */
+    private static ByteBuffer load(Resource source, String file) throws IOException {
+        byte[] tsv;
+        try (InputStream in = source.getInputStream()) {
+            tsv = in.readAllBytes();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(tsv);
+        long sourceCrc = crc.getValue();
+        if (file == null || file.isBlank()) {
+            return ByteBuffer.wrap(PoiGazetteerFile.compile(new String(tsv, StandardCharsets.UTF_8), sourceCrc));
+        }
+        Path path = Path.of(file).toAbsolutePath();
+        if (Files.isRegularFile(path)) {
+            ByteBuffer mapped = map(path);
+            if (PoiGazetteerFile.matches(mapped, sourceCrc)) {
+                return mapped;
+            }
+        }
+        byte[] compiled = PoiGazetteerFile.compile(new String(tsv, StandardCharsets.UTF_8), sourceCrc);
+        try {
+            Files.createDirectories(path.getParent());
+            // 先写临时文件再原子替换，避免多实例同时启动时映射到半个文件
+            Path tmp = Files.createTempFile(path.getParent(), "poi-", ".tmp");
+            Files.write(tmp, compiled);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return map(path);
+        } catch (IOException e) {
+            log.warn("[POI] 无法写入地名库文件 {}，改用堆内数据: {}", path, e.getMessage());
+            return ByteBuffer.wrap(compiled);
+        }
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
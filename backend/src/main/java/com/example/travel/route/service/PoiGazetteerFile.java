@@ -0,0 +1,164 @@
+package com.example.travel.route.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 二进制地名库格式：由 TSV 源数据编译，运行时只读（可直接内存映射）。
+ * <pre>
+ * 头部   int magic("POIG") | int version | long 源数据 CRC32 | int 地点数 | int 名称数 | int 字符串池字节数
+ * 地点表 每条 16 字节：int 经度×1e6 | int 纬度×1e6 | int 名称引用 | int 城市引用
+ * 名称表 每条 8 字节：int 归一化名称引用 | int 地点序号；按名称 UTF-8 字节升序，可二分查找
+ * 字符串池 每个串为 u16 字节长度 + UTF-8 字节；引用即池内偏移
+ * </pre>
+ * 名称表同时收录正式名与别名，同名不同城的地点各占一行。
+ */
+final class PoiGazetteerFile {
+
+    static final int MAGIC = 0x504F4947;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int ENTRY_BYTES = 16;
+    static final int NAME_BYTES = 8;
+
+    /** 括号内的补充说明，如"（东门）""(south gate)" */
+    private static final Pattern BRACKETS = Pattern.compile("[（(【\\[][^）)】\\]]*[）)】\\]]");
+
+    private PoiGazetteerFile() {
+    }
+
+    /**
+     * 编译 TSV：每行 名称\t别名(|分隔)\t城市\t经度\t纬度，# 开头为注释；格式不对的行跳过。
+     */
+    static byte[] compile(String tsv, long sourceCrc) throws IOException {
+        List<int[]> entries = new ArrayList<>();
+        List<Object[]> names = new ArrayList<>();
+        ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        Map<String, Integer> interned = new HashMap<>();
+        for (String line : tsv.split("\r?\n")) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] cols = line.split("\t", -1);
+            if (cols.length < 5 || cols[0].isBlank()) {
+                continue;
+            }
+            double lng;
+            double lat;
+            try {
+                lng = Double.parseDouble(cols[3].trim());
+                lat = Double.parseDouble(cols[4].trim());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            int index = entries.size();
+            entries.add(new int[]{
+                    (int) Math.round(lng * 1e6),
+                    (int) Math.round(lat * 1e6),
+                    intern(cols[0].trim(), pool, interned),
+                    intern(normalizeCity(cols[2]), pool, interned)});
+            List<String> keys = new ArrayList<>();
+            keys.add(normalize(cols[0]));
+            for (String alias : cols[1].split("\\|")) {
+                String key = normalize(alias);
+                if (!key.isEmpty() && !keys.contains(key)) {
+                    keys.add(key);
+                }
+            }
+            for (String key : keys) {
+                if (!key.isEmpty()) {
+                    names.add(new Object[]{key.getBytes(StandardCharsets.UTF_8), key, index});
+                }
+            }
+        }
+        names.sort((a, b) -> Arrays.compareUnsigned((byte[]) a[0], (byte[]) b[0]));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        int[] nameRefs = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            nameRefs[i] = intern((String) names.get(i)[1], pool, interned);
+        }
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(sourceCrc);
+        data.writeInt(entries.size());
+        data.writeInt(names.size());
+        data.writeInt(pool.size());
+        data.writeInt(0);
+        for (int[] e : entries) {
+            for (int v : e) {
+                data.writeInt(v);
+            }
+        }
+        for (int i = 0; i < names.size(); i++) {
+            data.writeInt(nameRefs[i]);
+            data.writeInt((Integer) names.get(i)[2]);
+        }
+        pool.writeTo(data);
+        data.flush();
+        return out.toByteArray();
+    }
+
+    /** 文件头有效且由同一份源数据编译时返回 true */
+    static boolean matches(ByteBuffer buf, long sourceCrc) {
+        return buf.capacity() >= HEADER_BYTES
+                && buf.getInt(0) == MAGIC
+                && buf.getInt(4) == VERSION
+                && buf.getLong(8) == sourceCrc
+                && buf.capacity() == HEADER_BYTES + (long) buf.getInt(16) * ENTRY_BYTES
+                + (long) buf.getInt(20) * NAME_BYTES + buf.getInt(24);
+    }
+
+    /**
+     * 名称归一化：去掉括号内的补充说明（如"（东门）"），只保留字母数字与汉字，英文转小写。
+     */
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        String s = name.indexOf('(') < 0 && name.indexOf('（') < 0 && name.indexOf('【') < 0 && name.indexOf('[') < 0
+                ? name : BRACKETS.matcher(name).replaceAll("");
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); ) {
+            int cp = s.codePointAt(i);
+            if (Character.isLetterOrDigit(cp)) {
+                sb.appendCodePoint(Character.toLowerCase(cp));
+            }
+            i += Character.charCount(cp);
+        }
+        return sb.toString();
+    }
+
+    /** 城市归一化：去掉"市"后缀，如"杭州市" → "杭州" */
+    static String normalizeCity(String city) {
+        String s = normalize(city);
+        return s.length() > 1 && s.endsWith("市") ? s.substring(0, s.length() - 1) : s;
+    }
+
+    private static int intern(String s, ByteArrayOutputStream pool, Map<String, Integer> interned) {
+        Integer ref = interned.get(s);
+        if (ref != null) {
+            return ref;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            bytes = Arrays.copyOf(bytes, 0xFFFF);
+        }
+        ref = pool.size();
+        pool.write(bytes.length >>> 8);
+        pool.write(bytes.length & 0xFF);
+        pool.write(bytes, 0, bytes.length);
+        interned.put(s, ref);
+        return ref;
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.dto.TripPlanDtos;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * 单日行程排序与路程估算。
+ * <p>
+ * 对当天有坐标的地点计算 haversine 距离矩阵，以每个地点为起点各做一次最近邻构造，连同原顺序一起用 2-opt
+ * 消除交叉，取总路程最短的开放路径（不回到起点）；没有更短的排法时保持原顺序。缺坐标的地点留在原位置，
+ * 只在有坐标的位置之间调换。之后按路段距离与交通方式回填当天的 distanceKm / commuteMinutes / durationMinutes。
+ */
+@Component
+public class RouteOptimizer {
+
+    static final double EARTH_RADIUS_KM = 6371.0088;
+    /** 路网绕行系数：直线距离 × 系数 ≈ 实际路程 */
+    static final double DETOUR_FACTOR = 1.3;
+    /** 任一端缺坐标时的路段估算距离（公里，已含绕行） */
+    static final double DEFAULT_LEG_KM = 5;
+    /** 不超过该距离（公里）且未指定驾车时按步行估算 */
+    static final double WALK_MAX_KM = 1.2;
+    /** 天数达到该值时各天并行排序，小方案串行更快 */
+    private static final int PARALLEL_MIN_DAYS = 12;
+    private static final int MAX_TWO_OPT_PASSES = 50;
+
+    /** 路段交通方式：平均速度（公里/小时）与每段固定耗时（候车、找车位等，分钟） */
+    enum TravelMode {
+        WALK(4.5, 0),
+        TRANSIT(20, 8),
+        DRIVE(30, 5);
+
+        final double kmPerHour;
+        final int overheadMinutes;
+
+        TravelMode(double kmPerHour, int overheadMinutes) {
+            this.kmPerHour = kmPerHour;
+            this.overheadMinutes = overheadMinutes;
+        }
+
+        int minutes(double km) {
+            return (int) Math.round(overheadMinutes + km / kmPerHour * 60);
+        }
+    }
+
+    /**
+     * 由交通方式描述与路段距离推断实际方式：兼容 AI 请求的 public / drive / mixed 与活动上的中文描述
+     * （步行、地铁、公交、出租车、自驾等）；未指定或混合时短途步行、其余公共交通。
+     */
+    static TravelMode modeOf(String transport, double km) {
+        String t = transport == null ? "" : transport.trim().toLowerCase(Locale.ROOT);
+        if (t.contains("drive") || t.contains("taxi") || t.contains("car") || t.contains("自驾")
+                || t.contains("驾车") || t.contains("出租") || t.contains("打车") || t.contains("网约车")) {
+            return TravelMode.DRIVE;
+        }
+        if (t.contains("walk") || t.contains("步行")) {
+            return TravelMode.WALK;
+        }
+        return km <= WALK_MAX_KM ? TravelMode.WALK : TravelMode.TRANSIT;
+    }
+
+    /** 两点间的估算路程（公里，已含绕行）；任一端缺坐标时返回 {@link #DEFAULT_LEG_KM} */
+    static double legKm(Double lng1, Double lat1, Double lng2, Double lat2) {
+        if (lng1 == null || lat1 == null || lng2 == null || lat2 == null) {
+            return DEFAULT_LEG_KM;
+        }
+        return haversineKm(lng1, lat1, lng2, lat2) * DETOUR_FACTOR;
+    }
+
+    static double haversineKm(double lng1, double lat1, double lng2, double lat2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /** 对每个方案的每一天排序并回填路程；transport 为请求的交通方式 */
+    public void optimize(TripPlanDtos.AiGenerateResponse resp, String transport) {
+        if (resp == null || resp.getVariants() == null) {
+            return;
+        }
+        List<TripPlanDtos.AiDayPlan> days = new ArrayList<>();
+        for (TripPlanDtos.AiPlanVariant variant : resp.getVariants()) {
+            if (variant.getDays() != null) {
+                days.addAll(variant.getDays());
+            }
+        }
+        (days.size() >= PARALLEL_MIN_DAYS ? days.parallelStream() : days.stream())
+                .forEach(day -> optimizeDay(day, transport));
+    }
+
+    public void optimizeDay(TripPlanDtos.AiDayPlan day, String transport) {
+        if (day == null || day.getItems() == null) {
+            return;
+        }
+        List<TripPlanDtos.AiPoiItem> items = reorder(day.getItems(),
+                TripPlanDtos.AiPoiItem::getLng, TripPlanDtos.AiPoiItem::getLat);
+        day.setItems(items);
+        double km = 0;
+        int commute = 0;
+        int stay = 0;
+        for (int i = 0; i < items.size(); i++) {
+            TripPlanDtos.AiPoiItem item = items.get(i);
+            stay += item.getStayMinutes() != null ? item.getStayMinutes() : 0;
+            if (i > 0) {
+                TripPlanDtos.AiPoiItem prev = items.get(i - 1);
+                double leg = legKm(prev.getLng(), prev.getLat(), item.getLng(), item.getLat());
+                km += leg;
+                commute += modeOf(transport, leg).minutes(leg);
+            }
+        }
+        day.setDistanceKm((int) Math.round(km));
+        day.setCommuteMinutes(commute);
+        day.setDurationMinutes(stay + commute);
+    }
+
+    /**
+     * 返回按路程最短重排后的新列表：有坐标的地点在它们原来占据的位置之间重排，缺坐标的地点位置不变。
+     * 有坐标的地点少于 3 个时顺序无关紧要，按原顺序返回。
+     */
+    public <T> List<T> reorder(List<T> stops, Function<T, Double> lng, Function<T, Double> lat) {
+        List<Integer> slots = new ArrayList<>();
+        for (int i = 0; i < stops.size(); i++) {
+            T stop = stops.get(i);
+            if (lng.apply(stop) != null && lat.apply(stop) != null) {
+                slots.add(i);
+            }
+        }
+        List<T> result = new ArrayList<>(stops);
+        int n = slots.size();
+        if (n < 3) {
+            return result;
+        }
+        double[][] dist = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            T a = stops.get(slots.get(i));
+            for (int j = i + 1; j < n; j++) {
+                T b = stops.get(slots.get(j));
+                dist[i][j] = dist[j][i] = haversineKm(lng.apply(a), lat.apply(a), lng.apply(b), lat.apply(b));
+            }
+        }
+        int[] order = shortestOpenPath(dist);
+        for (int k = 0; k < n; k++) {
+            result.set(slots.get(k), stops.get(slots.get(order[k])));
+        }
+        return result;
+    }
+
+    /** 开放路径的近似最短访问顺序：原顺序与各起点最近邻分别经 2-opt 优化，取最短者（并列时优先原顺序） */
+    static int[] shortestOpenPath(double[][] dist) {
+        int n = dist.length;
+        int[] best = new int[n];
+        for (int i = 0; i < n; i++) {
+            best[i] = i;
+        }
+        twoOpt(dist, best);
+        double bestLength = length(dist, best);
+        for (int start = 0; start < n; start++) {
+            int[] tour = nearestNeighbour(dist, start);
+            twoOpt(dist, tour);
+            double len = length(dist, tour);
+            if (len < bestLength - 1e-9) {
+                best = tour;
+                bestLength = len;
+            }
+        }
+        return best;
+    }
+
+    private static int[] nearestNeighbour(double[][] dist, int start) {
+        int n = dist.length;
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        tour[0] = start;
+        visited[start] = true;
+        for (int k = 1; k < n; k++) {
+            int from = tour[k - 1];
+            int next = -1;
+            for (int j = 0; j < n; j++) {
+                if (!visited[j] && (next < 0 || dist[from][j] < dist[from][next])) {
+                    next = j;
+                }
+            }
+            tour[k] = next;
+            visited[next] = true;
+        }
+        return tour;
+    }
+
+    /** 反转 tour[i..j] 能缩短路程就反转，直到没有改进（开放路径：两端没有回程边） */
+    private static void twoOpt(double[][] dist, int[] tour) {
+        int n = tour.length;
+        boolean improved = true;
+        for (int pass = 0; improved && pass < MAX_TWO_OPT_PASSES; pass++) {
+            improved = false;
+            for (int i = 0; i < n - 1; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    double before = (i > 0 ? dist[tour[i - 1]][tour[i]] : 0) + (j < n - 1 ? dist[tour[j]][tour[j + 1]] : 0);
+                    double after = (i > 0 ? dist[tour[i - 1]][tour[j]] : 0) + (j < n - 1 ? dist[tour[i]][tour[j + 1]] : 0);
+                    if (after < before - 1e-9) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int tmp = tour[a];
+                            tour[a] = tour[b];
+                            tour[b] = tmp;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private static double length(double[][] dist, int[] tour) {
+        double len = 0;
+        for (int k = 1; k < tour.length; k++) {
+            len += dist[tour[k - 1]][tour[k]];
+        }
+        return len;
+    }
+}
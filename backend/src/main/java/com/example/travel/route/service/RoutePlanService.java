@@ -2,14 +2,12 @@ package com.example.travel.route.service;
 
 import com.example.travel.common.exception.BusinessException;
 import com.example.travel.route.dto.TripPlanDtos;
+import com.example.travel.route.entity.RouteStats;
+import com.example.travel.route.entity.TripActivity;
 import com.example.travel.route.entity.TripPlan;
-import com.example.travel.companion.repository.CompanionPostRepository;
 import com.example.travel.route.repository.TripActivityRepository;
 import com.example.travel.route.repository.TripDayRepository;
 import com.example.travel.route.repository.TripPlanRepository;
-import com.example.travel.social.repository.ContentFavoriteRepository;
-import com.example.travel.social.repository.ContentLikeRepository;
-import com.example.travel.social.repository.TravelNoteRepository;
 import com.example.travel.user.entity.User;
 import com.example.travel.user.entity.UserProfile;
 import com.example.travel.user.repository.UserProfileRepository;
@@ -24,14 +22,15 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
-import static java.util.Map.entry;
-
 @Service
 public class RoutePlanService {
 
@@ -40,34 +39,40 @@ public class RoutePlanService {
     private final TripPlanRepository tripPlanRepository;
     private final TripDayRepository tripDayRepository;
     private final TripActivityRepository tripActivityRepository;
-    private final ContentLikeRepository contentLikeRepository;
-    private final ContentFavoriteRepository contentFavoriteRepository;
-    private final TravelNoteRepository travelNoteRepository;
-    private final CompanionPostRepository companionPostRepository;
     private final UserRepository userRepository;
     private final UserProfileRepository userProfileRepository;
     private final AiRouteClient aiRouteClient;
+    private final TripPlanBulkWriter tripPlanBulkWriter;
+    private final PlanDetailCache planDetailCache;
+    private final RouteStatsService routeStatsService;
+    private final PoiGazetteer poiGazetteer;
+    private final RouteOptimizer routeOptimizer;
+    private final DayScheduler dayScheduler;
 
     public RoutePlanService(TripPlanRepository tripPlanRepository,
                             TripDayRepository tripDayRepository,
                             TripActivityRepository tripActivityRepository,
-                            ContentLikeRepository contentLikeRepository,
-                            ContentFavoriteRepository contentFavoriteRepository,
-                            TravelNoteRepository travelNoteRepository,
-                            CompanionPostRepository companionPostRepository,
                             UserRepository userRepository,
                             UserProfileRepository userProfileRepository,
-                            AiRouteClient aiRouteClient) {
+                            AiRouteClient aiRouteClient,
+                            TripPlanBulkWriter tripPlanBulkWriter,
+                            PlanDetailCache planDetailCache,
+                            RouteStatsService routeStatsService,
+                            PoiGazetteer poiGazetteer,
+                            RouteOptimizer routeOptimizer,
+                            DayScheduler dayScheduler) {
         this.tripPlanRepository = tripPlanRepository;
         this.tripDayRepository = tripDayRepository;
         this.tripActivityRepository = tripActivityRepository;
-        this.contentLikeRepository = contentLikeRepository;
-        this.contentFavoriteRepository = contentFavoriteRepository;
-        this.travelNoteRepository = travelNoteRepository;
-        this.companionPostRepository = companionPostRepository;
         this.userRepository = userRepository;
         this.userProfileRepository = userProfileRepository;
         this.aiRouteClient = aiRouteClient;
+        this.tripPlanBulkWriter = tripPlanBulkWriter;
+        this.planDetailCache = planDetailCache;
+        this.routeStatsService = routeStatsService;
+        this.poiGazetteer = poiGazetteer;
+        this.routeOptimizer = routeOptimizer;
+        this.dayScheduler = dayScheduler;
     }
 
     private User getCurrentUser() {
@@ -112,34 +117,17 @@ public class RoutePlanService {
         plan.setTitle(displayName + "的" + req.getDestination() + "之旅");
 
         plan = tripPlanRepository.save(plan);
+        routeStatsService.onPlanCreated(plan.getId());
 
-        if (req.getDays() != null && !req.getDays().isEmpty()) {
-            for (TripPlanDtos.Day dto : req.getDays()) {
-                var tripDay = new com.example.travel.route.entity.TripDay();
-                tripDay.setPlan(plan);
-                tripDay.setDayIndex(dto.getDayIndex());
-                tripDay.setDate(dto.getDate());
-                tripDay = tripDayRepository.save(tripDay);
-                if (dto.getActivities() != null) {
-                    for (TripPlanDtos.Activity a : dto.getActivities()) {
-                        var act = new com.example.travel.route.entity.TripActivity();
-                        act.setTripDay(tripDay);
-                        act.setType(a.getType() != null ? a.getType() : "sight");
-                        act.setName(a.getName());
-                        act.setLocation(a.getLocation());
-                        act.setStartTime(a.getStartTime());
-                        act.setEndTime(a.getEndTime());
-                        act.setTransport(a.getTransport());
-                        act.setEstimatedCost(a.getEstimatedCost());
-                        act.setLng(a.getLng());
-                        act.setLat(a.getLat());
-                        tripActivityRepository.save(act);
-                    }
-                }
-            }
+        // 保存时排定各活动起止时间（已填开始时间的保持不动）并标记超出当日时间窗的天，读取时不再推算
+        if (req.getDays() != null) {
+            req.getDays().forEach(dayScheduler::scheduleDay);
         }
 
-        log.info("[RoutePlan] createPlan success: planId={}", plan.getId());
+        // 天与活动各一条 JDBC 批量语句写入，不再逐条 save（IDENTITY 主键下 Hibernate 无法批量插入）
+        int activityCount = tripPlanBulkWriter.insertDays(plan.getId(), req.getDays());
+
+        log.info("[RoutePlan] createPlan success: planId={}, activities={}", plan.getId(), activityCount);
         return plan;
     }
 
@@ -154,27 +142,24 @@ public class RoutePlanService {
         if (!current.getId().equals(plan.getOwner().getId())) {
             throw BusinessException.forbidden("只能删除自己创建的路线");
         }
-        var days = tripDayRepository.findByPlanOrderByDayIndexAsc(plan);
-        for (var day : days) {
-            tripActivityRepository.findByTripDayOrderByStartTimeAscIdAsc(day)
-                    .forEach(tripActivityRepository::delete);
-            tripDayRepository.delete(day);
-        }
+        // 按外键整体删除：活动、天各一条 DELETE，不再逐天逐条加载
+        int activities = tripActivityRepository.deleteByPlanId(id);
+        int days = tripDayRepository.deleteByPlanId(id);
         tripPlanRepository.delete(plan);
-        log.info("[RoutePlan] deletePlan: planId={}", id);
+        routeStatsService.onPlanDeleted(id);
+        planDetailCache.invalidateAfterCommit(id);
+        log.info("[RoutePlan] deletePlan: planId={}, days={}, activities={}", id, days, activities);
     }
 
     public List<TripPlanDtos.PlanResponse> listMyPlans() {
         User current = getCurrentUser();
         List<TripPlan> plans = tripPlanRepository.findByOwnerOrderByCreatedAtDesc(current);
-        return plans.stream().map(this::toResponseWithoutActivities).collect(Collectors.toList());
+        return toResponsesWithoutActivities(plans);
     }
 
+    /** 路线详情（公开）：组装结果按行程 ID 缓存，返回对象为共享只读实例 */
     public TripPlanDtos.PlanResponse getPlan(Long id) {
-        TripPlan plan = tripPlanRepository.findById(id)
-                .orElseThrow(() -> BusinessException.badRequest("行程不存在"));
-
-        TripPlanDtos.PlanResponse resp = toResponseWithDbActivities(plan);
+        TripPlanDtos.PlanResponse resp = planDetailCache.get(id, this::loadPlanDetail);
         if (log.isDebugEnabled()) {
             int dayCount = resp.getDays() != null ? resp.getDays().size() : 0;
             int actCount = resp.getDays() == null ? 0 : resp.getDays().stream()
@@ -197,44 +182,57 @@ public class RoutePlanService {
         return resp;
     }
 
+    private TripPlanDtos.PlanResponse loadPlanDetail(Long id) {
+        TripPlan plan = tripPlanRepository.findWithOwnerById(id)
+                .orElseThrow(() -> BusinessException.badRequest("行程不存在"));
+        return toResponseWithDbActivities(plan);
+    }
+
     /**
-     * 热门路线：按热度（点赞+收藏）倒序返回前 N 条。
-     * 为避免复杂 SQL，本版本从最新 50 条路线中计算热度（数据量小的场景足够）。
+     * 热门路线：直接读预先维护的衰减热度排行（覆盖全部路线），按 ID 批量取回行程与作者资料；
+     * 引用次数取自同一份计数，不再逐条统计。
      */
     public List<TripPlanDtos.PlanResponse> listHotPlans(int limit) {
         int n = Math.max(1, Math.min(limit <= 0 ? 4 : limit, 50));
-        List<TripPlan> candidates = tripPlanRepository.findTop50ByOrderByCreatedAtDesc();
-        if (candidates.isEmpty()) return List.of();
-
-        // 计算热度：likeCount + favoriteCount
-        List<ScoredPlan> scored = candidates.stream().map(p -> {
-            long likes = contentLikeRepository.countByTargetTypeAndTargetId("route", p.getId());
-            long favs = contentFavoriteRepository.countByTargetTypeAndTargetId("route", p.getId());
-            return new ScoredPlan(p, likes + favs);
-        }).collect(Collectors.toList());
-
-        return scored.stream()
-                .sorted(Comparator
-                        .comparingLong(ScoredPlan::score).reversed()
-                        .thenComparing(sp -> sp.plan().getCreatedAt(), Comparator.nullsLast(Comparator.reverseOrder())))
-                .limit(n)
-                .map(sp -> toResponseWithoutActivities(sp.plan()))
-                .collect(Collectors.toList());
+        List<Long> rankedIds = routeStatsService.hottestPlanIds(n);
+        if (rankedIds.isEmpty()) return List.of();
+
+        Map<Long, TripPlan> plansById = new HashMap<>();
+        tripPlanRepository.findAllWithOwnerByIdIn(rankedIds).forEach(p -> plansById.put(p.getId(), p));
+        List<TripPlan> ranked = rankedIds.stream().map(plansById::get).filter(Objects::nonNull).toList();
+        return toResponsesWithoutActivities(ranked);
     }
 
-    private record ScoredPlan(TripPlan plan, long score) {}
+    /**
+     * 批量组装不含日程的路线摘要（保持入参顺序）：作者资料一次批量取回，引用次数取自 {@link RouteStats}，不再逐条统计。
+     * 行程的创建者应已随行程一并取回。
+     */
+    private List<TripPlanDtos.PlanResponse> toResponsesWithoutActivities(List<TripPlan> plans) {
+        if (plans.isEmpty()) return List.of();
+        Map<Long, RouteStats> statsById = routeStatsService.statsOf(plans.stream().map(TripPlan::getId).toList());
+        Map<Long, UserProfile> profilesByUserId = new HashMap<>();
+        List<Long> ownerIds = plans.stream()
+                .filter(p -> p.getOwner() != null)
+                .map(p -> p.getOwner().getId())
+                .distinct()
+                .toList();
+        if (!ownerIds.isEmpty()) {
+            userProfileRepository.findAllWithUserByIdIn(ownerIds).forEach(pr -> profilesByUserId.put(pr.getId(), pr));
+        }
 
-    /** 将分钟数转为 "HH:mm"；用于无时间段时的默认展示 */
-    private static String formatMinutesToTime(int totalMinutes) {
-        int h = (totalMinutes / 60) % 24;
-        int m = totalMinutes % 60;
-        return String.format("%02d:%02d", h, m);
+        List<TripPlanDtos.PlanResponse> result = new ArrayList<>(plans.size());
+        for (TripPlan plan : plans) {
+            UserProfile profile = plan.getOwner() != null ? profilesByUserId.get(plan.getOwner().getId()) : null;
+            RouteStats stats = statsById.get(plan.getId());
+            long usedCount = stats != null && stats.getUsageCount() != null ? stats.getUsageCount() : 0L;
+            result.add(toResponseWithoutActivities(plan, ownerDisplayName(plan.getOwner(), profile), usedCount));
+        }
+        return result;
     }
 
     /** 根据用户资料解析展示名：昵称优先，其次邮箱、手机号，最后「用户」。用于列表/详情展示，避免旧数据标题仍为邮箱。 */
-    private String getOwnerDisplayName(User user) {
+    private static String ownerDisplayName(User user, UserProfile profile) {
         if (user == null) return "用户";
-        UserProfile profile = userProfileRepository.findById(user.getId()).orElse(null);
         if (profile != null && profile.getNickname() != null && !profile.getNickname().isBlank()) {
             return profile.getNickname();
         }
@@ -243,10 +241,10 @@ public class RoutePlanService {
         return "用户";
     }
 
-    private TripPlanDtos.PlanResponse toResponseWithoutActivities(TripPlan plan) {
+    private TripPlanDtos.PlanResponse toResponseWithoutActivities(TripPlan plan, String ownerDisplayName, long usedCount) {
         TripPlanDtos.PlanResponse resp = new TripPlanDtos.PlanResponse();
         resp.setId(plan.getId());
-        String displayTitle = getOwnerDisplayName(plan.getOwner()) + "的" + (plan.getDestination() != null ? plan.getDestination() : "") + "之旅";
+        String displayTitle = ownerDisplayName + "的" + (plan.getDestination() != null ? plan.getDestination() : "") + "之旅";
         resp.setTitle(displayTitle);
         resp.setDestination(plan.getDestination());
         resp.setStartDate(plan.getStartDate());
@@ -255,48 +253,42 @@ public class RoutePlanService {
         resp.setPeopleCount(plan.getPeopleCount());
         resp.setPace(plan.getPace());
         resp.setDays(List.of());
-        long usedByNotes = travelNoteRepository.countByRelatedPlanId(plan.getId());
-        long usedByCompanion = companionPostRepository.countByRelatedPlanId(plan.getId());
-        resp.setUsedCount(usedByNotes + usedByCompanion);
+        resp.setUsedCount(usedCount);
         return resp;
     }
 
     /**
      * 使用数据库中实际的 TripDay / TripActivity 构建返回结果。
+     * 天与活动各一次查询取回（活动按天分组），不再逐天查询活动。
      * 若某些活动尚未配置经纬度，lng/lat 为 null，由前端自行地理编码兜底。
+     * 活动起止时间在保存时由 {@link DayScheduler} 排定（历史数据由 {@link TripScheduleBackfill} 补齐），这里直接使用。
      */
     private TripPlanDtos.PlanResponse toResponseWithDbActivities(TripPlan plan) {
-        TripPlanDtos.PlanResponse resp = toResponseWithoutActivities(plan);
+        TripPlanDtos.PlanResponse resp = toResponsesWithoutActivities(List.of(plan)).get(0);
         List<TripPlanDtos.Day> days = new ArrayList<>();
 
-        // 读取该行程下所有天
+        // 读取该行程下所有天，以及整条路线的全部活动
         var tripDays = tripDayRepository.findByPlanOrderByDayIndexAsc(plan);
+        Map<Long, List<TripActivity>> activitiesByDay = tripActivityRepository.findByPlanId(plan.getId()).stream()
+                .collect(Collectors.groupingBy(a -> a.getTripDay().getId(), LinkedHashMap::new, Collectors.toList()));
         for (var tripDay : tripDays) {
             TripPlanDtos.Day day = new TripPlanDtos.Day();
             day.setDayIndex(tripDay.getDayIndex());
             day.setDate(tripDay.getDate());
+            day.setOverflowMinutes(tripDay.getOverflowMinutes());
 
-            // 读取当天的所有活动；若无时间段则按顺序分配默认 09:00 起、每项约 1h+间隔 30min
-            var rawActivities = tripActivityRepository.findByTripDayOrderByStartTimeAscIdAsc(tripDay);
+            var rawActivities = activitiesByDay.getOrDefault(tripDay.getId(), List.of());
             var activities = new ArrayList<TripPlanDtos.Activity>();
-            int cursorMinutes = 9 * 60;
             for (var act : rawActivities) {
                 TripPlanDtos.Activity a = new TripPlanDtos.Activity();
                 a.setType(act.getType());
                 a.setName(act.getName());
                 a.setLocation(act.getLocation());
-                String startTime = act.getStartTime();
-                String endTime = act.getEndTime();
-                if (startTime == null || startTime.isBlank() || endTime == null || endTime.isBlank()) {
-                    a.setStartTime(formatMinutesToTime(cursorMinutes));
-                    a.setEndTime(formatMinutesToTime(cursorMinutes + 60));
-                    cursorMinutes += 60 + 30;
-                } else {
-                    a.setStartTime(startTime);
-                    a.setEndTime(endTime);
-                }
+                a.setStartTime(act.getStartTime());
+                a.setEndTime(act.getEndTime());
                 a.setTransport(act.getTransport());
                 a.setEstimatedCost(act.getEstimatedCost());
+                a.setStayMinutes(act.getStayMinutes());
                 a.setLng(act.getLng());
                 a.setLat(act.getLat());
                 activities.add(a);
@@ -310,22 +302,25 @@ public class RoutePlanService {
         return resp;
     }
 
-    /**
-     * AI 生成路线方案（不落库）：根据前端表单参数调用 AI API 生成多套方案；
-     * 若未配置 API Key 或调用失败，则回退为 mock 数据。
-     */
-    public TripPlanDtos.AiGenerateResponse generateAiPlan(TripPlanDtos.AiGenerateRequest req) {
+    /** AI 生成参数校验；异步任务在入队前调用，保证参数错误仍同步返回 */
+    public void validateAiRequest(TripPlanDtos.AiGenerateRequest req) {
         if (req.getDestinations() == null || req.getDestinations().isEmpty()) {
             throw BusinessException.badRequest("请至少添加一个目的地");
         }
-        LocalDate start = req.getStartDate();
-        LocalDate end = req.getEndDate();
-        if (end.isBefore(start)) {
+        if (req.getStartDate() == null || req.getEndDate() == null) {
+            throw BusinessException.badRequest("请选择出发与结束日期");
+        }
+        if (req.getEndDate().isBefore(req.getStartDate())) {
             throw BusinessException.badRequest("结束日期不能早于出发日期");
         }
-        int dayCount = (int) ChronoUnit.DAYS.between(start, end) + 1;
-        dayCount = Math.max(1, Math.min(dayCount, 14));
+    }
 
+    /**
+     * AI 生成路线方案（不落库）：根据前端表单参数调用 AI API 生成多套方案；
+     * 若未配置 API Key 或调用失败，则回退为 mock 数据。
+     */
+    public TripPlanDtos.AiGenerateResponse generateAiPlan(TripPlanDtos.AiGenerateRequest req) {
+        validateAiRequest(req);
         TripPlanDtos.AiGenerateResponse resp = null;
         if (!aiRouteClient.isAvailable()) {
             log.info("[AI路线] 未配置或未启用 AI，使用 mock 数据。若要调用 DeepSeek/OpenAI：请在 IDEA 运行配置中添加环境变量 OPENAI_API_KEY=你的key，或配置 app.ai.api-key");
@@ -336,39 +331,109 @@ public class RoutePlanService {
                     req.getTotalBudget(), req.getTransport(), req.getIntensity());
             resp = aiRouteClient.generate(req);
             if (resp != null && resp.getVariants() != null && !resp.getVariants().isEmpty()) {
-                fillPoiCoordsForResponse(resp);
+                fillPoiCoordsForResponse(resp, req.getDestinations());
+                routeOptimizer.optimize(resp, req.getTransport());
                 log.info("[AI路线] AI 生成成功，返回方案数: {}, 完整数据见 DEBUG 日志", resp.getVariants().size());
                 log.debug("[AI路线] 返回给前端的完整数据: {}", resp);
                 return resp;
             }
         }
         log.info("[AI路线] 未配置或调用失败，使用 mock 数据");
+        resp = buildMockResponse(req);
+        log.debug("[AI路线] mock 返回给前端的完整数据: {}", resp);
+        return resp;
+    }
+
+    /**
+     * 流式生成：AI 每输出完一天 / 一个方案即通过 sink 推送（事件 day / variant），结束时推送 done 及完整结果；
+     * 未配置 AI 或流中途失败时推送 fallback 及 mock 结果。调用方负责在后台线程执行。
+     */
+    public void streamAiPlan(TripPlanDtos.AiGenerateRequest req, BiConsumer<String, Object> sink) {
+        validateAiRequest(req);
+        if (aiRouteClient.isAvailable()) {
+            TripPlanDtos.AiGenerateResponse resp = aiRouteClient.generateStreaming(req, new AiRouteClient.StreamListener() {
+                @Override
+                public void onDay(int variantIndex, String variantId, String variantName, TripPlanDtos.AiDayPlan day) {
+                    fillPoiCoordsForDay(day, req.getDestinations());
+                    routeOptimizer.optimizeDay(day, req.getTransport());
+                    TripPlanDtos.AiStreamDay event = new TripPlanDtos.AiStreamDay();
+                    event.setVariantIndex(variantIndex);
+                    event.setVariantId(variantId);
+                    event.setVariantName(variantName);
+                    event.setDay(day);
+                    sink.accept("day", event);
+                }
+
+                @Override
+                public void onVariant(int variantIndex, TripPlanDtos.AiPlanVariant variant) {
+                    variant.getDays().forEach(d -> {
+                        fillPoiCoordsForDay(d, req.getDestinations());
+                        routeOptimizer.optimizeDay(d, req.getTransport());
+                    });
+                    TripPlanDtos.AiStreamVariant event = new TripPlanDtos.AiStreamVariant();
+                    event.setVariantIndex(variantIndex);
+                    event.setVariant(variant);
+                    sink.accept("variant", event);
+                }
+            });
+            if (resp != null && resp.getVariants() != null && !resp.getVariants().isEmpty()) {
+                fillPoiCoordsForResponse(resp, req.getDestinations());
+                routeOptimizer.optimize(resp, req.getTransport());
+                sink.accept("done", resp);
+                return;
+            }
+        }
+        log.info("[AI路线] 流式生成未配置或中途失败，使用 mock 数据");
+        sink.accept("fallback", buildMockResponse(req));
+    }
+
+    private TripPlanDtos.AiGenerateResponse buildMockResponse(TripPlanDtos.AiGenerateRequest req) {
+        LocalDate start = req.getStartDate();
+        int dayCount = (int) ChronoUnit.DAYS.between(start, req.getEndDate()) + 1;
+        dayCount = Math.max(1, Math.min(dayCount, 14));
         String destination = req.getDestinations().isEmpty() ? "" : req.getDestinations().get(0);
         List<TripPlanDtos.AiPlanVariant> variants = new ArrayList<>();
         variants.add(buildMockVariant("a", "方案 A（文化优先）", "culture", start, dayCount, destination));
         variants.add(buildMockVariant("b", "方案 B（自然优先）", "nature", start, dayCount, destination));
         variants.add(buildMockVariant("c", "方案 C（轻松休闲）", "relax", start, dayCount, destination));
-        resp = new TripPlanDtos.AiGenerateResponse();
+        TripPlanDtos.AiGenerateResponse resp = new TripPlanDtos.AiGenerateResponse();
         resp.setVariants(variants);
-        log.debug("[AI路线] mock 返回给前端的完整数据: {}", resp);
+        routeOptimizer.optimize(resp, req.getTransport());
         return resp;
     }
 
-    /** 为 AI 返回的 POI 按名称匹配填充经纬度，供前端地图展示 */
-    private void fillPoiCoordsForResponse(TripPlanDtos.AiGenerateResponse resp) {
+    /** 为 AI 返回的 POI 按名称在地名库中匹配经纬度（限定在行程目的地），供前端地图展示 */
+    private void fillPoiCoordsForResponse(TripPlanDtos.AiGenerateResponse resp, List<String> cities) {
         if (resp.getVariants() == null) return;
         for (TripPlanDtos.AiPlanVariant v : resp.getVariants()) {
             if (v.getDays() == null) continue;
-            for (TripPlanDtos.AiDayPlan d : v.getDays()) {
-                if (d.getItems() == null) continue;
-                for (TripPlanDtos.AiPoiItem item : d.getItems()) {
-                    if (item.getLng() != null && item.getLat() != null) continue;
-                    double[] coords = getPoiCoords("", item.getName());
-                    if (coords != null) {
-                        item.setLng(coords[0]);
-                        item.setLat(coords[1]);
-                    }
-                }
+            v.getDays().forEach(d -> fillPoiCoordsForDay(d, cities));
+        }
+    }
+
+    /** 同名候选以当天已定位地点的中心消歧 */
+    private void fillPoiCoordsForDay(TripPlanDtos.AiDayPlan d, List<String> cities) {
+        if (d.getItems() == null) return;
+        double sumLng = 0;
+        double sumLat = 0;
+        int located = 0;
+        for (TripPlanDtos.AiPoiItem item : d.getItems()) {
+            if (item.getLng() != null && item.getLat() != null) {
+                sumLng += item.getLng();
+                sumLat += item.getLat();
+                located++;
+            }
+        }
+        for (TripPlanDtos.AiPoiItem item : d.getItems()) {
+            if (item.getLng() != null && item.getLat() != null) continue;
+            double[] near = located > 0 ? new double[]{sumLng / located, sumLat / located} : null;
+            double[] coords = poiGazetteer.locate(item.getName(), cities, near);
+            if (coords != null) {
+                item.setLng(coords[0]);
+                item.setLat(coords[1]);
+                sumLng += coords[0];
+                sumLat += coords[1];
+                located++;
             }
         }
     }
@@ -490,7 +555,6 @@ public class RoutePlanService {
             LocalDate d = startDate.plusDays(i);
             int n = 2 + (i % 2);
             List<TripPlanDtos.AiPoiItem> items = new ArrayList<>();
-            int totalStay = 0;
             for (int j = 0; j < n; j++) {
                 String[] row = pool.get((i * 2 + j) % pool.size());
                 String poiName = row[0];
@@ -498,11 +562,9 @@ public class RoutePlanService {
                 item.setId(UUID.randomUUID().toString().replace("-", "").substring(0, 9));
                 item.setImage("https://picsum.photos/seed/poi" + (i * 10 + j) + "/320/180");
                 item.setName(poiName);
-                int stay = Integer.parseInt(row[2]);
-                item.setStayMinutes(stay);
-                totalStay += stay;
+                item.setStayMinutes(Integer.parseInt(row[2]));
                 item.setTags(List.of(row[1].split(",")));
-                double[] coords = getPoiCoords(city, poiName);
+                double[] coords = poiGazetteer.locate(poiName, List.of(city), null);
                 if (coords != null) {
                     item.setLng(coords[0]);
                     item.setLat(coords[1]);
@@ -512,9 +574,7 @@ public class RoutePlanService {
             TripPlanDtos.AiDayPlan day = new TripPlanDtos.AiDayPlan();
             day.setDayIndex(i + 1);
             day.setDate(d);
-            day.setDurationMinutes(totalStay + 30 * Math.max(0, items.size() - 1));
-            day.setDistanceKm(12 + i * 8);
-            day.setCommuteMinutes(20 + i * 10);
+            // 时长、路程与通勤由 RouteOptimizer 按实际坐标回填
             day.setItems(items);
             days.add(day);
         }
@@ -525,76 +585,4 @@ public class RoutePlanService {
         variant.setDays(days);
         return variant;
     }
-
-    /** 常用 POI 经纬度（高德坐标系），供地图展示 */
-    private static final Map<String, double[]> POI_COORDS = Map.ofEntries(
-            // 北京
-            entry("故宫博物院", new double[]{116.397, 39.916}),
-            entry("国家博物馆", new double[]{116.398, 39.904}),
-            entry("南锣鼓巷", new double[]{116.404, 39.934}),
-            entry("颐和园", new double[]{116.271, 39.999}),
-            entry("雍和宫", new double[]{116.417, 39.949}),
-            entry("北海公园", new double[]{116.383, 39.924}),
-            entry("香山", new double[]{116.193, 39.998}),
-            entry("奥森公园", new double[]{116.391, 40.016}),
-            entry("什刹海", new double[]{116.382, 39.938}),
-            entry("古镇漫步", new double[]{116.397, 39.916}),
-            entry("温泉酒店", new double[]{116.397, 39.916}),
-            entry("咖啡馆", new double[]{116.397, 39.916}),
-            entry("夜市", new double[]{116.397, 39.916}),
-            entry("海边栈道", new double[]{116.397, 39.916}),
-            // 苏州
-            entry("拙政园", new double[]{120.624, 31.323}),
-            entry("苏州博物馆", new double[]{120.629, 31.321}),
-            entry("狮子林", new double[]{120.631, 31.322}),
-            entry("虎丘", new double[]{120.573, 31.302}),
-            entry("寒山寺", new double[]{120.557, 31.311}),
-            entry("金鸡湖", new double[]{120.681, 31.316}),
-            entry("阳澄湖", new double[]{120.823, 31.421}),
-            entry("太湖湿地", new double[]{120.412, 31.228}),
-            entry("平江路", new double[]{120.636, 31.319}),
-            entry("同里古镇", new double[]{120.716, 31.161}),
-            entry("平江路漫步", new double[]{120.636, 31.319}),
-            entry("山塘街", new double[]{120.601, 31.318}),
-            entry("观前街", new double[]{120.629, 31.315}),
-            entry("苏州评弹", new double[]{120.629, 31.315}),
-            entry("苏帮菜馆", new double[]{120.629, 31.315}),
-            // 上海
-            entry("豫园", new double[]{121.491, 31.228}),
-            entry("上海博物馆", new double[]{121.473, 31.230}),
-            entry("中共一大会址", new double[]{121.473, 31.220}),
-            entry("田子坊", new double[]{121.464, 31.214}),
-            entry("新天地", new double[]{121.474, 31.216}),
-            entry("外滩", new double[]{121.490, 31.239}),
-            entry("世纪公园", new double[]{121.551, 31.228}),
-            entry("朱家角古镇", new double[]{121.050, 31.108}),
-            entry("滨江森林公园", new double[]{121.558, 31.382}),
-            entry("东方明珠", new double[]{121.499, 31.239}),
-            entry("南京路步行街", new double[]{121.478, 31.238}),
-            entry("外滩夜景", new double[]{121.490, 31.239}),
-            entry("城隍庙小吃", new double[]{121.491, 31.227}),
-            // 杭州
-            entry("西湖", new double[]{120.155, 30.274}),
-            entry("雷峰塔", new double[]{120.149, 30.231}),
-            entry("灵隐寺", new double[]{120.096, 30.241}),
-            entry("中国茶叶博物馆", new double[]{120.130, 30.257}),
-            entry("宋城", new double[]{120.111, 30.206}),
-            entry("河坊街", new double[]{120.164, 30.242}),
-            entry("西溪湿地", new double[]{120.053, 30.270}),
-            entry("龙井村", new double[]{120.109, 30.228}),
-            entry("九溪烟树", new double[]{120.123, 30.218}),
-            entry("六和塔", new double[]{120.131, 30.197}),
-            entry("中国美院", new double[]{120.154, 30.259}),
-            entry("断桥残雪", new double[]{120.147, 30.263}),
-            entry("苏堤", new double[]{120.142, 30.252}),
-            entry("白堤", new double[]{120.148, 30.265}),
-            entry("钱塘江", new double[]{120.210, 30.208}),
-            entry("千岛湖", new double[]{119.019, 29.605})
-    );
-
-    private double[] getPoiCoords(String city, String poiName) {
-        if (poiName == null || poiName.isEmpty()) return null;
-        return POI_COORDS.get(poiName);
-    }
 }
-
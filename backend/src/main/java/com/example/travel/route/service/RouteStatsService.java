@@ -0,0 +1,107 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.entity.RouteStats;
+import com.example.travel.route.repository.RouteStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 维护路线互动计数（t_route_stats）与衰减热度。
+ * 点赞 / 收藏 / 游记与结伴引用在各自写操作的同一事务内增减计数；热度按重力公式定时整表重算。
+ * 启动时清理孤儿行并按明细表对账一次，修正历史数据与计数漂移。
+ */
+@Service
+@Order(5)
+public class RouteStatsService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteStatsService.class);
+
+    private static final String TARGET_ROUTE = "route";
+
+    private final RouteStatsRepository routeStatsRepository;
+    private final double gravity;
+
+    public RouteStatsService(RouteStatsRepository routeStatsRepository,
+                             @Value("${app.route.hot.gravity:1.8}") double gravity) {
+        this.routeStatsRepository = routeStatsRepository;
+        this.gravity = gravity;
+    }
+
+    public void onPlanCreated(Long planId) {
+        routeStatsRepository.insertIfAbsent(planId);
+    }
+
+    public void onPlanDeleted(Long planId) {
+        routeStatsRepository.deleteByPlanId(planId);
+    }
+
+    /** 点赞 / 取消点赞；仅路线类目标计数，目标路线不存在时不计 */
+    public void onLikeChanged(String targetType, Long targetId, long delta) {
+        if (TARGET_ROUTE.equalsIgnoreCase(targetType) && targetId != null && delta != 0) {
+            routeStatsRepository.addCounts(targetId, delta, 0, 0);
+        }
+    }
+
+    public void onFavoriteChanged(String targetType, Long targetId, long delta) {
+        if (TARGET_ROUTE.equalsIgnoreCase(targetType) && targetId != null && delta != 0) {
+            routeStatsRepository.addCounts(targetId, 0, delta, 0);
+        }
+    }
+
+    /** 游记 / 结伴帖的关联路线变化：旧路线引用数减一，新路线加一 */
+    public void onUsageChanged(Long oldPlanId, Long newPlanId) {
+        if (Objects.equals(oldPlanId, newPlanId)) {
+            return;
+        }
+        if (oldPlanId != null) {
+            routeStatsRepository.addCounts(oldPlanId, 0, 0, -1);
+        }
+        if (newPlanId != null) {
+            routeStatsRepository.addCounts(newPlanId, 0, 0, 1);
+        }
+    }
+
+    /** 热度最高的 limit 条路线 ID（覆盖全部路线，不限于最新一批） */
+    public List<Long> hottestPlanIds(int limit) {
+        return routeStatsRepository.findHottestPlanIds(PageRequest.of(0, limit));
+    }
+
+    /** 按路线 ID 批量取计数行 */
+    public Map<Long, RouteStats> statsOf(Collection<Long> planIds) {
+        Map<Long, RouteStats> byId = new HashMap<>();
+        routeStatsRepository.findAllById(planIds).forEach(st -> byId.put(st.getPlanId(), st));
+        return byId;
+    }
+
+    @Scheduled(initialDelayString = "${app.route.hot.recompute-ms:600000}",
+            fixedDelayString = "${app.route.hot.recompute-ms:600000}")
+    public void recomputeHotness() {
+        int rows = routeStatsRepository.recomputeHotness(gravity);
+        log.debug("[RouteStats] hotness recomputed for {} routes", rows);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            int orphans = routeStatsRepository.deleteOrphans();
+            int rows = routeStatsRepository.reconcileAll();
+            recomputeHotness();
+            log.info("[RouteStats] reconciled counters, affectedRows={}, orphansRemoved={}", rows, orphans);
+        } catch (Exception e) {
+            log.warn("[RouteStats] reconcile skipped or failed: {}", e.getMessage());
+        }
+    }
+}
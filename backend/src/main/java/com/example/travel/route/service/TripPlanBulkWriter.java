@@ -0,0 +1,140 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.dto.TripPlanDtos;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 行程「天 + 活动」整图写入。实体主键为 IDENTITY，Hibernate 无法批量插入，
+ * 这里改用 JDBC 批处理：所有天一条批量语句、所有活动一条批量语句
+ * （连接串开启 rewriteBatchedStatements 后驱动会改写为多值 INSERT）。
+ * 须在调用方事务内执行，与 JPA 共用同一连接。
+ */
+@Component
+public class TripPlanBulkWriter {
+
+    private static final String INSERT_DAY =
+            "INSERT INTO t_trip_day (plan_id, day_index, `date`, overflow_minutes) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_ACTIVITY =
+            "INSERT INTO t_trip_activity (day_id, type, name, location, start_time, end_time, transport, "
+                    + "estimated_cost, stay_minutes, lng, lat) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TripPlanBulkWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** 写入行程的全部天与活动，返回写入的活动数 */
+    public int insertDays(Long planId, List<TripPlanDtos.Day> days) {
+        if (days == null || days.isEmpty()) {
+            return 0;
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_DAY, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        TripPlanDtos.Day day = days.get(i);
+                        ps.setLong(1, planId);
+                        setInt(ps, 2, day.getDayIndex());
+                        if (day.getDate() != null) {
+                            ps.setDate(3, Date.valueOf(day.getDate()));
+                        } else {
+                            ps.setNull(3, Types.DATE);
+                        }
+                        setInt(ps, 4, day.getOverflowMinutes());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return days.size();
+                    }
+                },
+                keys);
+        List<Long> dayIds = dayIds(planId, days.size(), keys);
+
+        List<Long> activityDayIds = new ArrayList<>();
+        List<TripPlanDtos.Activity> activities = new ArrayList<>();
+        for (int i = 0; i < days.size(); i++) {
+            if (days.get(i).getActivities() != null) {
+                for (TripPlanDtos.Activity a : days.get(i).getActivities()) {
+                    activityDayIds.add(dayIds.get(i));
+                    activities.add(a);
+                }
+            }
+        }
+        if (activities.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ACTIVITY, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                TripPlanDtos.Activity a = activities.get(i);
+                ps.setLong(1, activityDayIds.get(i));
+                ps.setString(2, a.getType() != null ? a.getType() : "sight");
+                ps.setString(3, a.getName());
+                ps.setString(4, a.getLocation());
+                ps.setString(5, a.getStartTime());
+                ps.setString(6, a.getEndTime());
+                ps.setString(7, a.getTransport());
+                setInt(ps, 8, a.getEstimatedCost());
+                setInt(ps, 9, a.getStayMinutes());
+                setDouble(ps, 10, a.getLng());
+                setDouble(ps, 11, a.getLat());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return activities.size();
+            }
+        });
+        return activities.size();
+    }
+
+    /**
+     * 按插入顺序取回天的主键。驱动未返回完整的自增键时，退回按 plan_id 查询（新行程只有本次插入的天）。
+     */
+    private List<Long> dayIds(Long planId, int expected, KeyHolder keys) {
+        List<Long> ids = new ArrayList<>(expected);
+        for (Map<String, Object> row : keys.getKeyList()) {
+            Object key = row.values().stream().findFirst().orElse(null);
+            if (key instanceof Number n) {
+                ids.add(n.longValue());
+            }
+        }
+        if (ids.size() == expected) {
+            return ids;
+        }
+        return jdbcTemplate.queryForList("SELECT id FROM t_trip_day WHERE plan_id = ? ORDER BY id", Long.class, planId);
+    }
+
+    private static void setInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) {
+            ps.setInt(index, value);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value != null) {
+            ps.setDouble(index, value);
+        } else {
+            ps.setNull(index, Types.DOUBLE);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.entity.TripActivity;
+import com.example.travel.route.entity.TripDay;
+import com.example.travel.route.repository.TripActivityRepository;
+import com.example.travel.route.repository.TripDayRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 启动时为历史行程中缺开始 / 结束时间的活动补排时间并落库（按天 ID 分批），
+ * 之后详情读取直接使用存储的时间，不再每次推算。
+ * <p>
+ * 每批在一个事务内读取并修改托管实体，提交时统一写回活动时间与当天的 overflowMinutes；
+ * 单批失败整体回滚（这些天下次启动仍会被选中），只记日志并跳过。
+ */
+@Component
+@Order(6)
+public class TripScheduleBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TripScheduleBackfill.class);
+
+    private static final int BATCH = 200;
+
+    private final TripActivityRepository tripActivityRepository;
+    private final TripDayRepository tripDayRepository;
+    private final DayScheduler dayScheduler;
+    private final TransactionTemplate transactionTemplate;
+
+    public TripScheduleBackfill(TripActivityRepository tripActivityRepository,
+                                TripDayRepository tripDayRepository,
+                                DayScheduler dayScheduler,
+                                TransactionTemplate transactionTemplate) {
+        this.tripActivityRepository = tripActivityRepository;
+        this.tripDayRepository = tripDayRepository;
+        this.dayScheduler = dayScheduler;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int days = 0;
+        long afterDayId = 0L;
+        List<Long> dayIds;
+        try {
+            while (!(dayIds = tripActivityRepository.findUnscheduledDayIds(afterDayId, PageRequest.of(0, BATCH))).isEmpty()) {
+                afterDayId = dayIds.get(dayIds.size() - 1);
+                try {
+                    List<Long> batch = dayIds;
+                    days += transactionTemplate.execute(status -> scheduleBatch(batch));
+                } catch (Exception e) {
+                    log.warn("[RoutePlan] schedule backfill batch ending at day {} skipped: {}", afterDayId, e.getMessage());
+                }
+            }
+            if (days > 0) {
+                log.info("[RoutePlan] schedule backfill: days={}", days);
+            }
+        } catch (Exception e) {
+            log.warn("[RoutePlan] schedule backfill skipped or failed: {}", e.getMessage());
+        }
+    }
+
+    /** 须在事务内调用：实体保持托管，修改在提交时写回，不再逐条 merge */
+    private int scheduleBatch(List<Long> dayIds) {
+        Map<Long, TripDay> daysById = tripDayRepository.findAllById(dayIds).stream()
+                .collect(Collectors.toMap(TripDay::getId, Function.identity()));
+        Map<Long, List<TripActivity>> activitiesByDay = tripActivityRepository.findByDayIdsInOrder(dayIds).stream()
+                .collect(Collectors.groupingBy(a -> a.getTripDay().getId()));
+        activitiesByDay.forEach((dayId, activities) -> {
+            TripDay day = daysById.get(dayId);
+            if (day != null) {
+                dayScheduler.scheduleDay(day, activities);
+            }
+        });
+        return daysById.size();
+    }
+}
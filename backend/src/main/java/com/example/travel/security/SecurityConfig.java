@@ -44,9 +44,15 @@ public class SecurityConfig {
                                 "/swagger-ui/**",
                                 "/v3/api-docs/**"
                         ).permitAll()
-                        // 允许未登录用户查看路线详情及首页示例路线；AI 生成方案可匿名调用（不落库）
+                        // WebSocket 握手放行，鉴权在 STOMP CONNECT 帧上进行（见 StompAuthChannelInterceptor）
+                        .requestMatchers("/ws", "/ws/**").permitAll()
+                        // AI 生成的运行指标（队列、缓存、服务商）不对匿名用户开放，须在下方路线放行规则之前匹配
+                        .requestMatchers(HttpMethod.GET, "/api/routes/ai-generate/*/metrics").authenticated()
+                        // 允许未登录用户查看路线详情及首页示例路线；AI 生成方案可匿名调用（不落库，在有界线程池中排队）
+                        // 同步的 /api/routes/ai-generate 会占住请求线程直到生成结束，仅对登录用户开放
                         .requestMatchers(HttpMethod.GET, "/api/routes/**").permitAll()
-                        .requestMatchers(HttpMethod.POST, "/api/routes/ai-generate").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/routes/ai-generate/jobs",
+                                "/api/routes/ai-generate/stream").permitAll()
                         // 允许未登录用户查看公开的个人主页、游记、结伴列表等
                         // 注意：这里用单段通配符 * 匹配 /api/users/{id}/xxx（比 ** 更稳定）
                         .requestMatchers(HttpMethod.GET,
@@ -60,6 +66,8 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/api/companion/posts").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/companion/posts/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/feeds").permitAll()
+                        // 媒体按内容哈希寻址，<img> 标签无法携带 Authorization 头，读取放行
+                        .requestMatchers(HttpMethod.GET, "/api/media/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/comments").permitAll()
                         // 允许未登录用户查看点赞/收藏数（游记详情页等）
                         .requestMatchers(HttpMethod.GET, "/api/interactions/summary").permitAll()
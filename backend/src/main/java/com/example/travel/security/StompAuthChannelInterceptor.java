@@ -0,0 +1,104 @@
+package com.example.travel.security;
+
+import com.example.travel.companion.service.CompanionService;
+import com.example.travel.companion.service.PostChatSubscriptions;
+import io.jsonwebtoken.Claims;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.security.Principal;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * STOMP 入站鉴权：
+ * CONNECT 时校验 Authorization 头中的 JWT 并绑定用户；
+ * SUBSCRIBE 只允许订阅结伴群聊主题，且与 REST 接口相同，仅发起人或小队成员可订阅；
+ * 订阅通过后登记到 {@link PostChatSubscriptions}，成员退出或被移除后由其注销，UNSUBSCRIBE / DISCONNECT 时移除登记；
+ * 客户端 SEND 一律拒绝（发送消息走 REST 接口，便于统一校验与落库）。
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final Pattern POST_CHAT_TOPIC = Pattern.compile("^/topic/companion/posts/(\\d+)/chat$");
+
+    private final UserDetailsService userDetailsService;
+    private final CompanionService companionService;
+    private final PostChatSubscriptions postChatSubscriptions;
+
+    public StompAuthChannelInterceptor(UserDetailsService userDetailsService,
+                                       @Lazy CompanionService companionService,
+                                       PostChatSubscriptions postChatSubscriptions) {
+        this.userDetailsService = userDetailsService;
+        this.companionService = companionService;
+        this.postChatSubscriptions = postChatSubscriptions;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        StompCommand command = accessor.getCommand();
+        if (command == StompCommand.CONNECT) {
+            accessor.setUser(authenticate(accessor.getFirstNativeHeader("Authorization")));
+        } else if (command == StompCommand.SUBSCRIBE) {
+            Long postId = authorizeSubscribe(accessor.getUser(), accessor.getDestination());
+            postChatSubscriptions.add(accessor.getSessionId(), accessor.getSubscriptionId(), postId, accessor.getUser().getName());
+        } else if (command == StompCommand.UNSUBSCRIBE) {
+            postChatSubscriptions.remove(accessor.getSessionId(), accessor.getSubscriptionId());
+        } else if (command == StompCommand.DISCONNECT) {
+            postChatSubscriptions.removeSession(accessor.getSessionId());
+        } else if (command == StompCommand.SEND) {
+            throw new AccessDeniedException("请通过 REST 接口发送消息");
+        }
+        return message;
+    }
+
+    private Principal authenticate(String authHeader) {
+        if (!StringUtils.hasText(authHeader) || !authHeader.startsWith("Bearer ")) {
+            throw new AccessDeniedException("用户未登录");
+        }
+        String token = authHeader.substring(7);
+        try {
+            Claims claims = JwtUtil.extractAllClaims(token);
+            String username = claims.getSubject();
+            if (username == null || JwtUtil.isTokenExpired(token)) {
+                throw new AccessDeniedException("登录已过期");
+            }
+            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        } catch (AccessDeniedException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new AccessDeniedException("令牌无效");
+        }
+    }
+
+    private Long authorizeSubscribe(Principal user, String destination) {
+        if (user == null) {
+            throw new AccessDeniedException("用户未登录");
+        }
+        Matcher matcher = destination != null ? POST_CHAT_TOPIC.matcher(destination) : null;
+        if (matcher == null || !matcher.matches()) {
+            throw new AccessDeniedException("不支持订阅该主题");
+        }
+        Long postId = Long.valueOf(matcher.group(1));
+        if (!companionService.canAccessPostChat(postId, user.getName())) {
+            throw new AccessDeniedException("仅小队成员可订阅群聊消息，请先加入活动");
+        }
+        return postId;
+    }
+}
@@ -4,6 +4,7 @@ import com.example.travel.common.api.ApiResponse;
 import com.example.travel.common.exception.BusinessException;
 import com.example.travel.route.entity.TripPlan;
 import com.example.travel.route.repository.TripPlanRepository;
+import com.example.travel.route.service.RouteStatsService;
 import com.example.travel.social.entity.ContentFavorite;
 import com.example.travel.social.entity.ContentLike;
 import com.example.travel.social.entity.InteractionMessage;
@@ -36,6 +37,7 @@ public class InteractionController {
     private final TravelNoteRepository travelNoteRepository;
     private final TripPlanRepository tripPlanRepository;
     private final UserRepository userRepository;
+    private final RouteStatsService routeStatsService;
 
     public InteractionController(ContentLikeRepository likeRepository,
                                  ContentFavoriteRepository favoriteRepository,
@@ -43,7 +45,8 @@ public class InteractionController {
                                  InteractionMessageRepository interactionMessageRepository,
                                  TravelNoteRepository travelNoteRepository,
                                  TripPlanRepository tripPlanRepository,
-                                 UserRepository userRepository) {
+                                 UserRepository userRepository,
+                                 RouteStatsService routeStatsService) {
         this.likeRepository = likeRepository;
         this.favoriteRepository = favoriteRepository;
         this.commentRepository = commentRepository;
@@ -51,6 +54,7 @@ public class InteractionController {
         this.travelNoteRepository = travelNoteRepository;
         this.tripPlanRepository = tripPlanRepository;
         this.userRepository = userRepository;
+        this.routeStatsService = routeStatsService;
     }
 
     private User getCurrentUser() {
@@ -82,6 +86,7 @@ public class InteractionController {
     }
 
     @PostMapping("/likes")
+    @Transactional
     public ApiResponse<Void> like(@RequestBody InteractionRequest req) {
         User user = getCurrentUser();
         String targetType = req.getTargetType();
@@ -95,6 +100,7 @@ public class InteractionController {
             like.setTargetType(targetType);
             like.setTargetId(targetId);
             likeRepository.save(like);
+            routeStatsService.onLikeChanged(targetType, targetId, 1);
 
             // 为游记/路线点赞创建互动消息
             createLikeMessageIfNeeded(user, targetType, targetId);
@@ -154,11 +160,13 @@ public class InteractionController {
     public ApiResponse<Void> unlike(@RequestParam String targetType,
                                     @RequestParam Long targetId) {
         User user = getCurrentUser();
-        likeRepository.deleteByUserAndTargetTypeAndTargetId(user, targetType, targetId);
+        long removed = likeRepository.deleteByUserAndTargetTypeAndTargetId(user, targetType, targetId);
+        routeStatsService.onLikeChanged(targetType, targetId, -removed);
         return ApiResponse.success();
     }
 
     @PostMapping("/favorites")
+    @Transactional
     public ApiResponse<Void> favorite(@RequestBody InteractionRequest req) {
         User user = getCurrentUser();
         if (!favoriteRepository.existsByUserAndTargetTypeAndTargetId(user, req.getTargetType(), req.getTargetId())) {
@@ -167,6 +175,7 @@ public class InteractionController {
             fav.setTargetType(req.getTargetType());
             fav.setTargetId(req.getTargetId());
             favoriteRepository.save(fav);
+            routeStatsService.onFavoriteChanged(req.getTargetType(), req.getTargetId(), 1);
         }
         return ApiResponse.success();
     }
@@ -176,7 +185,8 @@ public class InteractionController {
     public ApiResponse<Void> unfavorite(@RequestParam String targetType,
                                         @RequestParam Long targetId) {
         User user = getCurrentUser();
-        favoriteRepository.deleteByUserAndTargetTypeAndTargetId(user, targetType, targetId);
+        long removed = favoriteRepository.deleteByUserAndTargetTypeAndTargetId(user, targetType, targetId);
+        routeStatsService.onFavoriteChanged(targetType, targetId, -removed);
         return ApiResponse.success();
     }
 
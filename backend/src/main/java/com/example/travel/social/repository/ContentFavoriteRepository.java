@@ -14,7 +14,7 @@ public interface ContentFavoriteRepository extends JpaRepository<ContentFavorite
 
     boolean existsByUserAndTargetTypeAndTargetId(User user, String targetType, Long targetId);
 
-    void deleteByUserAndTargetTypeAndTargetId(User user, String targetType, Long targetId);
+    long deleteByUserAndTargetTypeAndTargetId(User user, String targetType, Long targetId);
 
     List<ContentFavorite> findByUserOrderByCreatedAtDesc(User user);
 }
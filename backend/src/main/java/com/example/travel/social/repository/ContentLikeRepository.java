@@ -14,6 +14,6 @@ public interface ContentLikeRepository extends JpaRepository<ContentLike, Long>
 
     boolean existsByUserAndTargetTypeAndTargetId(User user, String targetType, Long targetId);
 
-    void deleteByUserAndTargetTypeAndTargetId(User user, String targetType, Long targetId);
+    long deleteByUserAndTargetTypeAndTargetId(User user, String targetType, Long targetId);
 }
 
@@ -2,12 +2,19 @@ package com.example.travel.social.repository;
 
 import com.example.travel.social.entity.PrivateMessage;
 import com.example.travel.social.entity.PrivateConversation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface PrivateMessageRepository extends JpaRepository<PrivateMessage, Long> {
 
     List<PrivateMessage> findByConversationOrderByCreatedAtAsc(PrivateConversation conversation);
+
+    /** 媒体迁移：仍以 base64 内联存储的图片消息 ID */
+    @Query("SELECT m.id FROM PrivateMessage m WHERE m.type = 'image' AND m.content LIKE 'data:%' AND m.id > :afterId ORDER BY m.id ASC")
+    List<Long> findInlineImageIds(@Param("afterId") Long afterId, Pageable pageable);
 }
 
@@ -1,6 +1,7 @@
 package com.example.travel.social.service;
 
 import com.example.travel.common.exception.BusinessException;
+import com.example.travel.common.tx.AfterCommit;
 import com.example.travel.social.dto.CommentDtos;
 import com.example.travel.social.entity.Comment;
 import com.example.travel.social.entity.InteractionMessage;
@@ -13,6 +14,8 @@ import com.example.travel.companion.entity.CompanionTeam;
 import com.example.travel.companion.entity.TeamMember;
 import com.example.travel.companion.repository.CompanionTeamRepository;
 import com.example.travel.companion.repository.TeamMemberRepository;
+import com.example.travel.companion.service.CompanionPopularityBoard;
+import com.example.travel.companion.service.CompanionPostIndex;
 import com.example.travel.user.entity.User;
 import com.example.travel.user.entity.UserProfile;
 import com.example.travel.user.entity.UserReputation;
@@ -40,6 +43,8 @@ public class CommentService {
     private final UserReputationRepository userReputationRepository;
     private final CompanionTeamRepository companionTeamRepository;
     private final TeamMemberRepository teamMemberRepository;
+    private final CompanionPostIndex companionPostIndex;
+    private final CompanionPopularityBoard companionPopularityBoard;
 
     public CommentService(CommentRepository commentRepository,
                           ContentLikeRepository contentLikeRepository,
@@ -49,7 +54,9 @@ public class CommentService {
                           UserProfileRepository userProfileRepository,
                           UserReputationRepository userReputationRepository,
                           CompanionTeamRepository companionTeamRepository,
-                          TeamMemberRepository teamMemberRepository) {
+                          TeamMemberRepository teamMemberRepository,
+                          CompanionPostIndex companionPostIndex,
+                          CompanionPopularityBoard companionPopularityBoard) {
         this.commentRepository = commentRepository;
         this.contentLikeRepository = contentLikeRepository;
         this.travelNoteRepository = travelNoteRepository;
@@ -59,6 +66,8 @@ public class CommentService {
         this.userReputationRepository = userReputationRepository;
         this.companionTeamRepository = companionTeamRepository;
         this.teamMemberRepository = teamMemberRepository;
+        this.companionPostIndex = companionPostIndex;
+        this.companionPopularityBoard = companionPopularityBoard;
     }
 
     private User getCurrentUser() {
@@ -218,6 +227,10 @@ public class CommentService {
         int currentScore = rep.getScore() == null ? 0 : rep.getScore();
         rep.setLevel(Math.max(1, currentScore / 20 + 1));
         userReputationRepository.save(rep);
+        AfterCommit.run(() -> {
+            companionPostIndex.onReputationChanged(userId, currentScore);
+            companionPopularityBoard.onReputationChanged(rep);
+        });
     }
 }
 
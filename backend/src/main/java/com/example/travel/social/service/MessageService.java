@@ -1,6 +1,7 @@
 package com.example.travel.social.service;
 
 import com.example.travel.common.exception.BusinessException;
+import com.example.travel.media.service.MediaStorageService;
 import com.example.travel.social.dto.MessageDtos;
 import com.example.travel.social.entity.InteractionMessage;
 import com.example.travel.social.entity.PrivateConversation;
@@ -34,19 +35,22 @@ public class MessageService {
     private final UserRepository userRepository;
     private final UserProfileRepository userProfileRepository;
     private final UserFollowRepository userFollowRepository;
+    private final MediaStorageService mediaStorageService;
 
     public MessageService(InteractionMessageRepository interactionMessageRepository,
                           PrivateConversationRepository privateConversationRepository,
                           PrivateMessageRepository privateMessageRepository,
                           UserRepository userRepository,
                           UserProfileRepository userProfileRepository,
-                          UserFollowRepository userFollowRepository) {
+                          UserFollowRepository userFollowRepository,
+                          MediaStorageService mediaStorageService) {
         this.interactionMessageRepository = interactionMessageRepository;
         this.privateConversationRepository = privateConversationRepository;
         this.privateMessageRepository = privateMessageRepository;
         this.userRepository = userRepository;
         this.userProfileRepository = userProfileRepository;
         this.userFollowRepository = userFollowRepository;
+        this.mediaStorageService = mediaStorageService;
     }
 
     private User getCurrentUser() {
@@ -264,7 +268,7 @@ public class MessageService {
 
     /**
      * 发送私信给指定用户，若会话不存在则创建。
-     * type 为 image 时 content 为图片 base64；为 spot 时 spotJson 必填；为 text 时 content 不能为空。
+     * type 为 image 时 content 为媒体引用（/api/media/{hash}）或图片 data URL（服务端转存为媒体引用）；为 spot 时 spotJson 必填；为 text 时 content 不能为空。
      */
     @Transactional
     public MessageDtos.ChatMessageItem sendChatMessage(Long peerUserId, String content, String type, String spotJson) {
@@ -312,6 +316,9 @@ public class MessageService {
         PrivateMessage msg = new PrivateMessage();
         msg.setConversation(conv);
         msg.setSender(current);
+        if ("image".equals(msgType)) {
+            content = mediaStorageService.normalizeImageContent(content, current.getId());
+        }
         msg.setContent(content != null ? content.trim() : "");
         msg.setType(msgType);
         if ("spot".equals(msgType) && spotJson != null && !spotJson.isBlank()) {
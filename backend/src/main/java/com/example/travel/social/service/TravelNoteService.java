@@ -3,6 +3,7 @@ package com.example.travel.social.service;
 import com.example.travel.common.exception.BusinessException;
 import com.example.travel.route.dto.TripPlanDtos;
 import com.example.travel.route.service.RoutePlanService;
+import com.example.travel.route.service.RouteStatsService;
 import com.example.travel.social.dto.TravelNoteDtos;
 import com.example.travel.social.entity.TravelNote;
 import com.example.travel.social.repository.CommentRepository;
@@ -30,19 +31,22 @@ public class TravelNoteService {
     private final ContentLikeRepository contentLikeRepository;
     private final CommentRepository commentRepository;
     private final RoutePlanService routePlanService;
+    private final RouteStatsService routeStatsService;
 
     public TravelNoteService(TravelNoteRepository travelNoteRepository,
                              UserRepository userRepository,
                              UserProfileRepository userProfileRepository,
                              ContentLikeRepository contentLikeRepository,
                              CommentRepository commentRepository,
-                             RoutePlanService routePlanService) {
+                             RoutePlanService routePlanService,
+                             RouteStatsService routeStatsService) {
         this.travelNoteRepository = travelNoteRepository;
         this.userRepository = userRepository;
         this.userProfileRepository = userProfileRepository;
         this.contentLikeRepository = contentLikeRepository;
         this.commentRepository = commentRepository;
         this.routePlanService = routePlanService;
+        this.routeStatsService = routeStatsService;
     }
 
     private User getCurrentUser() {
@@ -65,6 +69,7 @@ public class TravelNoteService {
         note.setRelatedPlanId(req.getRelatedPlanId());
         note.setDestination(req.getDestination());
         travelNoteRepository.save(note);
+        routeStatsService.onUsageChanged(null, note.getRelatedPlanId());
         return note.getId();
     }
 
@@ -143,6 +148,7 @@ public class TravelNoteService {
         note.setTitle(req.getTitle());
         note.setContent(req.getContent());
         note.setCoverImage(req.getCoverImage());
+        routeStatsService.onUsageChanged(note.getRelatedPlanId(), req.getRelatedPlanId());
         note.setRelatedPlanId(req.getRelatedPlanId());
         note.setDestination(req.getDestination());
         travelNoteRepository.save(note);
@@ -156,6 +162,7 @@ public class TravelNoteService {
         if (note.getAuthor() == null || !note.getAuthor().getId().equals(current.getId())) {
             throw BusinessException.forbidden("只能删除自己的游记");
         }
+        routeStatsService.onUsageChanged(note.getRelatedPlanId(), null);
         travelNoteRepository.delete(note);
     }
 
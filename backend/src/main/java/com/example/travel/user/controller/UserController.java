@@ -253,7 +253,8 @@ public class UserController {
         // 计算该用户所有内容收到的点赞 / 收藏数（基础版本：游记 + 路线 + 结伴帖子）
         java.util.List<TravelNote> userNotes = travelNoteRepository.findByAuthorOrderByCreatedAtDesc(target);
         java.util.List<TripPlan> userRoutes = tripPlanRepository.findByOwnerOrderByCreatedAtDesc(target);
-        java.util.List<CompanionPost> userPosts = companionPostRepository.findByCreatorAndVisibilityOrderByCreatedAtDesc(target, "public");
+        java.util.List<CompanionPost> userPosts = companionPostRepository.findByCreatorAndVisibilityOrderByCreatedAtDesc(target, "public")
+                .stream().filter(p -> !p.isDeleted()).toList();
 
         java.util.List<Long> noteIds = userNotes.stream().map(TravelNote::getId).toList();
         java.util.List<Long> routeIds = userRoutes.stream().map(TripPlan::getId).toList();
@@ -342,7 +343,8 @@ public class UserController {
     public ApiResponse<List<CompanionDtos.PostSummary>> listUserCompanions(@PathVariable Long userId) {
         User target = userRepository.findById(userId)
                 .orElseThrow(() -> BusinessException.badRequest("用户不存在"));
-        List<CompanionPost> posts = companionPostRepository.findByCreatorAndVisibilityOrderByCreatedAtDesc(target, "public");
+        List<CompanionPost> posts = companionPostRepository.findByCreatorAndVisibilityOrderByCreatedAtDesc(target, "public")
+                .stream().filter(p -> !p.isDeleted()).toList();
         List<CompanionDtos.PostSummary> list = posts.stream().map(p -> {
             CompanionDtos.PostSummary dto = new CompanionDtos.PostSummary();
             dto.setId(p.getId());
@@ -371,7 +373,8 @@ public class UserController {
         // 一个简化实现：先查出该用户作为发起人的所有结伴帖子，再取其对应的 teamId 列表作为评价目标
         User target = userRepository.findById(userId)
                 .orElseThrow(() -> BusinessException.badRequest("用户不存在"));
-        List<CompanionPost> posts = companionPostRepository.findByCreatorAndVisibilityOrderByCreatedAtDesc(target, "public");
+        List<CompanionPost> posts = companionPostRepository.findByCreatorAndVisibilityOrderByCreatedAtDesc(target, "public")
+                .stream().filter(p -> !p.isDeleted()).toList();
         List<Long> targetIds = posts.stream().map(CompanionPost::getId).toList();
         if (targetIds.isEmpty()) {
             CommentDtos.PagedResult empty = new CommentDtos.PagedResult();
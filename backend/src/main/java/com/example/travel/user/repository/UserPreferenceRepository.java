@@ -1,8 +1,25 @@
 package com.example.travel.user.repository;
 
 import com.example.travel.user.entity.UserPreference;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface UserPreferenceRepository extends JpaRepository<UserPreference, Long> {
-}
 
+    /**
+     * 按用户 ID 批量加载偏好（列表页批量组装用），连带 user 一并取回，
+     * 避免 @OneToOne 关联逐条补查。
+     */
+    @Query("SELECT p FROM UserPreference p JOIN FETCH p.user WHERE p.id IN :ids")
+    List<UserPreference> findAllWithUserByIdIn(@Param("ids") Collection<Long> ids);
+
+    /** 推荐预计算：按 ID 升序分段取设置了标签的用户 */
+    @Query("SELECT p.id FROM UserPreference p WHERE p.id > :afterId AND p.tags IS NOT NULL AND p.tags <> '' "
+            + "ORDER BY p.id ASC")
+    List<Long> findIdsWithTagsAfter(@Param("afterId") Long afterId, Pageable pageable);
+}
@@ -2,7 +2,18 @@ package com.example.travel.user.repository;
 
 import com.example.travel.user.entity.UserProfile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface UserProfileRepository extends JpaRepository<UserProfile, Long> {
-}
 
+    /**
+     * 按用户 ID 批量加载资料（列表页批量组装用），连带 user 一并取回，
+     * 避免 @OneToOne 关联逐条补查。
+     */
+    @Query("SELECT p FROM UserProfile p JOIN FETCH p.user WHERE p.id IN :ids")
+    List<UserProfile> findAllWithUserByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,120 @@
+package com.example.travel.companion.match;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 兼容度打分引擎的 JMH 基准：1 万 / 10 万 / 100 万候选，分别在 1、2、4 线程与全部核上取 Top-50，
+ * 另以「全部打分后整体排序」作对照。并行度翻倍时耗时应接近减半。
+ * <p>
+ * 运行：{@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.travel.companion.match.CompatibilityEngineBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CompatibilityEngineBenchmark {
+
+    private static final int TOP_K = 50;
+    private static final int TAG_VOCABULARY = 40;
+    private static final int STYLES = 6;
+
+    @Param({"10000", "100000", "1000000"})
+    public int candidates;
+
+    /** 打分池并行度；0 表示 CPU 核数 */
+    @Param({"1", "2", "4", "0"})
+    public int parallelism;
+
+    private CompatibilityEngine engine;
+    private MatchColumns columns;
+    private int[] slots;
+    private MatchQuery query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        int today = 20_000;
+        long[] postIds = new long[candidates];
+        int[] startDays = new int[candidates];
+        int[] endDays = new int[candidates];
+        int[] budgetMins = new int[candidates];
+        int[] budgetMaxs = new int[candidates];
+        int[][] tagIds = new int[candidates][];
+        int[] styleIds = new int[candidates];
+        int[] reputations = new int[candidates];
+        for (int i = 0; i < candidates; i++) {
+            postIds[i] = i + 1L;
+            startDays[i] = today + random.nextInt(365);
+            endDays[i] = startDays[i] + 1 + random.nextInt(14);
+            budgetMins[i] = 500 * (1 + random.nextInt(20));
+            budgetMaxs[i] = budgetMins[i] + 500 * (1 + random.nextInt(10));
+            tagIds[i] = randomTags(random, 1 + random.nextInt(5));
+            styleIds[i] = random.nextInt(STYLES);
+            reputations[i] = random.nextInt(300);
+        }
+        columns = new MatchColumns(postIds, startDays, endDays, budgetMins, budgetMaxs, tagIds, styleIds, reputations);
+        slots = new int[candidates];
+        for (int i = 0; i < candidates; i++) {
+            slots[i] = i;
+        }
+        int[] queryTags = randomTags(random, 4);
+        query = new MatchQuery(queryTags, queryTags.length, 2, 2000, 6000, today + 30, today + 120);
+        engine = new CompatibilityEngine(parallelism, 4096);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public List<CompatibilityEngine.Scored> topK() {
+        return engine.topK(columns, slots, query, MatchWeights.DEFAULT, TOP_K);
+    }
+
+    /** 对照：单线程给全部候选打分后整体排序，再截取前 K 个（旧实现的做法） */
+    @Benchmark
+    public CompatibilityEngine.Scored[] fullSortBaseline() {
+        CompatibilityEngine.Scored[] all = new CompatibilityEngine.Scored[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            int slot = slots[i];
+            all[i] = new CompatibilityEngine.Scored(columns.postIds()[slot],
+                    CompatibilityEngine.score(columns, slot, query, MatchWeights.DEFAULT));
+        }
+        Arrays.sort(all, CompatibilityEngine.Scored.ASCENDING.reversed());
+        return Arrays.copyOf(all, Math.min(TOP_K, all.length));
+    }
+
+    private static int[] randomTags(SplittableRandom random, int count) {
+        return random.ints(0, TAG_VOCABULARY).distinct().limit(count).sorted().toArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CompatibilityEngineBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
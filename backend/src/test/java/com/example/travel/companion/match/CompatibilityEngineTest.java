@@ -0,0 +1,74 @@
+package com.example.travel.companion.match;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 兼容度打分：各维度得分与并行 Top-K 结果（须与全部排序后截取一致）。
+ */
+class CompatibilityEngineTest {
+
+    @Test
+    void jaccardCountsQueryTagsMissingFromTheIndexInTheUnion() {
+        // 查询方 3 个标签，其中 1 个从未在索引中出现
+        assertThat(CompatibilityEngine.jaccard(new int[]{1, 4}, 3, new int[]{1, 2, 4})).isEqualTo(2.0 / 4);
+        assertThat(CompatibilityEngine.jaccard(new int[]{}, 0, new int[]{1})).isZero();
+        assertThat(CompatibilityEngine.jaccard(new int[]{1}, 1, new int[]{})).isZero();
+    }
+
+    @Test
+    void rangeOverlapIsRelativeToTheShorterRange() {
+        assertThat(CompatibilityEngine.rangeOverlap(0, 10, 5, 7)).isEqualTo(1.0);
+        assertThat(CompatibilityEngine.rangeOverlap(0, 10, 5, 15)).isEqualTo(0.5);
+        assertThat(CompatibilityEngine.rangeOverlap(0, 10, 11, 15)).isZero();
+        assertThat(CompatibilityEngine.rangeOverlap(Integer.MIN_VALUE, 10, 5, 15)).isEqualTo(0.5);
+    }
+
+    @Test
+    void parallelTopKMatchesFullSort() {
+        int n = 20_000;
+        SplittableRandom random = new SplittableRandom(7);
+        long[] postIds = new long[n];
+        int[] startDays = new int[n];
+        int[] endDays = new int[n];
+        int[] budgetMins = new int[n];
+        int[] budgetMaxs = new int[n];
+        int[][] tagIds = new int[n][];
+        int[] styleIds = new int[n];
+        int[] reputations = new int[n];
+        for (int i = 0; i < n; i++) {
+            postIds[i] = i + 1L;
+            startDays[i] = random.nextInt(365);
+            endDays[i] = startDays[i] + random.nextInt(10);
+            budgetMins[i] = random.nextInt(5000);
+            budgetMaxs[i] = budgetMins[i] + random.nextInt(5000);
+            tagIds[i] = random.ints(0, 30).distinct().limit(1 + random.nextInt(4)).sorted().toArray();
+            styleIds[i] = random.nextInt(5);
+            reputations[i] = random.nextInt(200);
+        }
+        MatchColumns columns = new MatchColumns(postIds, startDays, endDays, budgetMins, budgetMaxs,
+                tagIds, styleIds, reputations);
+        MatchQuery query = new MatchQuery(new int[]{2, 5, 9}, 3, 1, 1000, 4000, 30, 90);
+        int[] slots = IntStream.range(0, n).toArray();
+
+        CompatibilityEngine engine = new CompatibilityEngine(4, 256);
+        try {
+            List<CompatibilityEngine.Scored> top = engine.topK(columns, slots, query, MatchWeights.DEFAULT, 25);
+
+            CompatibilityEngine.Scored[] all = Arrays.stream(slots)
+                    .mapToObj(s -> new CompatibilityEngine.Scored(postIds[s],
+                            CompatibilityEngine.score(columns, s, query, MatchWeights.DEFAULT)))
+                    .sorted(CompatibilityEngine.Scored.ASCENDING.reversed())
+                    .toArray(CompatibilityEngine.Scored[]::new);
+            assertThat(top).containsExactly(Arrays.copyOf(all, 25));
+        } finally {
+            engine.shutdown();
+        }
+    }
+}
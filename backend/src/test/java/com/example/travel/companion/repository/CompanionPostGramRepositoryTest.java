@@ -0,0 +1,71 @@
+package com.example.travel.companion.repository;
+
+import com.example.travel.companion.entity.CompanionPost;
+import com.example.travel.companion.entity.CompanionPostGram;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 片段驱动的游标查询：回表子串校验与片段使用相同的规整（去空白、转小写），带空格或大小写不同的目的地同样命中。
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CompanionPostGramRepositoryTest {
+
+    private static final LocalDate START = LocalDate.of(2026, 11, 1);
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private CompanionPostGramRepository companionPostGramRepository;
+
+    @Test
+    void substringRecheckMatchesTheNormalizedDestination() {
+        Long spaced = post("West Lake 西湖", 0);
+        Long fullWidth = post("West　LAKE", 1);
+        post("Westminster", 2);
+
+        List<Long> ids = seek("we", "%westlake%");
+
+        assertThat(ids).containsExactly(spaced, fullWidth);
+    }
+
+    @Test
+    void likeWildcardsInTheQueryAreEscaped() {
+        Long literal = post("100%纯玩", 0);
+        post("100元团", 1);
+
+        assertThat(seek("10", "%100\\%%")).containsExactly(literal);
+    }
+
+    private List<Long> seek(String gram, String pattern) {
+        return companionPostGramRepository
+                .seekByGram(gram, START.minusDays(1), 0L, START.plusYears(1), pattern, PageRequest.of(0, 10))
+                .stream().map(CompanionPost::getId).toList();
+    }
+
+    /** 写入帖子及其前两个片段（足够驱动本测试的查询） */
+    private Long post(String destination, int dayOffset) {
+        CompanionPost post = new CompanionPost();
+        post.setDestination(destination);
+        post.setStartDate(START.plusDays(dayOffset));
+        post.setEndDate(START.plusDays(dayOffset + 2));
+        post.setVisibility("public");
+        post.setStatus("open");
+        Long id = em.persistAndFlush(post).getId();
+        String normalized = destination.replaceAll("[\\s　]", "").toLowerCase();
+        em.persistAndFlush(new CompanionPostGram(normalized.substring(0, 2), id, post.getStartDate()));
+        return id;
+    }
+}
@@ -0,0 +1,365 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.companion.entity.CompanionPost;
+import com.example.travel.companion.match.CompatibilityEngine;
+import com.example.travel.companion.repository.CompanionPostRepository;
+import com.example.travel.user.entity.User;
+import com.example.travel.user.entity.UserPreference;
+import com.example.travel.user.entity.UserReputation;
+import com.example.travel.user.repository.UserPreferenceRepository;
+import com.example.travel.user.repository.UserReputationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 推荐常驻索引：标签倒排表的候选选取、增量维护、重建期间的增量事件重放，以及热路径不访问数据库；
+ * 日期区间重叠搜索的周桶、超长行程、空日期 / 空预算与 (出发日, ID) 游标分页。
+ */
+class CompanionPostIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    /** 重叠搜索用的固定基准日 */
+    private static final LocalDate BASE = LocalDate.of(2026, 11, 2);
+
+    private final CompanionPostRepository postRepository = mock(CompanionPostRepository.class);
+    private final UserPreferenceRepository preferenceRepository = mock(UserPreferenceRepository.class);
+    private final UserReputationRepository reputationRepository = mock(UserReputationRepository.class);
+    private final Map<Long, UserPreference> preferences = new HashMap<>();
+    private final List<CompanionPost> posts = new ArrayList<>();
+
+    private CompatibilityEngine engine;
+    private CompanionPostIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(postRepository.findByStatusAndVisibilityAndEndDateGreaterThanEqual(any(), any(), any()))
+                .thenAnswer(inv -> List.copyOf(posts));
+        when(preferenceRepository.findAllWithUserByIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            return ids.stream().map(preferences::get).filter(p -> p != null).toList();
+        });
+        when(reputationRepository.findAllWithUserByIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            return ids.stream().map(id -> reputation(id, (int) (id * 10))).toList();
+        });
+        engine = new CompatibilityEngine(2, 256);
+        index = new CompanionPostIndex(postRepository, preferenceRepository, reputationRepository, engine);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void recommendsPostsOfCreatorsSharingATagAndSkipsOwnPosts() {
+        preference(1L, "美食,摄影");
+        preference(2L, "美食");
+        preference(3L, "徒步");
+        preference(4L, "摄影,美食");
+        posts.add(post(100L, 1L, 10));
+        posts.add(post(200L, 2L, 10));
+        posts.add(post(300L, 3L, 10));
+        posts.add(post(400L, 4L, 10));
+        index.rebuild();
+
+        List<Long> ids = index.recommendByTags(1L, 10, TODAY.minusMonths(1), TODAY.plusYears(1));
+
+        // 3 号没有共同标签，100 是自己的帖子；4 号标签完全相同，排在只有一个共同标签的 2 号之前
+        assertThat(ids).containsExactly(400L, 200L);
+    }
+
+    @Test
+    void hotPathDoesNotTouchTheDatabase() {
+        preference(1L, "美食");
+        preference(2L, "美食");
+        posts.add(post(200L, 2L, 10));
+        index.rebuild();
+        index.recommendByTags(1L, 10, TODAY.minusMonths(1), TODAY.plusYears(1));
+        clearInvocations(postRepository, preferenceRepository, reputationRepository);
+
+        List<Long> ids = index.recommendByTags(1L, 10, TODAY.minusMonths(1), TODAY.plusYears(1));
+
+        assertThat(ids).containsExactly(200L);
+        verifyNoInteractions(postRepository, preferenceRepository, reputationRepository);
+    }
+
+    @Test
+    void postsOutsideTheDateWindowAreNotCandidates() {
+        preference(1L, "美食");
+        preference(2L, "美食");
+        posts.add(post(200L, 2L, 10));
+        posts.add(post(201L, 2L, 500));
+        index.rebuild();
+
+        List<Long> ids = index.recommendByTags(1L, 10, TODAY.minusMonths(1), TODAY.plusMonths(6));
+
+        assertThat(ids).containsExactly(200L);
+    }
+
+    @Test
+    void incrementalUpdatesFollowPublishDeleteAndPreferenceEdits() {
+        preference(1L, "美食");
+        preference(2L, "徒步");
+        index.rebuild();
+        assertThat(index.recommendByTags(1L, 10, TODAY.minusMonths(1), TODAY.plusYears(1))).isEmpty();
+
+        index.onPostSaved(post(200L, 2L, 10));
+        assertThat(index.recommendByTags(1L, 10, TODAY.minusMonths(1), TODAY.plusYears(1))).isEmpty();
+
+        // 发起人改了标签：已发布的帖子挪到新标签下
+        preference(2L, "美食,徒步");
+        index.onPreferenceChanged(2L);
+        assertThat(index.recommendByTags(1L, 10, TODAY.minusMonths(1), TODAY.plusYears(1))).containsExactly(200L);
+
+        index.onPostRemoved(200L);
+        assertThat(index.recommendByTags(1L, 10, TODAY.minusMonths(1), TODAY.plusYears(1))).isEmpty();
+    }
+
+    @Test
+    void closedOrPrivatePostsLeaveTheIndex() {
+        preference(1L, "美食");
+        preference(2L, "美食");
+        CompanionPost post = post(200L, 2L, 10);
+        index.onPostSaved(post);
+        assertThat(index.recommendByTags(1L, 10, TODAY.minusMonths(1), TODAY.plusYears(1))).containsExactly(200L);
+
+        post.setVisibility("private");
+        index.onPostSaved(post);
+
+        assertThat(index.recommendByTags(1L, 10, TODAY.minusMonths(1), TODAY.plusYears(1))).isEmpty();
+    }
+
+    @Test
+    void eventsCommittedWhileRebuildLoadsSurviveTheSwap() {
+        preference(1L, "美食");
+        preference(2L, "美食");
+        posts.add(post(200L, 2L, 10));
+        posts.add(post(201L, 2L, 10));
+        index.rebuild();
+        // 重建读到的是旧快照（仍含 201、不含 300）；读取期间 300 发布、201 被删除
+        when(postRepository.findByStatusAndVisibilityAndEndDateGreaterThanEqual(any(), any(), any()))
+                .thenAnswer(inv -> {
+                    List<CompanionPost> snapshot = List.copyOf(posts);
+                    index.onPostSaved(post(300L, 2L, 10));
+                    index.onPostRemoved(201L);
+                    return snapshot;
+                });
+
+        index.rebuild();
+
+        assertThat(index.recommendByTags(1L, 10, TODAY.minusMonths(1), TODAY.plusYears(1)))
+                .containsExactlyInAnyOrder(200L, 300L);
+    }
+
+    @Test
+    void preferenceAndReputationChangesDuringRebuildAreReplayed() {
+        preference(1L, "美食");
+        preference(2L, "徒步");
+        preference(3L, "美食");
+        posts.add(post(200L, 2L, 10));
+        posts.add(post(300L, 3L, 10));
+        index.rebuild();
+        when(postRepository.findByStatusAndVisibilityAndEndDateGreaterThanEqual(any(), any(), any()))
+                .thenAnswer(inv -> {
+                    List<CompanionPost> snapshot = List.copyOf(posts);
+                    // 快照之后 2 号改了标签，且信誉分高于 3 号
+                    preference(2L, "美食");
+                    index.onPreferenceChanged(2L);
+                    index.onReputationChanged(2L, 1000);
+                    return snapshot;
+                });
+        // 让重建读到的偏好仍是旧值
+        UserPreference stale = new UserPreference();
+        stale.setId(2L);
+        stale.setUser(user(2L));
+        stale.setTags("徒步");
+        when(preferenceRepository.findAllWithUserByIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            return ids.stream().map(id -> id == 2L && ids.size() > 1 ? stale : preferences.get(id))
+                    .filter(p -> p != null).toList();
+        });
+
+        index.rebuild();
+
+        assertThat(index.recommendByTags(1L, 10, TODAY.minusMonths(1), TODAY.plusYears(1)))
+                .containsExactly(200L, 300L);
+    }
+
+    @Test
+    void eventsAfterARebuildAreNotReplayedByTheNextOne() {
+        preference(1L, "美食");
+        preference(2L, "美食");
+        posts.add(post(200L, 2L, 10));
+        index.rebuild();
+        index.onPostRemoved(200L);
+        posts.clear();
+
+        index.rebuild();
+        posts.add(post(200L, 2L, 10));
+        index.rebuild();
+
+        assertThat(index.recommendByTags(1L, 10, TODAY.minusMonths(1), TODAY.plusYears(1))).containsExactly(200L);
+    }
+
+    @Test
+    void overlapMatchesPartialOverlapOnBothEdgesAndVeryLongTrips() {
+        LocalDate from = BASE.plusDays(10);
+        LocalDate to = BASE.plusDays(20);
+        index.onPostSaved(trip(1L, BASE.plusDays(5), BASE.plusDays(10), null, null));
+        index.onPostSaved(trip(2L, BASE.plusDays(20), BASE.plusDays(25), null, null));
+        index.onPostSaved(trip(3L, BASE.plusDays(1), BASE.plusDays(9), null, null));
+        index.onPostSaved(trip(4L, BASE.plusDays(21), BASE.plusDays(30), null, null));
+        index.onPostSaved(trip(5L, BASE.plusDays(5), BASE.plusDays(30), null, null));
+        // 跨度超过 MAX_BUCKET_WEEKS 的行程不进周桶，单独参与校验
+        index.onPostSaved(trip(6L, BASE.minusDays(100), BASE.plusDays(200), null, null));
+        index.onPostSaved(trip(7L, BASE.minusDays(400), BASE.minusDays(200), null, null));
+
+        assertThat(overlapIds(from, to, null, null)).containsExactly(6L, 1L, 5L, 2L);
+    }
+
+    @Test
+    void missingDatesAndBudgetsAreTreatedAsUnbounded() {
+        LocalDate from = BASE.plusDays(10);
+        LocalDate to = BASE.plusDays(20);
+        index.onPostSaved(trip(1L, null, BASE.plusDays(15), null, null));
+        index.onPostSaved(trip(2L, BASE.plusDays(12), null, null, null));
+        index.onPostSaved(trip(3L, null, null, null, null));
+        index.onPostSaved(trip(4L, null, BASE.plusDays(5), null, null));
+        index.onPostSaved(trip(5L, BASE.plusDays(25), null, null, null));
+
+        assertThat(overlapIds(from, to, null, null)).containsExactlyInAnyOrder(1L, 2L, 3L);
+
+        index.onPostSaved(trip(10L, BASE.plusDays(12), BASE.plusDays(14), 1500, 3000));
+        index.onPostSaved(trip(11L, BASE.plusDays(12), BASE.plusDays(14), 2500, null));
+        index.onPostSaved(trip(12L, BASE.plusDays(12), BASE.plusDays(14), null, 800));
+        index.onPostSaved(trip(13L, BASE.plusDays(12), BASE.plusDays(14), null, 1000));
+
+        assertThat(overlapIds(from, to, 1000, 2000)).containsExactlyInAnyOrder(1L, 2L, 3L, 10L, 13L);
+        assertThat(overlapIds(from, to, null, 900)).containsExactlyInAnyOrder(1L, 2L, 3L, 12L, 13L);
+        assertThat(overlapIds(from, to, 2600, null)).containsExactlyInAnyOrder(1L, 2L, 3L, 10L, 11L);
+    }
+
+    @Test
+    void keysetPagingAcrossIdenticalStartDaysHasNoDuplicatesOrGaps() {
+        List<Long> expected = new ArrayList<>();
+        index.onPostSaved(trip(50L, BASE.plusDays(9), BASE.plusDays(12), null, null));
+        expected.add(50L);
+        for (long id = 20; id < 27; id++) {
+            index.onPostSaved(trip(id, BASE.plusDays(10), BASE.plusDays(11), null, null));
+            expected.add(id);
+        }
+        index.onPostSaved(trip(5L, BASE.plusDays(11), BASE.plusDays(12), null, null));
+        index.onPostSaved(trip(3L, BASE.plusDays(11), BASE.plusDays(13), null, null));
+        expected.add(3L);
+        expected.add(5L);
+
+        List<Long> seen = new ArrayList<>();
+        int afterDay = Integer.MIN_VALUE;
+        long afterId = 0L;
+        List<CompanionPostIndex.OverlapHit> page;
+        do {
+            page = index.searchOverlapping(BASE.plusDays(10), BASE.plusDays(11), null, null, null,
+                    afterDay, afterId, 3);
+            page.forEach(hit -> seen.add(hit.postId()));
+            if (!page.isEmpty()) {
+                CompanionPostIndex.OverlapHit last = page.get(page.size() - 1);
+                afterDay = last.startDay();
+                afterId = last.postId();
+            }
+        } while (page.size() == 3);
+
+        assertThat(seen).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void removalClearsTheWeekBuckets() {
+        index.onPostSaved(trip(1L, BASE.plusDays(10), BASE.plusDays(24), null, null));
+        index.onPostSaved(trip(2L, BASE.minusDays(100), BASE.plusDays(200), null, null));
+        assertThat(index.weekBucketCount()).isBetween(3, 4);
+
+        index.onPostRemoved(1L);
+        index.onPostRemoved(2L);
+
+        assertThat(index.weekBucketCount()).isZero();
+        assertThat(overlapIds(BASE, BASE.plusDays(30), null, null)).isEmpty();
+
+        // 复用空出的槽位后，旧日期所在的周不再命中
+        index.onPostSaved(trip(3L, BASE.plusDays(60), BASE.plusDays(62), null, null));
+        assertThat(index.weekBucketCount()).isBetween(1, 2);
+        assertThat(overlapIds(BASE, BASE.plusDays(30), null, null)).isEmpty();
+        assertThat(overlapIds(BASE.plusDays(61), BASE.plusDays(61), null, null)).containsExactly(3L);
+    }
+
+    @Test
+    void userWithoutTagsGetsNullSoCallerFallsBack() {
+        preference(2L, "美食");
+        posts.add(post(200L, 2L, 10));
+        index.rebuild();
+
+        assertThat(index.recommendByTags(9L, 10, TODAY.minusMonths(1), TODAY.plusYears(1))).isNull();
+    }
+
+    private List<Long> overlapIds(LocalDate from, LocalDate to, Integer budgetMin, Integer budgetMax) {
+        return index.searchOverlapping(from, to, budgetMin, budgetMax, null, Integer.MIN_VALUE, 0L, 100)
+                .stream().map(CompanionPostIndex.OverlapHit::postId).toList();
+    }
+
+    private static CompanionPost trip(long id, LocalDate start, LocalDate end, Integer budgetMin, Integer budgetMax) {
+        CompanionPost post = post(id, 2L, 0);
+        post.setStartDate(start);
+        post.setEndDate(end);
+        post.setBudgetMin(budgetMin);
+        post.setBudgetMax(budgetMax);
+        return post;
+    }
+
+    private void preference(long userId, String tags) {
+        UserPreference pref = new UserPreference();
+        pref.setId(userId);
+        pref.setUser(user(userId));
+        pref.setTags(tags);
+        preferences.put(userId, pref);
+    }
+
+    private static UserReputation reputation(long userId, int score) {
+        UserReputation rep = new UserReputation();
+        rep.setId(userId);
+        rep.setScore(score);
+        return rep;
+    }
+
+    private static CompanionPost post(long id, long creatorId, int startInDays) {
+        CompanionPost post = new CompanionPost();
+        post.setId(id);
+        post.setCreator(user(creatorId));
+        post.setDestination("杭州");
+        post.setStartDate(TODAY.plusDays(startInDays));
+        post.setEndDate(TODAY.plusDays(startInDays + 3));
+        post.setStatus("open");
+        post.setVisibility("public");
+        return post;
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+}
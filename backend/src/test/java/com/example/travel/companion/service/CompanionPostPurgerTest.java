@@ -0,0 +1,200 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.companion.entity.CompanionPost;
+import com.example.travel.companion.entity.CompanionPostGram;
+import com.example.travel.companion.entity.CompanionTeam;
+import com.example.travel.companion.entity.PostChatMessage;
+import com.example.travel.companion.entity.TeamMember;
+import com.example.travel.companion.entity.TeamSummary;
+import com.example.travel.companion.repository.CompanionPostGramRepository;
+import com.example.travel.companion.repository.CompanionPostRepository;
+import com.example.travel.companion.repository.CompanionTeamRepository;
+import com.example.travel.companion.repository.PostChatMessageRepository;
+import com.example.travel.companion.repository.TeamMemberRepository;
+import com.example.travel.companion.repository.TeamShareRepository;
+import com.example.travel.companion.repository.TeamSummaryRepository;
+import com.example.travel.user.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 结伴帖级联删除：同步模式在当前事务内删掉成员、小队、群聊与 n-gram；异步模式立即隐藏帖子并摘掉收件箱入口，
+ * 后台回收按批大小分批删除群聊，最后删小队与帖子本身。
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CompanionPostPurgerTest {
+
+    private static final LocalDate START = LocalDate.of(2026, 11, 1);
+    private static final int MESSAGES = 5;
+    private static final int BATCH = 2;
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private CompanionPostRepository companionPostRepository;
+    @Autowired
+    private CompanionPostGramRepository companionPostGramRepository;
+    @Autowired
+    private CompanionTeamRepository companionTeamRepository;
+    @Autowired
+    private TeamMemberRepository teamMemberRepository;
+    @Autowired
+    private TeamShareRepository teamShareRepository;
+    @Autowired
+    private TeamSummaryRepository teamSummaryRepository;
+    @Autowired
+    private PostChatMessageRepository postChatMessageRepository;
+
+    @Test
+    void syncDeleteRemovesTeamsMembersChatAndGrams() {
+        Seed seed = seed();
+
+        purger("sync", postChatMessageRepository).delete(em.find(CompanionPost.class, seed.postId));
+        em.flush();
+        em.clear();
+
+        assertThat(em.find(CompanionPost.class, seed.postId)).isNull();
+        assertNoChildrenLeft(seed);
+    }
+
+    @Test
+    void asyncDeleteHidesThePostImmediately() {
+        Seed seed = seed();
+
+        List<Long> teamIds = purger("async", postChatMessageRepository).delete(em.find(CompanionPost.class, seed.postId));
+        em.flush();
+        em.clear();
+
+        assertThat(teamIds).containsExactly(seed.teamId);
+        assertThat(em.find(CompanionPost.class, seed.postId).isDeleted()).isTrue();
+        assertThat(companionPostRepository.seekByStartDate(START.minusDays(1), 0L, START.plusYears(1), PageRequest.of(0, 10)))
+                .extracting(CompanionPost::getId).doesNotContain(seed.postId);
+        assertThat(teamSummaryRepository.findInboxByUserId(seed.memberId)).isEmpty();
+        assertThat(count("SELECT COUNT(g) FROM CompanionPostGram g WHERE g.postId = :id", seed.postId)).isZero();
+        // 成员与群聊留给后台回收
+        assertThat(count("SELECT COUNT(m) FROM TeamMember m WHERE m.team.id = :id", seed.teamId)).isEqualTo(2);
+        assertThat(count("SELECT COUNT(m) FROM PostChatMessage m WHERE m.post.id = :id", seed.postId)).isEqualTo(MESSAGES);
+    }
+
+    @Test
+    void purgeReclaimsChatInBoundedBatchesThenTheTeamsAndPost() {
+        Seed seed = seed();
+        PostChatMessageRepository chat = mock(PostChatMessageRepository.class, delegatesTo(postChatMessageRepository));
+        CompanionPostPurger purger = purger("async", chat);
+        purger.delete(em.find(CompanionPost.class, seed.postId));
+        em.flush();
+        em.clear();
+
+        purger.purgeDeleted();
+        em.flush();
+        em.clear();
+
+        int batches = (MESSAGES + BATCH - 1) / BATCH;
+        verify(chat, times(batches)).deleteByIdIn(anyCollection());
+        verify(chat, times(batches)).deleteByIdIn(argThat((Collection<Long> ids) -> ids.size() <= BATCH));
+        assertThat(em.find(CompanionPost.class, seed.postId)).isNull();
+        assertNoChildrenLeft(seed);
+        assertThat(companionPostRepository.findIdsByStatus(CompanionPost.STATUS_DELETED, PageRequest.of(0, 10)))
+                .doesNotContain(seed.postId);
+    }
+
+    private CompanionPostPurger purger(String mode, PostChatMessageRepository chat) {
+        return new CompanionPostPurger(companionPostRepository, companionPostGramRepository, companionTeamRepository,
+                teamMemberRepository, teamShareRepository, teamSummaryRepository, chat,
+                new TransactionTemplate(transactionManager), mode, BATCH);
+    }
+
+    private void assertNoChildrenLeft(Seed seed) {
+        assertThat(count("SELECT COUNT(t) FROM CompanionTeam t WHERE t.id = :id", seed.teamId)).isZero();
+        assertThat(count("SELECT COUNT(m) FROM TeamMember m WHERE m.team.id = :id", seed.teamId)).isZero();
+        assertThat(count("SELECT COUNT(s) FROM TeamSummary s WHERE s.teamId = :id", seed.teamId)).isZero();
+        assertThat(count("SELECT COUNT(m) FROM PostChatMessage m WHERE m.post.id = :id", seed.postId)).isZero();
+        assertThat(count("SELECT COUNT(g) FROM CompanionPostGram g WHERE g.postId = :id", seed.postId)).isZero();
+    }
+
+    private long count(String jpql, Long id) {
+        return em.getEntityManager().createQuery(jpql, Long.class).setParameter("id", id).getSingleResult();
+    }
+
+    private record Seed(Long postId, Long teamId, Long memberId) {
+    }
+
+    /** 帖子 + 一个两人小队（含摘要）+ 若干条群聊 + 两个片段 */
+    private Seed seed() {
+        User leader = user("purge-leader");
+        User member = user("purge-member");
+        CompanionPost post = new CompanionPost();
+        post.setCreator(leader);
+        post.setDestination("西湖");
+        post.setStartDate(START);
+        post.setEndDate(START.plusDays(2));
+        post.setVisibility("public");
+        post.setStatus("open");
+        em.persist(post);
+        CompanionTeam team = new CompanionTeam();
+        team.setPost(post);
+        team.setName("西湖小队");
+        team.setStatus("forming");
+        team.setJoinedCount(2);
+        em.persist(team);
+        member(team, leader, "leader");
+        member(team, member, "member");
+        TeamSummary summary = new TeamSummary();
+        summary.setTeamId(team.getId());
+        summary.setPostId(post.getId());
+        summary.setMemberCount(2);
+        em.persist(summary);
+        for (int i = 0; i < MESSAGES; i++) {
+            PostChatMessage message = new PostChatMessage();
+            message.setPost(post);
+            message.setUser(i % 2 == 0 ? leader : member);
+            message.setContent("消息 " + i);
+            message.setType("text");
+            em.persist(message);
+        }
+        em.persist(new CompanionPostGram("西湖", post.getId(), START));
+        em.persist(new CompanionPostGram("湖", post.getId(), START));
+        em.flush();
+        em.clear();
+        return new Seed(post.getId(), team.getId(), member.getId());
+    }
+
+    private User user(String phone) {
+        User user = new User();
+        user.setPhone(phone);
+        user.setPassword("x");
+        return em.persist(user);
+    }
+
+    private void member(CompanionTeam team, User user, String role) {
+        TeamMember m = new TeamMember();
+        m.setTeam(team);
+        m.setUser(user);
+        m.setRole(role);
+        m.setState("joined");
+        em.persist(m);
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.companion.entity.CompanionPost;
+import com.example.travel.companion.entity.CompanionRecommendation;
+import com.example.travel.companion.match.CompatibilityEngine;
+import com.example.travel.companion.repository.CompanionPostRepository;
+import com.example.travel.companion.repository.CompanionRecommendationRepository;
+import com.example.travel.user.entity.User;
+import com.example.travel.user.entity.UserPreference;
+import com.example.travel.user.repository.UserPreferenceRepository;
+import com.example.travel.user.repository.UserReputationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 预计算推荐的读取：按存储顺序取前 limit 个；截断列表不够用时回退在线打分；
+ * 已关闭 / 转私密的帖子被剔除；预计算之后出现的新候选帖子使结果作废。
+ */
+class CompanionRecommendationPrecomputerTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final LocalDateTime COMPUTED_AT = LocalDateTime.now().minusHours(6);
+    private static final int LIST_SIZE = 4;
+
+    private final CompanionPostRepository postRepository = mock(CompanionPostRepository.class);
+    private final UserPreferenceRepository preferenceRepository = mock(UserPreferenceRepository.class);
+    private final UserReputationRepository reputationRepository = mock(UserReputationRepository.class);
+    private final CompanionRecommendationRepository recommendationRepository = mock(CompanionRecommendationRepository.class);
+    private final Map<Long, UserPreference> preferences = new HashMap<>();
+    private final Map<Long, CompanionRecommendation> rows = new HashMap<>();
+    private final List<CompanionPost> posts = new ArrayList<>();
+
+    private CompatibilityEngine engine;
+    private CompanionPostIndex index;
+    private CompanionRecommendationPrecomputer precomputer;
+
+    @BeforeEach
+    void setUp() {
+        when(postRepository.findByStatusAndVisibilityAndEndDateGreaterThanEqual(any(), any(), any()))
+                .thenAnswer(inv -> List.copyOf(posts));
+        when(preferenceRepository.findAllWithUserByIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            return ids.stream().map(preferences::get).filter(p -> p != null).toList();
+        });
+        when(reputationRepository.findAllWithUserByIdIn(anyCollection())).thenReturn(List.of());
+        when(recommendationRepository.findById(any()))
+                .thenAnswer(inv -> Optional.ofNullable(rows.get(inv.<Long>getArgument(0))));
+        engine = new CompatibilityEngine(2, 256);
+        index = new CompanionPostIndex(postRepository, preferenceRepository, reputationRepository, engine);
+        precomputer = new CompanionRecommendationPrecomputer(recommendationRepository, preferenceRepository, index,
+                mock(TransactionTemplate.class), LIST_SIZE, 500, 1);
+
+        preference(1L, "美食");
+        preference(2L, "美食");
+    }
+
+    @AfterEach
+    void tearDown() {
+        precomputer.shutdown();
+        engine.shutdown();
+    }
+
+    @Test
+    void servesThePrefixOfTheStoredList() {
+        posts.add(post(200L, 2L));
+        posts.add(post(201L, 2L));
+        index.rebuild();
+        stored(1L, 201L, 200L);
+
+        assertThat(precomputer.lookup(1L, 1)).containsExactly(201L);
+        assertThat(precomputer.lookup(1L, 10)).containsExactly(201L, 200L);
+    }
+
+    @Test
+    void missingRowFallsBackToOnlineScoring() {
+        index.rebuild();
+
+        assertThat(precomputer.lookup(1L, 10)).isNull();
+    }
+
+    @Test
+    void truncatedListShorterThanTheLimitFallsBack() {
+        posts.add(post(200L, 2L));
+        posts.add(post(201L, 2L));
+        posts.add(post(202L, 2L));
+        posts.add(post(203L, 2L));
+        index.rebuild();
+        stored(1L, 203L, 202L, 201L, 200L);
+
+        assertThat(precomputer.lookup(1L, LIST_SIZE)).containsExactly(203L, 202L, 201L, 200L);
+        // 存满 LIST_SIZE 个说明后面可能还有，没存下的部分只能在线算
+        assertThat(precomputer.lookup(1L, LIST_SIZE + 1)).isNull();
+    }
+
+    @Test
+    void closedOrPrivatePostsAreDropped() {
+        CompanionPost closed = post(200L, 2L);
+        CompanionPost hidden = post(201L, 2L);
+        posts.add(closed);
+        posts.add(hidden);
+        posts.add(post(202L, 2L));
+        index.rebuild();
+        stored(1L, 200L, 202L, 201L);
+
+        closed.setStatus("closed");
+        index.onPostSaved(closed);
+        hidden.setVisibility("private");
+        index.onPostSaved(hidden);
+
+        assertThat(precomputer.lookup(1L, 2)).containsExactly(202L);
+    }
+
+    @Test
+    void droppingPostsFromATruncatedListFallsBackWhenItRunsShort() {
+        CompanionPost closed = post(200L, 2L);
+        posts.add(closed);
+        posts.add(post(201L, 2L));
+        posts.add(post(202L, 2L));
+        posts.add(post(203L, 2L));
+        index.rebuild();
+        stored(1L, 200L, 201L, 202L, 203L);
+        assertThat(precomputer.lookup(1L, 3)).containsExactly(200L, 201L, 202L);
+
+        index.onPostRemoved(closed.getId());
+
+        assertThat(precomputer.lookup(1L, 3)).containsExactly(201L, 202L, 203L);
+        assertThat(precomputer.lookup(1L, 4)).isNull();
+    }
+
+    @Test
+    void newCandidatePostAfterComputationInvalidatesTheList() {
+        posts.add(post(200L, 2L));
+        index.rebuild();
+        stored(1L, 200L);
+        assertThat(precomputer.lookup(1L, 10)).containsExactly(200L);
+
+        CompanionPost fresh = post(300L, 2L);
+        fresh.setCreatedAt(COMPUTED_AT.plusHours(1));
+        index.onPostSaved(fresh);
+
+        assertThat(precomputer.lookup(1L, 10)).isNull();
+    }
+
+    @Test
+    void newPostsThatAreNotCandidatesKeepTheList() {
+        preference(3L, "徒步");
+        posts.add(post(200L, 2L));
+        index.rebuild();
+        stored(1L, 200L);
+
+        // 没有共同标签的发起人、以及用户自己发的新帖都不影响其推荐
+        CompanionPost unrelated = post(300L, 3L);
+        unrelated.setCreatedAt(COMPUTED_AT.plusHours(1));
+        index.onPostSaved(unrelated);
+        CompanionPost own = post(301L, 1L);
+        own.setCreatedAt(COMPUTED_AT.plusHours(1));
+        index.onPostSaved(own);
+
+        assertThat(precomputer.lookup(1L, 10)).containsExactly(200L);
+    }
+
+    private void stored(long userId, Long... postIds) {
+        CompanionRecommendation row = new CompanionRecommendation();
+        row.setUserId(userId);
+        row.setPostIds(CompanionRecommendationPrecomputer.encode(List.of(postIds)));
+        row.setComputedAt(COMPUTED_AT);
+        rows.put(userId, row);
+    }
+
+    private void preference(long userId, String tags) {
+        UserPreference pref = new UserPreference();
+        pref.setId(userId);
+        pref.setUser(user(userId));
+        pref.setTags(tags);
+        preferences.put(userId, pref);
+    }
+
+    /** 预计算之前创建的帖子 */
+    private static CompanionPost post(long id, long creatorId) {
+        CompanionPost post = new CompanionPost();
+        post.setId(id);
+        post.setCreator(user(creatorId));
+        post.setDestination("杭州");
+        post.setStartDate(TODAY.plusDays(10));
+        post.setEndDate(TODAY.plusDays(13));
+        post.setStatus("open");
+        post.setVisibility("public");
+        post.setCreatedAt(COMPUTED_AT.minusDays(1));
+        return post;
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.travel.companion.service;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * 测试用的 CompanionService：按构造器参数类型接入传入的真实协作者（通常是 H2 上的仓库），
+ * 其余参数一律用 mock 补齐。构造器增减依赖时各测试无需跟着改。
+ */
+final class CompanionServiceFixture {
+
+    private CompanionServiceFixture() {
+    }
+
+    static CompanionService companionService(Object... collaborators) {
+        Constructor<?> constructor = CompanionService.class.getConstructors()[0];
+        Object[] args = Arrays.stream(constructor.getParameterTypes())
+                .map(type -> Arrays.stream(collaborators).filter(type::isInstance).findFirst()
+                        .orElseGet(() -> mock(type)))
+                .toArray();
+        try {
+            return (CompanionService) constructor.newInstance(args);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Cannot build CompanionService for test", e);
+        }
+    }
+}
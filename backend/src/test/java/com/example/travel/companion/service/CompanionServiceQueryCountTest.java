@@ -0,0 +1,137 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.companion.dto.CompanionDtos;
+import com.example.travel.companion.entity.CompanionPost;
+import com.example.travel.companion.repository.CompanionPostRepository;
+import com.example.travel.user.entity.User;
+import com.example.travel.user.entity.UserPreference;
+import com.example.travel.user.entity.UserProfile;
+import com.example.travel.user.entity.UserReputation;
+import com.example.travel.user.repository.UserPreferenceRepository;
+import com.example.travel.user.repository.UserProfileRepository;
+import com.example.travel.user.repository.UserReputationRepository;
+import com.example.travel.user.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 结伴帖列表的查询次数回归：发起人资料、信誉、偏好按 IN 批量加载，语句数不随结果条数增长。
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CompanionServiceQueryCountTest {
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private CompanionPostRepository companionPostRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+    @Autowired
+    private UserPreferenceRepository userPreferenceRepository;
+    @Autowired
+    private UserReputationRepository userReputationRepository;
+
+    private CompanionService service;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        service = CompanionServiceFixture.companionService(companionPostRepository, userRepository,
+                userProfileRepository, userPreferenceRepository, userReputationRepository);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void searchIssuesConstantQueriesRegardlessOfResultSize() {
+        long small = statementsForSearch("small", 5);
+        long large = statementsForSearch("large", 200);
+
+        // 1 条帖子查询 + 资料 / 信誉 / 偏好各 1 条 IN 查询
+        assertThat(small).isEqualTo(4);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void summariesCarryCreatorProfileReputationAndTags() {
+        seedPosts("hydrate", 3);
+        em.clear();
+
+        List<CompanionDtos.PostSummary> result = service.search(searchFor("hydrate"));
+
+        assertThat(result).hasSize(3);
+        assertThat(result).allSatisfy(summary -> {
+            assertThat(summary.getCreatorNickname()).startsWith("hydrate-nick-");
+            assertThat(summary.getCreatorReputationLevel()).isEqualTo(3);
+            assertThat(summary.getCreatorTags()).isEqualTo("美食,摄影");
+        });
+    }
+
+    /** 造 n 个不同发起人的帖子，清空一级缓存后统计一次搜索发出的 SQL 条数 */
+    private long statementsForSearch(String destination, int n) {
+        seedPosts(destination, n);
+        em.clear();
+        statistics.clear();
+
+        List<CompanionDtos.PostSummary> result = service.search(searchFor(destination));
+
+        assertThat(result).hasSize(n);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void seedPosts(String destination, int n) {
+        for (int i = 0; i < n; i++) {
+            User user = new User();
+            user.setPhone(destination + "-" + i);
+            user.setPassword("x");
+            em.persist(user);
+
+            UserProfile profile = new UserProfile();
+            profile.setUser(user);
+            profile.setNickname(destination + "-nick-" + i);
+            em.persist(profile);
+
+            UserReputation reputation = new UserReputation();
+            reputation.setUser(user);
+            reputation.setLevel(3);
+            em.persist(reputation);
+
+            UserPreference preference = new UserPreference();
+            preference.setUser(user);
+            preference.setTags("美食,摄影");
+            em.persist(preference);
+
+            CompanionPost post = new CompanionPost();
+            post.setCreator(user);
+            post.setDestination(destination);
+            post.setStartDate(LocalDate.now().plusDays(10));
+            post.setEndDate(LocalDate.now().plusDays(15));
+            em.persist(post);
+        }
+        em.flush();
+    }
+
+    private static CompanionDtos.SearchRequest searchFor(String destination) {
+        CompanionDtos.SearchRequest req = new CompanionDtos.SearchRequest();
+        req.setDestination(destination);
+        return req;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.travel.companion.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 群聊订阅登记：失去权限的订阅从 SimpleBroker 注销后不再收到消息，其余订阅不受影响；退订与断开时清理登记。
+ */
+class PostChatSubscriptionsTest {
+
+    private static final String TOPIC = "/topic/companion/posts/1/chat";
+
+    private final ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+    private final ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+    private final ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+    /** 各会话收到的 MESSAGE 帧对应的会话 ID */
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+    private SimpleBrokerMessageHandler broker;
+    private SimpMessagingTemplate template;
+    private PostChatSubscriptions subscriptions;
+
+    @BeforeEach
+    void setUp() {
+        broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        broker.start();
+        clientOutbound.subscribe(message -> {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                delivered.add(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+            }
+        });
+        template = new SimpMessagingTemplate(brokerChannel);
+        subscriptions = new PostChatSubscriptions(
+                new StaticListableBeanFactory(Map.of("template", template)).getBeanProvider(SimpMessagingTemplate.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        broker.stop();
+    }
+
+    @Test
+    void revokedSubscriptionStopsReceivingWhileOthersKeepIt() {
+        subscribe("s-member", "sub-0", "member");
+        subscribe("s-leaver", "sub-0", "leaver");
+        template.convertAndSend(TOPIC, "before");
+        assertThat(delivered).containsExactlyInAnyOrder("s-member", "s-leaver");
+
+        delivered.clear();
+        subscriptions.revalidate(1L, username -> !"leaver".equals(username));
+        template.convertAndSend(TOPIC, "after");
+
+        assertThat(delivered).containsExactly("s-member");
+        assertThat(subscriptions.size()).isEqualTo(1);
+    }
+
+    @Test
+    void failingCheckRevokesTheSubscription() {
+        subscribe("s-1", "sub-0", "member");
+
+        subscriptions.revalidate(1L, username -> {
+            throw new IllegalStateException("db down");
+        });
+        template.convertAndSend(TOPIC, "after");
+
+        assertThat(delivered).isEmpty();
+    }
+
+    @Test
+    void unsubscribeAndDisconnectForgetTheSubscription() {
+        subscriptions.add("s-1", "sub-0", 1L, "a");
+        subscriptions.add("s-1", "sub-1", 2L, "a");
+        subscriptions.add("s-2", "sub-0", 1L, "b");
+
+        subscriptions.remove("s-1", "sub-0");
+        assertThat(subscriptions.size()).isEqualTo(2);
+
+        subscriptions.removeSession("s-1");
+        subscriptions.removeSession("s-2");
+        assertThat(subscriptions.size()).isZero();
+    }
+
+    /** 模拟鉴权通过的 CONNECT + SUBSCRIBE：交给消息代理并登记 */
+    private void subscribe(String sessionId, String subscriptionId, String username) {
+        SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+        connect.setSessionId(sessionId);
+        clientInbound.send(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(TOPIC);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        clientInbound.send(message);
+        subscriptions.add(sessionId, subscriptionId, 1L, username);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.travel.companion.service;
+
+import com.example.travel.common.exception.BusinessException;
+import com.example.travel.companion.entity.CompanionPost;
+import com.example.travel.companion.entity.CompanionTeam;
+import com.example.travel.companion.entity.TeamMember;
+import com.example.travel.companion.repository.CompanionPostRepository;
+import com.example.travel.companion.repository.CompanionTeamRepository;
+import com.example.travel.companion.repository.TeamMemberRepository;
+import com.example.travel.user.entity.User;
+import com.example.travel.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 并发加入小队：数千次加入（含同一用户重复点击）打到同一个小队，
+ * 成员数与占座计数都恰好等于帖子的最多人数，每次调用要么加入成功、要么得到明确的业务提示。
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TeamJoinConcurrencyTest {
+
+    private static final int USERS = 2000;
+    /** 前若干个用户每人同时点两次加入 */
+    private static final int DOUBLE_CLICKERS = 200;
+    private static final int MAX_PEOPLE = 50;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private CompanionPostRepository companionPostRepository;
+    @Autowired
+    private CompanionTeamRepository companionTeamRepository;
+    @Autowired
+    private TeamMemberRepository teamMemberRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private CompanionService service;
+    private TransactionTemplate tx;
+    private final List<User> users = new ArrayList<>();
+    private CompanionPost post;
+    private CompanionTeam team;
+
+    @BeforeEach
+    void setUp() {
+        service = CompanionServiceFixture.companionService(companionPostRepository, companionTeamRepository,
+                teamMemberRepository, userRepository);
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i <= USERS; i++) {
+                User user = new User();
+                user.setPhone("join-" + i);
+                user.setPassword("x");
+                users.add(userRepository.save(user));
+            }
+            post = new CompanionPost();
+            post.setCreator(users.get(0));
+            post.setDestination("stress");
+            post.setStartDate(LocalDate.now().plusDays(10));
+            post.setEndDate(LocalDate.now().plusDays(12));
+            post.setMaxPeople(MAX_PEOPLE);
+            companionPostRepository.save(post);
+            team = new CompanionTeam();
+            team.setPost(post);
+            team.setName("stress 小队");
+            team.setStatus("forming");
+            team.setJoinedCount(1);
+            companionTeamRepository.save(team);
+            TeamMember leader = new TeamMember();
+            leader.setTeam(team);
+            leader.setUser(users.get(0));
+            leader.setRole("leader");
+            teamMemberRepository.save(leader);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        tx.executeWithoutResult(status -> {
+            teamMemberRepository.deleteByTeamIdIn(List.of(team.getId()));
+            companionTeamRepository.deleteById(team.getId());
+            companionPostRepository.deleteById(post.getId());
+            companionPostRepository.flush();
+            userRepository.deleteAllInBatch(users);
+        });
+    }
+
+    @Test
+    void burstOfJoinsFillsExactlyMaxPeopleWithoutDuplicatesOrErrors() throws Exception {
+        List<User> attempts = new ArrayList<>(users.subList(1, users.size()));
+        attempts.addAll(users.subList(1, 1 + DOUBLE_CLICKERS));
+        Collections.shuffle(attempts);
+
+        AtomicInteger joined = new AtomicInteger();
+        Map<String, AtomicInteger> refusals = new ConcurrentHashMap<>();
+        List<Throwable> unexpected = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        for (User user : attempts) {
+            pool.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken(user.getPhone(), null, List.of()));
+                try {
+                    start.await();
+                    tx.executeWithoutResult(status -> service.joinTeam(team.getId()));
+                    joined.incrementAndGet();
+                } catch (BusinessException e) {
+                    refusals.computeIfAbsent(e.getMessage(), k -> new AtomicInteger()).incrementAndGet();
+                } catch (Throwable e) {
+                    unexpected.add(e);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(unexpected).isEmpty();
+        assertThat(refusals.keySet()).isSubsetOf("小队已满员", "您已在该小队中");
+        // 重复点击里已加入的那次会静默返回，所以成功次数可能略多于新增成员数
+        assertThat(joined.get() + refusals.values().stream().mapToInt(AtomicInteger::get).sum())
+                .isEqualTo(attempts.size());
+        assertThat(refusals.get("小队已满员")).isNotNull();
+
+        List<TeamMember> members = tx.execute(status -> teamMemberRepository.findByTeam(team));
+        assertThat(members).hasSize(MAX_PEOPLE);
+        assertThat(members.stream().map(m -> m.getUser().getId()).distinct().count()).isEqualTo(MAX_PEOPLE);
+        assertThat(companionTeamRepository.findById(team.getId()).orElseThrow().getJoinedCount())
+                .isEqualTo(MAX_PEOPLE);
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.travel.route.config;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * AI 请求工厂：对本地桩服务器验证响应体的空闲超时与总时限、等待响应头超时，
+ * 以及调用线程被中断时底层连接被断开（桩服务器继续写入时失败）。
+ */
+class AiHttpRequestFactoryTest {
+
+    private HttpServer server;
+    /** 测试结束时放行仍在阻塞的桩处理器 */
+    private final CountDownLatch release = new CountDownLatch(1);
+    /** 桩服务器写入失败（客户端已断开）时计数 */
+    private final CountDownLatch disconnected = new CountDownLatch(1);
+    private String baseUrl;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/ok", exchange -> respond(exchange, "{\"ok\":true}"));
+        server.createContext("/stall-headers", exchange -> {
+            await(release);
+            respond(exchange, "late");
+        });
+        server.createContext("/stall-body", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            out.write("data: {\"choices\":[]}\n\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            await(release);
+            exchange.close();
+        });
+        server.createContext("/trickle", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            try {
+                while (release.getCount() > 0) {
+                    out.write("data: {}\n\n".getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    Thread.sleep(50);
+                }
+            } catch (IOException e) {
+                disconnected.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void completeResponsePassesThrough() {
+        ResponseEntity<String> resp = restTemplate(Duration.ofSeconds(5), Duration.ofSeconds(5))
+                .postForEntity(baseUrl + "/ok", "{\"q\":1}", String.class);
+
+        assertThat(resp.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(resp.getBody()).isEqualTo("{\"ok\":true}");
+    }
+
+    @Test
+    void bodyStalledMidStreamFailsAfterIdleTimeout() {
+        RestTemplate rt = restTemplate(Duration.ofSeconds(30), Duration.ofMillis(300));
+        long startedAt = System.nanoTime();
+
+        assertThatThrownBy(() -> readAll(rt, "/stall-body"))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasRootCauseInstanceOf(SocketTimeoutException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).isLessThan(5_000);
+    }
+
+    @Test
+    void tricklingBodyIsCutOffAtTotalTimeoutAndTheConnectionClosed() throws InterruptedException {
+        RestTemplate rt = restTemplate(Duration.ofMillis(500), Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> readAll(rt, "/trickle"))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasRootCauseInstanceOf(SocketTimeoutException.class)
+                .hasMessageContaining("total timeout");
+        assertThat(disconnected.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void missingResponseHeadersFailAfterTotalTimeout() {
+        RestTemplate rt = restTemplate(Duration.ofMillis(300), Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> rt.postForEntity(baseUrl + "/stall-headers", "{}", String.class))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasRootCauseInstanceOf(HttpTimeoutException.class);
+    }
+
+    @Test
+    void interruptingTheCallerCancelsTheExchange() throws InterruptedException {
+        RestTemplate rt = restTemplate(Duration.ofSeconds(30), Duration.ofSeconds(30));
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicReference<Boolean> stillInterrupted = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                readAll(rt, "/trickle");
+            } catch (RuntimeException e) {
+                error.set(e);
+            }
+            stillInterrupted.set(Thread.currentThread().isInterrupted());
+        });
+        caller.start();
+        Thread.sleep(300);
+        caller.interrupt();
+        caller.join(5_000);
+
+        assertThat(caller.isAlive()).isFalse();
+        assertThat(error.get()).hasRootCauseInstanceOf(InterruptedIOException.class);
+        assertThat(stillInterrupted.get()).isTrue();
+        assertThat(disconnected.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void interruptWhileWaitingForHeadersReturnsPromptly() throws InterruptedException {
+        RestTemplate rt = restTemplate(Duration.ofSeconds(30), Duration.ofSeconds(30));
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                rt.postForEntity(baseUrl + "/stall-headers", "{}", String.class);
+            } catch (RuntimeException e) {
+                error.set(e);
+            }
+        });
+        caller.start();
+        Thread.sleep(300);
+        caller.interrupt();
+        caller.join(5_000);
+
+        assertThat(caller.isAlive()).isFalse();
+        assertThat(error.get()).hasRootCauseInstanceOf(InterruptedIOException.class);
+    }
+
+    private RestTemplate restTemplate(Duration total, Duration idle) {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        return new RestTemplate(new AiHttpRequestFactory(client, total, idle));
+    }
+
+    /** 以流式方式读完响应体（与 AiRouteClient 的流式调用相同的读取路径） */
+    private void readAll(RestTemplate rt, String path) {
+        rt.execute(baseUrl + path, HttpMethod.GET, null, response -> response.getBody().readAllBytes());
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
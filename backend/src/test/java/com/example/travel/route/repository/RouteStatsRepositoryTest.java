@@ -0,0 +1,59 @@
+package com.example.travel.route.repository;
+
+import com.example.travel.route.entity.RouteStats;
+import com.example.travel.route.entity.TripPlan;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 路线计数：只增减已有的行，不为任意 targetId 生成孤儿行；删除行程时计数行随外键级联删除。
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RouteStatsRepositoryTest {
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private RouteStatsRepository routeStatsRepository;
+
+    @Test
+    void countsOnlyExistingPlans() {
+        Long planId = em.persistAndFlush(new TripPlan()).getId();
+        routeStatsRepository.insertIfAbsent(planId);
+        routeStatsRepository.insertIfAbsent(planId);
+
+        assertThat(routeStatsRepository.addCounts(planId, 2, 1, 1)).isEqualTo(1);
+        assertThat(routeStatsRepository.addCounts(planId, -5, 0, 0)).isEqualTo(1);
+        assertThat(routeStatsRepository.addCounts(planId + 1000, 1, 1, 1)).isZero();
+
+        em.clear();
+        assertThat(routeStatsRepository.count()).isEqualTo(1);
+        RouteStats stats = routeStatsRepository.findById(planId).orElseThrow();
+        assertThat(stats.getLikeCount()).isZero();
+        assertThat(stats.getFavoriteCount()).isEqualTo(1);
+        assertThat(stats.getUsageCount()).isEqualTo(1);
+        assertThat(routeStatsRepository.findHottestPlanIds(PageRequest.of(0, 10))).containsExactly(planId);
+    }
+
+    @Test
+    void statsRowIsDeletedWithItsPlan() {
+        Long planId = em.persistAndFlush(new TripPlan()).getId();
+        routeStatsRepository.insertIfAbsent(planId);
+
+        em.getEntityManager().createNativeQuery("DELETE FROM t_trip_plan WHERE id = :id")
+                .setParameter("id", planId)
+                .executeUpdate();
+
+        em.clear();
+        assertThat(routeStatsRepository.findById(planId)).isEmpty();
+    }
+}
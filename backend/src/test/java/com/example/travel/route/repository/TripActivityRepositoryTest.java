@@ -0,0 +1,61 @@
+package com.example.travel.route.repository;
+
+import com.example.travel.route.entity.TripActivity;
+import com.example.travel.route.entity.TripDay;
+import com.example.travel.route.entity.TripPlan;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 详情加载的活动顺序：按添加顺序返回，排程跨过午夜的活动不会被排到当天最前。
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TripActivityRepositoryTest {
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private TripActivityRepository tripActivityRepository;
+
+    @Test
+    void findByPlanIdKeepsVisitOrderAcrossMidnight() {
+        TripPlan plan = em.persist(new TripPlan());
+        TripDay first = day(plan, 1);
+        TripDay second = day(plan, 2);
+        activity(first, "夜市", "22:00", "23:30");
+        activity(first, "夜游", "23:45", "00:30");
+        activity(first, "宵夜", "00:40", "01:20");
+        activity(second, "早茶", "08:00", "09:00");
+        em.flush();
+        em.clear();
+
+        assertThat(tripActivityRepository.findByPlanId(plan.getId()))
+                .extracting(TripActivity::getName)
+                .containsExactly("夜市", "夜游", "宵夜", "早茶");
+    }
+
+    private TripDay day(TripPlan plan, int index) {
+        TripDay day = new TripDay();
+        day.setPlan(plan);
+        day.setDayIndex(index);
+        return em.persist(day);
+    }
+
+    private void activity(TripDay day, String name, String start, String end) {
+        TripActivity a = new TripActivity();
+        a.setTripDay(day);
+        a.setType("sight");
+        a.setName(name);
+        a.setStartTime(start);
+        a.setEndTime(end);
+        em.persist(a);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.travel.route.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 增量解析：任意位置切分（含字符串内的括号与转义）结果一致；前置 markdown 被忽略；截断的流只回调已闭合的部分。
+ */
+class AiPlanStreamParserTest {
+
+    private static final String PLAN = """
+            {"variants":[
+              {"id":"a","name":"方案 A {文化}","days":[
+                {"dayIndex":1,"items":[{"id":"p1","name":"西湖 \\"断桥\\" [残雪]","tags":["自然"]}]},
+                {"dayIndex":2,"items":[{"id":"p2","name":"路径 C:\\\\temp\\\\ }{","tags":[]}]}
+              ]},
+              {"id":"b","name":"方案 B","days":[
+                {"dayIndex":1,"items":[]}
+              ]}
+            ]}""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** 记录回调：day:方案序号:方案 id:dayIndex 或 variant:方案序号:id */
+    private final List<String> events = new ArrayList<>();
+    private final List<JsonNode> days = new ArrayList<>();
+
+    @Test
+    void everySplitPositionYieldsTheSameEvents() {
+        List<String> expected = List.of(
+                "day:0:a:1", "day:0:a:2", "variant:0:a",
+                "day:1:b:1", "variant:1:b");
+        for (int cut = 1; cut < PLAN.length(); cut++) {
+            events.clear();
+            days.clear();
+            AiPlanStreamParser parser = parser();
+            parser.feed(PLAN.substring(0, cut));
+            parser.feed(PLAN.substring(cut));
+
+            assertThat(events).as("cut at %d", cut).containsExactlyElementsOf(expected);
+            assertThat(parser.isComplete()).isTrue();
+        }
+    }
+
+    @Test
+    void oneCharacterAtATimeKeepsEscapesAndBracketsInsideStrings() {
+        AiPlanStreamParser parser = parser();
+        for (int i = 0; i < PLAN.length(); i++) {
+            parser.feed(PLAN.substring(i, i + 1));
+        }
+
+        assertThat(days.get(0).at("/items/0/name").asText()).isEqualTo("西湖 \"断桥\" [残雪]");
+        assertThat(days.get(1).at("/items/0/name").asText()).isEqualTo("路径 C:\\temp\\ }{");
+        assertThat(events).contains("day:0:a:1");
+        assertThat(parser.json()).isEqualTo(PLAN);
+    }
+
+    @Test
+    void leadingMarkdownAndTrailingTextAreIgnored() {
+        AiPlanStreamParser parser = parser();
+        parser.feed("好的，以下是为你规划的路线：\n```json\n");
+        parser.feed(PLAN);
+        parser.feed("\n```\n如需调整请告诉我 {\"variants\":[]}");
+
+        assertThat(events).containsExactly(
+                "day:0:a:1", "day:0:a:2", "variant:0:a",
+                "day:1:b:1", "variant:1:b");
+        assertThat(parser.isComplete()).isTrue();
+        assertThat(parser.json()).isEqualTo(PLAN);
+    }
+
+    @Test
+    void truncatedStreamOnlyReportsClosedParts() {
+        AiPlanStreamParser parser = parser();
+        int cut = PLAN.indexOf("{\"dayIndex\":2") + 20;
+        parser.feed(PLAN.substring(0, cut));
+
+        assertThat(events).containsExactly("day:0:a:1");
+        assertThat(parser.isComplete()).isFalse();
+        assertThat(parser.json()).isEqualTo(PLAN.substring(0, cut));
+    }
+
+    @Test
+    void malformedDayIsSkippedWithoutBreakingTheRest() {
+        AiPlanStreamParser parser = parser();
+        parser.feed("{\"variants\":[{\"id\":\"a\",\"days\":[{\"dayIndex\":1,\"items\":[,]},{\"dayIndex\":2}]}]}");
+
+        assertThat(events).containsExactly("day:0:a:2");
+        assertThat(parser.isComplete()).isTrue();
+    }
+
+    private AiPlanStreamParser parser() {
+        return new AiPlanStreamParser(objectMapper, new AiPlanStreamParser.Listener() {
+            @Override
+            public void onDay(int variantIndex, String variantId, String variantName, JsonNode day) {
+                events.add("day:" + variantIndex + ":" + variantId + ":" + day.path("dayIndex").asInt());
+                days.add(day);
+            }
+
+            @Override
+            public void onVariant(int variantIndex, JsonNode variant) {
+                events.add("variant:" + variantIndex + ":" + variant.path("id").asText());
+            }
+        });
+    }
+}
@@ -0,0 +1,382 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.config.AiHttpRequestFactory;
+import com.example.travel.route.config.AiRouteProperties;
+import com.example.travel.route.dto.TripPlanDtos;
+import com.example.travel.route.repository.TripActivityRepository;
+import com.example.travel.route.repository.TripDayRepository;
+import com.example.travel.route.repository.TripPlanRepository;
+import com.example.travel.user.repository.UserProfileRepository;
+import com.example.travel.user.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * AI 路线客户端对本地桩服务商：连接复用的传输层之上的并发上限、令牌桶限速与熔断（连续超时后直接回退 mock），
+ * 并发相同请求合并为一次上游调用，以及主备两个服务商之间的对冲与故障转移。
+ */
+class AiRouteClientTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private HttpServer server;
+    private String baseUrl;
+    /** 桩服务商收到的请求数 */
+    private final AtomicInteger calls = new AtomicInteger();
+    /** /fast 与 /fail 各自收到的请求数（作备用服务商时单独计数） */
+    private final AtomicInteger fastCalls = new AtomicInteger();
+    private final AtomicInteger failCalls = new AtomicInteger();
+    /** 放行 /stall 上阻塞的请求 */
+    private final CountDownLatch release = new CountDownLatch(1);
+    /** 最近一次 client(...) 创建的生成缓存（关闭缓存，只用于合并计数与重排日期） */
+    private AiRouteCache cache;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/ok/v1/chat/completions", exchange -> {
+            calls.incrementAndGet();
+            respond(exchange, completion());
+        });
+        server.createContext("/stall/v1/chat/completions", exchange -> {
+            calls.incrementAndGet();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, completion());
+        });
+        server.createContext("/fast/v1/chat/completions", exchange -> {
+            fastCalls.incrementAndGet();
+            respond(exchange, completion());
+        });
+        server.createContext("/slow/v1/chat/completions", exchange -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(400);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, completion());
+        });
+        server.createContext("/fail/v1/chat/completions", exchange -> {
+            failCalls.incrementAndGet();
+            respond(exchange, 500, "{\"error\":\"upstream\"}");
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void generatesThroughTheStubProvider() {
+        AiRouteClient client = client(properties("/ok"), Duration.ofSeconds(5));
+
+        TripPlanDtos.AiGenerateResponse resp = client.generate(request("杭州", LocalDate.of(2026, 11, 1)));
+
+        assertThat(resp).isNotNull();
+        assertThat(resp.getVariants()).hasSize(1);
+        assertThat(resp.getVariants().get(0).getDays()).hasSize(2);
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void breakerOpensAfterConsecutiveTimeoutsAndStopsCallingTheProvider() {
+        AiRouteProperties props = properties("/stall");
+        props.setBreakerFailureThreshold(2);
+        AiRouteClient client = client(props, Duration.ofMillis(300));
+
+        assertThat(client.generate(request("杭州", LocalDate.of(2026, 11, 1)))).isNull();
+        assertThat(client.generate(request("苏州", LocalDate.of(2026, 11, 1)))).isNull();
+        assertThat(calls.get()).isEqualTo(2);
+
+        long startedAt = System.nanoTime();
+        assertThat(client.generate(request("南京", LocalDate.of(2026, 11, 1)))).isNull();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).isLessThan(200);
+        assertThat(calls.get()).isEqualTo(2);
+
+        TripPlanDtos.AiProviderMetrics metrics = client.providerMetrics().get(0);
+        assertThat(metrics.getBreakerState()).isEqualTo(AiProviderGuard.OPEN);
+        assertThat(metrics.getTransportFailures()).isEqualTo(2);
+        assertThat(metrics.getRejectedByBreaker()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrencyLimitRejectsWhileTheOnlySlotIsBusy() throws Exception {
+        AiRouteProperties props = properties("/stall");
+        props.setMaxConcurrent(1);
+        props.setAcquireWaitMillis(0);
+        AiRouteClient client = client(props, Duration.ofSeconds(10));
+
+        CompletableFuture<TripPlanDtos.AiGenerateResponse> busy =
+                CompletableFuture.supplyAsync(() -> client.generate(request("杭州", LocalDate.of(2026, 11, 1))));
+        long waitUntil = System.currentTimeMillis() + 5_000;
+        while (calls.get() == 0 && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+        }
+
+        assertThat(client.generate(request("苏州", LocalDate.of(2026, 11, 1)))).isNull();
+        assertThat(client.providerMetrics().get(0).getRejectedByConcurrency()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(busy.get(10, TimeUnit.SECONDS)).isNotNull();
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void rateLimiterRejectsBeyondTheBurst() {
+        AiRouteProperties props = properties("/ok");
+        props.setBurst(1);
+        props.setRatePerMinute(1);
+        AiRouteClient client = client(props, Duration.ofSeconds(5));
+
+        assertThat(client.generate(request("杭州", LocalDate.of(2026, 11, 1)))).isNotNull();
+        assertThat(client.generate(request("苏州", LocalDate.of(2026, 11, 1)))).isNull();
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(client.providerMetrics().get(0).getRejectedByRate()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareOneUpstreamCall() throws Exception {
+        int callers = 8;
+        AiRouteClient client = client(properties("/stall"), Duration.ofSeconds(10));
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<LocalDate> startDates = new ArrayList<>();
+            List<Future<TripPlanDtos.AiGenerateResponse>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                // 出发日期各不相同、行程天数相同：归一化指纹一致
+                LocalDate startDate = LocalDate.of(2026, 11, 1).plusDays(7L * i);
+                startDates.add(startDate);
+                results.add(pool.submit(() -> client.generate(request("杭州", startDate))));
+            }
+            long waitUntil = System.currentTimeMillis() + 10_000;
+            while (cache.metrics().getCoalesced() < callers - 1 && System.currentTimeMillis() < waitUntil) {
+                Thread.sleep(10);
+            }
+            assertThat(cache.metrics().getCoalesced()).isEqualTo(callers - 1);
+            release.countDown();
+
+            for (int i = 0; i < callers; i++) {
+                TripPlanDtos.AiGenerateResponse resp = results.get(i).get(10, TimeUnit.SECONDS);
+                assertThat(resp).isNotNull();
+                List<TripPlanDtos.AiDayPlan> days = resp.getVariants().get(0).getDays();
+                assertThat(days).extracting(TripPlanDtos.AiDayPlan::getDate)
+                        .containsExactly(startDates.get(i), startDates.get(i).plusDays(1));
+            }
+            assertThat(calls.get()).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void slowPrimaryIsHedgedAndTheLoserIsCancelledWithoutTrippingTheBreaker() throws Exception {
+        AiRouteProperties props = hedgedProperties("/stall", "/fast");
+        props.setBreakerFailureThreshold(1);
+        AiRouteClient client = client(props, Duration.ofSeconds(10));
+
+        long startedAt = System.nanoTime();
+        TripPlanDtos.AiGenerateResponse resp = client.generate(request("杭州", LocalDate.of(2026, 11, 1)));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        assertThat(resp).isNotNull();
+        assertThat(elapsed).isBetween(300L, 5_000L);
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(fastCalls.get()).isEqualTo(1);
+        awaitPrimaryIdle(client);
+        TripPlanDtos.AiProviderMetrics primary = client.providerMetrics().get(0);
+        TripPlanDtos.AiProviderMetrics secondary = client.providerMetrics().get(1);
+        assertThat(secondary.getHedges()).isEqualTo(1);
+        assertThat(secondary.getWins()).isEqualTo(1);
+        assertThat(primary.getWins()).isZero();
+        // 落败的一路被中断：只归还名额，不算服务商故障
+        assertThat(primary.getTransportFailures()).isZero();
+        assertThat(primary.getConsecutiveFailures()).isZero();
+        assertThat(primary.getBreakerState()).isEqualTo(AiProviderGuard.CLOSED);
+    }
+
+    @Test
+    void primaryAnsweringWithinTheDefaultDelayIsNotHedged() {
+        // 延迟样本不足 HEDGE_MIN_SAMPLES：等待固定的 hedgeDefaultDelayMillis，而不是 hedgeMinDelayMillis
+        AiRouteProperties props = hedgedProperties("/slow", "/fast");
+        props.setHedgeDefaultDelayMillis(5_000);
+        props.setHedgeMinDelayMillis(50);
+        AiRouteClient client = client(props, Duration.ofSeconds(10));
+
+        assertThat(client.generate(request("杭州", LocalDate.of(2026, 11, 1)))).isNotNull();
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(fastCalls.get()).isZero();
+        assertThat(client.providerMetrics().get(1).getHedges()).isZero();
+        assertThat(client.providerMetrics().get(0).getLatencySamples()).isEqualTo(1);
+    }
+
+    @Test
+    void primaryFailingBeforeTheDelayFailsOverImmediately() {
+        AiRouteProperties props = hedgedProperties("/fail", "/fast");
+        props.setHedgeDefaultDelayMillis(5_000);
+        AiRouteClient client = client(props, Duration.ofSeconds(10));
+
+        long startedAt = System.nanoTime();
+        TripPlanDtos.AiGenerateResponse resp = client.generate(request("杭州", LocalDate.of(2026, 11, 1)));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        assertThat(resp).isNotNull();
+        assertThat(elapsed).isLessThan(3_000L);
+        assertThat(failCalls.get()).isEqualTo(1);
+        assertThat(fastCalls.get()).isEqualTo(1);
+        // 故障转移不是对冲
+        assertThat(client.providerMetrics().get(1).getHedges()).isZero();
+        assertThat(client.providerMetrics().get(0).getTransportFailures()).isEqualTo(1);
+    }
+
+    @Test
+    void bothProvidersFailingReturnsNullAndThePlannerFallsBackToMock() {
+        AiRouteProperties props = hedgedProperties("/fail", "/fail");
+        AiRouteClient client = client(props, Duration.ofSeconds(10));
+        TripPlanDtos.AiGenerateRequest req = request("杭州", LocalDate.of(2026, 11, 1));
+
+        assertThat(client.generate(req)).isNull();
+        assertThat(failCalls.get()).isEqualTo(2);
+
+        RoutePlanService planner = new RoutePlanService(mock(TripPlanRepository.class),
+                mock(TripDayRepository.class),
+                mock(TripActivityRepository.class),
+                mock(UserRepository.class),
+                mock(UserProfileRepository.class),
+                client,
+                mock(TripPlanBulkWriter.class),
+                new PlanDetailCache(10, 60),
+                mock(RouteStatsService.class),
+                mock(PoiGazetteer.class),
+                new RouteOptimizer(),
+                mock(DayScheduler.class));
+        TripPlanDtos.AiGenerateResponse mockPlan = planner.generateAiPlan(req);
+
+        assertThat(mockPlan.getVariants()).extracting(TripPlanDtos.AiPlanVariant::getId)
+                .containsExactly("a", "b", "c");
+        assertThat(failCalls.get()).isEqualTo(4);
+    }
+
+    /** 等待主服务商被中断的调用归还并发名额 */
+    private static void awaitPrimaryIdle(AiRouteClient client) throws InterruptedException {
+        long waitUntil = System.currentTimeMillis() + 5_000;
+        while (client.providerMetrics().get(0).getInFlight() > 0 && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+        }
+        assertThat(client.providerMetrics().get(0).getInFlight()).isZero();
+    }
+
+    /** 主服务商 primaryPath、备用服务商 secondaryPath，开启对冲，样本不足时等待 300ms */
+    private AiRouteProperties hedgedProperties(String primaryPath, String secondaryPath) {
+        AiRouteProperties props = properties(primaryPath);
+        AiRouteProperties.Provider secondary = new AiRouteProperties.Provider();
+        secondary.setName("backup");
+        secondary.setApiKey("backup-key");
+        secondary.setBaseUrl(baseUrl + secondaryPath);
+        secondary.setModel("stub");
+        props.setFallbacks(List.of(secondary));
+        props.setHedgeEnabled(true);
+        props.setHedgeDefaultDelayMillis(300);
+        props.setHedgeMinDelayMillis(60_000);
+        return props;
+    }
+
+    private AiRouteProperties properties(String path) {
+        AiRouteProperties props = new AiRouteProperties();
+        props.setApiKey("test-key");
+        props.setBaseUrl(baseUrl + path);
+        props.setModel("stub");
+        return props;
+    }
+
+    private AiRouteClient client(AiRouteProperties props, Duration timeout) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        RestTemplate restTemplate = new RestTemplate(new AiHttpRequestFactory(httpClient, timeout, timeout));
+        cache = new AiRouteCache(objectMapper, false, 10, 60, "");
+        return new AiRouteClient(props, restTemplate, objectMapper, cache);
+    }
+
+    private static TripPlanDtos.AiGenerateRequest request(String destination, LocalDate startDate) {
+        TripPlanDtos.AiGenerateRequest req = new TripPlanDtos.AiGenerateRequest();
+        req.setDestinations(List.of(destination));
+        req.setStartDate(startDate);
+        req.setEndDate(startDate.plusDays(1));
+        return req;
+    }
+
+    /** OpenAI 兼容的非流式响应：一个方案、两天，每天一个景点 */
+    private String completion() throws IOException {
+        Map<String, Object> plan = Map.of("variants", List.of(Map.of(
+                "id", "a",
+                "name", "方案 A",
+                "days", List.of(day(1, "西湖"), day(2, "灵隐寺")))));
+        String content = objectMapper.writeValueAsString(plan);
+        return objectMapper.writeValueAsString(Map.of("choices", List.of(
+                Map.of("message", Map.of("role", "assistant", "content", content)))));
+    }
+
+    /** 不带 date：日期按调用方的出发日期推算 */
+    private static Map<String, Object> day(int dayIndex, String poi) {
+        return Map.of("dayIndex", dayIndex, "items", List.of(Map.of(
+                "id", "p" + dayIndex, "name", poi, "stayMinutes", 90,
+                "tags", List.of("自然"), "lng", 120.15, "lat", 30.25)));
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        respond(exchange, 200, body);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // 客户端已超时断开
+        } finally {
+            exchange.close();
+        }
+    }
+}
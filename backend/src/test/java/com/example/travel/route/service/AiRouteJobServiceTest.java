@@ -0,0 +1,137 @@
+package com.example.travel.route.service;
+
+import com.example.travel.common.exception.BusinessException;
+import com.example.travel.route.config.AiRouteProperties;
+import com.example.travel.route.dto.TripPlanDtos;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * AI 生成任务：状态从 queued → running → done / failed 流转；线程与队列都占满后提交（含同步接口）返回 429；
+ * 同步接口在线程池中执行并等待结果。
+ */
+class AiRouteJobServiceTest {
+
+    private final RoutePlanService routePlanService = mock(RoutePlanService.class);
+    /** 放行阻塞在生成中的任务 */
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final TripPlanDtos.AiGenerateResponse result = new TripPlanDtos.AiGenerateResponse();
+
+    private AiRouteJobService service;
+
+    @BeforeEach
+    void setUp() {
+        result.setVariants(List.of());
+        when(routePlanService.generateAiPlan(any())).thenAnswer(inv -> {
+            release.await(10, TimeUnit.SECONDS);
+            return result;
+        });
+        // 1 个执行线程、队列容量 1
+        service = new AiRouteJobService(routePlanService, new AiRouteProperties(), 1, 1, 100, 30);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void jobMovesFromQueuedThroughRunningToDone() {
+        TripPlanDtos.AiJobResponse first = service.submit(new TripPlanDtos.AiGenerateRequest());
+        awaitStatus(first.getJobId(), AiRouteJobService.STATUS_RUNNING);
+        TripPlanDtos.AiJobResponse second = service.submit(new TripPlanDtos.AiGenerateRequest());
+
+        assertThat(second.getStatus()).isEqualTo(AiRouteJobService.STATUS_QUEUED);
+        assertThat(second.getQueuePosition()).isZero();
+
+        release.countDown();
+        TripPlanDtos.AiJobResponse done = awaitStatus(first.getJobId(), AiRouteJobService.STATUS_DONE);
+        awaitStatus(second.getJobId(), AiRouteJobService.STATUS_DONE);
+
+        assertThat(done.getResult()).isSameAs(result);
+        assertThat(done.getError()).isNull();
+        assertThat(done.getWaitMillis()).isNotNull();
+        assertThat(done.getRunMillis()).isNotNull();
+        assertThat(service.metrics().getCompleted()).isEqualTo(2);
+    }
+
+    @Test
+    void failingGenerationEndsInFailedWithTheMessage() {
+        when(routePlanService.generateAiPlan(any())).thenThrow(BusinessException.badRequest("目的地不能为空"));
+
+        TripPlanDtos.AiJobResponse job = service.submit(new TripPlanDtos.AiGenerateRequest());
+        TripPlanDtos.AiJobResponse failed = awaitStatus(job.getJobId(), AiRouteJobService.STATUS_FAILED);
+
+        assertThat(failed.getError()).isEqualTo("目的地不能为空");
+        assertThat(failed.getResult()).isNull();
+        assertThat(service.metrics().getFailed()).isEqualTo(1);
+    }
+
+    @Test
+    void fullQueueRejectsWith429() {
+        TripPlanDtos.AiJobResponse running = service.submit(new TripPlanDtos.AiGenerateRequest());
+        awaitStatus(running.getJobId(), AiRouteJobService.STATUS_RUNNING);
+        service.submit(new TripPlanDtos.AiGenerateRequest());
+
+        assertThatThrownBy(() -> service.submit(new TripPlanDtos.AiGenerateRequest()))
+                .isInstanceOfSatisfying(BusinessException.class, e -> assertThat(e.getCode()).isEqualTo(429));
+        assertThatThrownBy(() -> service.generate(new TripPlanDtos.AiGenerateRequest()))
+                .isInstanceOfSatisfying(BusinessException.class, e -> assertThat(e.getCode()).isEqualTo(429));
+        assertThat(service.metrics().getRejected()).isEqualTo(2);
+    }
+
+    @Test
+    void synchronousGenerateRunsOnThePoolAndWaits() throws Exception {
+        CompletableFuture<TripPlanDtos.AiGenerateResponse> call = CompletableFuture.supplyAsync(
+                () -> service.generate(new TripPlanDtos.AiGenerateRequest()));
+        awaitTrue(() -> service.metrics().getRunning() == 1);
+        assertThat(call).isNotDone();
+
+        release.countDown();
+
+        assertThat(call.get(5, TimeUnit.SECONDS)).isSameAs(result);
+        assertThat(service.metrics().getSubmitted()).isEqualTo(1);
+    }
+
+    @Test
+    void synchronousGenerateSurfacesTheFailure() {
+        when(routePlanService.generateAiPlan(any())).thenThrow(new IllegalStateException("boom"));
+
+        assertThatThrownBy(() -> service.generate(new TripPlanDtos.AiGenerateRequest()))
+                .isInstanceOfSatisfying(BusinessException.class, e -> assertThat(e.getCode()).isEqualTo(500));
+    }
+
+    private TripPlanDtos.AiJobResponse awaitStatus(String jobId, String status) {
+        awaitTrue(() -> status.equals(service.get(jobId).getStatus()));
+        return service.get(jobId);
+    }
+
+    private static void awaitTrue(Supplier<Boolean> condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.get()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition not met within 5s");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
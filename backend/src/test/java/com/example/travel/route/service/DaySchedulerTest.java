@@ -0,0 +1,128 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.dto.TripPlanDtos;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 单日排程：指定开始时间的活动保持不动，停留时长的取值优先级，按交通方式与距离估算通勤，
+ * 超出当日时间窗的分钟数，以及跨过午夜的时间显示。
+ */
+class DaySchedulerTest {
+
+    /** 缺坐标时按 5 公里估算：公共交通 23 分钟、驾车 15 分钟、步行 67 分钟 */
+    private static final int TRANSIT_DEFAULT_LEG = 23;
+    private static final int DRIVE_DEFAULT_LEG = 15;
+    private static final int WALK_DEFAULT_LEG = 67;
+
+    private final DayScheduler scheduler = new DayScheduler("09:00", "21:00", 60);
+
+    @Test
+    void stopsFollowEachOtherWithCommuteFromTheDayStart() {
+        DayScheduler.Schedule s = scheduler.schedule(List.of(
+                stop(90, null, null, null),
+                stop(60, null, null, null),
+                stop(30, null, null, null)));
+
+        assertThat(s.startMinutes()).containsExactly(540, 630 + TRANSIT_DEFAULT_LEG, 713 + TRANSIT_DEFAULT_LEG);
+        assertThat(s.endMinutes()).containsExactly(630, 713, 766);
+        assertThat(s.overflowMinutes()).isZero();
+    }
+
+    @Test
+    void commuteFollowsTheTransportModeAndLegDistance() {
+        assertThat(secondStart("自驾")).isEqualTo(600 + DRIVE_DEFAULT_LEG);
+        assertThat(secondStart("taxi")).isEqualTo(600 + DRIVE_DEFAULT_LEG);
+        assertThat(secondStart("步行")).isEqualTo(600 + WALK_DEFAULT_LEG);
+        assertThat(secondStart("地铁")).isEqualTo(600 + TRANSIT_DEFAULT_LEG);
+
+        // 未指定方式时，1.2 公里以内的短途按步行估算
+        double km = RouteOptimizer.legKm(120.150, 30.250, 120.155, 30.252);
+        DayScheduler.Schedule near = scheduler.schedule(List.of(
+                stop(60, null, 120.150, 30.250),
+                stop(60, null, 120.155, 30.252)));
+        assertThat(RouteOptimizer.modeOf(null, km)).isEqualTo(RouteOptimizer.TravelMode.WALK);
+        assertThat(near.startMinutes()[1]).isEqualTo(600 + RouteOptimizer.TravelMode.WALK.minutes(km));
+    }
+
+    @Test
+    void anchoredStartTimesStayAndLaterStopsContinueFromThem() {
+        DayScheduler.Schedule s = scheduler.schedule(List.of(
+                stop(60, null, null, null),
+                new DayScheduler.Stop(null, null, null, null, "14:00", "16:30"),
+                stop(45, null, null, null)));
+
+        assertThat(s.startMinutes()).containsExactly(540, 840, 990 + TRANSIT_DEFAULT_LEG);
+        assertThat(s.endMinutes()).containsExactly(600, 990, 990 + TRANSIT_DEFAULT_LEG + 45);
+    }
+
+    @Test
+    void stayMinutesTakePrecedenceOverTimesThenTheDefault() {
+        DayScheduler.Schedule s = scheduler.schedule(List.of(
+                // 有停留时长：开始时间固定，结束取已有结束时间
+                new DayScheduler.Stop(30, null, null, null, "10:00", "11:15"),
+                // 只有开始时间、没有停留时长：用默认 60 分钟
+                new DayScheduler.Stop(null, null, null, null, "12:00", null),
+                // 停留时长无效（0）且开始时间未指定：用默认值，忽略孤立的结束时间
+                new DayScheduler.Stop(0, null, null, null, null, "23:00"),
+                // 停留时长优先于由起止时间推算的时长
+                new DayScheduler.Stop(20, null, null, null, null, null)));
+
+        assertThat(s.startMinutes()).containsExactly(600, 720, 780 + TRANSIT_DEFAULT_LEG, 863 + TRANSIT_DEFAULT_LEG);
+        assertThat(s.endMinutes()).containsExactly(675, 780, 863, 906);
+    }
+
+    @Test
+    void overflowIsTheMinutesPastTheDayEnd() {
+        DayScheduler.Schedule fits = scheduler.schedule(List.of(stop(600, null, null, null), stop(97, null, null, null)));
+        DayScheduler.Schedule over = scheduler.schedule(List.of(stop(600, null, null, null), stop(120, null, null, null)));
+
+        assertThat(fits.endMinutes()[1]).isEqualTo(21 * 60);
+        assertThat(fits.overflowMinutes()).isZero();
+        assertThat(over.overflowMinutes()).isEqualTo(TRANSIT_DEFAULT_LEG);
+    }
+
+    @Test
+    void timesPastMidnightWrapAndCountAsOverflow() {
+        TripPlanDtos.Day day = new TripPlanDtos.Day();
+        TripPlanDtos.Activity night = new TripPlanDtos.Activity();
+        night.setStartTime("23:00");
+        night.setStayMinutes(120);
+        TripPlanDtos.Activity next = new TripPlanDtos.Activity();
+        next.setStayMinutes(30);
+        day.setActivities(List.of(night, next));
+
+        scheduler.scheduleDay(day);
+
+        assertThat(night.getStartTime()).isEqualTo("23:00");
+        assertThat(night.getEndTime()).isEqualTo("01:00");
+        assertThat(next.getStartTime()).isEqualTo("01:23");
+        assertThat(next.getEndTime()).isEqualTo("01:53");
+        assertThat(day.getOverflowMinutes()).isEqualTo(25 * 60 + 53 - 21 * 60);
+        assertThat(DayScheduler.formatTime(24 * 60)).isEqualTo("00:00");
+        assertThat(DayScheduler.formatTime(47 * 60 + 59)).isEqualTo("23:59");
+    }
+
+    @Test
+    void malformedTimesAreIgnored() {
+        assertThat(DayScheduler.parseTime("9:05", -1)).isEqualTo(545);
+        assertThat(DayScheduler.parseTime(" 21:30 ", -1)).isEqualTo(1290);
+        assertThat(DayScheduler.parseTime("24:00", -1)).isEqualTo(-1);
+        assertThat(DayScheduler.parseTime("9:5", -1)).isEqualTo(-1);
+        assertThat(DayScheduler.parseTime("上午", -1)).isEqualTo(-1);
+        assertThat(DayScheduler.parseTime(null, -1)).isEqualTo(-1);
+    }
+
+    /** 第一项 09:00-10:00，第二项以 transport 方式前往（缺坐标），返回其开始分钟数 */
+    private int secondStart(String transport) {
+        return scheduler.schedule(List.of(stop(60, null, null, null), stop(60, transport, null, null)))
+                .startMinutes()[1];
+    }
+
+    private static DayScheduler.Stop stop(Integer stay, String transport, Double lng, Double lat) {
+        return new DayScheduler.Stop(stay, transport, lng, lat, null, null);
+    }
+}
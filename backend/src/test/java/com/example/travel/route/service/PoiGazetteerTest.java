@@ -0,0 +1,144 @@
+package com.example.travel.route.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * POI 地名库：精确名与别名命中、括号说明去除、包含关系优先于 Dice 相似度及最低分数线、
+ * 城市限定排除外地同名地点、同分时按就近取舍，以及编译文件的源数据校验（过期或截断的文件重新编译）。
+ */
+class PoiGazetteerTest {
+
+    private static final String TSV = """
+            # 名称\t别名\t城市\t经度\t纬度
+            西湖\t西子湖\t杭州\t120.140\t30.250
+            西湖\t丰湖\t惠州市\t114.400\t23.100
+            拙政园\t\t苏州\t120.630\t31.330
+            雷峰塔\t\t杭州\t120.150\t30.230
+            雷峰塔景区\t\t杭州\t120.160\t30.240
+            河坊街步行街\t清河坊\t杭州\t120.170\t30.240
+            灵隐寺\t\t杭州\t120.100\t30.240
+            长城\t\t\t116.570\t40.430
+            格式不对的行
+            """;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void exactNameAndAliasHit() throws IOException {
+        PoiGazetteer gazetteer = gazetteer(TSV, "");
+
+        assertThat(gazetteer.size()).isEqualTo(8);
+        assertThat(gazetteer.locate("拙政园", List.of(), null)).containsExactly(120.63, 31.33);
+        assertThat(gazetteer.locate("清河坊", List.of(), null)).containsExactly(120.17, 30.24);
+        assertThat(gazetteer.locate("西子湖", List.of(), null)).containsExactly(120.14, 30.25);
+        assertThat(gazetteer.locate("不存在的地方", List.of(), null)).isNull();
+        assertThat(gazetteer.locate("（）", List.of(), null)).isNull();
+    }
+
+    @Test
+    void bracketedNotesAreStripped() throws IOException {
+        PoiGazetteer gazetteer = gazetteer(TSV, "");
+
+        assertThat(gazetteer.locate("拙政园（东门）", List.of(), null)).containsExactly(120.63, 31.33);
+        assertThat(gazetteer.locate("灵隐寺(south gate)", List.of(), null)).containsExactly(120.10, 30.24);
+        assertThat(gazetteer.locate("【必去】雷峰塔", List.of(), null)).containsExactly(120.15, 30.23);
+    }
+
+    @Test
+    void containmentOutranksDiceAndWeakMatchesAreRejected() throws IOException {
+        PoiGazetteer gazetteer = gazetteer(TSV, "");
+
+        // "雷峰塔景点" 与 "雷峰塔景区" 的 Dice 为 0.75，但包含 "雷峰塔"，包含关系优先
+        assertThat(gazetteer.locate("雷峰塔景点", List.of("杭州"), null)).containsExactly(120.15, 30.23);
+        // 无包含关系：Dice 0.8 高于分数线
+        assertThat(gazetteer.locate("河坊街步行区", List.of("杭州"), null)).containsExactly(120.17, 30.24);
+        // "灵隐禅寺" 与 "灵隐寺" 只共享一个二元字组，Dice 0.4 低于 MIN_FUZZY_SCORE
+        assertThat(gazetteer.locate("灵隐禅寺", List.of("杭州"), null)).isNull();
+    }
+
+    @Test
+    void cityScopeRejectsSameNamePoiInAnotherCity() throws IOException {
+        PoiGazetteer gazetteer = gazetteer(TSV, "");
+
+        assertThat(gazetteer.locate("西湖", List.of("杭州市"), null)).containsExactly(120.14, 30.25);
+        assertThat(gazetteer.locate("西湖", List.of("惠州"), null)).containsExactly(114.40, 23.10);
+        assertThat(gazetteer.locate("西湖", List.of("苏州"), null)).isNull();
+        assertThat(gazetteer.locate("拙政园", List.of("杭州"), null)).isNull();
+        // 未标城市的地点在任何城市范围内都可用；地名库不认识的城市不做限定
+        assertThat(gazetteer.locate("长城", List.of("杭州"), null)).containsExactly(116.57, 40.43);
+        assertThat(gazetteer.locate("拙政园", List.of("成都"), null)).containsExactly(120.63, 31.33);
+    }
+
+    @Test
+    void nearestCandidateWinsTies() throws IOException {
+        PoiGazetteer gazetteer = gazetteer(TSV, "");
+
+        assertThat(gazetteer.locate("西湖", List.of(), new double[]{114.41, 23.09})).containsExactly(114.40, 23.10);
+        assertThat(gazetteer.locate("西湖", List.of(), new double[]{120.13, 30.26})).containsExactly(120.14, 30.25);
+        // 模糊匹配同分时同样就近
+        assertThat(gazetteer.locate("西湖边", List.of(), new double[]{114.41, 23.09})).containsExactly(114.40, 23.10);
+        assertThat(gazetteer.locate("西湖边", List.of(), new double[]{120.13, 30.26})).containsExactly(120.14, 30.25);
+    }
+
+    @Test
+    void matchesRejectsStaleOrTruncatedFiles() throws IOException {
+        long crc = crc(TSV);
+        byte[] compiled = PoiGazetteerFile.compile(TSV, crc);
+
+        assertThat(PoiGazetteerFile.matches(ByteBuffer.wrap(compiled), crc)).isTrue();
+        assertThat(PoiGazetteerFile.matches(ByteBuffer.wrap(compiled), crc + 1)).isFalse();
+        assertThat(PoiGazetteerFile.matches(ByteBuffer.wrap(Arrays.copyOf(compiled, compiled.length - 1)), crc)).isFalse();
+        assertThat(PoiGazetteerFile.matches(ByteBuffer.wrap(Arrays.copyOf(compiled, 16)), crc)).isFalse();
+        byte[] badMagic = compiled.clone();
+        badMagic[0] ^= 1;
+        assertThat(PoiGazetteerFile.matches(ByteBuffer.wrap(badMagic), crc)).isFalse();
+    }
+
+    @Test
+    void staleOrTruncatedCacheFileIsRecompiled() throws IOException {
+        Path file = dir.resolve("cache/poi.bin");
+        Files.createDirectories(file.getParent());
+        String old = "断桥\t\t杭州\t120.150\t30.260\n";
+        Files.write(file, PoiGazetteerFile.compile(old, crc(old)));
+
+        PoiGazetteer fresh = gazetteer(TSV, file.toString());
+
+        assertThat(fresh.locate("拙政园", List.of(), null)).containsExactly(120.63, 31.33);
+        assertThat(fresh.locate("断桥", List.of(), null)).isNull();
+        assertThat(PoiGazetteerFile.matches(ByteBuffer.wrap(Files.readAllBytes(file)), crc(TSV))).isTrue();
+
+        byte[] whole = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(whole, whole.length - 10));
+
+        PoiGazetteer reloaded = gazetteer(TSV, file.toString());
+
+        assertThat(reloaded.locate("拙政园", List.of(), null)).containsExactly(120.63, 31.33);
+        assertThat(Files.size(file)).isEqualTo(whole.length);
+    }
+
+    private PoiGazetteer gazetteer(String tsv, String file) throws IOException {
+        Path source = dir.resolve("gazetteer-" + crc(tsv) + ".tsv");
+        Files.writeString(source, tsv);
+        return new PoiGazetteer(new DefaultResourceLoader(), source.toUri().toString(), file);
+    }
+
+    private static long crc(String tsv) {
+        CRC32 crc = new CRC32();
+        crc.update(tsv.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.dto.TripPlanDtos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单日排序的 JMH 基准：每天 5～30 个地点，分别测最近邻 + 2-opt 求路径、单日排序并回填路程，
+ * 以及 3 个方案 × 14 天整份方案的排序（天数超过并行阈值，各天并行）。
+ * <p>
+ * 运行：{@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.travel.route.service.RouteOptimizerBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteOptimizerBenchmark {
+
+    private static final int VARIANTS = 3;
+    private static final int DAYS = 14;
+
+    @Param({"5", "10", "20", "30"})
+    public int stops;
+
+    private final RouteOptimizer optimizer = new RouteOptimizer();
+    private double[][] dist;
+    private List<TripPlanDtos.AiPoiItem> dayItems;
+    private TripPlanDtos.AiGenerateResponse plan;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        dayItems = randomItems(random, stops);
+        dist = new double[stops][stops];
+        for (int i = 0; i < stops; i++) {
+            for (int j = 0; j < stops; j++) {
+                TripPlanDtos.AiPoiItem a = dayItems.get(i);
+                TripPlanDtos.AiPoiItem b = dayItems.get(j);
+                dist[i][j] = RouteOptimizer.haversineKm(a.getLng(), a.getLat(), b.getLng(), b.getLat());
+            }
+        }
+        plan = new TripPlanDtos.AiGenerateResponse();
+        List<TripPlanDtos.AiPlanVariant> variants = new ArrayList<>();
+        for (int v = 0; v < VARIANTS; v++) {
+            TripPlanDtos.AiPlanVariant variant = new TripPlanDtos.AiPlanVariant();
+            List<TripPlanDtos.AiDayPlan> days = new ArrayList<>();
+            for (int d = 0; d < DAYS; d++) {
+                days.add(day(randomItems(random, stops)));
+            }
+            variant.setDays(days);
+            variants.add(variant);
+        }
+        plan.setVariants(variants);
+    }
+
+    @Benchmark
+    public int[] shortestOpenPath() {
+        return RouteOptimizer.shortestOpenPath(dist);
+    }
+
+    /** 每次都从原始顺序开始（optimizeDay 会原地替换 items） */
+    @Benchmark
+    public TripPlanDtos.AiDayPlan optimizeDay() {
+        TripPlanDtos.AiDayPlan day = day(dayItems);
+        optimizer.optimizeDay(day, "mixed");
+        return day;
+    }
+
+    /** 整份方案：排序后的顺序已是局部最优，重复运行主要衡量距离矩阵与 2-opt 收敛检查的开销 */
+    @Benchmark
+    public TripPlanDtos.AiGenerateResponse optimizePlan() {
+        optimizer.optimize(plan, "mixed");
+        return plan;
+    }
+
+    private static TripPlanDtos.AiDayPlan day(List<TripPlanDtos.AiPoiItem> items) {
+        TripPlanDtos.AiDayPlan day = new TripPlanDtos.AiDayPlan();
+        day.setItems(new ArrayList<>(items));
+        return day;
+    }
+
+    /** 杭州市区约 20 公里见方内的随机地点 */
+    private static List<TripPlanDtos.AiPoiItem> randomItems(SplittableRandom random, int count) {
+        List<TripPlanDtos.AiPoiItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TripPlanDtos.AiPoiItem item = new TripPlanDtos.AiPoiItem();
+            item.setId("p" + i);
+            item.setName("地点" + i);
+            item.setStayMinutes(30 + random.nextInt(120));
+            item.setLng(120.05 + random.nextDouble() * 0.2);
+            item.setLat(30.15 + random.nextDouble() * 0.2);
+            items.add(item);
+        }
+        return items;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RouteOptimizerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
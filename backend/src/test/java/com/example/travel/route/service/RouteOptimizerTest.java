@@ -0,0 +1,131 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.dto.TripPlanDtos;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 单日排序：2-opt 结果不劣于原顺序且是原地点的排列；缺坐标的地点留在原位置；路程按排序后的顺序回填。
+ */
+class RouteOptimizerTest {
+
+    private final RouteOptimizer optimizer = new RouteOptimizer();
+
+    @Test
+    void shortestOpenPathIsAPermutationNeverLongerThanTheOriginalOrder() {
+        SplittableRandom random = new SplittableRandom(11);
+        for (int round = 0; round < 200; round++) {
+            int n = 3 + random.nextInt(28);
+            double[][] dist = randomMatrix(random, n);
+            int[] identity = IntStream.range(0, n).toArray();
+
+            int[] order = RouteOptimizer.shortestOpenPath(dist);
+
+            assertThat(Arrays.stream(order).sorted().toArray()).containsExactly(identity);
+            assertThat(length(dist, order)).isLessThanOrEqualTo(length(dist, identity) + 1e-9);
+        }
+    }
+
+    @Test
+    void pointsOnALineAreVisitedEndToEnd() {
+        // 同一纬度上打乱顺序的 6 个点，最短开放路径是从一端依次走到另一端
+        List<TripPlanDtos.AiPoiItem> items = new ArrayList<>();
+        for (int x : new int[]{3, 0, 5, 1, 4, 2}) {
+            items.add(item("p" + x, 120.0 + x * 0.01, 30.0));
+        }
+
+        List<String> ids = optimizer.reorder(items, TripPlanDtos.AiPoiItem::getLng, TripPlanDtos.AiPoiItem::getLat)
+                .stream().map(TripPlanDtos.AiPoiItem::getId).toList();
+
+        assertThat(ids).isIn(List.of("p0", "p1", "p2", "p3", "p4", "p5"), List.of("p5", "p4", "p3", "p2", "p1", "p0"));
+    }
+
+    @Test
+    void unlocatedItemsKeepTheirSlots() {
+        SplittableRandom random = new SplittableRandom(5);
+        for (int round = 0; round < 50; round++) {
+            int n = 4 + random.nextInt(20);
+            List<TripPlanDtos.AiPoiItem> items = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                boolean located = random.nextInt(3) > 0;
+                items.add(located
+                        ? item("p" + i, 120 + random.nextDouble() * 0.2, 30 + random.nextDouble() * 0.2)
+                        : item("p" + i, null, null));
+            }
+
+            List<TripPlanDtos.AiPoiItem> result =
+                    optimizer.reorder(items, TripPlanDtos.AiPoiItem::getLng, TripPlanDtos.AiPoiItem::getLat);
+
+            assertThat(result).containsExactlyInAnyOrderElementsOf(items);
+            for (int i = 0; i < n; i++) {
+                if (items.get(i).getLng() == null) {
+                    assertThat(result.get(i)).isSameAs(items.get(i));
+                } else {
+                    assertThat(result.get(i).getLng()).isNotNull();
+                }
+            }
+        }
+    }
+
+    @Test
+    void optimizeDayFillsDistanceAndCommuteFromTheReorderedLegs() {
+        TripPlanDtos.AiDayPlan day = new TripPlanDtos.AiDayPlan();
+        day.setItems(new ArrayList<>(List.of(
+                item("far", 120.10, 30.0),
+                item("start", 120.00, 30.0),
+                item("mid", 120.05, 30.0))));
+
+        optimizer.optimizeDay(day, "drive");
+
+        List<TripPlanDtos.AiPoiItem> items = day.getItems();
+        double km = 0;
+        int commute = 0;
+        for (int i = 1; i < items.size(); i++) {
+            double leg = RouteOptimizer.legKm(items.get(i - 1).getLng(), items.get(i - 1).getLat(),
+                    items.get(i).getLng(), items.get(i).getLat());
+            km += leg;
+            commute += RouteOptimizer.TravelMode.DRIVE.minutes(leg);
+        }
+        assertThat(items.get(1).getId()).isEqualTo("mid");
+        assertThat(day.getDistanceKm()).isEqualTo((int) Math.round(km));
+        assertThat(day.getCommuteMinutes()).isEqualTo(commute);
+        assertThat(day.getDurationMinutes()).isEqualTo(3 * 60 + commute);
+    }
+
+    private static TripPlanDtos.AiPoiItem item(String id, Double lng, Double lat) {
+        TripPlanDtos.AiPoiItem item = new TripPlanDtos.AiPoiItem();
+        item.setId(id);
+        item.setName(id);
+        item.setStayMinutes(60);
+        item.setLng(lng);
+        item.setLat(lat);
+        return item;
+    }
+
+    private static double[][] randomMatrix(SplittableRandom random, int n) {
+        double[] lng = random.doubles(n, 120, 120.3).toArray();
+        double[] lat = random.doubles(n, 30, 30.3).toArray();
+        double[][] dist = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                dist[i][j] = RouteOptimizer.haversineKm(lng[i], lat[i], lng[j], lat[j]);
+            }
+        }
+        return dist;
+    }
+
+    private static double length(double[][] dist, int[] order) {
+        double len = 0;
+        for (int k = 1; k < order.length; k++) {
+            len += dist[order[k - 1]][order[k]];
+        }
+        return len;
+    }
+}
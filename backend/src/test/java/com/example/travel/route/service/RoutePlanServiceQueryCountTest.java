@@ -0,0 +1,120 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.dto.TripPlanDtos;
+import com.example.travel.route.entity.TripActivity;
+import com.example.travel.route.entity.TripDay;
+import com.example.travel.route.entity.TripPlan;
+import com.example.travel.route.repository.RouteStatsRepository;
+import com.example.travel.route.repository.TripActivityRepository;
+import com.example.travel.route.repository.TripDayRepository;
+import com.example.travel.route.repository.TripPlanRepository;
+import com.example.travel.user.entity.User;
+import com.example.travel.user.entity.UserProfile;
+import com.example.travel.user.repository.UserProfileRepository;
+import com.example.travel.user.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 路线详情缓存未命中时的查询次数回归：作者随行程取回，资料一次查询，引用次数读 route_stats，不再逐表统计。
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RoutePlanServiceQueryCountTest {
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TripPlanRepository tripPlanRepository;
+    @Autowired
+    private TripDayRepository tripDayRepository;
+    @Autowired
+    private TripActivityRepository tripActivityRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+    @Autowired
+    private RouteStatsRepository routeStatsRepository;
+
+    private RoutePlanService service;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        service = new RoutePlanService(tripPlanRepository,
+                tripDayRepository,
+                tripActivityRepository,
+                userRepository,
+                userProfileRepository,
+                mock(AiRouteClient.class),
+                mock(TripPlanBulkWriter.class),
+                new PlanDetailCache(100, 60),
+                new RouteStatsService(routeStatsRepository, 1.8),
+                mock(PoiGazetteer.class),
+                new RouteOptimizer(),
+                mock(DayScheduler.class));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void planDetailMissIssuesConstantQueries() {
+        Long planId = seedPlan();
+        em.clear();
+        statistics.clear();
+
+        TripPlanDtos.PlanResponse resp = service.getPlan(planId);
+
+        // 行程 + 作者、计数、作者资料、天、活动各 1 条
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(5);
+        assertThat(resp.getTitle()).isEqualTo("小林的杭州之旅");
+        assertThat(resp.getUsedCount()).isEqualTo(3);
+        assertThat(resp.getDays()).hasSize(1);
+        assertThat(resp.getDays().get(0).getActivities()).hasSize(2);
+    }
+
+    private Long seedPlan() {
+        User owner = new User();
+        owner.setPhone("route-owner");
+        owner.setPassword("x");
+        em.persist(owner);
+        UserProfile profile = new UserProfile();
+        profile.setUser(owner);
+        profile.setNickname("小林");
+        em.persist(profile);
+
+        TripPlan plan = new TripPlan();
+        plan.setOwner(owner);
+        plan.setDestination("杭州");
+        em.persist(plan);
+        TripDay day = new TripDay();
+        day.setPlan(plan);
+        day.setDayIndex(1);
+        em.persist(day);
+        for (String name : new String[]{"西湖", "灵隐寺"}) {
+            TripActivity a = new TripActivity();
+            a.setTripDay(day);
+            a.setType("sight");
+            a.setName(name);
+            em.persist(a);
+        }
+        em.flush();
+        routeStatsRepository.insertIfAbsent(plan.getId());
+        routeStatsRepository.addCounts(plan.getId(), 0, 0, 3);
+        return plan.getId();
+    }
+}
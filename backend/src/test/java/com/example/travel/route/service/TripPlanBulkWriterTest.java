@@ -0,0 +1,113 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.dto.TripPlanDtos;
+import com.example.travel.route.entity.TripActivity;
+import com.example.travel.route.entity.TripDay;
+import com.example.travel.route.entity.TripPlan;
+import com.example.travel.route.repository.TripActivityRepository;
+import com.example.travel.route.repository.TripDayRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 行程整图批量写入：每个活动都挂到自己所在的天，字段与空值原样落库。
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TripPlanBulkWriter.class)
+class TripPlanBulkWriterTest {
+
+    @Autowired
+    private TripPlanBulkWriter writer;
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private TripDayRepository tripDayRepository;
+    @Autowired
+    private TripActivityRepository tripActivityRepository;
+
+    @Test
+    void writesEveryDayAndLinksActivitiesToTheirOwnDay() {
+        TripPlan plan = em.persistFlushFind(new TripPlan());
+        List<TripPlanDtos.Day> days = new ArrayList<>();
+        for (int d = 1; d <= 5; d++) {
+            // 第 3 天没有活动，检验天与活动的对应不会错位
+            days.add(day(d, d == 3 ? 0 : d + 1));
+        }
+
+        int written = writer.insertDays(plan.getId(), days);
+
+        assertThat(written).isEqualTo(2 + 3 + 5 + 6);
+        em.clear();
+        List<TripDay> stored = tripDayRepository.findByPlanOrderByDayIndexAsc(plan);
+        assertThat(stored).extracting(TripDay::getDayIndex).containsExactly(1, 2, 3, 4, 5);
+        assertThat(stored.get(0).getDate()).isEqualTo(LocalDate.of(2026, 5, 1));
+        assertThat(stored.get(4).getOverflowMinutes()).isEqualTo(50);
+        for (TripDay day : stored) {
+            List<TripActivity> activities = tripActivityRepository.findByDayIdsInOrder(List.of(day.getId()));
+            int expected = day.getDayIndex() == 3 ? 0 : day.getDayIndex() + 1;
+            assertThat(activities).hasSize(expected);
+            assertThat(activities).allSatisfy(a -> assertThat(a.getName()).startsWith("D" + day.getDayIndex() + "-"));
+        }
+    }
+
+    @Test
+    void keepsNullableColumnsNull() {
+        TripPlan plan = em.persistFlushFind(new TripPlan());
+        TripPlanDtos.Activity bare = new TripPlanDtos.Activity();
+        bare.setName("无坐标");
+        TripPlanDtos.Day day = new TripPlanDtos.Day();
+        day.setDayIndex(1);
+        day.setActivities(List.of(bare));
+
+        writer.insertDays(plan.getId(), List.of(day));
+
+        em.clear();
+        TripActivity stored = tripActivityRepository.findByPlanId(plan.getId()).get(0);
+        assertThat(stored.getType()).isEqualTo("sight");
+        assertThat(stored.getLng()).isNull();
+        assertThat(stored.getLat()).isNull();
+        assertThat(stored.getStayMinutes()).isNull();
+        assertThat(stored.getEstimatedCost()).isNull();
+    }
+
+    @Test
+    void emptyPlanWritesNothing() {
+        assertThat(writer.insertDays(1L, List.of())).isZero();
+        assertThat(writer.insertDays(1L, null)).isZero();
+    }
+
+    static TripPlanDtos.Day day(int index, int activityCount) {
+        TripPlanDtos.Day day = new TripPlanDtos.Day();
+        day.setDayIndex(index);
+        day.setDate(LocalDate.of(2026, 5, 1).plusDays(index - 1));
+        day.setOverflowMinutes(index * 10);
+        List<TripPlanDtos.Activity> activities = new ArrayList<>();
+        for (int i = 0; i < activityCount; i++) {
+            TripPlanDtos.Activity a = new TripPlanDtos.Activity();
+            a.setName("D" + index + "-" + i);
+            a.setType("sight");
+            a.setStartTime(String.format("%02d:00", 9 + i));
+            a.setEndTime(String.format("%02d:45", 9 + i));
+            a.setStayMinutes(45);
+            a.setEstimatedCost(100);
+            a.setLng(120.15 + i * 0.01);
+            a.setLat(30.25);
+            activities.add(a);
+        }
+        day.setActivities(activities);
+        return day;
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.dto.TripPlanDtos;
+import com.example.travel.route.entity.TripActivity;
+import com.example.travel.route.entity.TripDay;
+import com.example.travel.route.entity.TripPlan;
+import com.example.travel.route.repository.TripActivityRepository;
+import com.example.travel.route.repository.TripDayRepository;
+import com.example.travel.route.repository.TripPlanRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 创建行程的写入延迟 JMH 基准：逐条 save（改造前）与 JDBC 批量写入（{@link TripPlanBulkWriter}）对比，
+ * 规模为 14 天 × 5、30 天 × 8、60 天 × 10 个活动。
+ * <p>
+ * 内存库没有网络开销，这里给每次语句执行（含一次 executeBatch）加上固定的模拟往返时延（rttMicros，默认 0.5ms）；
+ * 每次操作在事务内写完后回滚，表大小不随迭代增长。基准状态启动只含数据源、JPA 与事务的最小 Spring 上下文（test 配置）。
+ * <p>
+ * 运行：{@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.travel.route.service.TripPlanCreateBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TripPlanCreateBenchmark {
+
+    /** 天数 x 每天活动数 */
+    @Param({"14x5", "30x8", "60x10"})
+    public String size;
+
+    @Param({"500"})
+    public long rttMicros;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate tx;
+    private TripPlanRepository tripPlanRepository;
+    private TripDayRepository tripDayRepository;
+    private TripActivityRepository tripActivityRepository;
+    private TripPlanBulkWriter writer;
+    private List<TripPlanDtos.Day> days;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RoundTripDelay.rttNanos = TimeUnit.MICROSECONDS.toNanos(rttMicros);
+        context = new SpringApplicationBuilder(BenchContext.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .profiles("test")
+                .run();
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        tripPlanRepository = context.getBean(TripPlanRepository.class);
+        tripDayRepository = context.getBean(TripDayRepository.class);
+        tripActivityRepository = context.getBean(TripActivityRepository.class);
+        writer = context.getBean(TripPlanBulkWriter.class);
+
+        String[] parts = size.split("x");
+        int dayCount = Integer.parseInt(parts[0]);
+        int activitiesPerDay = Integer.parseInt(parts[1]);
+        days = new ArrayList<>(dayCount);
+        for (int d = 1; d <= dayCount; d++) {
+            days.add(TripPlanBulkWriterTest.day(d, activitiesPerDay));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void perRowSave() {
+        tx.executeWithoutResult(status -> {
+            savePerRow(days);
+            status.setRollbackOnly();
+        });
+    }
+
+    @Benchmark
+    public int batchedInsert() {
+        return tx.execute(status -> {
+            int written = writer.insertDays(newPlan().getId(), days);
+            status.setRollbackOnly();
+            return written;
+        });
+    }
+
+    /** 改造前的写法：每个天、每个活动各 save 一次（IDENTITY 主键，每次都是一条 INSERT） */
+    private void savePerRow(List<TripPlanDtos.Day> days) {
+        TripPlan plan = newPlan();
+        for (TripPlanDtos.Day d : days) {
+            TripDay day = new TripDay();
+            day.setPlan(plan);
+            day.setDayIndex(d.getDayIndex());
+            day.setDate(d.getDate());
+            day.setOverflowMinutes(d.getOverflowMinutes());
+            tripDayRepository.save(day);
+            for (TripPlanDtos.Activity a : d.getActivities()) {
+                TripActivity activity = new TripActivity();
+                activity.setTripDay(day);
+                activity.setType(a.getType());
+                activity.setName(a.getName());
+                activity.setStartTime(a.getStartTime());
+                activity.setEndTime(a.getEndTime());
+                activity.setStayMinutes(a.getStayMinutes());
+                activity.setEstimatedCost(a.getEstimatedCost());
+                activity.setLng(a.getLng());
+                activity.setLat(a.getLat());
+                tripActivityRepository.save(activity);
+            }
+        }
+    }
+
+    private TripPlan newPlan() {
+        TripPlan plan = new TripPlan();
+        plan.setTitle("bench");
+        return tripPlanRepository.save(plan);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TripPlanCreateBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /** 最小上下文：数据源、JPA、事务与 JdbcTemplate，另加往返时延包装 */
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            DataSourceTransactionManagerAutoConfiguration.class, TransactionAutoConfiguration.class,
+            JdbcTemplateAutoConfiguration.class})
+    @EntityScan("com.example.travel")
+    @EnableJpaRepositories(basePackageClasses = TripPlanRepository.class)
+    @Import({TripPlanBulkWriter.class, RoundTripDelay.class})
+    static class BenchContext {
+    }
+
+    /** 给数据源包一层：每次执行语句前停顿一个往返时延（提交 / 回滚不计） */
+    @Configuration(proxyBeanMethods = false)
+    static class RoundTripDelay {
+
+        static volatile long rttNanos;
+
+        @Bean
+        static BeanPostProcessor roundTripDelayingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ds && !(bean instanceof DelegatingDataSource)
+                            ? new DelegatingDataSource(ds) {
+                                @Override
+                                public Connection getConnection() throws SQLException {
+                                    return delaying(super.getConnection());
+                                }
+                            }
+                            : bean;
+                }
+            };
+        }
+
+        private static Connection delaying(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(RoundTripDelay.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (p, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        return result instanceof Statement statement ? delayingStatement(statement) : result;
+                    });
+        }
+
+        private static Statement delayingStatement(Statement statement) {
+            Class<?>[] types = statement.getClass().getInterfaces();
+            return (Statement) Proxy.newProxyInstance(RoundTripDelay.class.getClassLoader(), types,
+                    (p, method, args) -> {
+                        if (method.getName().startsWith("execute")) {
+                            LockSupport.parkNanos(rttNanos);
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.travel.route.service;
+
+import com.example.travel.route.entity.TripActivity;
+import com.example.travel.route.entity.TripDay;
+import com.example.travel.route.entity.TripPlan;
+import com.example.travel.route.repository.TripActivityRepository;
+import com.example.travel.route.repository.TripDayRepository;
+import com.example.travel.route.repository.TripPlanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 启动补排：一批内的活动时间与 overflowMinutes 在同一事务中落库；批内任一天出错则整批回滚，
+ * 这些天保持未排状态，下次运行仍会被选中。
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TripScheduleBackfillTest {
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private TripPlanRepository tripPlanRepository;
+    @Autowired
+    private TripDayRepository tripDayRepository;
+    @Autowired
+    private TripActivityRepository tripActivityRepository;
+
+    private TransactionTemplate tx;
+    private TripPlan plan;
+    private TripDay first;
+    private TripDay second;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            plan = tripPlanRepository.save(new TripPlan());
+            first = day(1);
+            activity(first, "灵隐寺", 120, null, null);
+            activity(first, "龙井村", 90, null, null);
+            second = day(2);
+            activity(second, "西湖游船", 600, "10:00", null);
+            activity(second, "夜游", 180, null, null);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        tx.executeWithoutResult(status -> {
+            tripActivityRepository.deleteByPlanId(plan.getId());
+            tripDayRepository.deleteByPlanId(plan.getId());
+            tripPlanRepository.deleteById(plan.getId());
+        });
+    }
+
+    @Test
+    void scheduledTimesAndOverflowArePersisted() {
+        backfill(new DayScheduler("09:00", "21:00", 60)).run(null);
+
+        assertThat(times(first)).containsExactly("09:00-11:00", "11:23-12:53");
+        assertThat(times(second)).containsExactly("10:00-20:00", "20:23-23:23");
+        assertThat(tripDayRepository.findById(first.getId()).orElseThrow().getOverflowMinutes()).isZero();
+        assertThat(tripDayRepository.findById(second.getId()).orElseThrow().getOverflowMinutes()).isEqualTo(143);
+        assertThat(tripActivityRepository.findUnscheduledDayIds(first.getId() - 1, PageRequest.of(0, 10)))
+                .doesNotContain(first.getId(), second.getId());
+    }
+
+    @Test
+    void failureInsideABatchRollsBackTheWholeBatch() {
+        AtomicInteger calls = new AtomicInteger();
+        DayScheduler failingOnSecondDay = new DayScheduler("09:00", "21:00", 60) {
+            @Override
+            public void scheduleDay(TripDay day, List<TripActivity> activities) {
+                super.scheduleDay(day, activities);
+                if (calls.incrementAndGet() == 2) {
+                    throw new IllegalStateException("boom");
+                }
+            }
+        };
+
+        backfill(failingOnSecondDay).run(null);
+
+        assertThat(calls.get()).isGreaterThanOrEqualTo(2);
+        assertThat(times(first)).containsExactly("null-null", "null-null");
+        assertThat(times(second)).containsExactly("10:00-null", "null-null");
+        assertThat(tripDayRepository.findById(first.getId()).orElseThrow().getOverflowMinutes()).isNull();
+        assertThat(tripDayRepository.findById(second.getId()).orElseThrow().getOverflowMinutes()).isNull();
+
+        // 回滚后的天下次运行照常补排
+        backfill(new DayScheduler("09:00", "21:00", 60)).run(null);
+
+        assertThat(times(first)).containsExactly("09:00-11:00", "11:23-12:53");
+    }
+
+    private TripScheduleBackfill backfill(DayScheduler scheduler) {
+        return new TripScheduleBackfill(tripActivityRepository, tripDayRepository, scheduler, tx);
+    }
+
+    private List<String> times(TripDay day) {
+        return tripActivityRepository.findByDayIdsInOrder(List.of(day.getId())).stream()
+                .map(a -> a.getStartTime() + "-" + a.getEndTime())
+                .toList();
+    }
+
+    private TripDay day(int index) {
+        TripDay day = new TripDay();
+        day.setPlan(plan);
+        day.setDayIndex(index);
+        return tripDayRepository.save(day);
+    }
+
+    private void activity(TripDay day, String name, int stay, String start, String end) {
+        TripActivity a = new TripActivity();
+        a.setTripDay(day);
+        a.setType("sight");
+        a.setName(name);
+        a.setStayMinutes(stay);
+        a.setStartTime(start);
+        a.setEndTime(end);
+        tripActivityRepository.save(a);
+    }
+}
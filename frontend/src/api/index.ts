@@ -12,8 +12,11 @@ import type {
   CreatePlanRequest,
   AiGenerateRouteRequest,
   AiGenerateRouteResponse,
+  AiGenerateJob,
+  AiGenerateStreamEvent,
   RouteGenerateForm,
   CompanionPostSummary,
+  CompanionPostPage,
   CompanionPostDetail,
   PostChatMessageItem,
   MyTeamMessageItem,
@@ -206,10 +209,63 @@ export const routesApi = {
   create(body: CreatePlanRequest) {
     return api.post<ApiResponse<number>>('/routes', body).then(unwrap)
   },
-  /** AI 生成路线方案（不落库，返回多方案供前端展示） */
+  /** @deprecated 同步 AI 生成（需登录，占用请求线程），请改用 aiGenerateStream 或 submitAiGenerateJob */
   aiGenerate(body: AiGenerateRouteRequest) {
     return api.post<ApiResponse<AiGenerateRouteResponse>>('/routes/ai-generate', body).then(unwrap)
   },
+  /**
+   * 流式 AI 生成：按生成进度回调 day / variant 事件，最终以 done（AI 结果）或 fallback（mock 结果）结束。
+   * SSE 需 POST 请求体，EventSource 不支持，这里用 fetch 读取流。
+   */
+  async aiGenerateStream(
+    body: AiGenerateRouteRequest,
+    onEvent: (event: AiGenerateStreamEvent) => void,
+    signal?: AbortSignal
+  ): Promise<void> {
+    const auth = useAuthStore()
+    const headers: Record<string, string> = { 'Content-Type': 'application/json', Accept: 'text/event-stream' }
+    if (auth.token) headers.Authorization = `Bearer ${auth.token}`
+    const res = await fetch('/api/routes/ai-generate/stream', {
+      method: 'POST',
+      headers,
+      body: JSON.stringify(body),
+      signal,
+    })
+    if (!res.ok || !res.body) throw new Error(`AI 生成失败: ${res.status}`)
+    // 排队已满等业务错误以普通 JSON 返回
+    if (!res.headers.get('Content-Type')?.includes('text/event-stream')) {
+      const json = (await res.json().catch(() => null)) as ApiResponse<unknown> | null
+      throw new Error(json?.message || 'AI 生成失败，请稍后重试')
+    }
+    const reader = res.body.getReader()
+    const decoder = new TextDecoder()
+    let buffer = ''
+    for (;;) {
+      const { done, value } = await reader.read()
+      if (done) break
+      buffer += decoder.decode(value, { stream: true })
+      let sep: number
+      while ((sep = buffer.indexOf('\n\n')) >= 0) {
+        const block = buffer.slice(0, sep)
+        buffer = buffer.slice(sep + 2)
+        let name = 'message'
+        const data: string[] = []
+        for (const line of block.split('\n')) {
+          if (line.startsWith('event:')) name = line.slice(6).trim()
+          else if (line.startsWith('data:')) data.push(line.slice(5).trimStart())
+        }
+        if (data.length) onEvent({ type: name, data: JSON.parse(data.join('\n')) } as AiGenerateStreamEvent)
+      }
+    }
+  },
+  /** 提交 AI 生成异步任务，立即返回任务 ID */
+  submitAiGenerateJob(body: AiGenerateRouteRequest) {
+    return api.post<ApiResponse<AiGenerateJob>>('/routes/ai-generate/jobs', body).then(unwrap)
+  },
+  /** 轮询 AI 生成任务；也可用 EventSource 订阅 /routes/ai-generate/jobs/{jobId}/events */
+  getAiGenerateJob(jobId: string) {
+    return api.get<ApiResponse<AiGenerateJob>>(`/routes/ai-generate/jobs/${jobId}`).then(unwrap)
+  },
 }
 
 /** 从 RouteGenerateForm + 日期人数 构建 AI 生成请求体 */
@@ -232,6 +288,17 @@ export function buildAiGenerateRequest(
   }
 }
 
+/** 媒体：上传图片，返回 /api/media/{hash} 引用，可直接作为图片消息 content */
+export const mediaApi = {
+  upload(file: File) {
+    const form = new FormData()
+    form.append('file', file)
+    return api
+      .post<ApiResponse<{ hash: string; url: string; contentType: string; size: number }>>('/media', form)
+      .then(unwrap)
+  },
+}
+
 /** 结伴 */
 export const companionApi = {
   /** 发布结伴帖，返回新帖子 id */
@@ -256,6 +323,22 @@ export const companionApi = {
   listPosts(params?: { destination?: string; startDate?: string; endDate?: string }) {
     return api.get<ApiResponse<CompanionPostSummary[]>>('/companion/posts', { params }).then(unwrap)
   },
+  /**
+   * 游标分页搜索：首页不传 cursor，之后传上一页返回的 nextCursor。
+   * mode 为 overlap 时匹配与日期范围有交集的行程，并可按预算区间交集过滤
+   */
+  searchPosts(params?: {
+    destination?: string
+    startDate?: string
+    endDate?: string
+    cursor?: string
+    size?: number
+    mode?: 'within' | 'overlap'
+    budgetMin?: number
+    budgetMax?: number
+  }) {
+    return api.get<ApiResponse<CompanionPostPage>>('/companion/posts/search', { params }).then(unwrap)
+  },
   myPosts() {
     return api.get<ApiResponse<CompanionPostSummary[]>>('/companion/posts/my').then(unwrap)
   },
@@ -290,9 +373,14 @@ export const companionApi = {
   shareTeam(teamId: number, userId: number) {
     return api.post<ApiResponse<void>>(`/companion/teams/${teamId}/share`, {}, { params: { userId } }).then(unwrap)
   },
-  /** 获取结伴帖内置沟通消息列表（任何人可读） */
-  getPostChatMessages(postId: number) {
-    return api.get<ApiResponse<PostChatMessageItem[]>>(`/companion/posts/${postId}/chat/messages`).then(unwrap)
+  /**
+   * 获取结伴帖内置沟通消息列表（发起人或小队成员）：不传参数时返回全部历史；
+   * afterId 只返回其后的新消息（WebSocket 重连后补齐），beforeId 返回其前最近 limit 条（向上翻页）
+   */
+  getPostChatMessages(postId: number, params?: { afterId?: number; beforeId?: number; limit?: number }) {
+    return api
+      .get<ApiResponse<PostChatMessageItem[]>>(`/companion/posts/${postId}/chat/messages`, { params })
+      .then(unwrap)
   },
   /** 发送结伴帖内置沟通消息（需登录且为发起人或已加入小队成员）；可选 type=spot/image/route/companion 及对应 JSON */
   sendPostChatMessage(
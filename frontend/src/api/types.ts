@@ -109,6 +109,8 @@ export interface TripPlanDay {
   dayIndex: number
   date: string
   activities: TripPlanActivity[]
+  /** 排程超出当日时间窗的分钟数，0 表示未超出（保存时由后端计算） */
+  overflowMinutes?: number
 }
 export interface TripPlanActivity {
   type?: string
@@ -118,6 +120,8 @@ export interface TripPlanActivity {
   endTime?: string
   transport?: string
   estimatedCost?: number
+  /** 停留时长（分钟）；未填 startTime 时后端据此与通勤时间排程 */
+  stayMinutes?: number
   /** 景点/活动经度（后端返回真实坐标） */
   lng?: number
   /** 景点/活动纬度（后端返回真实坐标） */
@@ -213,6 +217,23 @@ export interface AiGenerateRouteResponse {
   variants: AiPlanVariant[]
 }
 
+/** 流式 AI 生成事件 */
+export type AiGenerateStreamEvent =
+  | { type: 'day'; data: { variantIndex: number; variantId?: string; variantName?: string; day: AiDayPlan } }
+  | { type: 'variant'; data: { variantIndex: number; variant: AiPlanVariant } }
+  | { type: 'done' | 'fallback'; data: AiGenerateRouteResponse }
+
+/** AI 生成异步任务 */
+export interface AiGenerateJob {
+  jobId: string
+  status: 'queued' | 'running' | 'done' | 'failed'
+  queuePosition?: number
+  result?: AiGenerateRouteResponse
+  error?: string
+  waitMillis?: number
+  runMillis?: number
+}
+
 /** 结伴 PostSummary */
 export interface CompanionPostSummary {
   id: number
@@ -237,6 +258,14 @@ export interface CompanionPostSummary {
   creatorTags?: string
 }
 
+/** 结伴游标分页搜索结果 */
+export interface CompanionPostPage {
+  items: CompanionPostSummary[]
+  /** 下一页游标，没有更多时为空 */
+  nextCursor?: string | null
+  hasMore: boolean
+}
+
 /** 结伴帖详情（含说明、关联小队 ID） */
 export interface CompanionPostDetail extends CompanionPostSummary {
   expectedMateDesc?: string
@@ -318,33 +318,66 @@ export const useRoutePlanningStore = defineStore('routePlanning', () => {
     if (!activeVariantId.value) activeVariantId.value = 'a'
   }
 
-  /** 用后端 AI 生成接口返回的数据覆盖当前方案（与 AiGenerateRouteResponse 结构一致），保留 POI 的 lng/lat */
-  function setVariantsFromApi(response: { variants: PlanVariant[] }) {
-    variants.value = response.variants.map((v) => ({
-      id: v.id,
-      name: v.name,
-      days: (v.days || []).map((d) => ({
-        dayIndex: d.dayIndex,
-        date: typeof d.date === 'string' ? d.date : String(d.date ?? ''),
-        durationMinutes: d.durationMinutes ?? 0,
-        distanceKm: d.distanceKm ?? 0,
-        commuteMinutes: d.commuteMinutes ?? 0,
-        items: (d.items ?? []).map((it) => ({
-          id: it.id,
-          image: it.image,
-          name: it.name,
-          stayMinutes: it.stayMinutes,
-          tags: it.tags ?? [],
-          lng: it.lng,
-          lat: it.lat,
-        })),
+  /** 后端单日数据转为前端 DayPlan，保留 POI 的 lng/lat */
+  function toDayPlan(d: DayPlan): DayPlan {
+    return {
+      dayIndex: d.dayIndex,
+      date: typeof d.date === 'string' ? d.date : String(d.date ?? ''),
+      durationMinutes: d.durationMinutes ?? 0,
+      distanceKm: d.distanceKm ?? 0,
+      commuteMinutes: d.commuteMinutes ?? 0,
+      items: (d.items ?? []).map((it) => ({
+        id: it.id,
+        image: it.image,
+        name: it.name,
+        stayMinutes: it.stayMinutes,
+        tags: it.tags ?? [],
+        lng: it.lng,
+        lat: it.lat,
       })),
-    }))
+    }
+  }
+
+  function toPlanVariant(v: PlanVariant): PlanVariant {
+    return { id: v.id, name: v.name, days: (v.days || []).map(toDayPlan) }
+  }
+
+  function ensureActiveVariant() {
     if (variants.value.length && (!activeVariantId.value || !variants.value.some((x) => x.id === activeVariantId.value))) {
       activeVariantId.value = variants.value[0].id
     }
   }
 
+  /** 用后端 AI 生成接口返回的数据覆盖当前方案（与 AiGenerateRouteResponse 结构一致），保留 POI 的 lng/lat */
+  function setVariantsFromApi(response: { variants: PlanVariant[] }) {
+    variants.value = response.variants.map(toPlanVariant)
+    ensureActiveVariant()
+  }
+
+  /** 流式 day 事件：第 variantIndex 个方案新增（或替换）一天 */
+  function applyStreamDay(variantIndex: number, day: DayPlan, variantId?: string, variantName?: string) {
+    while (variants.value.length <= variantIndex) {
+      const id = String.fromCharCode(97 + variants.value.length)
+      variants.value.push({ id, name: `方案 ${id.toUpperCase()}`, days: [] })
+    }
+    const variant = variants.value[variantIndex]
+    if (variantId) variant.id = variantId
+    if (variantName) variant.name = variantName
+    const next = toDayPlan(day)
+    const days = variant.days.filter((d) => d.dayIndex !== next.dayIndex)
+    days.push(next)
+    variant.days = days.sort((a, b) => a.dayIndex - b.dayIndex)
+    ensureActiveVariant()
+  }
+
+  /** 流式 variant 事件：第 variantIndex 个方案已完整，整体替换 */
+  function applyStreamVariant(variantIndex: number, variant: PlanVariant) {
+    const next = toPlanVariant(variant)
+    if (variantIndex < variants.value.length) variants.value.splice(variantIndex, 1, next)
+    else variants.value.push(next)
+    ensureActiveVariant()
+  }
+
   function setActiveVariant(id: string) {
     activeVariantId.value = id
   }
@@ -403,6 +436,8 @@ export const useRoutePlanningStore = defineStore('routePlanning', () => {
     removeDestination,
     generateItinerary,
     setVariantsFromApi,
+    applyStreamDay,
+    applyStreamVariant,
     setActiveVariant,
     reorderDayItems,
     removeDayItem,